@@ -38,9 +38,12 @@ import avrora.core.ProgramReader;
 import avrora.monitors.*;
 import avrora.sim.GenInterpreter;
 import avrora.sim.InterpreterFactory;
+import avrora.sim.LazyFlagsInterpreter;
+import avrora.sim.PredecodedInterpreter;
 import avrora.sim.Simulation;
 import avrora.sim.Simulator;
 import avrora.sim.clock.ClockDomain;
+import avrora.sim.dbbc.DBBCInterpreter;
 import avrora.sim.mcu.ATMega128;
 import avrora.sim.mcu.ATMega16;
 import avrora.sim.mcu.ATMega32;
@@ -80,6 +83,7 @@ public class Defaults {
     private static ClassMap harnessMap;
     private static ClassMap monitorMap;
     private static ClassMap simMap;
+    private static ClassMap interpreterMap;
 
     private static void addAll() {
         addMicrocontrollers();
@@ -89,6 +93,7 @@ public class Defaults {
         addTestHarnesses();
         addMonitors();
         addSimulations();
+        addInterpreters();
     }
 
     private static void addMonitors() {
@@ -113,6 +118,7 @@ public class Defaults {
             monitorMap.addClass("trip-time", TripTimeMonitor.class);
             monitorMap.addClass("ioregs", IORegMonitor.class);
             monitorMap.addClass("real-time", RealTimeMonitor.class);
+            monitorMap.addClass("events", EventMonitor.class);
 
             HelpCategory hc = new HelpCategory("monitors", "Help for the supported simulation monitors.");
             addOptionSection(hc, "SIMULATION MONITORS", "Avrora's simulator offers the ability to install execution " +
@@ -134,6 +140,12 @@ public class Defaults {
             harnessMap.addClass("probes", ProbeTestHarness.class);
             harnessMap.addClass("disassembler", DisassemblerTestHarness.class);
             harnessMap.addClass("interrupt", InterruptTestHarness.class);
+            harnessMap.addClass("event-queues", EventQueueTestHarness.class);
+            harnessMap.addClass("monitor", MonitorTestHarness.class);
+            harnessMap.addClass("simulation", SimulationTestHarness.class);
+            harnessMap.addClass("code-cache", CodeCacheTestHarness.class);
+            harnessMap.addClass("barrier", BarrierTestHarness.class);
+            harnessMap.addClass("channel", ChannelTestHarness.class);
         }
     }
 
@@ -210,6 +222,19 @@ public class Defaults {
         }
     }
 
+    private static void addInterpreters() {
+        if (interpreterMap == null) {
+            interpreterMap = new ClassMap("Interpreter", InterpreterFactory.class);
+            //-- DEFAULT INTERPRETERS
+            interpreterMap.addInstance("generated", DEFAULT_IF);
+            interpreterMap.addInstance("predecoded", new PredecodedInterpreter.Factory());
+            interpreterMap.addInstance("lazy-flags", new LazyFlagsInterpreter.Factory());
+            //--BEGIN EXPERIMENTAL: dbbc
+            interpreterMap.addClass("dbbc", DBBCInterpreter.Factory.class);
+            //--END EXPERIMENTAL: dbbc
+        }
+    }
+
     private static void addPlatforms() {
         if (platforms == null) {
             platforms = new ClassMap("Platform", PlatformFactory.class);
@@ -402,6 +427,20 @@ public class Defaults {
         return DEFAULT_IF;
     }
 
+    /**
+     * The <code>getInterpreterFactory()</code> method gets the interpreter factory corresponding to the
+     * given name represented as a string. This string can represent a short name for the class (an alias),
+     * or a fully qualified Java class name.
+     *
+     * @param s the name of the interpreter as a string; a class name or an alias such as "predecoded"
+     * @return an instance of the <code>InterpreterFactory</code> class that is capable of creating
+     *         interpreters for new simulator instances
+     */
+    public static InterpreterFactory getInterpreterFactory(String s) {
+        addInterpreters();
+        return (InterpreterFactory) interpreterMap.getObjectOfClass(s);
+    }
+
     public static Simulator newSimulator(int id, String mcu, long hz, long exthz, InterpreterFactory factory, Program p) {
         MicrocontrollerFactory f = getMicrocontroller(mcu);
         ClockDomain cd = new ClockDomain(hz);
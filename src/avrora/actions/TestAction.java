@@ -49,6 +49,9 @@ public class TestAction extends Action {
 
     public final Option.Bool DETAIL = options.newOption("detail", false, "This option selects whether " +
             "the automated testing framework will report detailed information for failed test cases.");
+    public final Option.Str INTERPRETER = options.newOption("interpreter", "", "This option selects the " +
+            "interpreter used by test cases that run the simulator and do not name an interpreter themselves. " +
+            "By default, the default interpreter of the simulator is used.");
 
     public TestAction() {
         super(HELP);
@@ -61,6 +64,7 @@ public class TestAction extends Action {
      */
     public void run(String[] args) throws Exception {
         AutomatedTester.LONG_REPORT = DETAIL.get();
+        if ( !"".equals(INTERPRETER.get()) ) AutomatedTester.INTERPRETER = INTERPRETER.get();
         Status.ENABLED = false;
         new AutomatedTester().runTests(args);
     }
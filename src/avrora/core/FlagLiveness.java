@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.core;
+
+import avrora.Avrora;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * The <code>FlagLiveness</code> class computes, for each instruction in a program, which of the arithmetic
+ * flags of the status register (H, S, V, N, Z and C) may be read before they are overwritten. It is a
+ * standard backwards dataflow analysis over the basic blocks of the <code>ControlFlowGraph</code> of the
+ * program. An interpreter can use the result to skip computing the flags written by an instruction when
+ * none of them are live afterwards.
+ * <p/>
+ * The analysis is conservative. Any instruction that can observe the status register as a whole (e.g. an
+ * <code>IN</code> from the status register, a load through a pointer, a skip, or an instruction that
+ * enables interrupts) is considered to read all of the flags, and so is the end of any block whose
+ * successors are not statically known (e.g. returns and indirect jumps). The <code>T</code> and
+ * <code>I</code> flags are not tracked.
+ *
+ * @author Ben L. Titzer
+ * @see ControlFlowGraph
+ */
+public class FlagLiveness {
+
+    public static final int FLAG_C = 1 << 0;
+    public static final int FLAG_Z = 1 << 1;
+    public static final int FLAG_N = 1 << 2;
+    public static final int FLAG_V = 1 << 3;
+    public static final int FLAG_S = 1 << 4;
+    public static final int FLAG_H = 1 << 5;
+
+    /**
+     * The <code>ALL_FLAGS</code> field is the mask of all of the flags tracked by this analysis. The bits
+     * of the mask correspond to the bits of the flags in the status register.
+     */
+    public static final int ALL_FLAGS = FLAG_C | FLAG_Z | FLAG_N | FLAG_V | FLAG_S | FLAG_H;
+
+    private static final int SVNZ = FLAG_S | FLAG_V | FLAG_N | FLAG_Z;
+    private static final int SVNZC = SVNZ | FLAG_C;
+    private static final int CZ = FLAG_C | FLAG_Z;
+
+    /**
+     * The <code>effects</code> map stores, for each instruction name, a two-element array of the flags
+     * that the instruction reads and the flags that it always writes. Instructions that are not in this
+     * map and are not handled specially are assumed to read all flags.
+     */
+    private static final HashMap effects = new HashMap();
+
+    private static void effect(String name, int read, int write) {
+        effects.put(name, new int[] { read, write });
+    }
+
+    static {
+        effect("adc", FLAG_C, ALL_FLAGS);
+        effect("add", 0, ALL_FLAGS);
+        effect("adiw", 0, SVNZC);
+        effect("and", 0, SVNZ);
+        effect("andi", 0, SVNZ);
+        effect("asr", 0, SVNZC);
+        effect("bld", 0, 0);
+        effect("bst", 0, 0);
+        effect("brcc", FLAG_C, 0);
+        effect("brcs", FLAG_C, 0);
+        effect("breq", FLAG_Z, 0);
+        effect("brge", FLAG_S, 0);
+        effect("brhc", FLAG_H, 0);
+        effect("brhs", FLAG_H, 0);
+        effect("brid", 0, 0);
+        effect("brie", 0, 0);
+        effect("brlo", FLAG_C, 0);
+        effect("brlt", FLAG_S, 0);
+        effect("brmi", FLAG_N, 0);
+        effect("brne", FLAG_Z, 0);
+        effect("brpl", FLAG_N, 0);
+        effect("brsh", FLAG_C, 0);
+        effect("brtc", 0, 0);
+        effect("brts", 0, 0);
+        effect("brvc", FLAG_V, 0);
+        effect("brvs", FLAG_V, 0);
+        effect("call", 0, 0);
+        effect("cbi", 0, 0);
+        effect("cbr", 0, SVNZ);
+        effect("clr", 0, SVNZ);
+        effect("com", 0, SVNZC);
+        effect("cp", 0, ALL_FLAGS);
+        effect("cpc", CZ, ALL_FLAGS);
+        effect("cpi", 0, ALL_FLAGS);
+        effect("dec", 0, SVNZ);
+        effect("eicall", 0, 0);
+        effect("eijmp", 0, 0);
+        effect("elpm", 0, 0);
+        effect("eor", 0, SVNZ);
+        effect("fmul", 0, CZ);
+        effect("fmuls", 0, CZ);
+        effect("fmulsu", 0, CZ);
+        effect("icall", 0, 0);
+        effect("ijmp", 0, 0);
+        effect("inc", 0, SVNZ);
+        effect("jmp", 0, 0);
+        effect("ldi", 0, 0);
+        effect("lpm", 0, 0);
+        effect("lsl", 0, ALL_FLAGS);
+        effect("lsr", 0, SVNZC);
+        effect("mov", 0, 0);
+        effect("movw", 0, 0);
+        effect("mul", 0, CZ);
+        effect("muls", 0, CZ);
+        effect("mulsu", 0, CZ);
+        effect("neg", 0, ALL_FLAGS);
+        effect("nop", 0, 0);
+        effect("or", 0, SVNZ);
+        effect("ori", 0, SVNZ);
+        effect("push", 0, 0);
+        effect("rcall", 0, 0);
+        effect("ret", 0, 0);
+        effect("rjmp", 0, 0);
+        effect("rol", FLAG_C, ALL_FLAGS);
+        effect("ror", FLAG_C, SVNZC);
+        effect("sbc", CZ, ALL_FLAGS);
+        effect("sbci", CZ, ALL_FLAGS);
+        effect("sbi", 0, 0);
+        effect("sbiw", 0, SVNZC);
+        effect("sbr", 0, SVNZ);
+        effect("ser", 0, 0);
+        effect("st", 0, 0);
+        effect("std", 0, 0);
+        effect("sts", 0, 0);
+        effect("sub", 0, ALL_FLAGS);
+        effect("subi", 0, ALL_FLAGS);
+        effect("swap", 0, 0);
+        effect("tst", 0, SVNZ);
+        effect("wdr", 0, 0);
+    }
+
+    protected final Program program;
+    protected final int sreg;
+
+    /**
+     * The <code>live</code> array stores, for each byte address in the program, the flags that are live
+     * after the instruction at that address executes.
+     */
+    protected final byte[] live;
+
+    /**
+     * The constructor for the <code>FlagLiveness</code> class computes the liveness of the flags for
+     * every instruction in the control flow graph of the specified program. If the control flow graph
+     * cannot be built (e.g. because data in the code segment looks like a branch to a misaligned
+     * address), all of the flags are considered live everywhere.
+     *
+     * @param p the program to analyze
+     * @param sreg the IO register number of the status register
+     */
+    public FlagLiveness(Program p, int sreg) {
+        program = p;
+        this.sreg = sreg;
+        live = new byte[p.program_end];
+        for (int cntr = 0; cntr < live.length; cntr++)
+            live[cntr] = ALL_FLAGS;
+
+        ControlFlowGraph cfg;
+        try {
+            cfg = p.getCFG();
+        } catch (Avrora.Error e) {
+            // leave all of the flags live
+            return;
+        }
+        computeLiveness(cfg);
+    }
+
+    /**
+     * The <code>getLiveFlags()</code> method returns the mask of the flags that may be read after the
+     * instruction at the specified address executes and before they are written again.
+     *
+     * @param address the byte address of the instruction
+     * @return a mask of the flags that are live after the instruction
+     */
+    public int getLiveFlags(int address) {
+        if (address < 0 || address >= live.length) return ALL_FLAGS;
+        return live[address];
+    }
+
+    /**
+     * The <code>getReadFlags()</code> method returns the mask of the flags that the specified instruction
+     * may read, including the flags that are read by observing the status register as a whole.
+     *
+     * @param i the instruction
+     * @return a mask of the flags read by the instruction
+     */
+    public int getReadFlags(Instr i) {
+        return getReadFlags(i, sreg);
+    }
+
+    /**
+     * The <code>getReadFlags()</code> method returns the mask of the flags that the specified instruction
+     * may read, given the IO register number of the status register.
+     *
+     * @param i the instruction
+     * @param sreg the IO register number of the status register
+     * @return a mask of the flags read by the instruction
+     */
+    public static int getReadFlags(Instr i, int sreg) {
+        if (i instanceof Instr.IN)
+            return ((Instr.IN)i).imm1 == sreg ? ALL_FLAGS : 0;
+        if (i instanceof Instr.OUT)
+            return ((Instr.OUT)i).imm1 == sreg ? ALL_FLAGS : 0;
+        if (i instanceof Instr.LDS)
+            return ((Instr.LDS)i).imm1 == sreg + 32 ? ALL_FLAGS : 0;
+        if (i instanceof Instr.BRBC)
+            return ALL_FLAGS & (1 << ((Instr.BRBC)i).imm1);
+        if (i instanceof Instr.BRBS)
+            return ALL_FLAGS & (1 << ((Instr.BRBS)i).imm1);
+        int[] e = (int[])effects.get(i.properties.name);
+        return e == null ? ALL_FLAGS : e[0];
+    }
+
+    /**
+     * The <code>getWrittenFlags()</code> method returns the mask of the flags that the specified
+     * instruction always writes. Instructions that write the status register as a whole are not
+     * considered to write any flags, since they are conservatively considered to read them.
+     *
+     * @param i the instruction
+     * @return a mask of the flags written by the instruction
+     */
+    public static int getWrittenFlags(Instr i) {
+        int[] e = (int[])effects.get(i.properties.name);
+        return e == null ? 0 : e[1];
+    }
+
+    private void computeLiveness(ControlFlowGraph cfg) {
+        HashMap liveIn = new HashMap();
+
+        // iterate to a fixed point over the blocks of the program
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Iterator i = cfg.getBlockIterator();
+            while (i.hasNext()) {
+                ControlFlowGraph.Block b = (ControlFlowGraph.Block)i.next();
+                int in = transfer(b, getLiveOut(b, liveIn), false);
+                Integer prev = (Integer)liveIn.get(b);
+                if (prev == null || prev.intValue() != in) {
+                    liveIn.put(b, new Integer(in));
+                    changed = true;
+                }
+            }
+        }
+
+        // record the liveness after each instruction
+        Iterator i = cfg.getBlockIterator();
+        while (i.hasNext()) {
+            ControlFlowGraph.Block b = (ControlFlowGraph.Block)i.next();
+            transfer(b, getLiveOut(b, liveIn), true);
+        }
+    }
+
+    private int getLiveOut(ControlFlowGraph.Block b, HashMap liveIn) {
+        Iterator i = b.getEdgeIterator();
+        // a block without successors falls off the end of the program
+        if (!i.hasNext()) return ALL_FLAGS;
+        int out = 0;
+        while (i.hasNext()) {
+            ControlFlowGraph.Edge e = (ControlFlowGraph.Edge)i.next();
+            ControlFlowGraph.Block t = e.getTarget();
+            // the successor of returns and indirect jumps is not known
+            if (t == null) return ALL_FLAGS;
+            Integer in = (Integer)liveIn.get(t);
+            if (in != null) out |= in.intValue();
+        }
+        return out;
+    }
+
+    private int transfer(ControlFlowGraph.Block b, int out, boolean record) {
+        // walk the addresses of the block, since invalid instructions are not part of the block
+        int length = b.getLength();
+        int[] addrs = new int[length];
+        Instr[] instrs = new Instr[length];
+        int pc = b.getAddress();
+        for (int cntr = 0; cntr < length;) {
+            Instr i = program.readInstr(pc);
+            if (i == null) {
+                // an invalid instruction is skipped by the block; be conservative
+                out = ALL_FLAGS;
+                pc += 2;
+                continue;
+            }
+            addrs[cntr] = pc;
+            instrs[cntr] = i;
+            pc += i.getSize();
+            cntr++;
+        }
+
+        int flags = out;
+        for (int cntr = length - 1; cntr >= 0; cntr--) {
+            if (record) live[addrs[cntr]] = (byte)flags;
+            Instr i = instrs[cntr];
+            flags = getReadFlags(i) | (flags & ~getWrittenFlags(i));
+        }
+        return flags;
+    }
+}
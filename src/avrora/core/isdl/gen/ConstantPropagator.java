@@ -39,6 +39,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author Ben L. Titzer
@@ -128,7 +129,7 @@ public class ConstantPropagator extends StmtRebuilder.DepthFirst {
 
             HashMap map = (HashMap)mapMap.get(mapname);
             if (map != null) {
-                mapMap.remove(new Integer(index));
+                map.remove(new Integer(index));
             }
 
             if (parent != null) parent.removeMap(mapname, index);
@@ -145,6 +146,19 @@ public class ConstantPropagator extends StmtRebuilder.DepthFirst {
         void mergeToParent(ConstantEnvironment sibling) {
             mergeIntoParent(this, sibling);
             mergeIntoParent(sibling, this);
+            removeMapsFromParent(this);
+            removeMapsFromParent(sibling);
+        }
+
+        void removeMapsFromParent(ConstantEnvironment a) {
+            // any map element written on either branch is no longer known after the merge
+            Iterator i = a.mapMap.keySet().iterator();
+            while (i.hasNext()) {
+                String mapname = (String)i.next();
+                Iterator k = ((HashMap)a.mapMap.get(mapname)).keySet().iterator();
+                while (k.hasNext())
+                    a.parent.removeMap(mapname, ((Integer)k.next()).intValue());
+            }
         }
 
         void mergeIntoParent(ConstantEnvironment a, ConstantEnvironment b) {
@@ -176,6 +190,24 @@ public class ConstantPropagator extends StmtRebuilder.DepthFirst {
         return s;
     }
 
+    public Stmt visit(IfStmt s, Object env) {
+        ConstantEnvironment cenv = (ConstantEnvironment)env;
+
+        Expr nc = s.cond.accept(this, env);
+
+        // analyze each branch separately and keep only the constants that hold after both
+        ConstantEnvironment tenv = new ConstantEnvironment(cenv);
+        List nt = visitStmtList(s.trueBranch, tenv);
+        ConstantEnvironment fenv = new ConstantEnvironment(cenv);
+        List nf = visitStmtList(s.falseBranch, fenv);
+        tenv.mergeToParent(fenv);
+
+        if (nc != s.cond || nt != s.trueBranch || nf != s.falseBranch)
+            return new IfStmt(nc, nt, nf);
+        else
+            return s;
+    }
+
     public Stmt visit(DeclStmt s, Object env) {
         ConstantEnvironment cenv = (ConstantEnvironment)env;
 
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.monitors;
+
+import avrora.sim.Simulator;
+import avrora.sim.clock.MainClock;
+import avrora.sim.clock.TimingWheel;
+import avrora.util.StringUtil;
+import avrora.util.TermUtil;
+import avrora.util.Terminal;
+
+import java.util.*;
+
+/**
+ * The <code>EventMonitor</code> class implements a monitor that instruments the event queue of each node in
+ * order to determine which devices generate the event traffic of a simulation. It counts the insertions,
+ * removals, and firings of events per event class, samples the depth of the queue at each insertion, and
+ * records the levels of the timing wheel at which events are placed. A report is generated for each node,
+ * followed by a report aggregated over all nodes.
+ *
+ * @author Ben L. Titzer
+ */
+public class EventMonitor extends MonitorFactory {
+
+    /**
+     * The <code>Counts</code> class stores the counts of operations on the events of one class.
+     */
+    static class Counts {
+        final String name;
+        long inserted;
+        long removed;
+        long fired;
+
+        Counts(String n) {
+            name = n;
+        }
+    }
+
+    /**
+     * The <code>Stats</code> class collects the statistics of the event queue of one node, or the
+     * statistics aggregated over all nodes.
+     */
+    static class Stats {
+        final HashMap counts = new HashMap();
+        final long[] levels = new long[TimingWheel.LEVELS];
+        long depthSum;
+        long depthSamples;
+        int maxDepth;
+        long cascades;
+        long cascaded;
+
+        Counts getCounts(String name) {
+            Counts c = (Counts)counts.get(name);
+            if (c == null) {
+                c = new Counts(name);
+                counts.put(name, c);
+            }
+            return c;
+        }
+
+        void merge(Stats s) {
+            Iterator i = s.counts.values().iterator();
+            while (i.hasNext()) {
+                Counts o = (Counts)i.next();
+                Counts c = getCounts(o.name);
+                c.inserted += o.inserted;
+                c.removed += o.removed;
+                c.fired += o.fired;
+            }
+            for (int cntr = 0; cntr < levels.length; cntr++)
+                levels[cntr] += s.levels[cntr];
+            depthSum += s.depthSum;
+            depthSamples += s.depthSamples;
+            if (s.maxDepth > maxDepth) maxDepth = s.maxDepth;
+            cascades += s.cascades;
+            cascaded += s.cascaded;
+        }
+
+        void report(String title) {
+            TermUtil.printSeparator(Terminal.MAXLINE, title);
+            Terminal.printGreen("Event class                                     Inserted   Removed     Fired");
+            Terminal.nextln();
+            TermUtil.printThinSeparator(Terminal.MAXLINE);
+
+            List list = new ArrayList(counts.values());
+            Collections.sort(list, new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    Counts c1 = (Counts)o1;
+                    Counts c2 = (Counts)o2;
+                    long t1 = c1.inserted + c1.fired;
+                    long t2 = c2.inserted + c2.fired;
+                    if (t1 != t2) return t1 > t2 ? -1 : 1;
+                    return c1.name.compareTo(c2.name);
+                }
+            });
+
+            long inserted = 0;
+            long removed = 0;
+            long fired = 0;
+            Iterator i = list.iterator();
+            while (i.hasNext()) {
+                Counts c = (Counts)i.next();
+                printRow(c.name, c.inserted, c.removed, c.fired);
+                inserted += c.inserted;
+                removed += c.removed;
+                fired += c.fired;
+            }
+            TermUtil.printThinSeparator(Terminal.MAXLINE);
+            printRow("total", inserted, removed, fired);
+            Terminal.nextln();
+
+            float depth = depthSamples == 0 ? 0 : (float)depthSum / depthSamples;
+            TermUtil.reportQuantity("Mean queue depth at insertion", depth, "events");
+            TermUtil.reportQuantity("Maximum queue depth", maxDepth, "events");
+            TermUtil.reportQuantity("Cascaded", cascades, "slots");
+            TermUtil.reportQuantity("Cascaded", cascaded, "entries");
+            Terminal.nextln();
+            Terminal.printGreen("Insertion level   Count");
+            Terminal.nextln();
+            TermUtil.printThinSeparator(Terminal.MAXLINE);
+            for (int cntr = 0; cntr < levels.length; cntr++) {
+                if (levels[cntr] == 0) continue;
+                Terminal.printBrightCyan(StringUtil.rightJustify(cntr, 15));
+                Terminal.print(StringUtil.rightJustify(levels[cntr], 8));
+                Terminal.print("  ");
+                float pcnt = 100 * (float)levels[cntr] / inserted;
+                Terminal.print(StringUtil.toFixedFloat(pcnt, 4));
+                Terminal.println(" %");
+            }
+        }
+
+        private void printRow(String name, long inserted, long removed, long fired) {
+            Terminal.printGreen(StringUtil.leftJustify(name, 46));
+            Terminal.printBrightCyan(StringUtil.rightJustify(inserted, 11));
+            Terminal.printBrightCyan(StringUtil.rightJustify(removed, 10));
+            Terminal.printBrightCyan(StringUtil.rightJustify(fired, 10));
+            Terminal.nextln();
+        }
+    }
+
+    class Mon implements Monitor, TimingWheel.Probe {
+
+        final MainClock clock;
+        final Stats stats;
+
+        // cache the counts of the last event class seen, since events of one class tend to come in runs
+        Class lastClass;
+        Counts lastCounts;
+
+        Mon(Simulator s) {
+            clock = s.getClock();
+            stats = new Stats();
+            clock.setEventProbe(this);
+        }
+
+        private Counts getCounts(Simulator.Event e) {
+            Class c = e.getClass();
+            if (c != lastClass) {
+                lastClass = c;
+                String name = c.getName();
+                lastCounts = stats.getCounts(name.substring(name.lastIndexOf('.') + 1));
+            }
+            return lastCounts;
+        }
+
+        public void fireWhenInserted(Simulator.Event e, long cycles, int level) {
+            getCounts(e).inserted++;
+            stats.levels[level]++;
+            int depth = clock.getEventQueueSize();
+            stats.depthSum += depth;
+            stats.depthSamples++;
+            if (depth > stats.maxDepth) stats.maxDepth = depth;
+        }
+
+        public void fireWhenRemoved(Simulator.Event e) {
+            getCounts(e).removed++;
+        }
+
+        public void fireBeforeFire(Simulator.Event e) {
+            getCounts(e).fired++;
+        }
+
+        public void fireWhenCascaded(int level, int entries) {
+            stats.cascades++;
+            stats.cascaded += entries;
+        }
+
+        public void report() {
+            stats.report("Event queue monitor results");
+            reported++;
+            if (reported == monitors.size() && monitors.size() > 1) {
+                Stats total = new Stats();
+                Iterator i = monitors.iterator();
+                while (i.hasNext()) total.merge(((Mon)i.next()).stats);
+                total.report("Event queue results aggregated over all nodes");
+            }
+        }
+    }
+
+    final List monitors = new LinkedList();
+    int reported;
+
+    public EventMonitor() {
+        super("The \"events\" monitor instruments the event queue of each node in order to determine " +
+                "which devices dominate the event traffic of a simulation. It counts the insertions, removals, " +
+                "and firings of events for each class of event, samples the depth of the queue, and records the " +
+                "level of the timing wheel at which each event is placed. A report is generated for each node " +
+                "and aggregated over all nodes.");
+    }
+
+    /**
+     * The <code>newMonitor()</code> method creates a new event monitor for the specified simulator that
+     * instruments the event queue of its main clock.
+     * @param s the simulator to create the monitor for
+     * @return a new monitor instance for the specified simulator
+     */
+    public synchronized Monitor newMonitor(Simulator s) {
+        Mon m = new Mon(s);
+        monitors.add(m);
+        return m;
+    }
+}
@@ -38,6 +38,7 @@
 package avrora.monitors;
 
 import avrora.sim.Simulator;
+import avrora.sim.clock.Clock;
 import avrora.sim.platform.Platform;
 import avrora.sim.radio.Radio;
 import avrora.util.Option;
@@ -71,7 +72,7 @@ public class PacketMonitor extends MonitorFactory {
         final Platform platform;
         int bytesTransmitted;
         int packetsTransmitted;
-        PacketEndEvent packetEnd;
+        Clock.EventHandle packetEnd;
         Simulator.Printer printer;
         boolean showPackets;
         boolean discardFirst;
@@ -82,7 +83,7 @@ public class PacketMonitor extends MonitorFactory {
             platform = simulator.getMicrocontroller().getPlatform();
             Radio radio = (Radio)platform.getDevice("radio");
             radio.insertProbe(this);
-            packetEnd = new PacketEndEvent();
+            packetEnd = simulator.getClock().newEventHandle(new PacketEndEvent());
             printer = simulator.getPrinter("monitor.packet");
             printer.enabled = true;
             showPackets = PACKETS.get();
@@ -92,8 +93,7 @@ public class PacketMonitor extends MonitorFactory {
         }
 
         public void fireAtTransmit(Radio r, Radio.Transmission t) {
-            simulator.removeEvent(packetEnd);
-            simulator.insertEvent(packetEnd, INTER_PACKET_TIME);
+            packetEnd.schedule(INTER_PACKET_TIME);
             bytes.addLast(t);
             bytesTransmitted++;
         }
@@ -64,6 +64,11 @@ public class ProfileMonitor extends MonitorFactory {
     public final Option.Bool CLASSES = options.newOption("instr-classes", false,
             "This option selects whether the profiling monitor will generate a report of the " +
             "types of instructions that were executed most frequently by the program.");
+    public final Option.Bool PAIRS = options.newOption("instr-pairs", false,
+            "This option selects whether the profiling monitor will generate a report of the " +
+            "pairs of adjacent instructions that were executed one after the other most frequently " +
+            "by the program. This is useful for selecting the sequences of instructions that " +
+            "the interpreter fuses into a single superinstruction.");
 
     /**
      * The <code>Monitor</code> inner class contains the probes and formatting code that
@@ -77,12 +82,14 @@ public class ProfileMonitor extends MonitorFactory {
 
         public final long[] icount;
         public final long[] itime;
+        public final long[] pcount;
 
         Monitor(Simulator s) {
             simulator = s;
             program = s.getProgram();
             icount = new long[program.program_end];
             itime = new long[program.program_end];
+            pcount = new long[program.program_end];
 
             ccprobe = new CCProbe(icount, itime);
             cprobe = new CProbe(icount);
@@ -92,6 +99,8 @@ public class ProfileMonitor extends MonitorFactory {
         }
 
         private void insertInstrumentation(Simulator s) {
+            if ( PAIRS.get() )
+                s.insertProbe(new PairProbe(pcount));
             if ( EMPTY.get() ) {
                 s.insertProbe(new Simulator.Probe.Empty());
                 return;
@@ -170,6 +179,29 @@ public class ProfileMonitor extends MonitorFactory {
             }
         }
 
+        /**
+         * The <code>PairProbe</code> class implements a probe that counts how many times each
+         * instruction in the program was executed immediately after the instruction before it.
+         * The count is stored at the address of the first instruction of the pair.
+         */
+        public class PairProbe extends Simulator.Probe.Empty {
+
+            public final long[] count;
+
+            protected int lastPC = -1;
+            protected int lastNextPC = -1;
+
+            public PairProbe(long[] pc) {
+                count = pc;
+            }
+
+            public void fireBefore(State state, int pc) {
+                if ( pc == lastNextPC ) count[lastPC]++;
+                lastPC = pc;
+                lastNextPC = program.getNextPC(pc);
+            }
+        }
+
         public void report() {
 
             computeTotals();
@@ -178,6 +210,10 @@ public class ProfileMonitor extends MonitorFactory {
             if ( CLASSES.get() ) {
                 reportInstrProfile();
             }
+
+            if ( PAIRS.get() ) {
+                reportPairProfile();
+            }
         }
 
         long totalcount;
@@ -288,6 +324,55 @@ public class ProfileMonitor extends MonitorFactory {
             }
         }
 
+        private void reportPairProfile() {
+            List l = computePairProfile();
+
+            TermUtil.printSeparator(Terminal.MAXLINE, "Profiling Results by Instruction Pair");
+            Terminal.printGreen(" Instruction pair         Count   Percent");
+            Terminal.nextln();
+            TermUtil.printThinSeparator(Terminal.MAXLINE);
+
+            long total = 0;
+            for ( int cntr = 0; cntr < pcount.length; cntr++ )
+                total += pcount[cntr];
+
+            Iterator i = l.iterator();
+            while ( i.hasNext() ) {
+                InstrProfileEntry ipe = (InstrProfileEntry)i.next();
+                float pcnt = (float)(100 * ipe.count / (double)total);
+                String p = StringUtil.toFixedFloat(pcnt, 4) + " %";
+                Terminal.printGreen("   "+StringUtil.leftJustify(ipe.name, 17));
+                Terminal.print(": ");
+                Terminal.printBrightCyan(StringUtil.rightJustify(ipe.count, 9));
+                Terminal.print("  "+StringUtil.rightJustify(p, 10));
+                Terminal.nextln();
+            }
+        }
+
+        private List computePairProfile() {
+            HashMap cmap = new HashMap();
+
+            for ( int cntr = 0; cntr < pcount.length; cntr++ ) {
+                if ( pcount[cntr] == 0 ) continue;
+                Instr i = program.readInstr(cntr);
+                Instr n = program.readInstr(program.getNextPC(cntr));
+                if ( i == null || n == null ) continue;
+                String pair = i.getVariant() + ' ' + n.getVariant();
+                InstrProfileEntry entry = (InstrProfileEntry)cmap.get(pair);
+                if  ( entry == null ) {
+                    entry = new InstrProfileEntry();
+                    entry.name = pair;
+                    cmap.put(pair, entry);
+                }
+                entry.count += pcount[cntr];
+            }
+
+            Enumeration e = Collections.enumeration(cmap.values());
+            List l = Collections.list(e);
+            Collections.sort(l);
+            return l;
+        }
+
         private List computeInstrProfile() {
             HashMap cmap = new HashMap();
 
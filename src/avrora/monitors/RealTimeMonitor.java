@@ -59,15 +59,12 @@ public class RealTimeMonitor extends MonitorFactory {
             if ( !initialized ) {
                 initialized = true;
                 beginMs = System.currentTimeMillis();
-                clock.insertEvent(this, period);
                 return;
             }
 
             long cycles = clock.getCount();
             long msGoal = (1000*cycles) / clock.getHZ();
             while ( (System.currentTimeMillis() - beginMs) < msGoal ) ;
-
-            clock.insertEvent(this, period);
         }
     }
 
@@ -77,7 +74,8 @@ public class RealTimeMonitor extends MonitorFactory {
     }
 
     public Monitor newMonitor(Simulator s) {
-        s.insertEvent(new ThrottleEvent(s), 1);
+        ThrottleEvent e = new ThrottleEvent(s);
+        s.insertPeriodicEvent(e, e.period, 1);
         return null;
     }
 }
@@ -64,7 +64,7 @@ public class SimPerfMonitor extends MonitorFactory {
             data = new TimedMeasurements();
             start = System.currentTimeMillis();
             interval = (long)(simulator.getMicrocontroller().getHZ() / FREQUENCY.get());
-            simulator.insertEvent(new Event(), interval);
+            simulator.insertPeriodicEvent(new Event(), interval, interval);
         }
 
         public void report() {
@@ -113,7 +113,6 @@ public class SimPerfMonitor extends MonitorFactory {
                 long time = simulator.getState().getCycles();
                 long millis = System.currentTimeMillis() - start;
                 data.add(time, (int)millis);
-                simulator.insertEvent(this, interval);
             }
         }
     }
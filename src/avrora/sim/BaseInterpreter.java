@@ -75,8 +75,8 @@ public abstract class BaseInterpreter implements InstrVisitor {
     private static final int SREG_Z_MASK = 1 << SREG_Z;
     private static final int SREG_C_MASK = 1 << SREG_C;
 
-    protected final int SREG; // location of the SREG IO register
-    protected final int RAMPZ; // location of the RAMPZ IO register
+    public final int SREG; // location of the SREG IO register
+    public final int RAMPZ; // location of the RAMPZ IO register
     protected int bootPC; // start up address
     protected int interruptBase; // base of interrupt vector table
 
@@ -122,9 +122,10 @@ public abstract class BaseInterpreter implements InstrVisitor {
     /**
      * The <code>innerLoop</code> field is a boolean that is used internally in the implementation of the
      * interpreter. When something in the simulation changes (e.g. an interrupt is posted), this field is set
-     * to false, and the execution loop (e.g. an interpretation or sleep loop) is broken out of.
+     * to false, and the execution loop (e.g. an interpretation or sleep loop) is broken out of. Compiled
+     * code checks this field between basic blocks, so it must be accessible from other packages.
      */
-    protected boolean innerLoop;
+    public boolean innerLoop;
 
     /**
      * The <code>nextPC</code> field is used internally in maintaining the correct execution order of the
@@ -152,6 +153,14 @@ public abstract class BaseInterpreter implements InstrVisitor {
      */
     protected boolean shouldRun;
 
+    /**
+     * The <code>suspended</code> flag is set when the execution of the node has been suspended by
+     * <code>suspend()</code>, to be continued later by <code>resume()</code>. The <code>resumeInnerLoop</code>
+     * field records whether the inner loop was still to continue at the point the node was suspended.
+     */
+    protected boolean suspended;
+    protected boolean resumeInnerLoop;
+
     /**
      * The <code>sleeping</code> flag is used internally in the simulator when the microcontroller enters the
      * sleep mode.
@@ -273,6 +282,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_H()  {
+            materializeFlags();
             return H;
         }
 
@@ -283,6 +293,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_S() {
+            materializeFlags();
             return S;
         }
 
@@ -293,6 +304,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_V() {
+            materializeFlags();
             return V;
         }
 
@@ -303,6 +315,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_N() {
+            materializeFlags();
             return N;
         }
 
@@ -313,6 +326,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_Z() {
+            materializeFlags();
             return Z;
         }
 
@@ -323,6 +337,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the flag
          */
         public boolean getFlag_C() {
+            materializeFlags();
             return C;
         }
 
@@ -459,6 +474,15 @@ public abstract class BaseInterpreter implements InstrVisitor {
 
     }
 
+    /**
+     * The <code>isSleeping()</code> method checks whether the microcontroller is in a sleep mode, in which
+     * it executes no instructions until an interrupt wakes it up.
+     * @return true if the microcontroller is sleeping; false otherwise
+     */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
     /**
      * The <code>getSimulator()</code> method gets a reference to the simulator which encapsulates this
      * interpreter.
@@ -499,10 +523,6 @@ public abstract class BaseInterpreter implements InstrVisitor {
      */
     public BaseInterpreter(Simulator simulator, Program p, MicrocontrollerProperties pr) {
 
-        // this class and its methods are performance critical
-        // observed speedup with this call on Hotspot
-        Compiler.compileClass(this.getClass());
-
         state = new StateImpl();
 
         globalProbe = new MulticastProbe();
@@ -549,8 +569,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
         flash = props.codeSegmentFactory.newCodeSegment("flash", this, reporter, p);
         reporter.segment = flash;
         // for performance, we share a reference to the Instr[] array representing flash
-        // TODO: implement share() method
-        shared_instr = flash.shareCode(null);
+        shared_instr = flash.shareCode(new CodeSharer());
 
         // initialize the interrupt table
         interrupts = new InterruptTable(this, props.num_interrupts);
@@ -559,11 +578,59 @@ public abstract class BaseInterpreter implements InstrVisitor {
         SPH_reg = (RWRegister) ioregs[props.getIOReg("SPH")];
     }
 
+    /**
+     * The <code>CodeSharer</code> class is notified by the code segment when the array of instructions
+     * that represents the flash is replaced, so that the shared reference can be updated.
+     */
+    protected class CodeSharer implements CodeSegment.CodeSharer {
+        public void update(Instr[] segment) {
+            shared_instr = segment;
+        }
+    }
+
     protected void start() {
+        pc = bootPC;
+        nextPC = pc;
+        cyclesConsumed = 0;
         shouldRun = true;
         runLoop();
     }
 
+    /**
+     * The <code>suspend()</code> method suspends the execution of this node from within an event, e.g.
+     * when the node must wait for other nodes at a synchronization point without blocking the thread that
+     * runs it. The rest of the events in the clock are deferred, and <code>start()</code> or
+     * <code>resume()</code> returns as soon as the current instruction has completed.
+     */
+    public void suspend() {
+        resumeInnerLoop = innerLoop;
+        suspended = true;
+        innerLoop = false;
+        clock.suspend();
+    }
+
+    /**
+     * The <code>resume()</code> method continues the execution of this node after it has been suspended,
+     * firing the events that were deferred, at exactly the point at which it was suspended.
+     */
+    protected void resume() {
+        suspended = false;
+        innerLoop = resumeInnerLoop && shouldRun;
+        clock.resume();
+        if (suspended) return;
+        // an inner loop that was not asked to stop continues without going through the outer loop
+        if (innerLoop) runInnerLoop();
+        runLoop();
+    }
+
+    /**
+     * The <code>isSuspended()</code> method checks whether the execution of this node has been suspended.
+     * @return true if the node has been suspended and not yet resumed; false otherwise
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
     /**
      * The <code>step()</code> method steps this node forward one instruction or one clock cycle. The node may
      * execute an instruction, execute events, wake from sleep, take an interrupt, etc. In the case of multi-cycle
@@ -583,6 +650,8 @@ public abstract class BaseInterpreter implements InstrVisitor {
 
     protected abstract void runLoop();
 
+    protected abstract void runInnerLoop();
+
     /**
      * The <code>getInterruptVectorAddress()</code> method computes the location in memory to jump to for the
      * given interrupt number. On the Atmega128, the starting point is the beginning of memory and each
@@ -645,6 +714,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
      */
     protected void insertProbe(Simulator.Probe p) {
         innerLoop = false;
+        observeFlags();
         globalProbe.add(p);
     }
 
@@ -675,6 +745,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
      * @param data_addr the address of the memory location on which to insert the watch
      */
     protected void insertWatch(Simulator.Watch p, int data_addr) {
+        observeFlags();
         if (sram_watches == null)
             sram_watches = new MulticastWatch[sram.length];
 
@@ -705,6 +776,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
      * @param ioreg_num the number of the IO register for which to insert the watch
      */
     protected void insertIORWatch(Simulator.IORWatch p, int ioreg_num) {
+        observeFlags();
         ActiveRegister ar = ioregs[ioreg_num];
         ProbedActiveRegister par;
         if (ar instanceof ProbedActiveRegister) {
@@ -1234,6 +1306,16 @@ public abstract class BaseInterpreter implements InstrVisitor {
         interrupts.disableAll();
     }
 
+    /**
+     * The <code>commitCycles()</code> method advances the clock by the cycles consumed so far, without
+     * changing the program counter. Compiled code uses it to bring the clock up to date in the middle of
+     * a block of instructions.
+     */
+    public void commitCycles() {
+        clock.advance(cyclesConsumed);
+        cyclesConsumed = 0;
+    }
+
     /**
      * The <code>commit()</code> method is used internally to commit the results of the instructiobn just executed.
      * This should only be used internally.
@@ -1244,6 +1326,39 @@ public abstract class BaseInterpreter implements InstrVisitor {
         cyclesConsumed = 0;
     }
 
+    /**
+     * The <code>materializeFlags()</code> method brings the H, S, V, N, Z, and C fields up to date. An
+     * interpreter that computes the flags lazily overrides this method; it is called before the flags are
+     * observed through the status register or the <code>State</code> interface, e.g. by a probe, a watch,
+     * or an interrupt handler that saves the status register.
+     */
+    protected void materializeFlags() {
+        // the default implementation always computes the flags eagerly
+    }
+
+    /**
+     * The <code>observeFlags()</code> method is called when the flags may be observed in ways that the
+     * static <code>FlagLiveness</code> analysis of the program does not account for, i.e. when a probe or
+     * a watch is inserted or when an instruction in the flash is replaced. An interpreter that skips
+     * computing flags that are dead according to the analysis overrides this method to compute all flags
+     * from then on.
+     */
+    protected void observeFlags() {
+        // the default implementation always computes all flags
+    }
+
+    /**
+     * The <code>replacedInstr()</code> method is called by the code segment when the instruction at the
+     * specified address is replaced, e.g. when a probe is inserted or the flash is reprogrammed. An
+     * interpreter that caches information about the instructions that follow each other overrides this
+     * method to discard it.
+     *
+     * @param address the address of the instruction that was replaced
+     */
+    protected void replacedInstr(int address) {
+        // the default implementation has no such information
+    }
+
     private class SREG_reg implements ActiveRegister {
 
         /**
@@ -1253,6 +1368,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the register as a byte
          */
         public byte read() {
+            materializeFlags();
             int value = 0;
             if (I) value |= BaseInterpreter.SREG_I_MASK;
             if (T) value |= BaseInterpreter.SREG_T_MASK;
@@ -1272,6 +1388,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @param val the value to write
          */
         public void write(byte val) {
+            materializeFlags();
             I = (val & BaseInterpreter.SREG_I_MASK) != 0;
             T = (val & BaseInterpreter.SREG_T_MASK) != 0;
             H = (val & BaseInterpreter.SREG_H_MASK) != 0;
@@ -1289,6 +1406,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
          * @return the value of the bit as a boolean
          */
         public boolean readBit(int num) {
+            materializeFlags();
             switch (num) {
                 case SREG_I:
                     return I;
@@ -1311,6 +1429,7 @@ public abstract class BaseInterpreter implements InstrVisitor {
         }
 
         public void writeBit(int num, boolean value) {
+            materializeFlags();
             switch (num) {
                 case SREG_I:
                     if (value)
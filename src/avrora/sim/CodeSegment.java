@@ -103,6 +103,21 @@ public class CodeSegment extends Segment {
 
     protected CodeSharer codeSharer;
 
+    /**
+     * The <code>flagLiveness</code> field stores the liveness of the status register flags for the program
+     * loaded into this segment. It is computed the first time it is requested, since only interpreters
+     * that skip computing dead flags need it. It is discarded as soon as any instruction in the segment
+     * is replaced (e.g. by a probe or by reprogramming the flash), since the analysis no longer describes
+     * the code.
+     */
+    protected FlagLiveness flagLiveness;
+
+    /**
+     * The <code>program</code> field stores the program loaded into this segment until the flag liveness
+     * analysis has been computed for it, or until the code in the segment changes.
+     */
+    protected Program program;
+
     /**
      * The <code>CodeSharer</code> interface is used to allow sharing of the underlying array
      * representing the code. Only the interpreter should share this representation. If there
@@ -164,6 +179,26 @@ public class CodeSegment extends Segment {
         // now initialize the flash data
         for (int cntr = 0; cntr < p.program_end; cntr++)
             segment_data[cntr] = p.readProgramByte(cntr);
+
+        program = p;
+    }
+
+    /**
+     * The <code>getLiveFlags()</code> method returns the mask of the status register flags that may be
+     * read after the instruction at the specified address executes, as computed by <code>FlagLiveness</code>
+     * for the loaded program on the first call. If the program was not loaded, or the code in this segment
+     * has changed since, all of the flags are considered live.
+     *
+     * @param address the address of the instruction in the flash
+     * @return a mask of the flags that are live after the instruction
+     */
+    public int getLiveFlags(int address) {
+        if ( flagLiveness == null ) {
+            if ( program == null ) return FlagLiveness.ALL_FLAGS;
+            flagLiveness = new FlagLiveness(program, interpreter.SREG);
+            program = null;
+        }
+        return flagLiveness.getLiveFlags(address);
     }
 
     /**
@@ -243,6 +278,13 @@ public class CodeSegment extends Segment {
 
     protected void writeInstr(int address, Instr i) {
         segment_instr[address] = i;
+        interpreter.replacedInstr(address);
+        if ( flagLiveness != null || program != null ) {
+            // the instruction may observe the flags or change the control flow
+            flagLiveness = null;
+            program = null;
+            interpreter.observeFlags();
+        }
     }
 
     /**
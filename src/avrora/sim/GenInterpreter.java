@@ -130,10 +130,6 @@ public class GenInterpreter extends BaseInterpreter implements InstrVisitor {
      */
     protected GenInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
         super(s, p, pr);
-        // this class and its methods are performance critical
-        // observed speedup with this call on Hotspot
-        Compiler.compileClass(this.getClass());
-
         // read the LAT into memory
         // we could read the LAT on every cache miss, but for performance reasons we keep it in memory
 
@@ -332,16 +328,13 @@ public class GenInterpreter extends BaseInterpreter implements InstrVisitor {
 
     protected void runLoop() {
 
-        pc = bootPC;
-        nextPC = pc;
-        cyclesConsumed = 0;
-
-        while (shouldRun) {
+        while (shouldRun && !suspended) {
 
             // TODO: would a "mode" and switch be faster than several branches?
             if (delayCycles > 0) {
                 advanceClock(delayCycles);
                 delayCycles = 0;
+                if (suspended) break;
             }
 
             // TODO: do this with an event fired after the RETI instruction?
@@ -360,14 +353,21 @@ public class GenInterpreter extends BaseInterpreter implements InstrVisitor {
                 }
             }
 
-            if (sleeping)
-                sleepLoop();
-            else {
-                if (globalProbe.isEmpty())
-                    fastLoop();
-                else
-                    instrumentedLoop();
-            }
+            // the node may have been suspended while the clock was advanced
+            if (suspended) break;
+
+            runInnerLoop();
+        }
+    }
+
+    protected void runInnerLoop() {
+        if (sleeping)
+            sleepLoop();
+        else {
+            if (globalProbe.isEmpty())
+                fastLoop();
+            else
+                instrumentedLoop();
         }
     }
 
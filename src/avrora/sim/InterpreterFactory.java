@@ -34,6 +34,7 @@ package avrora.sim;
 
 import avrora.core.Program;
 import avrora.sim.mcu.MicrocontrollerProperties;
+import avrora.util.Options;
 
 /**
  * The <code>InterpreterFactory</code> class represents a factory for creating interpreters. This
@@ -53,4 +54,15 @@ public abstract class InterpreterFactory {
      * @return a new instance of the <code>BaseInterpreter</code> class for the program
      */
     public abstract BaseInterpreter newInterpreter(Simulator s, Program p, MicrocontrollerProperties pr);
+
+    /**
+     * The <code>processOptions()</code> method is called after the <code>InterpreterFactory</code> instance
+     * is selected for a simulation. It gives interpreters that have options of their own (such as a dynamic
+     * compiler) the chance to read them from the command line. The default implementation does nothing.
+     *
+     * @param o the options representing the known and unknown options from the command line
+     */
+    public void processOptions(Options o) {
+        // the default interpreters have no options
+    }
 }
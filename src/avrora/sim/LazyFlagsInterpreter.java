@@ -0,0 +1,680 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim;
+
+import avrora.core.Instr;
+import avrora.core.Program;
+import avrora.sim.mcu.MicrocontrollerProperties;
+
+/**
+ * The <code>LazyFlagsInterpreter</code> class is a version of the predecoded interpreter that computes the
+ * H, S, V, N, Z, and C flags lazily. The arithmetic and logical instructions that produce flags record
+ * the kind of operation, its operands and its result, and the flags themselves are only computed when
+ * they are needed: by an instruction that reads or partially updates them (e.g. a branch), or when the
+ * status register is observed through <code>materializeFlags()</code>, e.g. by a probe, a watch, or an
+ * interrupt handler that saves the status register. Most of the flags that an instruction produces are
+ * overwritten before they are read, so this saves much of the per-instruction flag computation.
+ *
+ * <p>
+ * Instructions that add or subtract with carry, and branches that test the carry or zero flag, only need
+ * one or two flags of the previous operation, so these flags are computed from the recorded operation
+ * without materializing the rest of the status register.
+ *
+ * @author Ben L. Titzer
+ */
+public class LazyFlagsInterpreter extends PredecodedInterpreter {
+
+    /**
+     * The <code>Factory</code> class implements an interpreter factory that can create
+     * a new lazy flags interpreter for a new simulator instance with the given program.
+     */
+    public static final class Factory extends InterpreterFactory {
+        public BaseInterpreter newInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
+            return new LazyFlagsInterpreter(s, p, pr);
+        }
+    }
+
+    protected static final int FLAGS_NONE = 0;  // the flag fields are up to date
+    protected static final int FLAGS_ADD = 1;   // addition, optionally with carry
+    protected static final int FLAGS_SUB = 2;   // subtraction or comparison
+    protected static final int FLAGS_SBC = 3;   // subtraction or comparison with carry
+    protected static final int FLAGS_LOGIC = 4; // logical operation; H and C are not affected
+
+    /**
+     * The <code>flagOp</code> field records the kind of the last operation whose flags have not yet
+     * been computed, or <code>FLAGS_NONE</code> if the flag fields are up to date.
+     */
+    protected int flagOp;
+
+    /**
+     * The <code>flagA</code>, <code>flagB</code>, <code>flagC</code> and <code>flagR</code> fields store
+     * the first operand, the second operand, the carry in and the result of the last operation.
+     */
+    protected int flagA;
+    protected int flagB;
+    protected int flagC;
+    protected int flagR;
+
+    /**
+     * The <code>flagZ</code> field stores the value of the Z flag before the last operation, which is
+     * needed for the zero flag of a subtraction with carry.
+     */
+    protected boolean flagZ;
+
+    protected LazyFlagsInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
+        super(s, p, pr);
+    }
+
+    protected void execute(int npc) {
+        int a = operand1[npc];
+        int b = operand2[npc];
+        switch (opcodes[npc]) {
+            case OP_ADC:
+                add(a, getRegisterUnsigned(b), carry());
+                break;
+            case OP_ADD:
+                add(a, getRegisterUnsigned(b), 0);
+                break;
+            case OP_ADIW:
+                materializeFlags();
+                execADIW(a, b);
+                break;
+            case OP_AND:
+                logic(a, getRegisterByte(a) & getRegisterByte(b));
+                break;
+            case OP_ANDI:
+                logic(a, getRegisterByte(a) & b);
+                break;
+            case OP_ASR:
+                materializeFlags();
+                execASR(a);
+                break;
+            case OP_BCLR:
+                execBCLR(a);
+                break;
+            case OP_BLD:
+                execBLD(a, b);
+                break;
+            case OP_BRBC:
+                execBRBC(a, b);
+                break;
+            case OP_BRBS:
+                execBRBS(a, b);
+                break;
+            case OP_BRCC:
+                branch(carry() == 0, a);
+                break;
+            case OP_BRCS:
+                branch(carry() != 0, a);
+                break;
+            case OP_BREAK:
+                execBREAK();
+                break;
+            case OP_BREQ:
+                branch(zero(), a);
+                break;
+            case OP_BRGE:
+                materializeFlags();
+                execBRGE(a);
+                break;
+            case OP_BRHC:
+                materializeFlags();
+                execBRHC(a);
+                break;
+            case OP_BRHS:
+                materializeFlags();
+                execBRHS(a);
+                break;
+            case OP_BRID:
+                execBRID(a);
+                break;
+            case OP_BRIE:
+                execBRIE(a);
+                break;
+            case OP_BRLO:
+                branch(carry() != 0, a);
+                break;
+            case OP_BRLT:
+                materializeFlags();
+                execBRLT(a);
+                break;
+            case OP_BRMI:
+                materializeFlags();
+                execBRMI(a);
+                break;
+            case OP_BRNE:
+                branch(!zero(), a);
+                break;
+            case OP_BRPL:
+                materializeFlags();
+                execBRPL(a);
+                break;
+            case OP_BRSH:
+                branch(carry() == 0, a);
+                break;
+            case OP_BRTC:
+                execBRTC(a);
+                break;
+            case OP_BRTS:
+                execBRTS(a);
+                break;
+            case OP_BRVC:
+                materializeFlags();
+                execBRVC(a);
+                break;
+            case OP_BRVS:
+                materializeFlags();
+                execBRVS(a);
+                break;
+            case OP_BSET:
+                execBSET(a);
+                break;
+            case OP_BST:
+                execBST(a, b);
+                break;
+            case OP_CALL:
+                execCALL(a);
+                break;
+            case OP_CBI:
+                execCBI(a, b);
+                break;
+            case OP_CBR:
+                materializeFlags();
+                execCBR(a, b);
+                break;
+            case OP_CLC:
+                materializeFlags();
+                execCLC();
+                break;
+            case OP_CLH:
+                materializeFlags();
+                execCLH();
+                break;
+            case OP_CLI:
+                execCLI();
+                break;
+            case OP_CLN:
+                materializeFlags();
+                execCLN();
+                break;
+            case OP_CLR:
+                materializeFlags();
+                execCLR(a);
+                break;
+            case OP_CLS:
+                materializeFlags();
+                execCLS();
+                break;
+            case OP_CLT:
+                execCLT();
+                break;
+            case OP_CLV:
+                materializeFlags();
+                execCLV();
+                break;
+            case OP_CLZ:
+                materializeFlags();
+                execCLZ();
+                break;
+            case OP_COM:
+                materializeFlags();
+                execCOM(a);
+                break;
+            case OP_CP:
+                sub(a, getRegisterByte(b), false);
+                break;
+            case OP_CPC:
+                sbc(a, getRegisterByte(b), false);
+                break;
+            case OP_CPI:
+                sub(a, b, false);
+                break;
+            case OP_CPSE:
+                materializeFlags();
+                execCPSE(a, b);
+                break;
+            case OP_DEC:
+                materializeFlags();
+                execDEC(a);
+                break;
+            case OP_EICALL:
+                execEICALL();
+                break;
+            case OP_EIJMP:
+                execEIJMP();
+                break;
+            case OP_ELPM:
+                execELPM();
+                break;
+            case OP_ELPMD:
+                execELPMD(a, b);
+                break;
+            case OP_ELPMPI:
+                execELPMPI(a, b);
+                break;
+            case OP_EOR:
+                logic(a, getRegisterByte(a) ^ getRegisterByte(b));
+                break;
+            case OP_FMUL:
+                materializeFlags();
+                execFMUL(a, b);
+                break;
+            case OP_FMULS:
+                materializeFlags();
+                execFMULS(a, b);
+                break;
+            case OP_FMULSU:
+                materializeFlags();
+                execFMULSU(a, b);
+                break;
+            case OP_ICALL:
+                execICALL();
+                break;
+            case OP_IJMP:
+                execIJMP();
+                break;
+            case OP_IN:
+                execIN(a, b);
+                break;
+            case OP_INC:
+                materializeFlags();
+                execINC(a);
+                break;
+            case OP_JMP:
+                execJMP(a);
+                break;
+            case OP_LD:
+                execLD(a, b);
+                break;
+            case OP_LDD:
+                execLDD(a, b & 0xff, b >> 8);
+                break;
+            case OP_LDI:
+                execLDI(a, b);
+                break;
+            case OP_LDPD:
+                execLDPD(a, b);
+                break;
+            case OP_LDPI:
+                execLDPI(a, b);
+                break;
+            case OP_LDS:
+                execLDS(a, b);
+                break;
+            case OP_LPM:
+                execLPM();
+                break;
+            case OP_LPMD:
+                execLPMD(a, b);
+                break;
+            case OP_LPMPI:
+                execLPMPI(a, b);
+                break;
+            case OP_LSL:
+                materializeFlags();
+                execLSL(a);
+                break;
+            case OP_LSR:
+                materializeFlags();
+                execLSR(a);
+                break;
+            case OP_MOV:
+                execMOV(a, b);
+                break;
+            case OP_MOVW:
+                execMOVW(a, b);
+                break;
+            case OP_MUL:
+                materializeFlags();
+                execMUL(a, b);
+                break;
+            case OP_MULS:
+                materializeFlags();
+                execMULS(a, b);
+                break;
+            case OP_MULSU:
+                materializeFlags();
+                execMULSU(a, b);
+                break;
+            case OP_NEG:
+                materializeFlags();
+                execNEG(a);
+                break;
+            case OP_NOP:
+                execNOP();
+                break;
+            case OP_OR:
+                logic(a, getRegisterByte(a) | getRegisterByte(b));
+                break;
+            case OP_ORI:
+                logic(a, getRegisterByte(a) | b);
+                break;
+            case OP_OUT:
+                execOUT(a, b);
+                break;
+            case OP_POP:
+                execPOP(a);
+                break;
+            case OP_PUSH:
+                execPUSH(a);
+                break;
+            case OP_RCALL:
+                execRCALL(a);
+                break;
+            case OP_RET:
+                execRET();
+                break;
+            case OP_RETI:
+                execRETI();
+                break;
+            case OP_RJMP:
+                execRJMP(a);
+                break;
+            case OP_ROL:
+                materializeFlags();
+                execROL(a);
+                break;
+            case OP_ROR:
+                materializeFlags();
+                execROR(a);
+                break;
+            case OP_SBC:
+                sbc(a, getRegisterByte(b), true);
+                break;
+            case OP_SBCI:
+                sbc(a, b, true);
+                break;
+            case OP_SBI:
+                execSBI(a, b);
+                break;
+            case OP_SBIC:
+                execSBIC(a, b);
+                break;
+            case OP_SBIS:
+                execSBIS(a, b);
+                break;
+            case OP_SBIW:
+                materializeFlags();
+                execSBIW(a, b);
+                break;
+            case OP_SBR:
+                materializeFlags();
+                execSBR(a, b);
+                break;
+            case OP_SBRC:
+                execSBRC(a, b);
+                break;
+            case OP_SBRS:
+                execSBRS(a, b);
+                break;
+            case OP_SEC:
+                materializeFlags();
+                execSEC();
+                break;
+            case OP_SEH:
+                materializeFlags();
+                execSEH();
+                break;
+            case OP_SEI:
+                execSEI();
+                break;
+            case OP_SEN:
+                materializeFlags();
+                execSEN();
+                break;
+            case OP_SER:
+                execSER(a);
+                break;
+            case OP_SES:
+                materializeFlags();
+                execSES();
+                break;
+            case OP_SET:
+                execSET();
+                break;
+            case OP_SEV:
+                materializeFlags();
+                execSEV();
+                break;
+            case OP_SEZ:
+                materializeFlags();
+                execSEZ();
+                break;
+            case OP_SLEEP:
+                execSLEEP();
+                break;
+            case OP_SPM:
+                execSPM();
+                break;
+            case OP_ST:
+                execST(a, b);
+                break;
+            case OP_STD:
+                execSTD(a, b >> 8, b & 0xff);
+                break;
+            case OP_STPD:
+                execSTPD(a, b);
+                break;
+            case OP_STPI:
+                execSTPI(a, b);
+                break;
+            case OP_STS:
+                execSTS(a, b);
+                break;
+            case OP_SUB:
+                sub(a, getRegisterByte(b), true);
+                break;
+            case OP_SUBI:
+                sub(a, b, true);
+                break;
+            case OP_SWAP:
+                execSWAP(a);
+                break;
+            case OP_TST:
+                materializeFlags();
+                execTST(a);
+                break;
+            case OP_WDR:
+                execWDR();
+                break;
+            default:
+                // the instruction may be probed, so the flags must be up to date
+                materializeFlags();
+                decoded_instr[npc].accept(this);
+        }
+    }
+
+    private void branch(boolean cond, int offset) {
+        nextPC = pc + 2;
+        if (cond) {
+            nextPC = offset * 2 + nextPC;
+            cyclesConsumed = cyclesConsumed + 1;
+        }
+        cyclesConsumed += 1;
+    }
+
+    private void add(int r1, int v2, int c) {
+        nextPC = pc + 2;
+        int v1 = getRegisterUnsigned(r1);
+        int r = v1 + v2 + c;
+        flagOp = FLAGS_ADD;
+        flagA = v1;
+        flagB = v2;
+        flagC = c;
+        flagR = r;
+        writeRegisterByte(r1, low(r));
+        cyclesConsumed += 1;
+    }
+
+    private void sub(int r1, int v2, boolean write) {
+        nextPC = pc + 2;
+        int v1 = getRegisterByte(r1);
+        int r = v1 - v2;
+        flagOp = FLAGS_SUB;
+        flagA = v1;
+        flagB = v2;
+        flagR = r;
+        if (write) writeRegisterByte(r1, low(r));
+        cyclesConsumed += 1;
+    }
+
+    private void sbc(int r1, int v2, boolean write) {
+        nextPC = pc + 2;
+        int c = carry();
+        boolean z = zero();
+        int v1 = getRegisterByte(r1);
+        int r = v1 - v2 - c;
+        flagOp = FLAGS_SBC;
+        flagA = v1;
+        flagB = v2;
+        flagR = r;
+        flagZ = z;
+        if (write) writeRegisterByte(r1, low(r));
+        cyclesConsumed += 1;
+    }
+
+    private void logic(int r1, int r) {
+        nextPC = pc + 2;
+        if (flagOp != FLAGS_LOGIC && flagOp != FLAGS_NONE) {
+            // a logical operation does not affect H and C, so they must be computed now
+            H = halfCarry();
+            C = carry() != 0;
+        }
+        flagOp = FLAGS_LOGIC;
+        flagR = r;
+        writeRegisterByte(r1, low(r));
+        cyclesConsumed += 1;
+    }
+
+    /**
+     * The <code>carry()</code> method computes the C flag of the last operation.
+     *
+     * @return 1 if the carry flag is set; 0 otherwise
+     */
+    protected int carry() {
+        switch (flagOp) {
+            case FLAGS_ADD:
+                return (flagR >> 8) & 1;
+            case FLAGS_SUB:
+            case FLAGS_SBC: {
+                boolean a7 = (flagA & 128) != 0;
+                boolean b7 = (flagB & 128) != 0;
+                boolean r7 = (flagR & 128) != 0;
+                return !a7 && b7 || b7 && r7 || r7 && !a7 ? 1 : 0;
+            }
+            default:
+                return C ? 1 : 0;
+        }
+    }
+
+    /**
+     * The <code>zero()</code> method computes the Z flag of the last operation.
+     *
+     * @return the value of the zero flag
+     */
+    protected boolean zero() {
+        switch (flagOp) {
+            case FLAGS_NONE:
+                return Z;
+            case FLAGS_SBC:
+                return low(flagR) == 0 && flagZ;
+            default:
+                return low(flagR) == 0;
+        }
+    }
+
+    /**
+     * The <code>halfCarry()</code> method computes the H flag of the last operation.
+     *
+     * @return the value of the half carry flag
+     */
+    protected boolean halfCarry() {
+        switch (flagOp) {
+            case FLAGS_ADD:
+                return ((flagA & 0x0F) + (flagB & 0x0F) + flagC & 16) != 0;
+            case FLAGS_SUB:
+            case FLAGS_SBC: {
+                boolean a3 = (flagA & 8) != 0;
+                boolean b3 = (flagB & 8) != 0;
+                boolean r3 = (flagR & 8) != 0;
+                return !a3 && b3 || b3 && r3 || r3 && !a3;
+            }
+            default:
+                return H;
+        }
+    }
+
+    /**
+     * The <code>elideFlags()</code> method does nothing in this interpreter, since the flags are only
+     * computed when they are read anyway.
+     */
+    protected void elideFlags(int npc, Instr i) {
+        // the decoded opcodes are left as they are
+    }
+
+    /**
+     * The <code>fuse()</code> method does nothing in this interpreter, since its own dispatch does not
+     * handle the fused opcodes.
+     */
+    protected void fuse(int npc, Instr i) {
+        // the decoded opcodes are left as they are
+    }
+
+    /**
+     * The <code>materializeFlags()</code> method computes the flags of the last operation, if they have not
+     * been computed yet, and stores them into the flag fields.
+     */
+    protected void materializeFlags() {
+        int op = flagOp;
+        if (op == FLAGS_NONE) return;
+        if (op == FLAGS_LOGIC) {
+            N = (flagR & 128) != 0;
+            V = false;
+        } else {
+            boolean a7 = (flagA & 128) != 0;
+            boolean b7 = (flagB & 128) != 0;
+            boolean r7 = (flagR & 128) != 0;
+            H = halfCarry();
+            C = carry() != 0;
+            N = r7;
+            if (op == FLAGS_ADD)
+                V = a7 && b7 && !r7 || !a7 && !b7 && r7;
+            else
+                V = a7 && !b7 && !r7 || !a7 && b7 && r7;
+        }
+        Z = zero();
+        S = (N != V);
+        flagOp = FLAGS_NONE;
+    }
+}
@@ -0,0 +1,4400 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.sim;
+
+import avrora.core.FlagLiveness;
+import avrora.core.Instr;
+import avrora.core.InstrVisitor;
+import avrora.core.Program;
+import avrora.core.Register;
+import avrora.sim.mcu.MicrocontrollerProperties;
+import avrora.sim.mcu.RegisterSet;
+import avrora.util.Arithmetic;
+
+import java.lang.reflect.Method;
+
+/**
+ * The <code>PredecodedInterpreter</code> class is an interpreter that decodes the code segment once
+ * into packed arrays of opcodes and operands and then executes the program with a single
+ * <code>switch</code> statement, rather than a virtual <code>accept()</code> call per instruction.
+ * The code for each instruction is the same generated code as in <code>GenInterpreter</code>, with
+ * the operands passed as integers.
+ *
+ * <p>
+ * The decoded arrays are kept consistent with the flash by comparing the instruction recorded at
+ * decode time with the instruction currently in the code segment. Probed instructions, instructions
+ * updated by the program and other special instructions are therefore dispatched through the
+ * <code>InstrVisitor</code> interface as usual, preserving the probe and watch semantics of
+ * <code>BaseInterpreter</code>.
+ *
+ * <p>
+ * When the flash is first decoded, the code segment computes which flags are live after each instruction
+ * (see <code>FlagLiveness</code>). ALU instructions whose flags are dead are decoded to variants that
+ * skip computing them. As soon as a probe or a watch is inserted, or the flash is changed, all flags are
+ * computed again.
+ *
+ * <p>
+ * Short loops that only poll IO registers or memory are recognized at their back edge, and the clock is
+ * advanced directly to the last iteration before the next event, with the exact number of cycles the
+ * skipped iterations would have taken.
+ *
+ * @author Ben L. Titzer
+ */
+public class PredecodedInterpreter extends BaseInterpreter implements InstrVisitor {
+
+    /**
+     * The <code>Factory</code> class implements an interpreter factory that can create
+     * a new predecoded interpreter for a new simulator instance with the given program.
+     */
+    public static final class Factory extends InterpreterFactory {
+        public BaseInterpreter newInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
+            return new PredecodedInterpreter(s, p, pr);
+        }
+    }
+
+    private static final Register R0 = Register.R0;
+    private static final Register R1 = Register.R1;
+    private static final Register RZ = Register.Z;
+
+    /**
+     * The <code>opcodes</code> array stores the decoded opcode of the instruction at each byte address
+     * in the flash. Addresses that do not begin a normal instruction store <code>OP_VISIT</code>.
+     */
+    protected byte[] opcodes;
+
+    /**
+     * The <code>operand1</code> and <code>operand2</code> arrays store the packed operands of the
+     * instruction at each byte address in the flash.
+     */
+    protected int[] operand1;
+    protected int[] operand2;
+
+    /**
+     * The <code>decoded_instr</code> array stores a reference to the instruction that was in the flash
+     * when each address was decoded. When it differs from the instruction currently in the flash,
+     * the address is decoded again.
+     */
+    protected Instr[] decoded_instr;
+
+    private final Decoder decoder = new Decoder();
+
+    /**
+     * The <code>flagsObserved</code> field records whether the flags may be observed by a probe or a watch
+     * or by code that was changed after it was loaded. In that case, all flags are computed for every
+     * instruction, regardless of the static <code>FlagLiveness</code> analysis.
+     */
+    protected boolean flagsObserved;
+
+    /**
+     * The constructor for the <code>PredecodedInterpreter</code> class builds the internal data
+     * structures needed to store the complete state of the machine and decodes the complete contents
+     * of the flash segment.
+     *
+     * @param s The simulator attached to this interpreter
+     * @param p the program to construct the state for
+     * @param pr the properties of the microcontroller being simulated
+     */
+    protected PredecodedInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
+        super(s, p, pr);
+
+        int size = shared_instr.length;
+        opcodes = new byte[size];
+        operand1 = new int[size];
+        operand2 = new int[size];
+        decoded_instr = new Instr[size];
+        for (int cntr = 0; cntr < size; cntr++)
+            decode(cntr);
+    }
+
+    /**
+     * The <code>decode()</code> method decodes the instruction currently stored in the flash at the
+     * specified address into the opcode and operand arrays. Instructions that are not plain AVR
+     * instructions (e.g. probed instructions) are marked to be dispatched through the visitor.
+     *
+     * @param npc the byte address of the instruction to decode
+     */
+    protected void decode(int npc) {
+        Instr i = shared_instr[npc];
+        decoded_instr[npc] = i;
+        opcodes[npc] = OP_VISIT;
+        if (i != null && i.asInstr() == i) {
+            decoder.npc = npc;
+            i.accept(decoder);
+            if (!flagsObserved) elideFlags(npc, i);
+            fuse(npc, i);
+        }
+    }
+
+    public int getInstrSize(int npc) {
+        return shared_instr[npc].getSize();
+    }
+
+    protected void runLoop() {
+
+        while (shouldRun && !suspended) {
+
+            if (delayCycles > 0) {
+                advanceClock(delayCycles);
+                delayCycles = 0;
+                if (suspended) break;
+            }
+
+            if (justReturnedFromInterrupt) {
+                // don't process the interrupt if we just returned from
+                // an interrupt handler, because the hardware manual says
+                // that at least one instruction is executed after
+                // returning from an interrupt.
+                justReturnedFromInterrupt = false;
+            } else if (I) {
+
+                // check if there are any pending (posted) interrupts
+                long pendingInterrupts = interrupts.getPendingInterrupts();
+                if (pendingInterrupts != 0) {
+                    invokeInterrupt(pendingInterrupts);
+                }
+            }
+
+            // the node may have been suspended while the clock was advanced
+            if (suspended) break;
+
+            runInnerLoop();
+        }
+    }
+
+    protected void runInnerLoop() {
+        if (sleeping)
+            sleepLoop();
+        else {
+            if (globalProbe.isEmpty())
+                fastLoop();
+            else
+                instrumentedLoop();
+        }
+    }
+
+    public int step() {
+        nextPC = pc;
+
+        // process any delays
+        if (delayCycles > 0) {
+            advanceClock(1);
+            delayCycles--;
+            return 1;
+        }
+
+        // handle any interrupts
+        if (justReturnedFromInterrupt) {
+            // don't process the interrupt if we just returned from
+            // an interrupt handler, because the hardware manual says
+            // that at least one instruction is executed after
+            // returning from an interrupt.
+            justReturnedFromInterrupt = false;
+        } else if (I) {
+
+            // check if there are any pending (posted) interrupts
+            long pendingInterrupts = interrupts.getPendingInterrupts();
+            if (pendingInterrupts != 0) {
+                return stepInterrupt(pendingInterrupts);
+            }
+        }
+
+        // are we sleeping?
+        if ( sleeping ) {
+            advanceClock(1);
+            return 1;
+        }
+
+        return stepInstruction();
+    }
+
+    private int stepInstruction() {
+        int cycles;
+        int curPC = nextPC; // at this point pc == nextPC
+        if (shared_instr[curPC] != decoded_instr[curPC])
+            decode(curPC);
+
+        if ( globalProbe.isEmpty() ) {
+            executeSingle(curPC);
+            // NOTE: commit() might be called twice, but this is ok
+            cycles = cyclesConsumed;
+            commit();
+        } else {
+            globalProbe.fireBefore(state, curPC);
+            executeSingle(curPC);
+            cycles = cyclesConsumed;
+            commit();
+            globalProbe.fireAfter(state, curPC);
+        }
+        return cycles;
+    }
+
+    private int stepInterrupt(long pendingInterrupts) {
+        // the lowest set bit is the highest priority posted interrupt
+        int inum = Arithmetic.lowestBit(pendingInterrupts);
+
+        // fire the interrupt (update flag register(s) state)
+        interrupts.beforeInvoke(inum);
+
+        // store the return address
+        pushPC(nextPC);
+
+        // set PC to interrupt handler
+        nextPC = getInterruptVectorAddress(inum);
+        pc = nextPC;
+
+        // disable interrupts
+        I = false;
+
+        // advance by just one cycle
+        advanceClock(1);
+
+        int cycles = 3; // there are some cycles left-over to delay by
+        //time to wake up
+        if (sleeping) {
+            cycles += simulator.getMicrocontroller().wakeup();
+            sleeping = false;
+            innerLoop = false;
+        }
+
+        delay(cycles);
+
+        return 1;
+    }
+
+    private void invokeInterrupt(long pendingInterrupts) {
+        // the lowest set bit is the highest priority posted interrupt
+        int lowestbit = Arithmetic.lowestBit(pendingInterrupts);
+
+        // fire the interrupt (update flag register(s) state)
+        interrupts.beforeInvoke(lowestbit);
+
+        //time to wake up
+        if (sleeping)
+            leaveSleepMode();
+
+        // store the return address
+        pushPC(nextPC);
+
+        // set PC to interrupt handler
+        nextPC = getInterruptVectorAddress(lowestbit);
+        pc = nextPC;
+
+        // disable interrupts
+        I = false;
+
+        // process any timed events
+        advanceClock(4);
+
+        interrupts.afterInvoke(lowestbit);
+    }
+
+    private void sleepLoop() {
+        innerLoop = true;
+        while (innerLoop) {
+            clock.skipAhead();
+        }
+    }
+
+    private void fastLoop() {
+        innerLoop = true;
+        while (innerLoop) {
+            int npc = nextPC;
+            // the instruction in the flash changed (e.g. a probe was inserted)
+            if (shared_instr[npc] != decoded_instr[npc])
+                decode(npc);
+
+            execute(npc);
+            // NOTE: commit() might be called twice, but this is ok
+            commit();
+        }
+    }
+
+    private void instrumentedLoop() {
+        innerLoop = true;
+        while (innerLoop) {
+            // get the current instruction
+            int curPC = nextPC; // at this point pc == nextPC
+            if (shared_instr[curPC] != decoded_instr[curPC])
+                decode(curPC);
+
+            globalProbe.fireBefore(state, curPC);
+            executeSingle(curPC);
+            commit();
+            globalProbe.fireAfter(state, curPC);
+        }
+    }
+
+    /**
+     * The <code>executeSingle()</code> method executes only the instruction at the specified address, even
+     * if it is the head of a fused sequence. It is used when the probes must observe every instruction.
+     *
+     * @param npc the byte address of the instruction to execute
+     */
+    private void executeSingle(int npc) {
+        if (opcodes[npc] <= OP_FIRST_FUSED)
+            decoded_instr[npc].accept(this);
+        else
+            execute(npc);
+    }
+
+    //
+    //  I N S T R U C T I O N S
+    // ------------------------------------------------------------
+    //
+    //  The opcodes and the code of each instruction. The code is
+    //  adapted by hand from the generated code of GenInterpreter,
+    //  with the operands passed as ints, and must be kept in sync
+    //  with it when the instruction set description changes.
+    //
+
+    protected static final byte OP_VISIT = 0;
+    protected static final byte OP_ADC = 1;
+    protected static final byte OP_ADD = 2;
+    protected static final byte OP_ADIW = 3;
+    protected static final byte OP_AND = 4;
+    protected static final byte OP_ANDI = 5;
+    protected static final byte OP_ASR = 6;
+    protected static final byte OP_BCLR = 7;
+    protected static final byte OP_BLD = 8;
+    protected static final byte OP_BRBC = 9;
+    protected static final byte OP_BRBS = 10;
+    protected static final byte OP_BRCC = 11;
+    protected static final byte OP_BRCS = 12;
+    protected static final byte OP_BREAK = 13;
+    protected static final byte OP_BREQ = 14;
+    protected static final byte OP_BRGE = 15;
+    protected static final byte OP_BRHC = 16;
+    protected static final byte OP_BRHS = 17;
+    protected static final byte OP_BRID = 18;
+    protected static final byte OP_BRIE = 19;
+    protected static final byte OP_BRLO = 20;
+    protected static final byte OP_BRLT = 21;
+    protected static final byte OP_BRMI = 22;
+    protected static final byte OP_BRNE = 23;
+    protected static final byte OP_BRPL = 24;
+    protected static final byte OP_BRSH = 25;
+    protected static final byte OP_BRTC = 26;
+    protected static final byte OP_BRTS = 27;
+    protected static final byte OP_BRVC = 28;
+    protected static final byte OP_BRVS = 29;
+    protected static final byte OP_BSET = 30;
+    protected static final byte OP_BST = 31;
+    protected static final byte OP_CALL = 32;
+    protected static final byte OP_CBI = 33;
+    protected static final byte OP_CBR = 34;
+    protected static final byte OP_CLC = 35;
+    protected static final byte OP_CLH = 36;
+    protected static final byte OP_CLI = 37;
+    protected static final byte OP_CLN = 38;
+    protected static final byte OP_CLR = 39;
+    protected static final byte OP_CLS = 40;
+    protected static final byte OP_CLT = 41;
+    protected static final byte OP_CLV = 42;
+    protected static final byte OP_CLZ = 43;
+    protected static final byte OP_COM = 44;
+    protected static final byte OP_CP = 45;
+    protected static final byte OP_CPC = 46;
+    protected static final byte OP_CPI = 47;
+    protected static final byte OP_CPSE = 48;
+    protected static final byte OP_DEC = 49;
+    protected static final byte OP_EICALL = 50;
+    protected static final byte OP_EIJMP = 51;
+    protected static final byte OP_ELPM = 52;
+    protected static final byte OP_ELPMD = 53;
+    protected static final byte OP_ELPMPI = 54;
+    protected static final byte OP_EOR = 55;
+    protected static final byte OP_FMUL = 56;
+    protected static final byte OP_FMULS = 57;
+    protected static final byte OP_FMULSU = 58;
+    protected static final byte OP_ICALL = 59;
+    protected static final byte OP_IJMP = 60;
+    protected static final byte OP_IN = 61;
+    protected static final byte OP_INC = 62;
+    protected static final byte OP_JMP = 63;
+    protected static final byte OP_LD = 64;
+    protected static final byte OP_LDD = 65;
+    protected static final byte OP_LDI = 66;
+    protected static final byte OP_LDPD = 67;
+    protected static final byte OP_LDPI = 68;
+    protected static final byte OP_LDS = 69;
+    protected static final byte OP_LPM = 70;
+    protected static final byte OP_LPMD = 71;
+    protected static final byte OP_LPMPI = 72;
+    protected static final byte OP_LSL = 73;
+    protected static final byte OP_LSR = 74;
+    protected static final byte OP_MOV = 75;
+    protected static final byte OP_MOVW = 76;
+    protected static final byte OP_MUL = 77;
+    protected static final byte OP_MULS = 78;
+    protected static final byte OP_MULSU = 79;
+    protected static final byte OP_NEG = 80;
+    protected static final byte OP_NOP = 81;
+    protected static final byte OP_OR = 82;
+    protected static final byte OP_ORI = 83;
+    protected static final byte OP_OUT = 84;
+    protected static final byte OP_POP = 85;
+    protected static final byte OP_PUSH = 86;
+    protected static final byte OP_RCALL = 87;
+    protected static final byte OP_RET = 88;
+    protected static final byte OP_RETI = 89;
+    protected static final byte OP_RJMP = 90;
+    protected static final byte OP_ROL = 91;
+    protected static final byte OP_ROR = 92;
+    protected static final byte OP_SBC = 93;
+    protected static final byte OP_SBCI = 94;
+    protected static final byte OP_SBI = 95;
+    protected static final byte OP_SBIC = 96;
+    protected static final byte OP_SBIS = 97;
+    protected static final byte OP_SBIW = 98;
+    protected static final byte OP_SBR = 99;
+    protected static final byte OP_SBRC = 100;
+    protected static final byte OP_SBRS = 101;
+    protected static final byte OP_SEC = 102;
+    protected static final byte OP_SEH = 103;
+    protected static final byte OP_SEI = 104;
+    protected static final byte OP_SEN = 105;
+    protected static final byte OP_SER = 106;
+    protected static final byte OP_SES = 107;
+    protected static final byte OP_SET = 108;
+    protected static final byte OP_SEV = 109;
+    protected static final byte OP_SEZ = 110;
+    protected static final byte OP_SLEEP = 111;
+    protected static final byte OP_SPM = 112;
+    protected static final byte OP_ST = 113;
+    protected static final byte OP_STD = 114;
+    protected static final byte OP_STPD = 115;
+    protected static final byte OP_STPI = 116;
+    protected static final byte OP_STS = 117;
+    protected static final byte OP_SUB = 118;
+    protected static final byte OP_SUBI = 119;
+    protected static final byte OP_SWAP = 120;
+    protected static final byte OP_TST = 121;
+    protected static final byte OP_WDR = 122;
+
+    /**
+     * The <code>execute()</code> method executes the decoded instruction at the specified address.
+     *
+     * @param npc the byte address of the instruction to execute
+     */
+    protected void execute(int npc) {
+        int a = operand1[npc];
+        int b = operand2[npc];
+        switch (opcodes[npc]) {
+            case OP_ADC:
+                execADC(a, b);
+                break;
+            case OP_ADD:
+                execADD(a, b);
+                break;
+            case OP_ADIW:
+                execADIW(a, b);
+                break;
+            case OP_AND:
+                execAND(a, b);
+                break;
+            case OP_ANDI:
+                execANDI(a, b);
+                break;
+            case OP_ASR:
+                execASR(a);
+                break;
+            case OP_BCLR:
+                execBCLR(a);
+                break;
+            case OP_BLD:
+                execBLD(a, b);
+                break;
+            case OP_BRBC:
+                execBRBC(a, b);
+                break;
+            case OP_BRBS:
+                execBRBS(a, b);
+                break;
+            case OP_BRCC:
+                execBRCC(a);
+                break;
+            case OP_BRCS:
+                execBRCS(a);
+                break;
+            case OP_BREAK:
+                execBREAK();
+                break;
+            case OP_BREQ:
+                execBREQ(a);
+                break;
+            case OP_BRGE:
+                execBRGE(a);
+                break;
+            case OP_BRHC:
+                execBRHC(a);
+                break;
+            case OP_BRHS:
+                execBRHS(a);
+                break;
+            case OP_BRID:
+                execBRID(a);
+                break;
+            case OP_BRIE:
+                execBRIE(a);
+                break;
+            case OP_BRLO:
+                execBRLO(a);
+                break;
+            case OP_BRLT:
+                execBRLT(a);
+                break;
+            case OP_BRMI:
+                execBRMI(a);
+                break;
+            case OP_BRNE:
+                execBRNE(a);
+                break;
+            case OP_BRPL:
+                execBRPL(a);
+                break;
+            case OP_BRSH:
+                execBRSH(a);
+                break;
+            case OP_BRTC:
+                execBRTC(a);
+                break;
+            case OP_BRTS:
+                execBRTS(a);
+                break;
+            case OP_BRVC:
+                execBRVC(a);
+                break;
+            case OP_BRVS:
+                execBRVS(a);
+                break;
+            case OP_BSET:
+                execBSET(a);
+                break;
+            case OP_BST:
+                execBST(a, b);
+                break;
+            case OP_CALL:
+                execCALL(a);
+                break;
+            case OP_CBI:
+                execCBI(a, b);
+                break;
+            case OP_CBR:
+                execCBR(a, b);
+                break;
+            case OP_CLC:
+                execCLC();
+                break;
+            case OP_CLH:
+                execCLH();
+                break;
+            case OP_CLI:
+                execCLI();
+                break;
+            case OP_CLN:
+                execCLN();
+                break;
+            case OP_CLR:
+                execCLR(a);
+                break;
+            case OP_CLS:
+                execCLS();
+                break;
+            case OP_CLT:
+                execCLT();
+                break;
+            case OP_CLV:
+                execCLV();
+                break;
+            case OP_CLZ:
+                execCLZ();
+                break;
+            case OP_COM:
+                execCOM(a);
+                break;
+            case OP_CP:
+                execCP(a, b);
+                break;
+            case OP_CPC:
+                execCPC(a, b);
+                break;
+            case OP_CPI:
+                execCPI(a, b);
+                break;
+            case OP_CPSE:
+                execCPSE(a, b);
+                break;
+            case OP_DEC:
+                execDEC(a);
+                break;
+            case OP_EICALL:
+                execEICALL();
+                break;
+            case OP_EIJMP:
+                execEIJMP();
+                break;
+            case OP_ELPM:
+                execELPM();
+                break;
+            case OP_ELPMD:
+                execELPMD(a, b);
+                break;
+            case OP_ELPMPI:
+                execELPMPI(a, b);
+                break;
+            case OP_EOR:
+                execEOR(a, b);
+                break;
+            case OP_FMUL:
+                execFMUL(a, b);
+                break;
+            case OP_FMULS:
+                execFMULS(a, b);
+                break;
+            case OP_FMULSU:
+                execFMULSU(a, b);
+                break;
+            case OP_ICALL:
+                execICALL();
+                break;
+            case OP_IJMP:
+                execIJMP();
+                break;
+            case OP_IN:
+                execIN(a, b);
+                break;
+            case OP_INC:
+                execINC(a);
+                break;
+            case OP_JMP:
+                execJMP(a);
+                break;
+            case OP_LD:
+                execLD(a, b);
+                break;
+            case OP_LDD:
+                execLDD(a, b & 0xff, b >> 8);
+                break;
+            case OP_LDI:
+                execLDI(a, b);
+                break;
+            case OP_LDPD:
+                execLDPD(a, b);
+                break;
+            case OP_LDPI:
+                execLDPI(a, b);
+                break;
+            case OP_LDS:
+                execLDS(a, b);
+                break;
+            case OP_LPM:
+                execLPM();
+                break;
+            case OP_LPMD:
+                execLPMD(a, b);
+                break;
+            case OP_LPMPI:
+                execLPMPI(a, b);
+                break;
+            case OP_LSL:
+                execLSL(a);
+                break;
+            case OP_LSR:
+                execLSR(a);
+                break;
+            case OP_MOV:
+                execMOV(a, b);
+                break;
+            case OP_MOVW:
+                execMOVW(a, b);
+                break;
+            case OP_MUL:
+                execMUL(a, b);
+                break;
+            case OP_MULS:
+                execMULS(a, b);
+                break;
+            case OP_MULSU:
+                execMULSU(a, b);
+                break;
+            case OP_NEG:
+                execNEG(a);
+                break;
+            case OP_NOP:
+                execNOP();
+                break;
+            case OP_OR:
+                execOR(a, b);
+                break;
+            case OP_ORI:
+                execORI(a, b);
+                break;
+            case OP_OUT:
+                execOUT(a, b);
+                break;
+            case OP_POP:
+                execPOP(a);
+                break;
+            case OP_PUSH:
+                execPUSH(a);
+                break;
+            case OP_RCALL:
+                execRCALL(a);
+                break;
+            case OP_RET:
+                execRET();
+                break;
+            case OP_RETI:
+                execRETI();
+                break;
+            case OP_RJMP:
+                execRJMP(a);
+                break;
+            case OP_ROL:
+                execROL(a);
+                break;
+            case OP_ROR:
+                execROR(a);
+                break;
+            case OP_SBC:
+                execSBC(a, b);
+                break;
+            case OP_SBCI:
+                execSBCI(a, b);
+                break;
+            case OP_SBI:
+                execSBI(a, b);
+                break;
+            case OP_SBIC:
+                execSBIC(a, b);
+                break;
+            case OP_SBIS:
+                execSBIS(a, b);
+                break;
+            case OP_SBIW:
+                execSBIW(a, b);
+                break;
+            case OP_SBR:
+                execSBR(a, b);
+                break;
+            case OP_SBRC:
+                execSBRC(a, b);
+                break;
+            case OP_SBRS:
+                execSBRS(a, b);
+                break;
+            case OP_SEC:
+                execSEC();
+                break;
+            case OP_SEH:
+                execSEH();
+                break;
+            case OP_SEI:
+                execSEI();
+                break;
+            case OP_SEN:
+                execSEN();
+                break;
+            case OP_SER:
+                execSER(a);
+                break;
+            case OP_SES:
+                execSES();
+                break;
+            case OP_SET:
+                execSET();
+                break;
+            case OP_SEV:
+                execSEV();
+                break;
+            case OP_SEZ:
+                execSEZ();
+                break;
+            case OP_SLEEP:
+                execSLEEP();
+                break;
+            case OP_SPM:
+                execSPM();
+                break;
+            case OP_ST:
+                execST(a, b);
+                break;
+            case OP_STD:
+                execSTD(a, b >> 8, b & 0xff);
+                break;
+            case OP_STPD:
+                execSTPD(a, b);
+                break;
+            case OP_STPI:
+                execSTPI(a, b);
+                break;
+            case OP_STS:
+                execSTS(a, b);
+                break;
+            case OP_SUB:
+                execSUB(a, b);
+                break;
+            case OP_SUBI:
+                execSUBI(a, b);
+                break;
+            case OP_SWAP:
+                execSWAP(a);
+                break;
+            case OP_TST:
+                execTST(a);
+                break;
+            case OP_WDR:
+                execWDR();
+                break;
+            case OP_ADD_NF:
+                execADD_NF(a, b);
+                break;
+            case OP_ADC_NF:
+                execADC_NF(a, b);
+                break;
+            case OP_SUB_NF:
+                execSUB_NF(a, b);
+                break;
+            case OP_SUBI_NF:
+                execSUBI_NF(a, b);
+                break;
+            case OP_SBC_NF:
+                execSBC_NF(a, b);
+                break;
+            case OP_SBCI_NF:
+                execSBCI_NF(a, b);
+                break;
+            case OP_AND_NF:
+                execAND_NF(a, b);
+                break;
+            case OP_ANDI_NF:
+                execANDI_NF(a, b);
+                break;
+            case OP_CBR_NF:
+                execCBR_NF(a, b);
+                break;
+            case OP_OR_NF:
+                execOR_NF(a, b);
+                break;
+            case OP_ORI_NF:
+                execORI_NF(a, b);
+                break;
+            case OP_EOR_NF:
+                execEOR_NF(a, b);
+                break;
+            case OP_CLR_NF:
+                execCLR_NF(a);
+                break;
+            case OP_COM_NF:
+                execCOM_NF(a);
+                break;
+            case OP_NEG_NF:
+                execNEG_NF(a);
+                break;
+            case OP_INC_NF:
+                execINC_NF(a);
+                break;
+            case OP_DEC_NF:
+                execDEC_NF(a);
+                break;
+            case OP_ADIW_NF:
+                execADIW_NF(a, b);
+                break;
+            case OP_SBIW_NF:
+                execSBIW_NF(a, b);
+                break;
+            case OP_LSL_NF:
+                execLSL_NF(a);
+                break;
+            case OP_LSR_NF:
+                execLSR_NF(a);
+                break;
+            case OP_ASR_NF:
+                execASR_NF(a);
+                break;
+            case OP_ROL_NF:
+                execROL_NF(a);
+                break;
+            case OP_ROR_NF:
+                execROR_NF(a);
+                break;
+            case OP_CP_NF:
+                execCP_NF(a, b);
+                break;
+            case OP_CPC_NF:
+                execCPC_NF(a, b);
+                break;
+            case OP_CPI_NF:
+                execCPI_NF(a, b);
+                break;
+            case OP_TST_NF:
+                execTST_NF(a);
+                break;
+            case OP_ADD_C:
+                execADD_C(a, b);
+                break;
+            case OP_ADC_C:
+                execADC_C(a, b);
+                break;
+            case OP_SUB_CZ:
+                execSUB_CZ(a, b);
+                break;
+            case OP_SUBI_CZ:
+                execSUBI_CZ(a, b);
+                break;
+            case OP_SBC_CZ:
+                execSBC_CZ(a, b);
+                break;
+            case OP_SBCI_CZ:
+                execSBCI_CZ(a, b);
+                break;
+            case OP_CP_CZ:
+                execCP_CZ(a, b);
+                break;
+            case OP_CPC_CZ:
+                execCPC_CZ(a, b);
+                break;
+            case OP_CPI_CZ:
+                execCPI_CZ(a, b);
+                break;
+            case OP_PUSH_RUN:
+                execPUSH_RUN(npc, b);
+                break;
+            case OP_POP_RUN:
+                execPOP_RUN(npc, b);
+                break;
+            case OP_NOP_RUN:
+                execNOP_RUN(b);
+                break;
+            case OP_LDI_LDI:
+                execLDI_LDI(npc, a, b);
+                break;
+            case OP_SUBI_SBCI:
+                execSUBI_SBCI(npc, a, b);
+                break;
+            case OP_CP_CPC:
+                execCP_CPC(npc, a, b);
+                break;
+            case OP_CPI_CPC:
+                execCPI_CPC(npc, a, b);
+                break;
+            case OP_CP_CPC_BRNE:
+                execCP_CPC_BRNE(npc, a, b);
+                break;
+            case OP_CPI_CPC_BRNE:
+                execCPI_CPC_BRNE(npc, a, b);
+                break;
+            case OP_BUSY_WAIT:
+                execBUSY_WAIT(npc, b);
+                break;
+            default:
+                decoded_instr[npc].accept(this);
+        }
+    }
+
+    /**
+     * The <code>Decoder</code> class visits each instruction once when it is loaded and records its
+     * opcode and operands into the packed arrays used by the interpreter loop.
+     */
+    private class Decoder implements InstrVisitor {
+        int npc;
+
+        private void set(byte opcode, int a, int b) {
+            opcodes[npc] = opcode;
+            operand1[npc] = a;
+            operand2[npc] = b;
+        }
+
+        public void visit(Instr.ADC i) {
+            set(OP_ADC, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ADD i) {
+            set(OP_ADD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ADIW i) {
+            set(OP_ADIW, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.AND i) {
+            set(OP_AND, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ANDI i) {
+            set(OP_ANDI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.ASR i) {
+            set(OP_ASR, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.BCLR i) {
+            set(OP_BCLR, i.imm1, 0);
+        }
+
+        public void visit(Instr.BLD i) {
+            set(OP_BLD, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.BRBC i) {
+            set(OP_BRBC, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.BRBS i) {
+            set(OP_BRBS, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.BRCC i) {
+            set(OP_BRCC, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRCS i) {
+            set(OP_BRCS, i.imm1, 0);
+        }
+
+        public void visit(Instr.BREAK i) {
+            set(OP_BREAK, 0, 0);
+        }
+
+        public void visit(Instr.BREQ i) {
+            set(OP_BREQ, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRGE i) {
+            set(OP_BRGE, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRHC i) {
+            set(OP_BRHC, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRHS i) {
+            set(OP_BRHS, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRID i) {
+            set(OP_BRID, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRIE i) {
+            set(OP_BRIE, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRLO i) {
+            set(OP_BRLO, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRLT i) {
+            set(OP_BRLT, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRMI i) {
+            set(OP_BRMI, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRNE i) {
+            set(OP_BRNE, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRPL i) {
+            set(OP_BRPL, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRSH i) {
+            set(OP_BRSH, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRTC i) {
+            set(OP_BRTC, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRTS i) {
+            set(OP_BRTS, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRVC i) {
+            set(OP_BRVC, i.imm1, 0);
+        }
+
+        public void visit(Instr.BRVS i) {
+            set(OP_BRVS, i.imm1, 0);
+        }
+
+        public void visit(Instr.BSET i) {
+            set(OP_BSET, i.imm1, 0);
+        }
+
+        public void visit(Instr.BST i) {
+            set(OP_BST, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.CALL i) {
+            set(OP_CALL, i.imm1, 0);
+        }
+
+        public void visit(Instr.CBI i) {
+            set(OP_CBI, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.CBR i) {
+            set(OP_CBR, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.CLC i) {
+            set(OP_CLC, 0, 0);
+        }
+
+        public void visit(Instr.CLH i) {
+            set(OP_CLH, 0, 0);
+        }
+
+        public void visit(Instr.CLI i) {
+            set(OP_CLI, 0, 0);
+        }
+
+        public void visit(Instr.CLN i) {
+            set(OP_CLN, 0, 0);
+        }
+
+        public void visit(Instr.CLR i) {
+            set(OP_CLR, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.CLS i) {
+            set(OP_CLS, 0, 0);
+        }
+
+        public void visit(Instr.CLT i) {
+            set(OP_CLT, 0, 0);
+        }
+
+        public void visit(Instr.CLV i) {
+            set(OP_CLV, 0, 0);
+        }
+
+        public void visit(Instr.CLZ i) {
+            set(OP_CLZ, 0, 0);
+        }
+
+        public void visit(Instr.COM i) {
+            set(OP_COM, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.CP i) {
+            set(OP_CP, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.CPC i) {
+            set(OP_CPC, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.CPI i) {
+            set(OP_CPI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.CPSE i) {
+            set(OP_CPSE, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.DEC i) {
+            set(OP_DEC, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.EICALL i) {
+            set(OP_EICALL, 0, 0);
+        }
+
+        public void visit(Instr.EIJMP i) {
+            set(OP_EIJMP, 0, 0);
+        }
+
+        public void visit(Instr.ELPM i) {
+            set(OP_ELPM, 0, 0);
+        }
+
+        public void visit(Instr.ELPMD i) {
+            set(OP_ELPMD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ELPMPI i) {
+            set(OP_ELPMPI, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.EOR i) {
+            set(OP_EOR, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.FMUL i) {
+            set(OP_FMUL, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.FMULS i) {
+            set(OP_FMULS, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.FMULSU i) {
+            set(OP_FMULSU, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ICALL i) {
+            set(OP_ICALL, 0, 0);
+        }
+
+        public void visit(Instr.IJMP i) {
+            set(OP_IJMP, 0, 0);
+        }
+
+        public void visit(Instr.IN i) {
+            set(OP_IN, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.INC i) {
+            set(OP_INC, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.JMP i) {
+            set(OP_JMP, i.imm1, 0);
+        }
+
+        public void visit(Instr.LD i) {
+            set(OP_LD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.LDD i) {
+            set(OP_LDD, i.r1.getNumber(), i.r2.getNumber() | (i.imm1 << 8));
+        }
+
+        public void visit(Instr.LDI i) {
+            set(OP_LDI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.LDPD i) {
+            set(OP_LDPD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.LDPI i) {
+            set(OP_LDPI, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.LDS i) {
+            set(OP_LDS, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.LPM i) {
+            set(OP_LPM, 0, 0);
+        }
+
+        public void visit(Instr.LPMD i) {
+            set(OP_LPMD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.LPMPI i) {
+            set(OP_LPMPI, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.LSL i) {
+            set(OP_LSL, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.LSR i) {
+            set(OP_LSR, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.MOV i) {
+            set(OP_MOV, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.MOVW i) {
+            set(OP_MOVW, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.MUL i) {
+            set(OP_MUL, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.MULS i) {
+            set(OP_MULS, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.MULSU i) {
+            set(OP_MULSU, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.NEG i) {
+            set(OP_NEG, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.NOP i) {
+            set(OP_NOP, 0, 0);
+        }
+
+        public void visit(Instr.OR i) {
+            set(OP_OR, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.ORI i) {
+            set(OP_ORI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.OUT i) {
+            set(OP_OUT, i.imm1, i.r1.getNumber());
+        }
+
+        public void visit(Instr.POP i) {
+            set(OP_POP, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.PUSH i) {
+            set(OP_PUSH, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.RCALL i) {
+            set(OP_RCALL, i.imm1, 0);
+        }
+
+        public void visit(Instr.RET i) {
+            set(OP_RET, 0, 0);
+        }
+
+        public void visit(Instr.RETI i) {
+            set(OP_RETI, 0, 0);
+        }
+
+        public void visit(Instr.RJMP i) {
+            set(OP_RJMP, i.imm1, 0);
+        }
+
+        public void visit(Instr.ROL i) {
+            set(OP_ROL, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.ROR i) {
+            set(OP_ROR, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.SBC i) {
+            set(OP_SBC, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.SBCI i) {
+            set(OP_SBCI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SBI i) {
+            set(OP_SBI, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.SBIC i) {
+            set(OP_SBIC, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.SBIS i) {
+            set(OP_SBIS, i.imm1, i.imm2);
+        }
+
+        public void visit(Instr.SBIW i) {
+            set(OP_SBIW, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SBR i) {
+            set(OP_SBR, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SBRC i) {
+            set(OP_SBRC, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SBRS i) {
+            set(OP_SBRS, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SEC i) {
+            set(OP_SEC, 0, 0);
+        }
+
+        public void visit(Instr.SEH i) {
+            set(OP_SEH, 0, 0);
+        }
+
+        public void visit(Instr.SEI i) {
+            set(OP_SEI, 0, 0);
+        }
+
+        public void visit(Instr.SEN i) {
+            set(OP_SEN, 0, 0);
+        }
+
+        public void visit(Instr.SER i) {
+            set(OP_SER, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.SES i) {
+            set(OP_SES, 0, 0);
+        }
+
+        public void visit(Instr.SET i) {
+            set(OP_SET, 0, 0);
+        }
+
+        public void visit(Instr.SEV i) {
+            set(OP_SEV, 0, 0);
+        }
+
+        public void visit(Instr.SEZ i) {
+            set(OP_SEZ, 0, 0);
+        }
+
+        public void visit(Instr.SLEEP i) {
+            set(OP_SLEEP, 0, 0);
+        }
+
+        public void visit(Instr.SPM i) {
+            set(OP_SPM, 0, 0);
+        }
+
+        public void visit(Instr.ST i) {
+            set(OP_ST, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.STD i) {
+            set(OP_STD, i.r1.getNumber(), i.r2.getNumber() | (i.imm1 << 8));
+        }
+
+        public void visit(Instr.STPD i) {
+            set(OP_STPD, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.STPI i) {
+            set(OP_STPI, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.STS i) {
+            set(OP_STS, i.imm1, i.r1.getNumber());
+        }
+
+        public void visit(Instr.SUB i) {
+            set(OP_SUB, i.r1.getNumber(), i.r2.getNumber());
+        }
+
+        public void visit(Instr.SUBI i) {
+            set(OP_SUBI, i.r1.getNumber(), i.imm1);
+        }
+
+        public void visit(Instr.SWAP i) {
+            set(OP_SWAP, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.TST i) {
+            set(OP_TST, i.r1.getNumber(), 0);
+        }
+
+        public void visit(Instr.WDR i) {
+            set(OP_WDR, 0, 0);
+        }
+    }
+
+    public void visit(Instr.ADC i) {
+        execADC(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ADD i) {
+        execADD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ADIW i) {
+        execADIW(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.AND i) {
+        execAND(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ANDI i) {
+        execANDI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.ASR i) {
+        execASR(i.r1.getNumber());
+    }
+
+    public void visit(Instr.BCLR i) {
+        execBCLR(i.imm1);
+    }
+
+    public void visit(Instr.BLD i) {
+        execBLD(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.BRBC i) {
+        execBRBC(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.BRBS i) {
+        execBRBS(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.BRCC i) {
+        execBRCC(i.imm1);
+    }
+
+    public void visit(Instr.BRCS i) {
+        execBRCS(i.imm1);
+    }
+
+    public void visit(Instr.BREAK i) {
+        execBREAK();
+    }
+
+    public void visit(Instr.BREQ i) {
+        execBREQ(i.imm1);
+    }
+
+    public void visit(Instr.BRGE i) {
+        execBRGE(i.imm1);
+    }
+
+    public void visit(Instr.BRHC i) {
+        execBRHC(i.imm1);
+    }
+
+    public void visit(Instr.BRHS i) {
+        execBRHS(i.imm1);
+    }
+
+    public void visit(Instr.BRID i) {
+        execBRID(i.imm1);
+    }
+
+    public void visit(Instr.BRIE i) {
+        execBRIE(i.imm1);
+    }
+
+    public void visit(Instr.BRLO i) {
+        execBRLO(i.imm1);
+    }
+
+    public void visit(Instr.BRLT i) {
+        execBRLT(i.imm1);
+    }
+
+    public void visit(Instr.BRMI i) {
+        execBRMI(i.imm1);
+    }
+
+    public void visit(Instr.BRNE i) {
+        execBRNE(i.imm1);
+    }
+
+    public void visit(Instr.BRPL i) {
+        execBRPL(i.imm1);
+    }
+
+    public void visit(Instr.BRSH i) {
+        execBRSH(i.imm1);
+    }
+
+    public void visit(Instr.BRTC i) {
+        execBRTC(i.imm1);
+    }
+
+    public void visit(Instr.BRTS i) {
+        execBRTS(i.imm1);
+    }
+
+    public void visit(Instr.BRVC i) {
+        execBRVC(i.imm1);
+    }
+
+    public void visit(Instr.BRVS i) {
+        execBRVS(i.imm1);
+    }
+
+    public void visit(Instr.BSET i) {
+        execBSET(i.imm1);
+    }
+
+    public void visit(Instr.BST i) {
+        execBST(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.CALL i) {
+        execCALL(i.imm1);
+    }
+
+    public void visit(Instr.CBI i) {
+        execCBI(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.CBR i) {
+        execCBR(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.CLC i) {
+        execCLC();
+    }
+
+    public void visit(Instr.CLH i) {
+        execCLH();
+    }
+
+    public void visit(Instr.CLI i) {
+        execCLI();
+    }
+
+    public void visit(Instr.CLN i) {
+        execCLN();
+    }
+
+    public void visit(Instr.CLR i) {
+        execCLR(i.r1.getNumber());
+    }
+
+    public void visit(Instr.CLS i) {
+        execCLS();
+    }
+
+    public void visit(Instr.CLT i) {
+        execCLT();
+    }
+
+    public void visit(Instr.CLV i) {
+        execCLV();
+    }
+
+    public void visit(Instr.CLZ i) {
+        execCLZ();
+    }
+
+    public void visit(Instr.COM i) {
+        execCOM(i.r1.getNumber());
+    }
+
+    public void visit(Instr.CP i) {
+        execCP(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.CPC i) {
+        execCPC(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.CPI i) {
+        execCPI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.CPSE i) {
+        execCPSE(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.DEC i) {
+        execDEC(i.r1.getNumber());
+    }
+
+    public void visit(Instr.EICALL i) {
+        execEICALL();
+    }
+
+    public void visit(Instr.EIJMP i) {
+        execEIJMP();
+    }
+
+    public void visit(Instr.ELPM i) {
+        execELPM();
+    }
+
+    public void visit(Instr.ELPMD i) {
+        execELPMD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ELPMPI i) {
+        execELPMPI(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.EOR i) {
+        execEOR(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.FMUL i) {
+        execFMUL(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.FMULS i) {
+        execFMULS(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.FMULSU i) {
+        execFMULSU(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ICALL i) {
+        execICALL();
+    }
+
+    public void visit(Instr.IJMP i) {
+        execIJMP();
+    }
+
+    public void visit(Instr.IN i) {
+        execIN(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.INC i) {
+        execINC(i.r1.getNumber());
+    }
+
+    public void visit(Instr.JMP i) {
+        execJMP(i.imm1);
+    }
+
+    public void visit(Instr.LD i) {
+        execLD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.LDD i) {
+        execLDD(i.r1.getNumber(), i.r2.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.LDI i) {
+        execLDI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.LDPD i) {
+        execLDPD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.LDPI i) {
+        execLDPI(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.LDS i) {
+        execLDS(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.LPM i) {
+        execLPM();
+    }
+
+    public void visit(Instr.LPMD i) {
+        execLPMD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.LPMPI i) {
+        execLPMPI(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.LSL i) {
+        execLSL(i.r1.getNumber());
+    }
+
+    public void visit(Instr.LSR i) {
+        execLSR(i.r1.getNumber());
+    }
+
+    public void visit(Instr.MOV i) {
+        execMOV(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.MOVW i) {
+        execMOVW(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.MUL i) {
+        execMUL(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.MULS i) {
+        execMULS(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.MULSU i) {
+        execMULSU(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.NEG i) {
+        execNEG(i.r1.getNumber());
+    }
+
+    public void visit(Instr.NOP i) {
+        execNOP();
+    }
+
+    public void visit(Instr.OR i) {
+        execOR(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.ORI i) {
+        execORI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.OUT i) {
+        execOUT(i.imm1, i.r1.getNumber());
+    }
+
+    public void visit(Instr.POP i) {
+        execPOP(i.r1.getNumber());
+    }
+
+    public void visit(Instr.PUSH i) {
+        execPUSH(i.r1.getNumber());
+    }
+
+    public void visit(Instr.RCALL i) {
+        execRCALL(i.imm1);
+    }
+
+    public void visit(Instr.RET i) {
+        execRET();
+    }
+
+    public void visit(Instr.RETI i) {
+        execRETI();
+    }
+
+    public void visit(Instr.RJMP i) {
+        execRJMP(i.imm1);
+    }
+
+    public void visit(Instr.ROL i) {
+        execROL(i.r1.getNumber());
+    }
+
+    public void visit(Instr.ROR i) {
+        execROR(i.r1.getNumber());
+    }
+
+    public void visit(Instr.SBC i) {
+        execSBC(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.SBCI i) {
+        execSBCI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SBI i) {
+        execSBI(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.SBIC i) {
+        execSBIC(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.SBIS i) {
+        execSBIS(i.imm1, i.imm2);
+    }
+
+    public void visit(Instr.SBIW i) {
+        execSBIW(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SBR i) {
+        execSBR(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SBRC i) {
+        execSBRC(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SBRS i) {
+        execSBRS(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SEC i) {
+        execSEC();
+    }
+
+    public void visit(Instr.SEH i) {
+        execSEH();
+    }
+
+    public void visit(Instr.SEI i) {
+        execSEI();
+    }
+
+    public void visit(Instr.SEN i) {
+        execSEN();
+    }
+
+    public void visit(Instr.SER i) {
+        execSER(i.r1.getNumber());
+    }
+
+    public void visit(Instr.SES i) {
+        execSES();
+    }
+
+    public void visit(Instr.SET i) {
+        execSET();
+    }
+
+    public void visit(Instr.SEV i) {
+        execSEV();
+    }
+
+    public void visit(Instr.SEZ i) {
+        execSEZ();
+    }
+
+    public void visit(Instr.SLEEP i) {
+        execSLEEP();
+    }
+
+    public void visit(Instr.SPM i) {
+        execSPM();
+    }
+
+    public void visit(Instr.ST i) {
+        execST(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.STD i) {
+        execSTD(i.r1.getNumber(), i.imm1, i.r2.getNumber());
+    }
+
+    public void visit(Instr.STPD i) {
+        execSTPD(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.STPI i) {
+        execSTPI(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.STS i) {
+        execSTS(i.imm1, i.r1.getNumber());
+    }
+
+    public void visit(Instr.SUB i) {
+        execSUB(i.r1.getNumber(), i.r2.getNumber());
+    }
+
+    public void visit(Instr.SUBI i) {
+        execSUBI(i.r1.getNumber(), i.imm1);
+    }
+
+    public void visit(Instr.SWAP i) {
+        execSWAP(i.r1.getNumber());
+    }
+
+    public void visit(Instr.TST i) {
+        execTST(i.r1.getNumber());
+    }
+
+    public void visit(Instr.WDR i) {
+        execWDR();
+    }
+
+    void execADC(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2);
+        int tmp_2 = bit(C);
+        int tmp_3 = tmp_0 + tmp_1 + tmp_2;
+        int tmp_4 = (tmp_0 & 0x0000000F);
+        int tmp_5 = (tmp_1 & 0x0000000F);
+        boolean tmp_6 = ((tmp_0 & 128) != 0);
+        boolean tmp_7 = ((tmp_1 & 128) != 0);
+        boolean tmp_8 = ((tmp_3 & 128) != 0);
+        H = ((tmp_4 + tmp_5 + tmp_2 & 16) != 0);
+        C = ((tmp_3 & 256) != 0);
+        N = ((tmp_3 & 128) != 0);
+        Z = low(tmp_3) == 0;
+        V = tmp_6 && tmp_7 && !tmp_8 || !tmp_6 && !tmp_7 && tmp_8;
+        S = (N != V);
+        byte tmp_9 = low(tmp_3);
+        writeRegisterByte(r1, tmp_9);
+        cyclesConsumed += 1;
+    }
+
+    void execADD(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2);
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 + tmp_1 + tmp_2;
+        int tmp_4 = (tmp_0 & 0x0000000F);
+        int tmp_5 = (tmp_1 & 0x0000000F);
+        boolean tmp_6 = ((tmp_0 & 128) != 0);
+        boolean tmp_7 = ((tmp_1 & 128) != 0);
+        boolean tmp_8 = ((tmp_3 & 128) != 0);
+        H = ((tmp_4 + tmp_5 + tmp_2 & 16) != 0);
+        C = ((tmp_3 & 256) != 0);
+        N = ((tmp_3 & 128) != 0);
+        Z = low(tmp_3) == 0;
+        V = tmp_6 && tmp_7 && !tmp_8 || !tmp_6 && !tmp_7 && tmp_8;
+        S = (N != V);
+        byte tmp_9 = low(tmp_3);
+        writeRegisterByte(r1, tmp_9);
+        cyclesConsumed += 1;
+    }
+
+    void execADIW(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r1);
+        int tmp_1 = tmp_0 + imm1;
+        boolean tmp_2 = ((tmp_1 & 32768) != 0);
+        boolean tmp_3 = ((tmp_0 & 32768) != 0);
+        C = !tmp_2 && tmp_3;
+        N = tmp_2;
+        V = !tmp_3 && tmp_2;
+        Z = (tmp_1 & 0x0000FFFF) == 0;
+        S = (N != V);
+        writeRegisterWord(r1, tmp_1);
+        cyclesConsumed += 2;
+    }
+
+    void execAND(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = tmp_0 & tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execANDI(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = tmp_0 & tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execASR(int r1) {
+        nextPC = pc + 2;
+        byte tmp_0 = getRegisterByte(r1);
+        int tmp_1 = tmp_0;
+        boolean tmp_2 = ((tmp_0 & 128) != 0);
+        int tmp_3 = (tmp_1 & 255) >> 1;
+        tmp_3 = Arithmetic.setBit(tmp_3, 7, tmp_2);
+        C = ((tmp_1 & 1) != 0);
+        N = tmp_2;
+        Z = low(tmp_3) == 0;
+        V = (N != C);
+        S = (N != V);
+        byte tmp_4 = low(tmp_3);
+        writeRegisterByte(r1, tmp_4);
+        cyclesConsumed += 1;
+    }
+
+    void execBCLR(int imm1) {
+        nextPC = pc + 2;
+        getIOReg(SREG).writeBit(imm1, false);
+        cyclesConsumed += 1;
+    }
+
+    void execBLD(int r1, int imm1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, Arithmetic.setBit(getRegisterByte(r1), imm1, T));
+        cyclesConsumed += 1;
+    }
+
+    void execBRBC(int imm1, int imm2) {
+        nextPC = pc + 2;
+        if (!getIOReg(SREG).readBit(imm1)) {
+            int tmp_0 = imm2;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRBS(int imm1, int imm2) {
+        nextPC = pc + 2;
+        if (getIOReg(SREG).readBit(imm1)) {
+            int tmp_0 = imm2;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRCC(int imm1) {
+        nextPC = pc + 2;
+        if (!C) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRCS(int imm1) {
+        nextPC = pc + 2;
+        if (C) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBREAK() {
+        nextPC = pc + 2;
+        stop();
+        cyclesConsumed += 1;
+    }
+
+    void execBREQ(int imm1) {
+        nextPC = pc + 2;
+        if (Z) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRGE(int imm1) {
+        nextPC = pc + 2;
+        if (!S) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRHC(int imm1) {
+        nextPC = pc + 2;
+        if (!H) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRHS(int imm1) {
+        nextPC = pc + 2;
+        if (H) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRID(int imm1) {
+        nextPC = pc + 2;
+        if (!I) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRIE(int imm1) {
+        nextPC = pc + 2;
+        if (I) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRLO(int imm1) {
+        nextPC = pc + 2;
+        if (C) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRLT(int imm1) {
+        nextPC = pc + 2;
+        if (S) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRMI(int imm1) {
+        nextPC = pc + 2;
+        if (N) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRNE(int imm1) {
+        nextPC = pc + 2;
+        if (!Z) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRPL(int imm1) {
+        nextPC = pc + 2;
+        if (!N) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRSH(int imm1) {
+        nextPC = pc + 2;
+        if (!C) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRTC(int imm1) {
+        nextPC = pc + 2;
+        if (!T) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRTS(int imm1) {
+        nextPC = pc + 2;
+        if (T) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRVC(int imm1) {
+        nextPC = pc + 2;
+        if (!V) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBRVS(int imm1) {
+        nextPC = pc + 2;
+        if (V) {
+            int tmp_0 = imm1;
+            int tmp_1 = tmp_0;
+            int tmp_2 = tmp_1 * 2 + nextPC;
+            nextPC = tmp_2;
+            cyclesConsumed = cyclesConsumed + 1;
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execBSET(int imm1) {
+        nextPC = pc + 2;
+        getIOReg(SREG).writeBit(imm1, true);
+        cyclesConsumed += 1;
+    }
+
+    void execBST(int r1, int imm1) {
+        nextPC = pc + 2;
+        T = Arithmetic.getBit(getRegisterByte(r1), imm1);
+        cyclesConsumed += 1;
+    }
+
+    void execCALL(int imm1) {
+        nextPC = pc + 4;
+        int tmp_0 = nextPC;
+        tmp_0 = tmp_0 / 2;
+        pushByte(low(tmp_0));
+        pushByte(high(tmp_0));
+        int tmp_1 = imm1;
+        int tmp_2 = tmp_1 * 2;
+        nextPC = tmp_2;
+        cyclesConsumed += 4;
+    }
+
+    void execCBI(int imm1, int imm2) {
+        nextPC = pc + 2;
+        getIOReg(imm1).writeBit(imm2, false);
+        cyclesConsumed += 2;
+    }
+
+    void execCBR(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = ~imm1;
+        int tmp_2 = tmp_0 & tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execCLC() {
+        nextPC = pc + 2;
+        C = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLH() {
+        nextPC = pc + 2;
+        H = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLI() {
+        nextPC = pc + 2;
+        disableInterrupts();
+        cyclesConsumed += 1;
+    }
+
+    void execCLN() {
+        nextPC = pc + 2;
+        N = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLR(int r1) {
+        nextPC = pc + 2;
+        S = false;
+        V = false;
+        N = false;
+        Z = true;
+        writeRegisterByte(r1, low(0));
+        cyclesConsumed += 1;
+    }
+
+    void execCLS() {
+        nextPC = pc + 2;
+        S = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLT() {
+        nextPC = pc + 2;
+        T = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLV() {
+        nextPC = pc + 2;
+        V = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCLZ() {
+        nextPC = pc + 2;
+        Z = false;
+        cyclesConsumed += 1;
+    }
+
+    void execCOM(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = 255 - getRegisterByte(r1);
+        C = true;
+        N = ((tmp_0 & 128) != 0);
+        Z = low(tmp_0) == 0;
+        V = false;
+        S = (N != V);
+        writeRegisterByte(r1, low(tmp_0));
+        cyclesConsumed += 1;
+    }
+
+    void execCP(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execCPC(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = bit(C);
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0 && Z;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execCPI(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execCPSE(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = tmp_0;
+        int tmp_3 = tmp_1;
+        int tmp_4 = 0;
+        int tmp_5 = tmp_2 - tmp_3 - tmp_4;
+        boolean tmp_6 = ((tmp_2 & 128) != 0);
+        boolean tmp_7 = ((tmp_3 & 128) != 0);
+        boolean tmp_8 = ((tmp_5 & 128) != 0);
+        boolean tmp_9 = ((tmp_2 & 8) != 0);
+        boolean tmp_10 = ((tmp_3 & 8) != 0);
+        boolean tmp_11 = ((tmp_5 & 8) != 0);
+        H = !tmp_9 && tmp_10 || tmp_10 && tmp_11 || tmp_11 && !tmp_9;
+        C = !tmp_6 && tmp_7 || tmp_7 && tmp_8 || tmp_8 && !tmp_6;
+        N = tmp_8;
+        Z = low(tmp_5) == 0;
+        V = tmp_6 && !tmp_7 && !tmp_8 || !tmp_6 && tmp_7 && tmp_8;
+        S = (N != V);
+        byte tmp_12 = low(tmp_5);
+        if (tmp_0 == tmp_1) {
+            int tmp_13 = getInstrSize(nextPC);
+            nextPC = nextPC + tmp_13;
+            if (tmp_13 == 4) {
+                cyclesConsumed = cyclesConsumed + 2;
+            } else {
+                cyclesConsumed = cyclesConsumed + 1;
+            }
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execDEC(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        byte tmp_1 = low(tmp_0 - 1);
+        N = ((tmp_1 & 128) != 0);
+        Z = tmp_1 == 0;
+        V = tmp_0 == 128;
+        S = (N != V);
+        writeRegisterByte(r1, tmp_1);
+        cyclesConsumed += 1;
+    }
+
+    void execEICALL() {
+        nextPC = pc + 2;
+        cyclesConsumed += 4;
+    }
+
+    void execEIJMP() {
+        nextPC = pc + 2;
+        cyclesConsumed += 2;
+    }
+
+    void execELPM() {
+        nextPC = pc + 2;
+        int tmp_0 = extended(getRegisterWord(RZ));
+        writeRegisterByte(R0, getProgramByte(tmp_0));
+        cyclesConsumed += 3;
+    }
+
+    void execELPMD(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = extended(getRegisterWord(RZ));
+        writeRegisterByte(r1, getProgramByte(tmp_0));
+        cyclesConsumed += 3;
+    }
+
+    void execELPMPI(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = extended(getRegisterWord(RZ));
+        writeRegisterByte(r1, getProgramByte(tmp_0));
+        writeRegisterWord(RZ, tmp_0 + 1);
+        cyclesConsumed += 3;
+    }
+
+    void execEOR(int r1, int r2) {
+        nextPC = pc + 2;
+        byte tmp_0 = low(getRegisterByte(r1) ^ getRegisterByte(r2));
+        N = ((tmp_0 & 128) != 0);
+        Z = tmp_0 == 0;
+        V = false;
+        S = (N != V);
+        writeRegisterByte(r1, tmp_0);
+        cyclesConsumed += 1;
+    }
+
+    void execFMUL(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1) * getRegisterUnsigned(r2) << 1;
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        C = ((tmp_0 & 65536) != 0);
+        writeRegisterByte(R0, low(tmp_0));
+        writeRegisterByte(R1, high(tmp_0));
+        cyclesConsumed += 2;
+    }
+
+    void execFMULS(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1) * getRegisterByte(r2) << 1;
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        C = ((tmp_0 & 65536) != 0);
+        writeRegisterByte(R0, low(tmp_0));
+        writeRegisterByte(R1, high(tmp_0));
+        cyclesConsumed += 2;
+    }
+
+    void execFMULSU(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1) * getRegisterUnsigned(r2) << 1;
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        C = ((tmp_0 & 65536) != 0);
+        writeRegisterByte(R0, low(tmp_0));
+        writeRegisterByte(R1, high(tmp_0));
+        cyclesConsumed += 2;
+    }
+
+    void execICALL() {
+        nextPC = pc + 2;
+        int tmp_0 = nextPC;
+        tmp_0 = tmp_0 / 2;
+        pushByte(low(tmp_0));
+        pushByte(high(tmp_0));
+        int tmp_1 = getRegisterWord(RZ);
+        int tmp_2 = tmp_1 * 2;
+        nextPC = tmp_2;
+        cyclesConsumed += 3;
+    }
+
+    void execIJMP() {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(RZ);
+        int tmp_1 = tmp_0 * 2;
+        nextPC = tmp_1;
+        cyclesConsumed += 2;
+    }
+
+    void execIN(int r1, int imm1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, getIORegisterByte(imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execINC(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        byte tmp_1 = low(tmp_0 + 1);
+        N = ((tmp_1 & 128) != 0);
+        Z = tmp_1 == 0;
+        V = tmp_0 == 127;
+        S = (N != V);
+        writeRegisterByte(r1, tmp_1);
+        cyclesConsumed += 1;
+    }
+
+    void execJMP(int imm1) {
+        nextPC = pc + 4;
+        int tmp_0 = imm1;
+        int tmp_1 = tmp_0 * 2;
+        nextPC = tmp_1;
+        cyclesConsumed += 3;
+    }
+
+    void execLD(int r1, int r2) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, getDataByte(getRegisterWord(r2)));
+        cyclesConsumed += 2;
+    }
+
+    void execLDD(int r1, int r2, int imm1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, getDataByte(getRegisterWord(r2) + imm1));
+        cyclesConsumed += 2;
+    }
+
+    void execLDI(int r1, int imm1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execLDPD(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r2) - 1;
+        writeRegisterByte(r1, getDataByte(tmp_0));
+        writeRegisterWord(r2, tmp_0);
+        cyclesConsumed += 2;
+    }
+
+    void execLDPI(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r2);
+        writeRegisterByte(r1, getDataByte(tmp_0));
+        writeRegisterWord(r2, tmp_0 + 1);
+        cyclesConsumed += 2;
+    }
+
+    void execLDS(int r1, int imm1) {
+        nextPC = pc + 4;
+        writeRegisterByte(r1, getDataByte(imm1));
+        cyclesConsumed += 2;
+    }
+
+    void execLPM() {
+        nextPC = pc + 2;
+        writeRegisterByte(R0, getProgramByte(getRegisterWord(RZ)));
+        cyclesConsumed += 3;
+    }
+
+    void execLPMD(int r1, int r2) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, getProgramByte(getRegisterWord(RZ)));
+        cyclesConsumed += 3;
+    }
+
+    void execLPMPI(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(RZ);
+        writeRegisterByte(r1, getProgramByte(tmp_0));
+        writeRegisterWord(RZ, tmp_0 + 1);
+        cyclesConsumed += 3;
+    }
+
+    void execLSL(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        boolean tmp_1 = false;
+        int tmp_2 = tmp_0 << 1;
+        tmp_2 = Arithmetic.setBit(tmp_2, 0, tmp_1);
+        H = ((tmp_2 & 16) != 0);
+        C = ((tmp_2 & 256) != 0);
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = (N != C);
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execLSR(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        boolean tmp_1 = false;
+        int tmp_2 = (tmp_0 & 255) >> 1;
+        tmp_2 = Arithmetic.setBit(tmp_2, 7, tmp_1);
+        C = ((tmp_0 & 1) != 0);
+        N = tmp_1;
+        Z = low(tmp_2) == 0;
+        V = (N != C);
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execMOV(int r1, int r2) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, getRegisterByte(r2));
+        cyclesConsumed += 1;
+    }
+
+    void execMOVW(int r1, int r2) {
+        nextPC = pc + 2;
+        writeRegisterWord(r1, getRegisterWord(r2));
+        cyclesConsumed += 1;
+    }
+
+    void execMUL(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1) * getRegisterUnsigned(r2);
+        C = ((tmp_0 & 32768) != 0);
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        writeRegisterWord(R0, tmp_0);
+        cyclesConsumed += 2;
+    }
+
+    void execMULS(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1) * getRegisterByte(r2);
+        C = ((tmp_0 & 32768) != 0);
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        writeRegisterWord(R0, tmp_0);
+        cyclesConsumed += 2;
+    }
+
+    void execMULSU(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1) * getRegisterUnsigned(r2);
+        C = ((tmp_0 & 32768) != 0);
+        Z = (tmp_0 & 0x0000FFFF) == 0;
+        writeRegisterWord(R0, tmp_0);
+        cyclesConsumed += 2;
+    }
+
+    void execNEG(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = 0;
+        int tmp_1 = getRegisterByte(r1);
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        writeRegisterByte(r1, tmp_10);
+        cyclesConsumed += 1;
+    }
+
+    void execNOP() {
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    void execOR(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = tmp_0 | tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execORI(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = tmp_0 | tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execOUT(int imm1, int r1) {
+        nextPC = pc + 2;
+        writeIORegisterByte(imm1, getRegisterByte(r1));
+        cyclesConsumed += 1;
+    }
+
+    void execPOP(int r1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, popByte());
+        cyclesConsumed += 2;
+    }
+
+    void execPUSH(int r1) {
+        nextPC = pc + 2;
+        pushByte(getRegisterByte(r1));
+        cyclesConsumed += 2;
+    }
+
+    void execRCALL(int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = nextPC;
+        tmp_0 = tmp_0 / 2;
+        pushByte(low(tmp_0));
+        pushByte(high(tmp_0));
+        int tmp_1 = imm1;
+        int tmp_2 = tmp_1 * 2 + nextPC;
+        nextPC = tmp_2;
+        cyclesConsumed += 3;
+    }
+
+    void execRET() {
+        nextPC = pc + 2;
+        byte tmp_0 = popByte();
+        byte tmp_1 = popByte();
+        int tmp_2 = uword(tmp_1, tmp_0) * 2;
+        nextPC = tmp_2;
+        cyclesConsumed += 4;
+    }
+
+    void execRETI() {
+        nextPC = pc + 2;
+        byte tmp_0 = popByte();
+        byte tmp_1 = popByte();
+        int tmp_2 = uword(tmp_1, tmp_0) * 2;
+        nextPC = tmp_2;
+        enableInterrupts();
+        justReturnedFromInterrupt = true;
+        cyclesConsumed += 4;
+    }
+
+    void execRJMP(int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = imm1;
+        int tmp_1 = tmp_0 * 2 + nextPC;
+        nextPC = tmp_1;
+        cyclesConsumed += 2;
+    }
+
+    void execROL(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        boolean tmp_1 = C;
+        int tmp_2 = tmp_0 << 1;
+        tmp_2 = Arithmetic.setBit(tmp_2, 0, tmp_1);
+        H = ((tmp_2 & 16) != 0);
+        C = ((tmp_2 & 256) != 0);
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = (N != C);
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execROR(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        boolean tmp_1 = C;
+        int tmp_2 = (tmp_0 & 255) >> 1;
+        tmp_2 = Arithmetic.setBit(tmp_2, 7, tmp_1);
+        C = ((tmp_0 & 1) != 0);
+        N = tmp_1;
+        Z = low(tmp_2) == 0;
+        V = (N != C);
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execSBC(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = bit(C);
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0 && Z;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        writeRegisterByte(r1, tmp_10);
+        cyclesConsumed += 1;
+    }
+
+    void execSBCI(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = bit(C);
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0 && Z;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        writeRegisterByte(r1, tmp_10);
+        cyclesConsumed += 1;
+    }
+
+    void execSBI(int imm1, int imm2) {
+        nextPC = pc + 2;
+        getIOReg(imm1).writeBit(imm2, true);
+        cyclesConsumed += 2;
+    }
+
+    void execSBIC(int imm1, int imm2) {
+        nextPC = pc + 2;
+        if (!getIOReg(imm1).readBit(imm2)) {
+            int tmp_0 = getInstrSize(nextPC);
+            nextPC = nextPC + tmp_0;
+            if (tmp_0 == 4) {
+                cyclesConsumed = cyclesConsumed + 2;
+            } else {
+                cyclesConsumed = cyclesConsumed + 1;
+            }
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execSBIS(int imm1, int imm2) {
+        nextPC = pc + 2;
+        if (getIOReg(imm1).readBit(imm2)) {
+            int tmp_0 = getInstrSize(nextPC);
+            nextPC = nextPC + tmp_0;
+            if (tmp_0 == 4) {
+                cyclesConsumed = cyclesConsumed + 2;
+            } else {
+                cyclesConsumed = cyclesConsumed + 1;
+            }
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execSBIW(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r1);
+        int tmp_1 = tmp_0 - imm1;
+        boolean tmp_2 = ((tmp_0 & 32768) != 0);
+        boolean tmp_3 = ((tmp_1 & 32768) != 0);
+        V = tmp_2 && !tmp_3;
+        N = tmp_3;
+        Z = (tmp_1 & 0x0000FFFF) == 0;
+        C = tmp_3 && !tmp_2;
+        S = (N != V);
+        writeRegisterWord(r1, tmp_1);
+        cyclesConsumed += 2;
+    }
+
+    void execSBR(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = tmp_0 | tmp_1;
+        N = ((tmp_2 & 128) != 0);
+        Z = low(tmp_2) == 0;
+        V = false;
+        S = (N != V);
+        byte tmp_3 = low(tmp_2);
+        writeRegisterByte(r1, tmp_3);
+        cyclesConsumed += 1;
+    }
+
+    void execSBRC(int r1, int imm1) {
+        nextPC = pc + 2;
+        if (!Arithmetic.getBit(getRegisterByte(r1), imm1)) {
+            int tmp_0 = getInstrSize(nextPC);
+            nextPC = nextPC + tmp_0;
+            if (tmp_0 == 4) {
+                cyclesConsumed = cyclesConsumed + 2;
+            } else {
+                cyclesConsumed = cyclesConsumed + 1;
+            }
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execSBRS(int r1, int imm1) {
+        nextPC = pc + 2;
+        if (Arithmetic.getBit(getRegisterByte(r1), imm1)) {
+            int tmp_0 = getInstrSize(nextPC);
+            nextPC = nextPC + tmp_0;
+            if (tmp_0 == 4) {
+                cyclesConsumed = cyclesConsumed + 2;
+            } else {
+                cyclesConsumed = cyclesConsumed + 1;
+            }
+        } else {
+        }
+        cyclesConsumed += 1;
+    }
+
+    void execSEC() {
+        nextPC = pc + 2;
+        C = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSEH() {
+        nextPC = pc + 2;
+        H = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSEI() {
+        nextPC = pc + 2;
+        enableInterrupts();
+        cyclesConsumed += 1;
+    }
+
+    void execSEN() {
+        nextPC = pc + 2;
+        N = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSER(int r1) {
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(255));
+        cyclesConsumed += 1;
+    }
+
+    void execSES() {
+        nextPC = pc + 2;
+        S = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSET() {
+        nextPC = pc + 2;
+        T = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSEV() {
+        nextPC = pc + 2;
+        V = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSEZ() {
+        nextPC = pc + 2;
+        Z = true;
+        cyclesConsumed += 1;
+    }
+
+    void execSLEEP() {
+        nextPC = pc + 2;
+        enterSleepMode();
+        cyclesConsumed += 1;
+    }
+
+    void execSPM() {
+        nextPC = pc + 2;
+        storeProgramMemory();
+        cyclesConsumed += 1;
+    }
+
+    void execST(int r1, int r2) {
+        nextPC = pc + 2;
+        writeDataByte(getRegisterWord(r1), getRegisterByte(r2));
+        cyclesConsumed += 2;
+    }
+
+    void execSTD(int r1, int imm1, int r2) {
+        nextPC = pc + 2;
+        writeDataByte(getRegisterWord(r1) + imm1, getRegisterByte(r2));
+        cyclesConsumed += 2;
+    }
+
+    void execSTPD(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r1) - 1;
+        writeDataByte(tmp_0, getRegisterByte(r2));
+        writeRegisterWord(r1, tmp_0);
+        cyclesConsumed += 2;
+    }
+
+    void execSTPI(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterWord(r1);
+        writeDataByte(tmp_0, getRegisterByte(r2));
+        writeRegisterWord(r1, tmp_0 + 1);
+        cyclesConsumed += 2;
+    }
+
+    void execSTS(int imm1, int r1) {
+        nextPC = pc + 4;
+        writeDataByte(imm1, getRegisterByte(r1));
+        cyclesConsumed += 2;
+    }
+
+    void execSUB(int r1, int r2) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = getRegisterByte(r2);
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        writeRegisterByte(r1, tmp_10);
+        cyclesConsumed += 1;
+    }
+
+    void execSUBI(int r1, int imm1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        int tmp_1 = imm1;
+        int tmp_2 = 0;
+        int tmp_3 = tmp_0 - tmp_1 - tmp_2;
+        boolean tmp_4 = ((tmp_0 & 128) != 0);
+        boolean tmp_5 = ((tmp_1 & 128) != 0);
+        boolean tmp_6 = ((tmp_3 & 128) != 0);
+        boolean tmp_7 = ((tmp_0 & 8) != 0);
+        boolean tmp_8 = ((tmp_1 & 8) != 0);
+        boolean tmp_9 = ((tmp_3 & 8) != 0);
+        H = !tmp_7 && tmp_8 || tmp_8 && tmp_9 || tmp_9 && !tmp_7;
+        C = !tmp_4 && tmp_5 || tmp_5 && tmp_6 || tmp_6 && !tmp_4;
+        N = tmp_6;
+        Z = low(tmp_3) == 0;
+        V = tmp_4 && !tmp_5 && !tmp_6 || !tmp_4 && tmp_5 && tmp_6;
+        S = (N != V);
+        byte tmp_10 = low(tmp_3);
+        writeRegisterByte(r1, tmp_10);
+        cyclesConsumed += 1;
+    }
+
+    void execSWAP(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = 0;
+        tmp_1 = (tmp_1 & 0xFFFFFFF0) | ((((tmp_0 >> 4) & 0x0000000F) & 0x0000000F));
+        tmp_1 = (tmp_1 & 0xFFFFFF0F) | (((tmp_0 & 0x0000000F) & 0x0000000F) << 4);
+        writeRegisterByte(r1, low(tmp_1));
+        cyclesConsumed += 1;
+    }
+
+    void execTST(int r1) {
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterByte(r1);
+        V = false;
+        Z = low(tmp_0) == 0;
+        N = ((tmp_0 & 128) != 0);
+        S = (N != V);
+        cyclesConsumed += 1;
+    }
+
+    void execWDR() {
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    //
+    //  F L A G   V A R I A N T S
+    // ------------------------------------------------------------
+    //
+    //  These are variants of the ALU instructions that skip computing
+    //  the flags that FlagLiveness shows are dead. They use negative
+    //  opcodes so that they never collide with the instruction opcodes.
+    //  Each variant computes all flags if interrupts are enabled,
+    //  since an interrupt handler can save the status register.
+    //
+
+    protected static final byte OP_ADD_NF = -1;
+    protected static final byte OP_ADC_NF = -2;
+    protected static final byte OP_SUB_NF = -3;
+    protected static final byte OP_SUBI_NF = -4;
+    protected static final byte OP_SBC_NF = -5;
+    protected static final byte OP_SBCI_NF = -6;
+    protected static final byte OP_AND_NF = -7;
+    protected static final byte OP_ANDI_NF = -8;
+    protected static final byte OP_CBR_NF = -9;
+    protected static final byte OP_OR_NF = -10;
+    protected static final byte OP_ORI_NF = -11;
+    protected static final byte OP_EOR_NF = -12;
+    protected static final byte OP_CLR_NF = -13;
+    protected static final byte OP_COM_NF = -14;
+    protected static final byte OP_NEG_NF = -15;
+    protected static final byte OP_INC_NF = -16;
+    protected static final byte OP_DEC_NF = -17;
+    protected static final byte OP_ADIW_NF = -18;
+    protected static final byte OP_SBIW_NF = -19;
+    protected static final byte OP_LSL_NF = -20;
+    protected static final byte OP_LSR_NF = -21;
+    protected static final byte OP_ASR_NF = -22;
+    protected static final byte OP_ROL_NF = -23;
+    protected static final byte OP_ROR_NF = -24;
+    protected static final byte OP_CP_NF = -25;
+    protected static final byte OP_CPC_NF = -26;
+    protected static final byte OP_CPI_NF = -27;
+    protected static final byte OP_TST_NF = -28;
+    protected static final byte OP_ADD_C = -29;
+    protected static final byte OP_ADC_C = -30;
+    protected static final byte OP_SUB_CZ = -31;
+    protected static final byte OP_SUBI_CZ = -32;
+    protected static final byte OP_SBC_CZ = -33;
+    protected static final byte OP_SBCI_CZ = -34;
+    protected static final byte OP_CP_CZ = -35;
+    protected static final byte OP_CPC_CZ = -36;
+    protected static final byte OP_CPI_CZ = -37;
+
+    /**
+     * The <code>noFlagsVariant</code> array maps an opcode to the variant that computes none of the flags
+     * it writes, or 0 if there is no such variant.
+     */
+    protected static final byte[] noFlagsVariant = new byte[128];
+
+    /**
+     * The <code>chainVariant</code> array maps an opcode to the variant that computes only the flags in
+     * <code>chainFlags</code> for the same opcode, i.e. the carry (and zero) flags that are consumed by
+     * the next instruction in a multi-byte addition, subtraction or comparison.
+     */
+    protected static final byte[] chainVariant = new byte[128];
+    protected static final int[] chainFlags = new int[128];
+
+    static {
+        noFlagsVariant[OP_ADD] = OP_ADD_NF;
+        noFlagsVariant[OP_ADC] = OP_ADC_NF;
+        noFlagsVariant[OP_SUB] = OP_SUB_NF;
+        noFlagsVariant[OP_SUBI] = OP_SUBI_NF;
+        noFlagsVariant[OP_SBC] = OP_SBC_NF;
+        noFlagsVariant[OP_SBCI] = OP_SBCI_NF;
+        noFlagsVariant[OP_AND] = OP_AND_NF;
+        noFlagsVariant[OP_ANDI] = OP_ANDI_NF;
+        noFlagsVariant[OP_CBR] = OP_CBR_NF;
+        noFlagsVariant[OP_OR] = OP_OR_NF;
+        noFlagsVariant[OP_ORI] = OP_ORI_NF;
+        noFlagsVariant[OP_SBR] = OP_ORI_NF;
+        noFlagsVariant[OP_EOR] = OP_EOR_NF;
+        noFlagsVariant[OP_CLR] = OP_CLR_NF;
+        noFlagsVariant[OP_COM] = OP_COM_NF;
+        noFlagsVariant[OP_NEG] = OP_NEG_NF;
+        noFlagsVariant[OP_INC] = OP_INC_NF;
+        noFlagsVariant[OP_DEC] = OP_DEC_NF;
+        noFlagsVariant[OP_ADIW] = OP_ADIW_NF;
+        noFlagsVariant[OP_SBIW] = OP_SBIW_NF;
+        noFlagsVariant[OP_LSL] = OP_LSL_NF;
+        noFlagsVariant[OP_LSR] = OP_LSR_NF;
+        noFlagsVariant[OP_ASR] = OP_ASR_NF;
+        noFlagsVariant[OP_ROL] = OP_ROL_NF;
+        noFlagsVariant[OP_ROR] = OP_ROR_NF;
+        noFlagsVariant[OP_CP] = OP_CP_NF;
+        noFlagsVariant[OP_CPC] = OP_CPC_NF;
+        noFlagsVariant[OP_CPI] = OP_CPI_NF;
+        noFlagsVariant[OP_TST] = OP_TST_NF;
+        chainVariant[OP_ADD] = OP_ADD_C;
+        chainFlags[OP_ADD] = FlagLiveness.FLAG_C;
+        chainVariant[OP_ADC] = OP_ADC_C;
+        chainFlags[OP_ADC] = FlagLiveness.FLAG_C;
+        chainVariant[OP_SUB] = OP_SUB_CZ;
+        chainFlags[OP_SUB] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_SUBI] = OP_SUBI_CZ;
+        chainFlags[OP_SUBI] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_SBC] = OP_SBC_CZ;
+        chainFlags[OP_SBC] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_SBCI] = OP_SBCI_CZ;
+        chainFlags[OP_SBCI] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_CP] = OP_CP_CZ;
+        chainFlags[OP_CP] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_CPC] = OP_CPC_CZ;
+        chainFlags[OP_CPC] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+        chainVariant[OP_CPI] = OP_CPI_CZ;
+        chainFlags[OP_CPI] = FlagLiveness.FLAG_C | FlagLiveness.FLAG_Z;
+    }
+
+    /**
+     * The <code>elideFlags()</code> method replaces the opcode decoded at the specified address with a
+     * variant that computes fewer flags, if the flags it omits are not live after the instruction
+     * according to the <code>FlagLiveness</code> analysis of the code segment.
+     *
+     * @param npc the byte address of the decoded instruction
+     * @param i the instruction at the address
+     */
+    protected void elideFlags(int npc, Instr i) {
+        int op = opcodes[npc];
+        if (op <= 0) return;
+        int live = flash.getLiveFlags(npc) & FlagLiveness.getWrittenFlags(i);
+        if (live == 0 && noFlagsVariant[op] != 0)
+            opcodes[npc] = noFlagsVariant[op];
+        else if ((live & ~chainFlags[op]) == 0 && chainVariant[op] != 0)
+            opcodes[npc] = chainVariant[op];
+    }
+
+    /**
+     * The <code>observeFlags()</code> method is called when a probe, a watch or a change to the flash may
+     * observe the flags. The variants that skip computing flags are not used from then on.
+     */
+    protected void observeFlags() {
+        if (flagsObserved) return;
+        flagsObserved = true;
+        // force every address to be decoded again without the variants
+        if (decoded_instr != null) {
+            for (int cntr = 0; cntr < decoded_instr.length; cntr++)
+                decoded_instr[cntr] = null;
+        }
+    }
+
+    void execADD_NF(int r1, int r2) {
+        if (I) {
+            execADD(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) + getRegisterByte(r2)));
+        cyclesConsumed += 1;
+    }
+
+    void execADC_NF(int r1, int r2) {
+        if (I) {
+            execADC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) + getRegisterByte(r2) + bit(C)));
+        cyclesConsumed += 1;
+    }
+
+    void execSUB_NF(int r1, int r2) {
+        if (I) {
+            execSUB(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) - getRegisterByte(r2)));
+        cyclesConsumed += 1;
+    }
+
+    void execSUBI_NF(int r1, int imm1) {
+        if (I) {
+            execSUBI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) - imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execSBC_NF(int r1, int r2) {
+        if (I) {
+            execSBC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) - getRegisterByte(r2) - bit(C)));
+        cyclesConsumed += 1;
+    }
+
+    void execSBCI_NF(int r1, int imm1) {
+        if (I) {
+            execSBCI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) - imm1 - bit(C)));
+        cyclesConsumed += 1;
+    }
+
+    void execAND_NF(int r1, int r2) {
+        if (I) {
+            execAND(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) & getRegisterByte(r2)));
+        cyclesConsumed += 1;
+    }
+
+    void execANDI_NF(int r1, int imm1) {
+        if (I) {
+            execANDI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) & imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execCBR_NF(int r1, int imm1) {
+        if (I) {
+            execCBR(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) & ~imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execOR_NF(int r1, int r2) {
+        if (I) {
+            execOR(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) | getRegisterByte(r2)));
+        cyclesConsumed += 1;
+    }
+
+    void execORI_NF(int r1, int imm1) {
+        if (I) {
+            execORI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) | imm1));
+        cyclesConsumed += 1;
+    }
+
+    void execEOR_NF(int r1, int r2) {
+        if (I) {
+            execEOR(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) ^ getRegisterByte(r2)));
+        cyclesConsumed += 1;
+    }
+
+    void execCLR_NF(int r1) {
+        if (I) {
+            execCLR(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, (byte)0);
+        cyclesConsumed += 1;
+    }
+
+    void execCOM_NF(int r1) {
+        if (I) {
+            execCOM(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(~getRegisterByte(r1)));
+        cyclesConsumed += 1;
+    }
+
+    void execNEG_NF(int r1) {
+        if (I) {
+            execNEG(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(-getRegisterByte(r1)));
+        cyclesConsumed += 1;
+    }
+
+    void execINC_NF(int r1) {
+        if (I) {
+            execINC(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) + 1));
+        cyclesConsumed += 1;
+    }
+
+    void execDEC_NF(int r1) {
+        if (I) {
+            execDEC(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) - 1));
+        cyclesConsumed += 1;
+    }
+
+    void execADIW_NF(int r1, int imm1) {
+        if (I) {
+            execADIW(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterWord(r1, getRegisterWord(r1) + imm1);
+        cyclesConsumed += 2;
+    }
+
+    void execSBIW_NF(int r1, int imm1) {
+        if (I) {
+            execSBIW(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterWord(r1, getRegisterWord(r1) - imm1);
+        cyclesConsumed += 2;
+    }
+
+    void execLSL_NF(int r1) {
+        if (I) {
+            execLSL(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) << 1));
+        cyclesConsumed += 1;
+    }
+
+    void execLSR_NF(int r1) {
+        if (I) {
+            execLSR(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterUnsigned(r1) >> 1));
+        cyclesConsumed += 1;
+    }
+
+    void execASR_NF(int r1) {
+        if (I) {
+            execASR(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) >> 1));
+        cyclesConsumed += 1;
+    }
+
+    void execROL_NF(int r1) {
+        if (I) {
+            execROL(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterByte(r1) << 1 | bit(C)));
+        cyclesConsumed += 1;
+    }
+
+    void execROR_NF(int r1) {
+        if (I) {
+            execROR(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        writeRegisterByte(r1, low(getRegisterUnsigned(r1) >> 1 | bit(C) << 7));
+        cyclesConsumed += 1;
+    }
+
+    void execCP_NF(int r1, int r2) {
+        if (I) {
+            execCP(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    void execCPC_NF(int r1, int r2) {
+        if (I) {
+            execCPC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    void execCPI_NF(int r1, int imm1) {
+        if (I) {
+            execCPI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    void execTST_NF(int r1) {
+        if (I) {
+            execTST(r1);
+            return;
+        }
+        nextPC = pc + 2;
+        cyclesConsumed += 1;
+    }
+
+    void execADD_C(int r1, int r2) {
+        if (I) {
+            execADD(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1) + getRegisterUnsigned(r2);
+        C = (tmp_0 & 256) != 0;
+        writeRegisterByte(r1, low(tmp_0));
+        cyclesConsumed += 1;
+    }
+
+    void execADC_C(int r1, int r2) {
+        if (I) {
+            execADC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1) + getRegisterUnsigned(r2) + bit(C);
+        C = (tmp_0 & 256) != 0;
+        writeRegisterByte(r1, low(tmp_0));
+        cyclesConsumed += 1;
+    }
+
+    void execSUB_CZ(int r1, int r2) {
+        if (I) {
+            execSUB(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2);
+        byte tmp_2 = low(tmp_0 - tmp_1);
+        C = tmp_0 < tmp_1;
+        Z = tmp_2 == 0;
+        writeRegisterByte(r1, tmp_2);
+        cyclesConsumed += 1;
+    }
+
+    void execSUBI_CZ(int r1, int imm1) {
+        if (I) {
+            execSUBI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = imm1 & 0xff;
+        byte tmp_2 = low(tmp_0 - tmp_1);
+        C = tmp_0 < tmp_1;
+        Z = tmp_2 == 0;
+        writeRegisterByte(r1, tmp_2);
+        cyclesConsumed += 1;
+    }
+
+    void execSBC_CZ(int r1, int r2) {
+        if (I) {
+            execSBC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2) + bit(C);
+        byte tmp_2 = low(tmp_0 - tmp_1);
+        C = tmp_0 < tmp_1;
+        Z = tmp_2 == 0 && Z;
+        writeRegisterByte(r1, tmp_2);
+        cyclesConsumed += 1;
+    }
+
+    void execSBCI_CZ(int r1, int imm1) {
+        if (I) {
+            execSBCI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = (imm1 & 0xff) + bit(C);
+        byte tmp_2 = low(tmp_0 - tmp_1);
+        C = tmp_0 < tmp_1;
+        Z = tmp_2 == 0 && Z;
+        writeRegisterByte(r1, tmp_2);
+        cyclesConsumed += 1;
+    }
+
+    void execCP_CZ(int r1, int r2) {
+        if (I) {
+            execCP(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2);
+        C = tmp_0 < tmp_1;
+        Z = tmp_0 == tmp_1;
+        cyclesConsumed += 1;
+    }
+
+    void execCPC_CZ(int r1, int r2) {
+        if (I) {
+            execCPC(r1, r2);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = getRegisterUnsigned(r2) + bit(C);
+        C = tmp_0 < tmp_1;
+        Z = tmp_0 == tmp_1 && Z;
+        cyclesConsumed += 1;
+    }
+
+    void execCPI_CZ(int r1, int imm1) {
+        if (I) {
+            execCPI(r1, imm1);
+            return;
+        }
+        nextPC = pc + 2;
+        int tmp_0 = getRegisterUnsigned(r1);
+        int tmp_1 = imm1 & 0xff;
+        C = tmp_0 < tmp_1;
+        Z = tmp_0 == tmp_1;
+        cyclesConsumed += 1;
+    }
+
+    //
+    //  S U P E R I N S T R U C T I O N S
+    // ------------------------------------------------------------
+    //
+    //  These opcodes are installed at the first instruction of a
+    //  common sequence of instructions (chosen from the pair profiles
+    //  reported by the profile monitor with -instr-pairs) and execute
+    //  the whole sequence with one dispatch. The clock is committed
+    //  after each instruction in the sequence, and the sequence stops
+    //  early when the inner loop must be left (e.g. an interrupt was
+    //  posted), so the timing is exactly that of the single
+    //  instructions. The operands of the later instructions are read
+    //  from their own addresses.
+    //
+
+    protected static final byte OP_FIRST_FUSED = -40;
+    protected static final byte OP_PUSH_RUN = -40;
+    protected static final byte OP_POP_RUN = -41;
+    protected static final byte OP_NOP_RUN = -42;
+    protected static final byte OP_LDI_LDI = -43;
+    protected static final byte OP_SUBI_SBCI = -44;
+    protected static final byte OP_CP_CPC = -45;
+    protected static final byte OP_CPI_CPC = -46;
+    protected static final byte OP_CP_CPC_BRNE = -47;
+    protected static final byte OP_CPI_CPC_BRNE = -48;
+
+    /**
+     * The <code>MAXIMUM_RUN</code> field stores the maximum number of instructions in a fused run of
+     * <code>PUSH</code>, <code>POP</code> or <code>NOP</code> instructions.
+     */
+    protected static final int MAXIMUM_RUN = 8;
+
+    /**
+     * The <code>fuse()</code> method replaces the opcode decoded at the specified address with a fused
+     * opcode if the instruction begins one of the recognized sequences and none of the following
+     * instructions of the sequence has been replaced (e.g. by a probe).
+     *
+     * @param npc the byte address of the decoded instruction
+     * @param i the instruction at the address
+     */
+    protected void fuse(int npc, Instr i) {
+        if (i instanceof Instr.PUSH) {
+            fuseRun(npc, Instr.PUSH.class, OP_PUSH_RUN);
+        } else if (i instanceof Instr.POP) {
+            fuseRun(npc, Instr.POP.class, OP_POP_RUN);
+        } else if (i instanceof Instr.NOP) {
+            fuseRun(npc, Instr.NOP.class, OP_NOP_RUN);
+        } else if (i instanceof Instr.LDI) {
+            if (plainInstr(npc + 2) instanceof Instr.LDI) opcodes[npc] = OP_LDI_LDI;
+        } else if (i instanceof Instr.SUBI) {
+            if (plainInstr(npc + 2) instanceof Instr.SBCI) opcodes[npc] = OP_SUBI_SBCI;
+        } else if (i instanceof Instr.CP || i instanceof Instr.CPI) {
+            if (!(plainInstr(npc + 2) instanceof Instr.CPC)) return;
+            boolean brne = plainInstr(npc + 4) instanceof Instr.BRNE;
+            if (i instanceof Instr.CP) opcodes[npc] = brne ? OP_CP_CPC_BRNE : OP_CP_CPC;
+            else opcodes[npc] = brne ? OP_CPI_CPC_BRNE : OP_CPI_CPC;
+        } else if (isRelativeJump(i)) {
+            int head = getTarget(npc, i);
+            if (head <= npc && npc - head <= MAXIMUM_LOOP) {
+                // the back edge of a short loop: check whether it is a busy wait when it is reached
+                opcodes[npc] = OP_BUSY_WAIT;
+                operand2[npc] = 0;
+            }
+        }
+    }
+
+    private void fuseRun(int npc, Class c, byte op) {
+        int count = 1;
+        while (count < MAXIMUM_RUN && c.isInstance(plainInstr(npc + 2 * count)))
+            count++;
+        if (count > 1) {
+            opcodes[npc] = op;
+            operand2[npc] = count;
+        }
+    }
+
+    /**
+     * The <code>plainInstr()</code> method returns the instruction at the specified address if it is a plain
+     * instruction (i.e. not probed or otherwise replaced), making sure that its operands are decoded.
+     *
+     * @param npc the byte address of the instruction
+     * @return the instruction at the address if it is a plain instruction; null otherwise
+     */
+    private Instr plainInstr(int npc) {
+        if (npc >= shared_instr.length) return null;
+        Instr i = shared_instr[npc];
+        if (i == null || i.asInstr() != i) return null;
+        if (decoded_instr[npc] != i) decode(npc);
+        return i;
+    }
+
+    /**
+     * The <code>replacedInstr()</code> method is called when the instruction at the specified address in
+     * the flash is replaced. Any fused sequence that contains the address is decoded again, as is the
+     * back edge of any busy wait loop that may contain it.
+     *
+     * @param address the address of the instruction that was replaced
+     */
+    protected void replacedInstr(int address) {
+        if (decoded_instr == null) return;
+        int start = Math.max(0, address - 2 * MAXIMUM_RUN);
+        for (int cntr = start; cntr < address; cntr++)
+            decoded_instr[cntr] = null;
+        int end = Math.min(decoded_instr.length, address + MAXIMUM_LOOP + 1);
+        for (int cntr = address + 1; cntr < end; cntr++)
+            decoded_instr[cntr] = null;
+        jumpTargets = null;
+    }
+
+    private void execPUSH_RUN(int npc, int count) {
+        while (true) {
+            execPUSH(operand1[npc]);
+            if (--count == 0 || !next()) return;
+            npc += 2;
+        }
+    }
+
+    private void execPOP_RUN(int npc, int count) {
+        while (true) {
+            execPOP(operand1[npc]);
+            if (--count == 0 || !next()) return;
+            npc += 2;
+        }
+    }
+
+    private void execNOP_RUN(int count) {
+        while (true) {
+            execNOP();
+            if (--count == 0 || !next()) return;
+        }
+    }
+
+    private void execLDI_LDI(int npc, int r1, int imm1) {
+        execLDI(r1, imm1);
+        if (next()) execLDI(operand1[npc + 2], operand2[npc + 2]);
+    }
+
+    private void execSUBI_SBCI(int npc, int r1, int imm1) {
+        execSUBI(r1, imm1);
+        if (next()) execSBCI(operand1[npc + 2], operand2[npc + 2]);
+    }
+
+    private void execCP_CPC(int npc, int r1, int r2) {
+        execCP(r1, r2);
+        if (next()) execCPC(operand1[npc + 2], operand2[npc + 2]);
+    }
+
+    private void execCPI_CPC(int npc, int r1, int imm1) {
+        execCPI(r1, imm1);
+        if (next()) execCPC(operand1[npc + 2], operand2[npc + 2]);
+    }
+
+    private void execCP_CPC_BRNE(int npc, int r1, int r2) {
+        execCP(r1, r2);
+        if (!next()) return;
+        execCPC(operand1[npc + 2], operand2[npc + 2]);
+        if (next()) execBRNE(operand1[npc + 4]);
+    }
+
+    private void execCPI_CPC_BRNE(int npc, int r1, int imm1) {
+        execCPI(r1, imm1);
+        if (!next()) return;
+        execCPC(operand1[npc + 2], operand2[npc + 2]);
+        if (next()) execBRNE(operand1[npc + 4]);
+    }
+
+    /**
+     * The <code>next()</code> method commits the instruction just executed within a fused sequence, in the
+     * same way as the interpreter loop does between two instructions.
+     *
+     * @return true if the next instruction of the sequence can be executed; false if the interpreter
+     * must leave the inner loop first
+     */
+    private boolean next() {
+        commit();
+        return innerLoop;
+    }
+
+    //
+    //  B U S Y   W A I T S
+    // ------------------------------------------------------------
+    //
+    //  Firmware often spins in a short loop that polls an IO register
+    //  or a variable in memory (e.g. SBIS/RJMP, or LDS/CPI/BRNE) until
+    //  a device sets a flag. If the loop only reads plain IO registers
+    //  and memory, writes nothing but general purpose registers and
+    //  flags that it recomputes in every iteration, and cannot be
+    //  entered anywhere but at its head, then every iteration computes
+    //  the same result until an event of the clock changes the state
+    //  of a device. The back edge of such a loop is decoded as a busy
+    //  wait. Once a whole iteration has been observed to take exactly
+    //  the cycles of the loop without any event firing, the clock is
+    //  advanced by as many whole iterations as fit before the next
+    //  event, in the same way that sleepLoop() skips to the next event.
+    //  Interrupts can only be posted by events, so the timing and the
+    //  state are exactly those of interpreting every iteration.
+    //
+
+    protected static final byte OP_BUSY_WAIT = -49;
+
+    /**
+     * The <code>MAXIMUM_LOOP</code> field stores the maximum distance in bytes of the back edge of a loop
+     * from its head for the loop to be considered as a busy wait.
+     */
+    protected static final int MAXIMUM_LOOP = 32;
+
+    /**
+     * The <code>jumpTargets</code> field stores, for each address in the flash, whether there is a direct
+     * branch, jump or call to that address. It is computed when the first busy wait loop is checked.
+     */
+    private boolean[] jumpTargets;
+
+    /**
+     * The <code>busyWaitsChecked</code> field records whether any loop has been checked, so that the results
+     * must be discarded when a watch or an IO register is installed.
+     */
+    private boolean busyWaitsChecked;
+
+    private int busyWaitPC = -1;
+    private long busyWaitTime;
+    private long busyWaitEvent;
+
+    private void execBUSY_WAIT(int npc, int period) {
+        if (period == 0) {
+            period = getBusyWaitPeriod(npc);
+            if (period == 0) {
+                // not a busy wait: decode the plain branch and execute it
+                decoder.npc = npc;
+                decoded_instr[npc].accept(decoder);
+                execute(npc);
+                return;
+            }
+            operand2[npc] = period;
+        }
+
+        decoded_instr[npc].accept(this);
+        if (nextPC > npc || !next()) return;
+
+        // the back edge was taken; check whether the last iteration changed any state
+        long now = clock.getCount();
+        long delta = clock.getFirstEventDelta();
+        if (busyWaitPC == npc && now - busyWaitTime == period && delta > period && now + delta == busyWaitEvent) {
+            // skip the iterations that complete before the next event fires
+            long skip = (delta - 1) / period * period;
+            clock.advance(skip);
+            now += skip;
+        }
+        busyWaitPC = npc;
+        busyWaitTime = now;
+        busyWaitEvent = now + delta;
+    }
+
+    /**
+     * The <code>getBusyWaitPeriod()</code> method checks whether the loop closed by the back edge at the
+     * specified address is a busy wait and computes the number of cycles of one iteration.
+     *
+     * @param npc the byte address of the back edge of the loop
+     * @return the number of cycles of one iteration of the loop if it is a busy wait; zero otherwise
+     */
+    private int getBusyWaitPeriod(int npc) {
+        busyWaitsChecked = true;
+        Instr edge = shared_instr[npc];
+        int head = getTarget(npc, edge);
+        for (int addr = head + 1; addr <= npc; addr++) {
+            if (isJumpTarget(addr)) return 0;
+        }
+
+        // find the registers and flags written anywhere in the loop
+        int written = 0;
+        int writtenFlags = 0;
+        int pc = head;
+        while (pc < npc) {
+            Instr i = shared_instr[pc];
+            if (i == null || i.asInstr() != i) return 0;
+            if (!isPollingInstr(pc, i, head, npc)) return 0;
+            written |= getWrittenRegisters(i);
+            writtenFlags |= FlagLiveness.getWrittenFlags(i);
+            pc += i.getSize();
+        }
+        if (pc != npc) return 0;
+
+        // every register or flag read must have been written earlier in the same iteration, or not at all
+        int period = edge instanceof Instr.RJMP ? edge.getCycles() : edge.getCycles() + 1;
+        int defined = 0;
+        int definedFlags = 0;
+        for (pc = head; pc <= npc; pc += shared_instr[pc].getSize()) {
+            Instr i = shared_instr[pc];
+            if ((getReadRegisters(i) & written & ~defined) != 0) return 0;
+            if ((FlagLiveness.getReadFlags(i, SREG) & writtenFlags & ~definedFlags) != 0) return 0;
+            defined |= getWrittenRegisters(i);
+            definedFlags |= FlagLiveness.getWrittenFlags(i);
+            if (pc < npc) period += i.getCycles();
+        }
+        return period;
+    }
+
+    /**
+     * The <code>isPollingInstr()</code> method checks whether the specified instruction may appear in a busy
+     * wait loop. Such an instruction has no effect other than writing general purpose registers and flags,
+     * and it only reads plain IO registers and memory that no watch observes. Branches must leave the loop,
+     * and a skip instruction may only skip the back edge.
+     *
+     * @param pc the byte address of the instruction
+     * @param i the instruction
+     * @param head the byte address of the head of the loop
+     * @param end the byte address of the back edge of the loop
+     * @return true if the instruction may appear in a busy wait loop; false otherwise
+     */
+    private boolean isPollingInstr(int pc, Instr i, int head, int end) {
+        if (i instanceof Instr.IN)
+            return isPlainIOReg(((Instr.IN)i).imm1);
+        if (i instanceof Instr.LDS)
+            return isPlainData(((Instr.LDS)i).imm1);
+        if (i instanceof Instr.SBIS)
+            return pc + 2 == end && isPlainIOReg(((Instr.SBIS)i).imm1);
+        if (i instanceof Instr.SBIC)
+            return pc + 2 == end && isPlainIOReg(((Instr.SBIC)i).imm1);
+        if (i instanceof Instr.SBRS || i instanceof Instr.SBRC)
+            return pc + 2 == end;
+        if (isRelativeJump(i) && !(i instanceof Instr.RJMP)) {
+            int target = getTarget(pc, i);
+            return target < head || target > end;
+        }
+        return i instanceof Instr.CP || i instanceof Instr.CPC || i instanceof Instr.CPI
+            || i instanceof Instr.TST || i instanceof Instr.AND || i instanceof Instr.ANDI
+            || i instanceof Instr.OR || i instanceof Instr.ORI || i instanceof Instr.MOV
+            || i instanceof Instr.NOP;
+    }
+
+    private static int getReadRegisters(Instr i) {
+        if (i instanceof Instr.MOV)
+            return 1 << ((Instr.MOV)i).r2.getNumber();
+        if (i instanceof Instr.REGREG_class)
+            return 1 << ((Instr.REGREG_class)i).r1.getNumber() | 1 << ((Instr.REGREG_class)i).r2.getNumber();
+        if (i instanceof Instr.IN || i instanceof Instr.LDS)
+            return 0;
+        if (i instanceof Instr.REGIMM_class)
+            return 1 << ((Instr.REGIMM_class)i).r1.getNumber();
+        if (i instanceof Instr.TST)
+            return 1 << ((Instr.TST)i).r1.getNumber();
+        return 0;
+    }
+
+    private static int getWrittenRegisters(Instr i) {
+        if (i instanceof Instr.MOV || i instanceof Instr.AND || i instanceof Instr.OR)
+            return 1 << ((Instr.REGREG_class)i).r1.getNumber();
+        if (i instanceof Instr.IN || i instanceof Instr.LDS || i instanceof Instr.ANDI || i instanceof Instr.ORI)
+            return 1 << ((Instr.REGIMM_class)i).r1.getNumber();
+        return 0;
+    }
+
+    /**
+     * The <code>isPlainIOReg()</code> method checks whether reading the specified IO register has no
+     * side effects and returns a value that can only be changed by writes, i.e. the register reads like
+     * a <code>RWRegister</code> and no watch is installed on it.
+     *
+     * @param ioreg the number of the IO register
+     * @return true if the IO register is a plain register; false otherwise
+     */
+    private boolean isPlainIOReg(int ioreg) {
+        if (ioreg < 0 || ioreg >= ioregs.length) return false;
+        Class c = ioregs[ioreg].getClass();
+        try {
+            return isPlainRead(c.getMethod("read", new Class[0]))
+                && isPlainRead(c.getMethod("readBit", new Class[] { Integer.TYPE }));
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isPlainRead(Method m) {
+        Class c = m.getDeclaringClass();
+        return c == RWRegister.class || c == RegisterSet.MultiFieldRegister.class;
+    }
+
+    private boolean isPlainData(int address) {
+        if (address < NUM_REGS) return false;
+        if (address < sram_start) return isPlainIOReg(address - NUM_REGS);
+        if (address >= sram.length) return false;
+        return sram_watches == null || sram_watches[address] == null;
+    }
+
+    private boolean isJumpTarget(int address) {
+        if (jumpTargets == null) {
+            jumpTargets = new boolean[shared_instr.length];
+            for (int pc = 0; pc < shared_instr.length; pc++) {
+                Instr i = shared_instr[pc];
+                if (i == null || i.asInstr() == null) continue;
+                int target = getTarget(pc, i.asInstr());
+                if (target >= 0 && target < jumpTargets.length) jumpTargets[target] = true;
+            }
+        }
+        return jumpTargets[address];
+    }
+
+    private static boolean isRelativeJump(Instr i) {
+        return i instanceof Instr.WORD_class && !(i instanceof Instr.JMP || i instanceof Instr.CALL);
+    }
+
+    /**
+     * The <code>getTarget()</code> method computes the address of the target of a direct branch, jump or
+     * call instruction.
+     *
+     * @param pc the byte address of the instruction
+     * @param i the instruction
+     * @return the byte address of the target of the instruction; -1 if it is not a direct control transfer
+     */
+    private static int getTarget(int pc, Instr i) {
+        if (i instanceof Instr.JMP || i instanceof Instr.CALL)
+            return ((Instr.WORD_class)i).imm1 * 2;
+        if (i instanceof Instr.WORD_class)
+            return pc + 2 + ((Instr.WORD_class)i).imm1 * 2;
+        if (i instanceof Instr.BRBC || i instanceof Instr.BRBS)
+            return pc + 2 + ((Instr.IMMWORD_class)i).imm2 * 2;
+        return -1;
+    }
+
+    /**
+     * The <code>insertWatch()</code> method inserts a watch on a memory location. Busy wait loops are checked
+     * again, since they may read the location.
+     *
+     * @param p the watch to insert on a memory location
+     * @param data_addr the address of the memory location on which to insert the watch
+     */
+    protected void insertWatch(Simulator.Watch p, int data_addr) {
+        super.insertWatch(p, data_addr);
+        resetBusyWaits();
+    }
+
+    /**
+     * The <code>insertIORWatch()</code> method inserts a watch on an IO register. Busy wait loops are checked
+     * again, since they may read the register.
+     *
+     * @param p the watch to add to the IO register
+     * @param ioreg_num the number of the IO register for which to insert the watch
+     */
+    protected void insertIORWatch(Simulator.IORWatch p, int ioreg_num) {
+        super.insertIORWatch(p, ioreg_num);
+        resetBusyWaits();
+    }
+
+    /**
+     * The <code>installIOReg()</code> method installs the specified <code>IOReg</code> object to the specified
+     * IO register number. Busy wait loops are checked again, since they may read the register.
+     *
+     * @param ioreg the IO register number
+     * @param reg the <code>IOReg<code> object to install
+     */
+    public void installIOReg(int ioreg, ActiveRegister reg) {
+        super.installIOReg(ioreg, reg);
+        resetBusyWaits();
+    }
+
+    private void resetBusyWaits() {
+        if (!busyWaitsChecked) return;
+        busyWaitsChecked = false;
+        for (int cntr = 0; cntr < opcodes.length; cntr++) {
+            if (opcodes[cntr] == OP_BUSY_WAIT) operand2[cntr] = 0;
+        }
+        busyWaitPC = -1;
+    }
+
+    //
+    //  U T I L I T I E S
+    // ------------------------------------------------------------
+    //
+    //  These are utility functions for expressing instructions
+    //  more concisely. They are private and can be inlined by
+    //  the JIT compiler or javac -O.
+    //
+    //
+
+    public void pushPC(int npc) {
+        npc = npc / 2;
+        pushByte(Arithmetic.low(npc));
+        pushByte(Arithmetic.high(npc));
+    }
+
+    public int popPC() {
+        byte high = popByte();
+        byte low = popByte();
+        return Arithmetic.uword(low, high) * 2;
+    }
+
+    public static byte low(int val) {
+        return (byte)val;
+    }
+
+    public static byte high(int val) {
+        return (byte)(val >> 8);
+    }
+
+    public static byte bit(boolean val) {
+        if (val) return 1;
+        return 0;
+    }
+
+    public static int uword(byte low, byte high) {
+        return Arithmetic.uword(low, high);
+    }
+
+    public int extended(int addr) {
+        if ( RAMPZ > 0 ) return (getIORegisterByte(RAMPZ) & 1) << 16 | addr;
+        else return addr;
+    }
+
+    /**
+     * send the node to sleep
+     */
+    public void enterSleepMode() {
+        sleeping = true;
+        innerLoop = false;
+        simulator.getMicrocontroller().sleep();
+    }
+
+    /**
+     * time to wake up
+     */
+    public void leaveSleepMode() {
+        sleeping = false;
+        innerLoop = false;
+        advanceClock(simulator.getMicrocontroller().wakeup());
+    }
+}
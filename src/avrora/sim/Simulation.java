@@ -77,6 +77,12 @@ public abstract class Simulation extends HelpCategory {
     public final Option.Str MCU = options.newOption("mcu", "atmega128",
             "This option selects the microcontroller from a library of supported " +
             "microcontroller models.");
+    public final Option.Str INTERPRETER = options.newOption("interpreter", "generated",
+            "This option selects the interpreter used to execute the program on each node. The " +
+            "\"generated\" interpreter dispatches each instruction through a visitor, while the " +
+            "\"predecoded\" interpreter decodes the program once into compact arrays and executes " +
+            "it with a single switch statement. The \"dbbc\" interpreter additionally compiles basic " +
+            "blocks of the program to Java bytecode with the dynamic basic block compiler.");
     public final Option.Long RANDOMSEED = options.newOption("random-seed", 0,
             "This option is used to seed a pseudo-random number generator used in the " +
             "simulation. If this option is set to non-zero, then its value is used as " +
@@ -151,7 +157,7 @@ public abstract class Simulation extends HelpCategory {
          */
         protected void instantiate() {
             // create the simulator object
-            platform = platformFactory.newPlatform(id, Defaults.getInterpreterFactory(), path.getProgram());
+            platform = platformFactory.newPlatform(id, getInterpreterFactory(), path.getProgram());
             simulator = platform.getMicrocontroller().getSimulator();
             processTimeout();
             processInterruptSched();
@@ -270,6 +276,7 @@ public abstract class Simulation extends HelpCategory {
     protected LinkedList monitorFactoryList;
 
     protected Synchronizer synchronizer;
+    protected InterpreterFactory interpreterFactory;
 
     /**
      * The construcotr for the <code>Simulation</code> class creates a new simulation. This is intended to be
@@ -309,7 +316,7 @@ public abstract class Simulation extends HelpCategory {
         if ( running ) return null;
         int id = num_nodes++;
         Node n = newNode(id, pf, pp);
-        if ( id > nodes.length ) grow();
+        if ( id >= nodes.length ) grow();
         nodes[id] = n;
         return n;
     }
@@ -537,6 +544,20 @@ public abstract class Simulation extends HelpCategory {
         }
     }
 
+    /**
+     * The <code>getInterpreterFactory()</code> method is a helper method for extensions of the
+     * <code>Simulation</code> class. This method will consult the value of the \"interpreter\" command
+     * line option and return the corresponding <code>InterpreterFactory</code> instance.
+     * @return an instance of the <code>InterpreterFactory</code> class used to create each node's interpreter
+     */
+    protected InterpreterFactory getInterpreterFactory() {
+        if ( interpreterFactory == null ) {
+            interpreterFactory = Defaults.getInterpreterFactory(INTERPRETER.get());
+            interpreterFactory.processOptions(options);
+        }
+        return interpreterFactory;
+    }
+
     /**
      * The <code>processMonitorList()</code> method builds a list of <code>MonitorFactory</code> instances
      * from the list of strings given as an option at the command line. The list of
@@ -676,6 +676,31 @@ public class Simulator {
         interpreter.start();
     }
 
+    /**
+     * The <code>resume()</code> method continues the simulation after it has been suspended by
+     * <code>suspend()</code>. Like <code>start()</code>, it returns when the simulation terminates or is
+     * suspended again.
+     */
+    public void resume() {
+        interpreter.resume();
+    }
+
+    /**
+     * The <code>suspend()</code> method suspends the simulation from within an event, so that the thread
+     * running it returns from <code>start()</code> or <code>resume()</code> without terminating it.
+     */
+    public void suspend() {
+        interpreter.suspend();
+    }
+
+    /**
+     * The <code>isSuspended()</code> method checks whether the simulation has been suspended.
+     * @return true if the simulation is suspended and can be continued with <code>resume()</code>
+     */
+    public boolean isSuspended() {
+        return interpreter.isSuspended();
+    }
+
     /**
      * The <code>step()</code> method steps the simulation one instruction or cycle.
      * @return the number of cycles advanced; 1 in the case of sleeping, delaying,
@@ -831,6 +856,20 @@ public class Simulator {
         clock.insertEvent(e, cycles);
     }
 
+    /**
+     * The <code>insertPeriodicEvent()</code> method inserts an event into the event queue of the simulator
+     * that fires repeatedly with the specified period, until it is removed with <code>removeEvent()</code>.
+     *
+     * @param e      the event to be inserted
+     * @param period the number of cycles between successive firings of the event
+     * @param phase  the number of cycles in the future at which the event fires first
+     */
+    public void insertPeriodicEvent(Event e, long period, long phase) {
+        if (eventPrinter.enabled)
+            eventPrinter.println("INSERT PERIODIC EVENT: " + e + " + " + phase + " every " + period);
+        clock.insertPeriodicEvent(e, period, phase);
+    }
+
     /**
      * The <code>insertTimeout()</code> method inserts an event into the event queue of the simulator that
      * causes it to stop execution and throw a <code>Simulator.TimeoutException</code> when the specified
@@ -38,19 +38,36 @@ import avrora.sim.clock.Synchronizer;
 import avrora.util.StringUtil;
 import avrora.util.Terminal;
 
+import java.util.concurrent.ThreadFactory;
+
 
 /**
- * The <code>SimulatorThread</code> class is a thread intended to run a <code>Simulator</code> in a
- * multiple-node simulation. The mapping is one-to-one: each simulator is expected to be run in its own
- * thread. Multiple simulators are then synchronized by being inserted into a group using the
- * <code>GlobalClock</code> class.
+ * The <code>SimulatorThread</code> class represents the execution of a <code>Simulator</code> in a
+ * multiple-node simulation. By default, each simulator is run in a platform thread of its own; the thread
+ * can instead be created by a <code>ThreadFactory</code>, e.g. one that creates virtual threads, or the
+ * simulator can be run in slices by the workers of a <code>WorkerPool</code>. Multiple simulators are then
+ * synchronized by being inserted into a group using the <code>GlobalClock</code> class.
+ * <p/>
+ * Since the thread that runs a node is not necessarily the thread of the node, code that runs as part of
+ * a node should use <code>SimulatorThread.current()</code> to find out which node it belongs to.
  *
  * @author Ben L. Titzer
  */
-public class SimulatorThread extends Thread {
+public class SimulatorThread implements Runnable {
+
+    /**
+     * The <code>current</code> field stores, for each thread, the node that the thread is running.
+     */
+    private static final ThreadLocal current = new ThreadLocal();
 
     protected final Simulation.Node node;
 
+    /**
+     * The <code>thread</code> field stores the thread that runs this node when it is started with
+     * <code>start()</code>.
+     */
+    protected final Thread thread;
+
     /**
      * The <code>synchronizer</code> field stores a reference to the synchronizer that this thread
      * is a part of; this is needed so that when the thread finishes execution (either through
@@ -67,6 +84,52 @@ public class SimulatorThread extends Thread {
      */
     public SimulatorThread(Simulation.Node n) {
         node = n;
+        thread = new Thread(this);
+    }
+
+    /**
+     * This constructor for the simulator thread creates the thread that runs the node with the specified
+     * factory, e.g. one that creates virtual threads.
+     *
+     * @param n the node
+     * @param f the factory that creates the thread of the node
+     */
+    public SimulatorThread(Simulation.Node n, ThreadFactory f) {
+        node = n;
+        thread = f.newThread(this);
+    }
+
+    /**
+     * The <code>getThread()</code> method gets the thread that runs this node when it is started.
+     * @return the thread of this node
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * The <code>start()</code> method starts the thread of this node, which runs the simulator until it
+     * terminates.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * The <code>join()</code> method waits for the thread of this node to terminate.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        thread.join();
+    }
+
+    /**
+     * The <code>current()</code> method gets the node that the calling thread is running.
+     * @return the simulator thread of the node being run by the calling thread; null if the calling
+     * thread is not running any node
+     */
+    public static SimulatorThread current() {
+        return (SimulatorThread)current.get();
     }
 
     /**
@@ -88,14 +151,38 @@ public class SimulatorThread extends Thread {
         return node.getSimulator();
     }
 
+    /**
+     * The <code>started</code> field records whether the simulator of this node has been started.
+     */
+    protected boolean started;
+
     /**
      * The <code>run()</code> method begins the simulation, calling the <code>start()</code> method of the
      * <code>Simulator</code> instance associated with this thread.
      */
     public void run() {
+        runSlice();
+    }
+
+    /**
+     * The <code>runSlice()</code> method runs the simulator of this node on the calling thread until it
+     * terminates or is suspended. The first call starts the simulator, and each later call resumes it. This
+     * allows a node to be run by a worker thread of a <code>WorkerPool</code> instead of this thread.
+     * @return true if the simulator has been suspended and should be resumed by calling this method again;
+     * false if it has terminated
+     */
+    public boolean runSlice() {
+        boolean suspended = false;
+        current.set(this);
         try {
             Simulator simulator = node.getSimulator();
-            simulator.start();
+            if ( started ) {
+                simulator.resume();
+            } else {
+                started = true;
+                simulator.start();
+            }
+            suspended = simulator.isSuspended();
         } catch (SimAction.TimeoutException te) {
             // suppress timeout exceptions.
         } catch (SimAction.BreakPointException e) {
@@ -105,9 +192,11 @@ public class SimulatorThread extends Thread {
 
             e.report();
         } finally {
-            if ( synchronizer != null )
+            current.set(null);
+            if ( !suspended && synchronizer != null )
                 synchronizer.removeNode(node);
         }
+        return suspended;
     }
 
     /**
@@ -117,4 +206,30 @@ public class SimulatorThread extends Thread {
     public void setSynchronizer(Synchronizer s) {
         synchronizer = s;
     }
+
+    /**
+     * The <code>getSynchronizer()</code> method gets the synchronizer for this thread.
+     * @return the synchronizer for this node; null if it is not part of a synchronization group
+     */
+    public Synchronizer getSynchronizer() {
+        return synchronizer;
+    }
+
+    /**
+     * The <code>newVirtualThreadFactory()</code> method creates a factory for virtual threads, which are
+     * cheap enough to run each node of a very large network in a thread of its own. Virtual threads are
+     * looked up reflectively, since they are only supported by Java 21 and later.
+     * @return a factory that creates virtual threads
+     * @throws Avrora.Error if the Java runtime does not support virtual threads
+     */
+    public static ThreadFactory newVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual", new Class[0]).invoke(null, new Object[0]);
+            Class c = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory)c.getMethod("factory", new Class[0]).invoke(builder, new Object[0]);
+        } catch (Exception e) {
+            Avrora.userError("Virtual threads are not supported by this Java runtime", System.getProperty("java.version"));
+            return null;
+        }
+    }
 }
@@ -94,6 +94,18 @@ public abstract class Clock {
      */
     public abstract void insertEvent(Simulator.Event e, long cycles);
 
+    /**
+     * The <code>insertPeriodicEvent()</code> method inserts an event into the event queue of the clock that
+     * fires repeatedly with the specified period, until it is removed with <code>removeEvent()</code>. This
+     * is equivalent to an event that inserts itself again at the end of its <code>fire()</code> method, but
+     * the clock re-arms the event in place.
+     *
+     * @param e      the event to be inserted
+     * @param period the number of cycles between successive firings of the event
+     * @param phase  the number of cycles in the future at which the event fires first
+     */
+    public abstract void insertPeriodicEvent(Simulator.Event e, long period, long phase);
+
     /**
      * The <code>removeEvent()</code> method removes an event from the event queue of the clock. The
      * comparison used is reference equality, not <code>.equals()</code>.
@@ -101,4 +113,63 @@ public abstract class Clock {
      * @param e the event to remove
      */
     public abstract void removeEvent(Simulator.Event e);
+
+    /**
+     * The <code>newEventHandle()</code> method creates a new handle for the specified event on this clock.
+     * A handle allows an event that is frequently rescheduled or cancelled to be manipulated in constant
+     * time, rather than scanning the event queue as <code>removeEvent()</code> must.
+     *
+     * @param e the event for which to create a handle
+     * @return a new handle for the event on this clock
+     */
+    public abstract EventHandle newEventHandle(Simulator.Event e);
+
+    /**
+     * The <code>EventHandle</code> class represents an event that is scheduled on a particular clock. At
+     * most one occurrence of the event is pending through a given handle at any time; scheduling the handle
+     * again cancels the pending occurrence first. Once the event begins to fire, the handle no longer
+     * considers it pending, so the event may reschedule itself through its own handle.
+     */
+    public abstract static class EventHandle {
+
+        /**
+         * The <code>event</code> field stores a reference to the event that this handle schedules.
+         */
+        public final Simulator.Event event;
+
+        protected EventHandle(Simulator.Event e) {
+            event = e;
+        }
+
+        /**
+         * The <code>schedule()</code> method schedules the event to fire the specified number of clock
+         * cycles in the future. If the event is already pending through this handle, it is first cancelled.
+         *
+         * @param cycles the number of cycles in the future at which to fire
+         */
+        public abstract void schedule(long cycles);
+
+        /**
+         * The <code>schedulePeriodic()</code> method schedules the event to fire repeatedly with the specified
+         * period, until the handle is cancelled or scheduled again. If the event is already pending through
+         * this handle, it is first cancelled.
+         *
+         * @param period the number of cycles between successive firings of the event
+         * @param phase  the number of cycles in the future at which the event fires first
+         */
+        public abstract void schedulePeriodic(long period, long phase);
+
+        /**
+         * The <code>cancel()</code> method cancels the pending occurrence of the event, if any.
+         */
+        public abstract void cancel();
+
+        /**
+         * The <code>isScheduled()</code> method checks whether the event is currently pending through this
+         * handle.
+         *
+         * @return true if the event is scheduled to fire in the future; false otherwise
+         */
+        public abstract boolean isScheduled();
+    }
 }
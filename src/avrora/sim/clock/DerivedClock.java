@@ -95,9 +95,20 @@ public class DerivedClock extends Clock {
      * @param delta the number of cycles in the future at which to event
      */
     public void insertEvent(Simulator.Event e, long delta) {
-        long driverCount = driveClock.getCount();
-        long nextTick = (long)(((long)(driverCount / divider) + delta) * divider);
-        driveClock.insertEvent(e, nextTick - driverCount);
+        driveClock.insertEvent(e, getDriverDelay(delta));
+    }
+
+    /**
+     * The <code>insertPeriodicEvent()</code> method inserts an event into the event queue of the clock that
+     * fires repeatedly with the specified period. The first firing is aligned to a tick of this clock, and
+     * the period is converted to cycles of the underlying clock.
+     *
+     * @param e      the event to be inserted
+     * @param period the number of cycles between successive firings of the event
+     * @param phase  the number of cycles in the future at which the event fires first
+     */
+    public void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+        driveClock.insertPeriodicEvent(e, (long)(period * divider), getDriverDelay(phase));
     }
 
     /**
@@ -109,4 +120,54 @@ public class DerivedClock extends Clock {
     public void removeEvent(Simulator.Event e) {
         driveClock.removeEvent(e);
     }
+
+    /**
+     * The <code>newEventHandle()</code> method creates a new handle for the specified event on this clock.
+     * The handle wraps a handle on the underlying clock and converts delays in the same way as
+     * <code>insertEvent()</code>.
+     *
+     * @param e the event for which to create a handle
+     * @return a new handle for the event on this clock
+     */
+    public EventHandle newEventHandle(Simulator.Event e) {
+        return new Handle(driveClock.newEventHandle(e));
+    }
+
+    /**
+     * The <code>getDriverDelay()</code> method computes the delay in cycles of the underlying clock that
+     * corresponds to the specified delay in cycles of this clock.
+     *
+     * @param delta the number of cycles of this clock
+     * @return the number of cycles of the drive clock
+     */
+    protected long getDriverDelay(long delta) {
+        long driverCount = driveClock.getCount();
+        long nextTick = (long)(((long)(driverCount / divider) + delta) * divider);
+        return nextTick - driverCount;
+    }
+
+    class Handle extends EventHandle {
+        final EventHandle driveHandle;
+
+        Handle(EventHandle h) {
+            super(h.event);
+            driveHandle = h;
+        }
+
+        public void schedule(long cycles) {
+            driveHandle.schedule(getDriverDelay(cycles));
+        }
+
+        public void schedulePeriodic(long period, long phase) {
+            driveHandle.schedulePeriodic((long)(period * divider), getDriverDelay(phase));
+        }
+
+        public void cancel() {
+            driveHandle.cancel();
+        }
+
+        public boolean isScheduled() {
+            return driveHandle.isScheduled();
+        }
+    }
 }
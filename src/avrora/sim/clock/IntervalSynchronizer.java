@@ -39,10 +39,35 @@ import avrora.sim.SimulatorThread;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The <code>IntervalSynchronizer</code> class implements a global timer among multiple simulators by inserting
  * periodic events into the queue of each simulator.
+ * <p/>
+ * When all of the nodes meet while their microcontrollers are sleeping, none of them can interact with the
+ * others until the first of them is woken by an event. In that case, the synchronizer places the next meet
+ * point as many whole intervals ahead as is safe, and fires its action once for each interval skipped, so
+ * that networks with a low duty cycle do not pay for a barrier in every interval.
+ * <p/>
+ * The threads meet at a <code>SpinBarrier</code>, so that a thread arriving at a meet point does not need to
+ * acquire the lock of the synchronizer unless other threads are waiting for their neighbors.
+ * <p/>
+ * When a <code>WorkerPool</code> is supplied, the nodes are run on the workers of the pool rather than on
+ * threads of their own. A node that arrives at a meet point before the others is then suspended instead of
+ * blocking, and is resumed on some worker once all of the nodes have met.
+ * <p/>
+ * The synchronizer waits and signals through a <code>ReentrantLock</code> and its conditions rather than
+ * monitors, since a virtual thread that blocks while holding a monitor cannot release its carrier thread.
+ * <p/>
+ * When a <code>Lookahead</code> is supplied, a node that it reports as silent, e.g. because its radio is
+ * powered down, passes the meet points without waiting for the others, and may run ahead of them by any
+ * number of intervals. The others still wait for it at each meet point, so it can never fall behind. Before
+ * a silent node interacts with the others again, it calls <code>rejoin()</code>, which waits until the
+ * others have caught up with it.
  *
  * @author Ben L. Titzer, Daniel Lee
  */
@@ -53,49 +78,155 @@ public class IntervalSynchronizer extends Synchronizer {
      * re-coding must be done if microcontrollers running at difference speeds are to be accurately
      * simulated.
      */
-    protected long period;
+    protected volatile long period;
     protected final HashMap threadMap;
     protected final Simulator.Event action;
 
-    protected final Object condition;
-    protected int goal;
-    protected int meet_count;
-    protected int wait_count;
+    protected final ReentrantLock lock;
+
+    /**
+     * The <code>terminated</code> condition is signalled each time a node is removed, so that a caller of
+     * <code>join()</code> can wait until all of the nodes that run on a pool have terminated.
+     */
+    protected final Condition terminated;
+    protected final MeetBarrier barrier;
+    protected volatile int wait_count;
+
+    /**
+     * The <code>intervals</code> field stores the number of intervals until the next meet point, as
+     * computed by the last thread to arrive at the current meet point.
+     */
+    protected volatile long intervals = 1;
 
     protected WaitSlot waitSlotList;
 
+    /**
+     * The <code>pool</code> field stores the pool of workers that runs the nodes; null if each node runs
+     * in a thread of its own.
+     */
+    protected WorkerPool pool;
+
+    /**
+     * The <code>lookahead</code> field stores the lookahead that reports which nodes are silent; null if
+     * every node waits at every meet point.
+     */
+    protected Lookahead lookahead;
+
+    /**
+     * The <code>Lookahead</code> interface is implemented by the user of a synchronizer, e.g. a radio
+     * model, that knows when a node cannot interact with the other nodes. A silent node must remain silent
+     * until it calls <code>rejoin()</code> or arrives at a meet point while no longer silent.
+     */
+    public interface Lookahead {
+        /**
+         * The <code>isSilent()</code> method checks whether a node can neither influence nor observe the
+         * other nodes until it arrives at its next meet point.
+         * @param s the simulator of the node
+         * @return true if the node is silent; false otherwise
+         */
+        public boolean isSilent(Simulator s);
+    }
+
     /**
      * The constructor for the <code>IntervalSynchronizer</code> class creates a new synchronizer
      * with the specified period, that will fire the specified event each time all threads meet at
      * a synchronization point.
      * @param p the period in clock cycles which to synchronize the threads
-     * @param a the event to fire each time all threads meet at a synchronization point
+     * @param a the event to fire each time all threads meet at a synchronization point; null if there is
+     * nothing to do
      */
     public IntervalSynchronizer(long p, Simulator.Event a) {
         period = p;
         action = a;
         threadMap = new HashMap();
-        condition = new Object();
+        lock = new ReentrantLock();
+        terminated = lock.newCondition();
+        barrier = new MeetBarrier();
+    }
+
+    /**
+     * The <code>MeetBarrier</code> class is the barrier at which the threads meet. When a thread arrives
+     * while others are waiting for their neighbors, it checks whether the waiters can be woken, and the
+     * last thread to arrive fires the action of the synchronizer.
+     */
+    protected class MeetBarrier extends SpinBarrier {
+
+        MeetBarrier() {
+            super(IntervalSynchronizer.this.lock);
+        }
+
+        protected void arrived() {
+            if ( wait_count > 0 ) {
+                lock.lock();
+                try {
+                    checkWaiters();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        protected void release(SpinBarrier.Party[] ps, SpinBarrier.Party self) {
+            if ( pool == null ) {
+                super.release(ps, self);
+                return;
+            }
+            // the suspended nodes are resumed as soon as they have returned control to their workers
+            Iterator i = threadMap.values().iterator();
+            while (i.hasNext()) {
+                SynchEvent e = (SynchEvent)i.next();
+                // a node that passed the meet point is still running
+                if ( e.party == self || !e.waiting ) continue;
+                e.waiting = false;
+                if ( e.signal() ) pool.execute(e.thread, e);
+            }
+        }
+
+        protected void complete() {
+            // all threads have met, so no thread can be waiting
+            wait_count = 0;
+            intervals = computeIntervals();
+            // perform the action that should be run while all threads are stopped (serial),
+            // once for each interval until the next meet point
+            if ( action != null ) {
+                for ( long cntr = 0; cntr < intervals; cntr++ )
+                    action.fire();
+            }
+        }
     }
 
     /**
      * The <code>SynchEvent</code> class represents an event that is inserted into the event
      * queue of each simulator at the same global time. When this event fires, it will stop the thread
-     * running this simulator by waiting on a shared
-     * condition variable. The last thread to fire the event will then notify the condition variable
-     * which frees the other threads to run again in parallel.
+     * running this simulator by waiting at the barrier. The last thread to fire the event will then
+     * release the other threads to run again in parallel.
      */
-    protected class SynchEvent implements Simulator.Event {
+    protected class SynchEvent implements Simulator.Event, Runnable {
 
         protected final SimulatorThread thread;
         protected final MainClock clock;
-        protected boolean removed;
-        protected boolean met;
+        protected final SpinBarrier.Party party;
         protected WaitSlot waitSlot;
+        protected volatile long horizon;
+
+        /**
+         * The <code>signals</code> field counts the signals needed to resume a suspended node: one when
+         * its worker has returned from running it, and one when the others have met.
+         */
+        protected final AtomicInteger signals;
+        protected boolean suspended;
+
+        /**
+         * The <code>waiting</code> field records whether this node has arrived at a meet point in order
+         * to be suspended until the others have met, rather than passing it.
+         */
+        protected volatile boolean waiting;
 
         protected SynchEvent(SimulatorThread t) {
             thread = t;
             clock = t.getSimulator().getClock();
+            party = barrier.addParty(t.getThread());
+            signals = new AtomicInteger();
         }
 
         /**
@@ -104,57 +235,102 @@ public class IntervalSynchronizer extends Synchronizer {
          * to join.
          */
         public void fire() {
-            try {
-                synchronized (condition) {
-                    // if we have been removed since the last synchronization, return!
-                    if ( removed ) return;
+            if ( lookahead != null ) {
+                if ( lookahead.isSilent(thread.getSimulator()) ) {
+                    // a silent node passes the meet point, which keeps the others to one interval at a time
+                    horizon = 0;
+                    if ( barrier.pass(party) ) clock.insertEvent(this, period);
+                    return;
+                }
+                // a node that ran ahead while silent must wait for the others before it meets them
+                catchUp();
+            }
 
-                    met = true;
+            horizon = computeHorizon();
 
-                    // increment the count of the number of threads that have entered
-                    meet_count++;
+            if ( pool != null ) {
+                waiting = true;
+                if ( !barrier.arrive(party) ) {
+                    // the others have not met yet; the event is inserted again when the node is resumed
+                    suspended = true;
+                    thread.getSimulator().suspend();
+                    return;
+                }
+                waiting = false;
+                if ( party.isRemoved() ) return;
+            }
+            // if we have been removed since the last synchronization, don't insert synch event
+            else if ( !barrier.await(party) ) return;
 
-                    if ( !signalOthers() )
-                        condition.wait();
+            // we have not been removed, we can reinsert the synch event
+            clock.insertEvent(this, period * intervals);
+        }
 
-                    met = false;
+        /**
+         * The <code>run()</code> method runs the node on a worker of the pool. When the node is suspended
+         * and the others have already met, the node continues on the same worker.
+         */
+        public void run() {
+            do {
+                signals.set(0);
+                if ( suspended ) {
+                    suspended = false;
+                    clock.insertEvent(this, period * intervals);
                 }
-                // if we have been removed since the last synchronization, don't insert synch event
-                if ( removed ) return;
+            } while ( thread.runSlice() && signal() );
+        }
 
-                // we have not been removed, we can reinsert the synch event
-                clock.insertEvent(this, period);
-            } catch (java.lang.InterruptedException e) {
-                throw Avrora.unexpected(e);
-            }
+        /**
+         * The <code>signal()</code> method signals that either the worker has returned from the suspended
+         * node, or all of the nodes have met.
+         * @return true if this is the second of the two signals, and the node can be resumed
+         */
+        protected boolean signal() {
+            return signals.incrementAndGet() == 2;
         }
 
+        /**
+         * The <code>catchUp()</code> method waits until all of the meet points that this node has passed
+         * while it was silent have been reached by the other nodes.
+         */
+        protected void catchUp() {
+            if ( barrier.hasArrived(party) ) barrier.catchUp(party);
+        }
+
+        /**
+         * The <code>computeHorizon()</code> method computes the number of cycles from this meet point
+         * before which this node cannot interact with any other node. A sleeping microcontroller only
+         * wakes up when an event fires, and a radio that is on keeps events of its own in the queue, so
+         * the horizon of a sleeping node is the time of its next event. An awake node can interact at
+         * any time.
+         * @return the number of cycles during which this node cannot interact with other nodes
+         */
+        protected long computeHorizon() {
+            if ( !thread.getSimulator().getInterpreter().isSleeping() ) return 0;
+            // an event later in the same batch may wake the node up
+            if ( clock.hasPendingAtCurrentTime() ) return 0;
+            long delta = clock.getFirstEventDelta();
+            return delta < 0 ? Long.MAX_VALUE : delta;
+        }
     }
 
     /**
-     * The <code>signalOthers()</code> method is used to check whether the thread that has just arrived
-     * should signal other threads to continue.
-     * @return true if this thread signalled the others to continue; false if this thread should stop
-     * and wait for the other threads before continuing
+     * The <code>computeIntervals()</code> method computes the number of intervals until the next meet
+     * point, once all threads have met. The next meet point is the furthest point on the grid of intervals
+     * that does not pass the horizon of any node, but at least one interval ahead.
+     * @return the number of intervals until the next meet point
      */
-    protected boolean signalOthers() {
-
-        // check for any waiters that need to be woken
-        checkWaiters();
-
-        // have we reached the goal?
-        if (meet_count < goal) {
-            return false;
-        } else {
-            // last thread to arrive sets the count to zero and notifies all other threads
-            meet_count = 0;
-            wait_count = 0;
-            // perform the action that should be run while all threads are stopped (serial)
-            action.fire();
-            // release threads
-            condition.notifyAll();
-            return true;
+    protected long computeIntervals() {
+        long min = Long.MAX_VALUE;
+        Iterator i = threadMap.values().iterator();
+        while (i.hasNext()) {
+            SynchEvent e = (SynchEvent)i.next();
+            if ( e.party.isRemoved() ) continue;
+            if ( e.horizon < min ) min = e.horizon;
         }
+        // a network in which nothing will ever happen is not skipped
+        if ( min == Long.MAX_VALUE || min < 2 * period ) return 1;
+        return min / period;
     }
 
     /**
@@ -166,16 +342,32 @@ public class IntervalSynchronizer extends Synchronizer {
         Iterator threadIterator = threadMap.keySet().iterator();
         while (threadIterator.hasNext()) {
             SimulatorThread thread = (SimulatorThread)threadIterator.next();
-            thread.start();
+            if ( pool != null ) pool.execute(thread, (SynchEvent)threadMap.get(thread));
+            else thread.start();
         }
     }
 
     /**
      * The <code>join()</code> method will block the caller until all of the threads in
      * this synchronization interval have terminated, either through <code>stop()</code>
-     * being called, or terminating normally such as through a timeout.
+     * being called, or terminating normally such as through a timeout. When the nodes run on a pool, an
+     * exception that escaped from one of them terminates the simulation and is thrown again here.
      */
     public void join() throws java.lang.InterruptedException {
+        if ( pool != null ) {
+            // the nodes are removed from the barrier as they terminate
+            lock.lock();
+            try {
+                while ( barrier.getGoal() > 0 && pool.getFailure() == null ) terminated.await();
+            } finally {
+                lock.unlock();
+            }
+            pool.shutdown();
+            Throwable t = pool.getFailure();
+            if ( t instanceof Error ) throw (Error)t;
+            if ( t != null ) throw (RuntimeException)t;
+            return;
+        }
         Iterator threadIterator = threadMap.keySet().iterator();
         while (threadIterator.hasNext()) {
             SimulatorThread thread = (SimulatorThread)threadIterator.next();
@@ -193,6 +385,13 @@ public class IntervalSynchronizer extends Synchronizer {
             SimulatorThread thread = (SimulatorThread)threadIterator.next();
             thread.getSimulator().stop();
         }
+        // a node suspended at a meet point is not resumed, so wake a caller of join() to check for a failure
+        lock.lock();
+        try {
+            terminated.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -233,7 +432,6 @@ public class IntervalSynchronizer extends Synchronizer {
         threadMap.put(st, event);
         // insert the synch event in the thread's queue
         event.clock.insertEvent(event, period);
-        goal++;
     }
 
     /**
@@ -241,13 +439,14 @@ public class IntervalSynchronizer extends Synchronizer {
      * group, and wakes any nodes that might be waiting on it.
      * @param t the simulator thread to remove from this synchronization group
      */
-    public synchronized void removeNode(Simulation.Node t) {
+    public void removeNode(Simulation.Node t) {
         // don't try to remove a thread that's not here!
-        if ( !threadMap.containsKey(t) ) return;
-        synchronized ( condition ) {
-            SynchEvent e = (SynchEvent)threadMap.get(t);
-            e.removed = true; // just in case the thread is still running, don't let it synch
-            if ( e.met ) meet_count--;
+        SimulatorThread st = t.getThread();
+        SynchEvent e = (SynchEvent)threadMap.get(st);
+        if ( e == null ) return;
+        lock.lock();
+        try {
+            if ( e.party.isRemoved() ) return;
 
             if ( stillWaiting(e.waitSlot) ) {
                 // if this wait slot hasn't happened yet, we need to decrement wait_count
@@ -255,13 +454,50 @@ public class IntervalSynchronizer extends Synchronizer {
                 e.waitSlot.numWaiters--;
                 wait_count--;
             }
-            threadMap.remove(e);
-            goal--;
-            // signal any other threads (and wake waiters as necessary) but don't wait
-            signalOthers();
+            // the thread stays in the map so that it can still be joined and stopped; the other threads no longer wait for this one at the barrier; if this thread is
+            // still running, don't let it synch
+            barrier.removeParty(e.party);
+            // wake waiters as necessary
+            checkWaiters();
+            // wake a caller of join() when the last node terminates
+            terminated.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * The <code>setWorkerPool()</code> method sets the pool of workers that runs the nodes of this
+     * synchronizer, instead of a thread for each node. This method should only be called before the
+     * <code>start()</code> method is called.
+     * @param p the pool of workers to run the nodes; null to run each node in a thread of its own
+     */
+    public synchronized void setWorkerPool(WorkerPool p) {
+        pool = p;
+    }
+
+    /**
+     * The <code>setLookahead()</code> method sets the lookahead that reports which nodes are silent and
+     * may pass the meet points without waiting for the others. This method should only be called before
+     * the <code>start()</code> method is called.
+     * @param l the lookahead; null if every node waits at every meet point
+     */
+    public synchronized void setLookahead(Lookahead l) {
+        lookahead = l;
+    }
+
+    /**
+     * The <code>rejoin()</code> method is called from within the execution of a node before it interacts
+     * with the other nodes. If the node has run ahead of the others while it was silent, it is blocked
+     * until they have caught up with it.
+     */
+    public void rejoin() {
+        if ( lookahead == null ) return;
+        SimulatorThread thread = SimulatorThread.current();
+        SynchEvent event = thread == null ? null : (SynchEvent)threadMap.get(thread);
+        if ( event != null ) event.catchUp();
+    }
+
     /**
      * The <code>waitForNeighbors()</code> method is called from within the execution
      * of a node when that node needs to wait for its neighbors to catch up to it
@@ -270,33 +506,31 @@ public class IntervalSynchronizer extends Synchronizer {
      */
     public void waitForNeighbors(long time) {
 
-        // get the current simulator thread
-        SimulatorThread thread = (SimulatorThread)Thread.currentThread();
-        SynchEvent event = (SynchEvent)threadMap.get(thread);
+        // get the node that the current thread is running
+        SimulatorThread thread = SimulatorThread.current();
+        SynchEvent event = thread == null ? null : (SynchEvent)threadMap.get(thread);
         // if the current thread is not in the synchronizer, do nothing
         if ( event == null ) return;
+        // a node that ran ahead while silent must first let the others catch up
+        if ( lookahead != null ) event.catchUp();
 
-        WaitSlot w;
-        synchronized ( condition ) {
+        lock.lock();
+        try {
             // allocate a wait slot for this thread
-            w = insertWaiter(event, time);
+            WaitSlot w = insertWaiter(event, time);
             // check for other waiters and wake them if necessary
             WaitSlot h = checkWaiters();
             // if we were at the head and just woken up, we can just return
             if ( w == h ) return;
-        }
 
-        // falling through means that we are either not at the head
-        // or that not all threads have performed a meet or a wait
-        try {
-            // we must grab the lock for this wait slot
-            synchronized ( w ) {
-                 // check for intervening wakeup between dropping global lock and taking local lock
-                if ( w.shouldWait )
-                    w.wait();
-            }
+            // falling through means that we are either not at the head
+            // or that not all threads have performed a meet or a wait;
+            // a blocked worker of a pool is replaced by another while it waits
+            ForkJoinPool.managedBlock(w);
         } catch ( java.lang.InterruptedException e) {
             throw Avrora.unexpected(e);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -304,15 +538,28 @@ public class IntervalSynchronizer extends Synchronizer {
      * The <code>WaitSlot</code> class represents a slot in time where multiple threads are waiting
      * for others to catch up.
      */
-    static class WaitSlot {
+    static class WaitSlot implements ForkJoinPool.ManagedBlocker {
         final long time;
+        final Condition released;
         int numWaiters;
         WaitSlot next;
-        boolean shouldWait;
+        volatile boolean shouldWait;
 
-        WaitSlot(long t) {
+        WaitSlot(long t, Condition c) {
             shouldWait = true;
             time = t;
+            released = c;
+        }
+
+        public boolean block() throws InterruptedException {
+            // the lock of the synchronizer is held by the caller and released while waiting
+            while ( shouldWait )
+                released.await();
+            return true;
+        }
+
+        public boolean isReleasable() {
+            return !shouldWait;
         }
     }
 
@@ -336,7 +583,7 @@ public class IntervalSynchronizer extends Synchronizer {
         for ( WaitSlot slot = waitSlotList; ; slot = slot.next ) {
             // if we are at the end of the list, or in-between links, create a new link
             if ( slot == null || slot.time > time ) {
-                return insertAfter(prev, new WaitSlot(time));
+                return insertAfter(prev, new WaitSlot(time, lock.newCondition()));
             }
             // if we matched the time of some other waiter exactly
             if ( slot.time == time ) {
@@ -359,7 +606,7 @@ public class IntervalSynchronizer extends Synchronizer {
 
     protected WaitSlot checkWaiters() {
         // have all threads reached either a meet or a wait?
-        if ( wait_count + meet_count < goal ) return null;
+        if ( wait_count + barrier.getArrivals() < barrier.getGoal() ) return null;
 
         // are there any waiters at all?
         if ( waitSlotList == null ) return null;
@@ -368,11 +615,9 @@ public class IntervalSynchronizer extends Synchronizer {
         WaitSlot h = waitSlotList;
         // move the wait list ahead to the next link
         waitSlotList = h.next;
-        synchronized ( h ) {
-            // notify the threads waiting on this wait slot
-            h.shouldWait = false;
-            h.notifyAll();
-        }
+        // notify the threads waiting on this wait slot
+        h.shouldWait = false;
+        h.released.signalAll();
         // reduce the wait count by the number of waiters in this slot
         wait_count -= h.numWaiters;
         return h;
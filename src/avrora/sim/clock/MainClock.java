@@ -35,7 +35,7 @@ package avrora.sim.clock;
 import avrora.sim.Simulator;
 
 /**
- * The <code>MainClock</code> class represents a clock that has an associated delta queue. This clock is
+ * The <code>MainClock</code> class represents a clock that has an associated event queue. This clock is
  * meant as the main, or driving clock. Clocks that are derived from this class are kept in synch
  * through the event queue. The <code>MainClock</code> is advanced by the interpreter for a node.
  *
@@ -46,7 +46,7 @@ public class MainClock extends Clock {
     /**
      * The <code>eventQueue</code> field stores a reference to the event queue for this node.
      */
-    protected final DeltaQueue eventQueue;
+    protected final TimingWheel eventQueue;
 
     /**
      * The <code>MainClock()</code> method creates a main clock with the specified name and frequency.
@@ -55,7 +55,7 @@ public class MainClock extends Clock {
      */
     public MainClock(String n, long hz) {
         super(n, hz);
-        eventQueue = new DeltaQueue();
+        eventQueue = new TimingWheel();
     }
 
     /**
@@ -79,6 +79,18 @@ public class MainClock extends Clock {
         eventQueue.insertEvent(e, cycles);
     }
 
+    /**
+     * The <code>insertPeriodicEvent()</code> method inserts an event into the event queue of the clock that
+     * fires repeatedly with the specified period, until it is removed with <code>removeEvent()</code>.
+     *
+     * @param e      the event to be inserted
+     * @param period the number of cycles between successive firings of the event
+     * @param phase  the number of cycles in the future at which the event fires first
+     */
+    public void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+        eventQueue.insertPeriodicEvent(e, period, phase);
+    }
+
     /**
      * The <code>removeEvent()</code> method removes an event from the event queue of the clock. The
      * comparison used is reference equality, not <code>.equals()</code>.
@@ -89,6 +101,35 @@ public class MainClock extends Clock {
         eventQueue.removeEvent(e);
     }
 
+    /**
+     * The <code>newEventHandle()</code> method creates a new handle for the specified event on this clock.
+     * Scheduling and cancelling the event through the handle takes constant time.
+     *
+     * @param e the event for which to create a handle
+     * @return a new handle for the event on this clock
+     */
+    public EventHandle newEventHandle(Simulator.Event e) {
+        return eventQueue.newEventHandle(e);
+    }
+
+    /**
+     * The <code>getEventQueueSize()</code> method gets the number of events that are pending in the event
+     * queue of this clock.
+     * @return the number of pending events
+     */
+    public int getEventQueueSize() {
+        return eventQueue.getSize();
+    }
+
+    /**
+     * The <code>setEventProbe()</code> method attaches a probe to the event queue of this clock that
+     * observes the events that are inserted, removed, and fired. Only one probe can be attached at a time.
+     * @param p the probe to attach; null to detach the current probe
+     */
+    public void setEventProbe(TimingWheel.Probe p) {
+        eventQueue.setProbe(p);
+    }
+
     /**
      * The <code>advance()</code> method advances the time of the clock by the number of cycles. This may
      * happen as the result of executing an instruction, sleeping for a time, delaying, etc. This method is
@@ -100,6 +141,22 @@ public class MainClock extends Clock {
         eventQueue.advance(cycles);
     }
 
+    /**
+     * The <code>suspend()</code> method suspends the event queue of this clock from within an event. The
+     * rest of the events and the advances of the clock are deferred until <code>resume()</code> is called.
+     */
+    public void suspend() {
+        eventQueue.suspend();
+    }
+
+    /**
+     * The <code>resume()</code> method resumes the event queue of this clock, firing the events that were
+     * deferred while it was suspended.
+     */
+    public void resume() {
+        eventQueue.resume();
+    }
+
     /**
      * The <code>getFirstEventDelta()</code> method returns the number of clock cycles until
      * the first event in the event queue will fire. This method will return -1 if there are no
@@ -111,6 +168,15 @@ public class MainClock extends Clock {
         return eventQueue.getFirstEventTime();
     }
 
+    /**
+     * The <code>hasPendingAtCurrentTime()</code> method checks whether events remain to be fired at the
+     * current time, after the event that is currently being fired.
+     * @return true if events remain to be fired at the current time
+     */
+    public boolean hasPendingAtCurrentTime() {
+        return eventQueue.hasPendingAtCurrentTime();
+    }
+
     /**
      * The <code>skipAhead()</code> method skips ahead to the next event in the queue and fires it.
      */
@@ -0,0 +1,309 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.sim.clock;
+
+import avrora.Avrora;
+import avrora.sim.Simulation;
+import avrora.sim.Simulator;
+import avrora.sim.SimulatorThread;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The <code>NeighborSynchronizer</code> class implements a synchronizer in which each node only waits for
+ * its neighbors, i.e. the nodes that it can interact with directly, instead of for all of the nodes. Like the
+ * <code>IntervalSynchronizer</code>, it inserts periodic events into the queue of each simulator, but at a
+ * meet point a node only waits until its neighbors have reached the same point. A node can therefore run
+ * ahead of a node that is not its neighbor by one interval for each hop between them, and a slow node only
+ * delays the nodes around it instead of the whole network.
+ * <p/>
+ * Since a node enters an interval only after its neighbors have finished the previous one, and they enter
+ * the next interval only after it has finished this one, neighbors are never more than one interval apart.
+ * Whatever the nodes share, e.g. the channels of their radios, must allow for that.
+ * <p/>
+ * The neighbors of the nodes are supplied by the user of the synchronizer, e.g. a radio model that knows
+ * which nodes are within range of each other, through the <code>addNeighbor()</code> method.
+ *
+ * @author Ben L. Titzer
+ */
+public class NeighborSynchronizer extends Synchronizer {
+
+    /**
+     * <code>period</code> is the number of cycles between the meet points of each node.
+     */
+    protected final long period;
+    protected final HashMap nodeMap;
+    protected final boolean multiprocessor;
+
+    /**
+     * The constructor for the <code>NeighborSynchronizer</code> class creates a new synchronizer with the
+     * specified period. Initially, the nodes have no neighbors.
+     * @param p the period in clock cycles at which nodes meet their neighbors
+     */
+    public NeighborSynchronizer(long p) {
+        period = p;
+        nodeMap = new HashMap();
+        multiprocessor = Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * The <code>SynchEvent</code> class represents an event that is inserted into the event queue of each
+     * simulator at each meet point. It also records how far the node has progressed, so that its neighbors
+     * can wait for it.
+     */
+    protected class SynchEvent implements Simulator.Event {
+
+        protected final SimulatorThread thread;
+        protected final MainClock clock;
+
+        protected SynchEvent[] neighbors;
+        protected int numNeighbors;
+
+        /**
+         * The <code>reached</code> field stores the time up to which this node has been simulated; it will
+         * not interact with its neighbors before this time any more.
+         */
+        protected volatile long reached;
+
+        /**
+         * The <code>waiter</code> field stores the thread that is waiting for the neighbors of this node;
+         * null if the node is not waiting.
+         */
+        protected volatile Thread waiter;
+
+        /**
+         * The <code>waitTime</code> field stores the time that the waiting thread of this node waits for its
+         * neighbors to reach, so that it is only woken once they have progressed far enough.
+         */
+        protected volatile long waitTime;
+
+        protected SynchEvent(SimulatorThread t) {
+            thread = t;
+            clock = t.getSimulator().getClock();
+            neighbors = new SynchEvent[4];
+        }
+
+        /**
+         * The <code>fire()</code> method of this event is called by the event queue of the simulator when
+         * the node reaches a meet point. It waits for the neighbors of the node to arrive.
+         */
+        public void fire() {
+            long time = clock.getCount();
+
+            reached = time;
+            wakeNeighbors();
+            await(time);
+
+            clock.insertEvent(this, period);
+        }
+
+        protected void addNeighbor(SynchEvent e) {
+            for ( int cntr = 0; cntr < numNeighbors; cntr++ )
+                if ( neighbors[cntr] == e ) return;
+            if ( numNeighbors == neighbors.length ) {
+                SynchEvent[] nn = new SynchEvent[numNeighbors * 2];
+                System.arraycopy(neighbors, 0, nn, 0, numNeighbors);
+                neighbors = nn;
+            }
+            neighbors[numNeighbors++] = e;
+        }
+
+        protected boolean neighborsReached(long time) {
+            for ( int cntr = 0; cntr < numNeighbors; cntr++ )
+                if ( neighbors[cntr].reached < time ) return false;
+            return true;
+        }
+
+        /**
+         * The <code>wakeNeighbors()</code> method wakes the neighbors that are waiting and whose neighbors,
+         * including this node, have now progressed far enough. It must be called after this node has
+         * progressed.
+         */
+        protected void wakeNeighbors() {
+            for ( int cntr = 0; cntr < numNeighbors; cntr++ ) {
+                SynchEvent n = neighbors[cntr];
+                Thread w = n.waiter;
+                if ( w != null && n.neighborsReached(n.waitTime) ) LockSupport.unpark(w);
+            }
+        }
+
+        /**
+         * The <code>await()</code> method waits until the neighbors of this node have reached the specified
+         * time. The node spins for a bounded time, as long as there are enough processors for the spinning
+         * threads not to delay the others, and then parks its thread.
+         * @param time the time the neighbors must reach
+         */
+        protected void await(long time) {
+            int spins = multiprocessor && nodeMap.size() <= Runtime.getRuntime().availableProcessors() ? SpinBarrier.SPINS : 0;
+            // the waiter is published before the neighbors are checked, so that no wakeup is lost
+            waitTime = time;
+            waiter = Thread.currentThread();
+            try {
+                while ( !neighborsReached(time) ) {
+                    if ( spins > 0 ) spins--;
+                    else LockSupport.park(this);
+                }
+            } finally {
+                waiter = null;
+            }
+        }
+    }
+
+    /**
+     * The <code>start()</code> method starts the threads executing, and the synchronizer
+     * will add whatever synchronization to their execution that is necessary to preserve
+     * the global timing properties of simulation.
+     */
+    public synchronized void start() {
+        Iterator i = nodeMap.values().iterator();
+        while (i.hasNext()) {
+            SynchEvent e = (SynchEvent)i.next();
+            e.thread.start();
+        }
+    }
+
+    /**
+     * The <code>join()</code> method will block the caller until all of the threads in
+     * this synchronization interval have terminated, either through <code>stop()</code>
+     * being called, or terminating normally such as through a timeout.
+     */
+    public void join() throws java.lang.InterruptedException {
+        Iterator i = nodeMap.values().iterator();
+        while (i.hasNext()) {
+            SynchEvent e = (SynchEvent)i.next();
+            e.thread.join();
+        }
+    }
+
+    /**
+     * The <code>stop()</code> method will terminate all the simulation threads. It is
+     * not guaranteed to stop all the simulation threads at the same global time.
+     */
+    public synchronized void stop() {
+        Iterator i = nodeMap.values().iterator();
+        while (i.hasNext()) {
+            SynchEvent e = (SynchEvent)i.next();
+            e.thread.getSimulator().stop();
+        }
+    }
+
+    /**
+     * The <code>pause()</code> method temporarily pauses the simulation. The nodes are
+     * not guaranteed to stop at the same global time. This method will return when all
+     * threads in the simulation have been paused and will no longer make progress until
+     * the <code>start()</code> method is called again.
+     */
+    public synchronized void pause() {
+        throw Avrora.unimplemented();
+    }
+
+    /**
+     * The <code>synch()</code> method will pause all of the nodes at the same global time.
+     * This method can only be called when the simulation is paused. It will run all threads
+     * forward until the global time specified and pause them.
+     * @param globalTime the global time in clock cycles to run all threads ahead to
+     */
+    public synchronized void synch(long globalTime) {
+        throw Avrora.unimplemented();
+    }
+
+    /**
+     * The <code>addNode()</code> method adds a node to this synchronization group.
+     * This method should only be called before the <code>start()</code> method is
+     * called.
+     * @param t the simulator representing the node to add to this group
+     */
+    public synchronized void addNode(Simulation.Node t) {
+        // if we already have this node, do nothing
+        if (nodeMap.containsKey(t.getSimulator())) return;
+
+        SimulatorThread st = t.getThread();
+        st.setSynchronizer(this);
+
+        // create a new synchronization event for this thread's queue
+        SynchEvent event = new SynchEvent(st);
+        nodeMap.put(t.getSimulator(), event);
+        // insert the synch event in the thread's queue
+        event.clock.insertEvent(event, period);
+    }
+
+    /**
+     * The <code>removeNode()</code> method removes a node from this synchronization
+     * group, and wakes any nodes that might be waiting on it.
+     * @param t the simulator thread to remove from this synchronization group
+     */
+    public void removeNode(Simulation.Node t) {
+        SynchEvent e = (SynchEvent)nodeMap.get(t.getSimulator());
+        if ( e == null ) return;
+        // the neighbors of a terminated node no longer wait for it
+        e.reached = Long.MAX_VALUE;
+        e.wakeNeighbors();
+    }
+
+    /**
+     * The <code>addNeighbor()</code> method makes two nodes neighbors of each other, so that each of them
+     * waits for the other at the meet points and in <code>waitForNeighbors()</code>. This method should
+     * only be called after both nodes have been added and before the <code>start()</code> method is called.
+     * @param a the simulator of the first node
+     * @param b the simulator of the second node
+     */
+    public synchronized void addNeighbor(Simulator a, Simulator b) {
+        SynchEvent ea = (SynchEvent)nodeMap.get(a);
+        SynchEvent eb = (SynchEvent)nodeMap.get(b);
+        if ( ea == null || eb == null || ea == eb ) return;
+        ea.addNeighbor(eb);
+        eb.addNeighbor(ea);
+    }
+
+    /**
+     * The <code>waitForNeighbors()</code> method is called from within the execution
+     * of a node when that node needs to wait for its neighbors to catch up to it
+     * in execution time. The node will be blocked until its neighbors have reached
+     * the specified time; the other nodes are not waited for.
+     */
+    public void waitForNeighbors(long time) {
+        // get the node that the current thread is running
+        SimulatorThread thread = SimulatorThread.current();
+        SynchEvent event = thread == null ? null : (SynchEvent)nodeMap.get(thread.getSimulator());
+        // if the current thread is not in the synchronizer, do nothing
+        if ( event == null ) return;
+
+        if ( time > event.reached ) {
+            event.reached = time;
+            event.wakeNeighbors();
+        }
+        event.await(time);
+    }
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.clock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The <code>SpinBarrier</code> class implements a reusable barrier among a set of threads that can shrink
+ * while the threads are running. Unlike a barrier built on a monitor, where every thread that arrives must
+ * acquire the monitor and the last one must wake all of the others through it, the threads arrive by
+ * incrementing an atomic counter, and only the last thread to arrive takes the lock of the barrier in order
+ * to complete the phase. A waiting thread spins for a bounded time, as long as there are enough processors
+ * for the spinning threads not to delay the others, and then parks itself.
+ * <p/>
+ * For a large number of parties, the waiting threads are released along a tree: the last thread to arrive
+ * wakes the root of the tree, and each thread that wakes up in turn wakes its children, so that no single
+ * thread has to wake all of the others one after another.
+ * <p/>
+ * A party that must not block its thread can arrive with <code>arrive()</code> instead of waiting with
+ * <code>await()</code>, and be notified of the end of the phase by overriding <code>release()</code>.
+ * <p/>
+ * A party that does not depend on the others for the time being can <code>pass()</code> the barrier
+ * without waiting at all, arriving ahead at as many phases as it likes. The other parties still wait for
+ * it, so it can never fall behind them; it calls <code>catchUp()</code> to wait for the phases it has
+ * passed to be completed before it depends on the others again.
+ * <p/>
+ * The lock of the barrier is supplied by its user, so that the user can keep other state consistent with
+ * the set of threads that have arrived. The <code>arrived()</code> and <code>complete()</code> methods can
+ * be overridden to act when a thread arrives and when a phase is completed.
+ *
+ * @author Ben L. Titzer
+ */
+public class SpinBarrier {
+
+    protected static final int RUNNING = 0;
+    protected static final int ARRIVED = 1;
+    protected static final int REMOVED = 2;
+
+    /**
+     * The <code>SPINS</code> field stores the number of times a waiting thread checks whether it has been
+     * released before it parks itself.
+     */
+    protected static final int SPINS = 20000;
+
+    /**
+     * The <code>Party</code> class represents a thread that takes part in the barrier.
+     */
+    public static class Party {
+        public final Thread thread;
+        protected final AtomicInteger status;
+        protected volatile int index;
+
+        /**
+         * The <code>credits</code> field counts the phases after the current one that this party has
+         * already passed. It is only accessed with the lock of the barrier held.
+         */
+        protected int credits;
+
+        /**
+         * The <code>waitingFor</code> field stores the generation of the phase that the thread of this party
+         * is waiting for; -1 if it is not waiting. A release along the tree skips the parties that do not
+         * wait for the phase being completed, since they will not pass the release on to their children.
+         */
+        protected volatile long waitingFor = -1;
+
+        protected Party(Thread t) {
+            thread = t;
+            status = new AtomicInteger(RUNNING);
+        }
+
+        /**
+         * The <code>isRemoved()</code> method checks whether this party has been removed from its barrier.
+         * @return true if this party has been removed; false otherwise
+         */
+        public boolean isRemoved() {
+            return status.get() == REMOVED;
+        }
+    }
+
+    protected final Lock lock;
+    protected final int fanout;
+    protected final int treeThreshold;
+    protected final boolean multiprocessor;
+
+    protected final AtomicInteger arrivals;
+    protected volatile int goal;
+    protected volatile long generation;
+    protected volatile Party[] parties;
+
+    /**
+     * The constructor for the <code>SpinBarrier</code> class creates a new barrier without any parties,
+     * which releases the parties along a tree when there are more than 16 of them.
+     * @param l the lock of the barrier, which is held while a phase is completed
+     */
+    public SpinBarrier(Lock l) {
+        this(l, 4, 16);
+    }
+
+    /**
+     * The constructor for the <code>SpinBarrier</code> class creates a new barrier without any parties.
+     * @param l the lock of the barrier, which is held while a phase is completed
+     * @param f the number of children of each thread in the release tree; zero if the parties are always
+     * released by the last thread to arrive
+     * @param t the number of parties above which the parties are released along a tree
+     */
+    public SpinBarrier(Lock l, int f, int t) {
+        lock = l;
+        fanout = f;
+        treeThreshold = t;
+        multiprocessor = Runtime.getRuntime().availableProcessors() > 1;
+        arrivals = new AtomicInteger();
+        parties = new Party[0];
+    }
+
+    /**
+     * The <code>addParty()</code> method adds a thread to the set of threads that meet at this barrier.
+     * This method should only be called when no phase is in progress, e.g. before the threads are started.
+     * @param t the thread to add
+     * @return a new party that the thread passes to <code>await()</code>
+     */
+    public Party addParty(Thread t) {
+        lock.lock();
+        try {
+            Party p = new Party(t);
+            Party[] np = new Party[parties.length + 1];
+            System.arraycopy(parties, 0, np, 0, parties.length);
+            p.index = parties.length;
+            np[parties.length] = p;
+            parties = np;
+            goal++;
+            return p;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The <code>removeParty()</code> method removes a party from this barrier. If the party has not yet
+     * arrived at the current phase, the other parties no longer wait for it; if it is waiting at the
+     * barrier, it is released without waiting for the phase to complete.
+     * @param p the party to remove
+     */
+    public void removeParty(Party p) {
+        lock.lock();
+        try {
+            int prev = p.status.getAndSet(REMOVED);
+            if (prev == REMOVED) return;
+            if (prev == ARRIVED) arrivals.decrementAndGet();
+            goal--;
+
+            boolean tree = isTree(parties);
+            Party[] np = new Party[parties.length - 1];
+            int pos = 0;
+            for (int cntr = 0; cntr < parties.length; cntr++) {
+                Party o = parties[cntr];
+                if (o == p) continue;
+                o.index = pos;
+                np[pos++] = o;
+            }
+            parties = np;
+
+            tryComplete(null);
+            LockSupport.unpark(p.thread);
+
+            // the release tree may have changed, or become a flat release, under a release in progress;
+            // wake every party, and those that have not been released will simply park again
+            if (tree) {
+                for (int cntr = 0; cntr < np.length; cntr++) LockSupport.unpark(np[cntr].thread);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The <code>await()</code> method is called by a thread when it arrives at the barrier. It returns
+     * when all of the parties have arrived, or when the party is removed from the barrier.
+     * @param p the party of the calling thread
+     * @return true if the phase was completed; false if the party has been removed from the barrier
+     */
+    public boolean await(Party p) {
+        long gen = generation;
+        if (p.status.get() == REMOVED) return false;
+
+        if (!arrive(p)) return waitForRelease(p, gen);
+
+        wakeChildren(parties, p.index, gen);
+        return p.status.get() != REMOVED;
+    }
+
+    /**
+     * The <code>waitForRelease()</code> method waits until the phase of the specified generation has been
+     * completed, and then passes the release on to the children of the party in the tree.
+     * @param p the party of the calling thread
+     * @param gen the generation of the phase to wait for
+     * @return true if the phase was completed; false if the party has been removed from the barrier
+     */
+    private boolean waitForRelease(Party p, long gen) {
+        int spins = multiprocessor && parties.length <= Runtime.getRuntime().availableProcessors() ? SPINS : 0;
+        p.waitingFor = gen;
+        try {
+            while (generation == gen) {
+                if (p.status.get() == REMOVED) return false;
+                if (spins > 0) spins--;
+                else LockSupport.park(this);
+            }
+        } finally {
+            p.waitingFor = -1;
+        }
+
+        wakeChildren(parties, p.index, gen);
+        return p.status.get() != REMOVED;
+    }
+
+    /**
+     * The <code>wakeChildren()</code> method passes the release of a phase on to the children of a party
+     * in the tree.
+     * @param ps the parties of the barrier
+     * @param index the index of the party in the tree
+     * @param gen the generation of the phase that was completed
+     */
+    private void wakeChildren(Party[] ps, int index, long gen) {
+        if (!isTree(ps)) return;
+        int first = index * fanout + 1;
+        for (int cntr = first; cntr < first + fanout && cntr < ps.length; cntr++)
+            wakeSubtree(ps, cntr, gen);
+    }
+
+    /**
+     * The <code>wakeSubtree()</code> method wakes a party of the tree; if the party is not waiting for the
+     * phase, e.g. because it has passed the barrier, it wakes the children of the party in its place.
+     * @param ps the parties of the barrier
+     * @param index the index of the party to wake
+     * @param gen the generation of the phase that was completed
+     */
+    private void wakeSubtree(Party[] ps, int index, long gen) {
+        Party p = ps[index];
+        if (p.waitingFor == gen) LockSupport.unpark(p.thread);
+        else wakeChildren(ps, index, gen);
+    }
+
+    /**
+     * The <code>arrive()</code> method is called by a thread when it arrives at the barrier. Unlike
+     * <code>await()</code>, it does not wait for the other parties: a party that did not complete the phase
+     * is notified through <code>release()</code> when the phase is completed.
+     * @param p the party that arrives
+     * @return true if the arrival of this party completed the phase, or the party has been removed from
+     * the barrier; false if the party must wait to be released
+     */
+    public boolean arrive(Party p) {
+        if (!p.status.compareAndSet(RUNNING, ARRIVED)) return true;
+
+        if (arrivals.incrementAndGet() >= goal) {
+            lock.lock();
+            try {
+                if (tryComplete(p)) return true;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            arrived();
+        }
+        return false;
+    }
+
+    /**
+     * The <code>pass()</code> method is called by a thread that passes the barrier without waiting for
+     * the other parties. The party arrives at the current phase, or at the phase after the last one it has
+     * already passed, and the thread continues at once.
+     * @param p the party that passes the barrier
+     * @return true if the party passed the barrier; false if it has been removed from the barrier
+     */
+    public boolean pass(Party p) {
+        if (!p.status.compareAndSet(RUNNING, ARRIVED)) {
+            lock.lock();
+            try {
+                // no phase can be completed while the lock is held
+                if (p.status.get() == REMOVED) return false;
+                if (p.status.get() == ARRIVED) {
+                    p.credits++;
+                    return true;
+                }
+                p.status.set(ARRIVED);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (arrivals.incrementAndGet() >= goal) {
+            lock.lock();
+            try {
+                if (tryComplete(null)) return true;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            arrived();
+        }
+        return true;
+    }
+
+    /**
+     * The <code>catchUp()</code> method is called by a thread that has passed the barrier, and waits until
+     * all of the phases that it has passed have been completed. When it returns, the thread can arrive at
+     * the barrier again with <code>await()</code> or <code>arrive()</code>.
+     * @param p the party of the calling thread
+     */
+    public void catchUp(Party p) {
+        while (true) {
+            long gen = generation;
+            if (p.status.get() != ARRIVED) break;
+            waitForRelease(p, gen);
+        }
+        // the status of the party is reset before the generation is advanced; wait for the completion to
+        // finish, so that the thread does not arrive at the next phase while it still sees the old generation
+        lock.lock();
+        lock.unlock();
+    }
+
+    /**
+     * The <code>hasArrived()</code> method checks whether a party has arrived at the current phase, i.e.
+     * whether it must wait for the phase to be completed before it can arrive again.
+     * @param p the party to check
+     * @return true if the party has arrived at the current phase; false otherwise
+     */
+    public boolean hasArrived(Party p) {
+        return p.status.get() == ARRIVED;
+    }
+
+    /**
+     * The <code>tryComplete()</code> method completes the current phase if all of the parties have arrived.
+     * The parties that have passed the barrier ahead of the others arrive at the next phase at once, so
+     * that several phases may be completed in a row. It must be called with the lock of the barrier held.
+     * @param self the party that completes the phase, which is not released; null if none
+     * @return true if the phase was completed
+     */
+    protected boolean tryComplete(Party self) {
+        if (arrivals.get() < goal) return false;
+
+        do {
+            complete();
+
+            arrivals.set(0);
+            Party[] ps = parties;
+            boolean credited = false;
+            for (int cntr = 0; cntr < ps.length; cntr++) {
+                Party o = ps[cntr];
+                if (o.credits > 0 && o.status.get() == ARRIVED) {
+                    // the party stays arrived for the next phase, which it has already passed
+                    o.credits--;
+                    arrivals.incrementAndGet();
+                    credited = true;
+                } else {
+                    o.status.compareAndSet(ARRIVED, RUNNING);
+                }
+            }
+            generation = generation + 1;
+
+            release(ps, self);
+            self = null;
+            if (!credited) break;
+        } while (arrivals.get() >= goal);
+        return true;
+    }
+
+    /**
+     * The <code>release()</code> method releases the parties that wait at the barrier when a phase has been
+     * completed. It is called with the lock of the barrier held. By default, it wakes the threads that are
+     * parked in <code>await()</code>.
+     * @param ps the parties of the barrier
+     * @param self the party that completed the phase, which need not be released; null if none
+     */
+    protected void release(Party[] ps, Party self) {
+        if (isTree(ps)) {
+            wakeSubtree(ps, 0, generation - 1);
+        } else {
+            for (int cntr = 0; cntr < ps.length; cntr++) {
+                if (ps[cntr] != self) LockSupport.unpark(ps[cntr].thread);
+            }
+        }
+    }
+
+    private boolean isTree(Party[] ps) {
+        return fanout > 0 && ps.length > treeThreshold;
+    }
+
+    /**
+     * The <code>getArrivals()</code> method gets the number of parties that have arrived at the current
+     * phase of the barrier.
+     * @return the number of parties waiting at the barrier
+     */
+    public int getArrivals() {
+        return arrivals.get();
+    }
+
+    /**
+     * The <code>getGoal()</code> method gets the number of parties that must arrive to complete a phase.
+     * @return the number of parties of the barrier
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * The <code>arrived()</code> method is called, without the lock held, after a thread has arrived at the
+     * barrier without completing the phase.
+     */
+    protected void arrived() {
+        // do nothing by default
+    }
+
+    /**
+     * The <code>complete()</code> method is called, with the lock held, by the thread that completes a
+     * phase, before any of the parties are released.
+     */
+    protected void complete() {
+        // do nothing by default
+    }
+}
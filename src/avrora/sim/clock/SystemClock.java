@@ -80,6 +80,18 @@ public class SystemClock extends Clock {
         throw Avrora.unimplemented();
     }
 
+    /**
+     * The <code>insertPeriodicEvent()</code> method inserts an event into the event queue of the clock that
+     * fires repeatedly with the specified period.
+     *
+     * @param e      the event to be inserted
+     * @param period the number of cycles between successive firings of the event
+     * @param phase  the number of cycles in the future at which the event fires first
+     */
+    public void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+        throw Avrora.unimplemented();
+    }
+
     /**
      * The <code>removeEvent()</code> method removes an event from the event queue of the clock. The
      * comparison used is reference equality, not <code>.equals()</code>.
@@ -90,6 +102,16 @@ public class SystemClock extends Clock {
         throw Avrora.unimplemented();
     }
 
+    /**
+     * The <code>newEventHandle()</code> method creates a new handle for the specified event on this clock.
+     *
+     * @param e the event for which to create a handle
+     * @return a new handle for the event on this clock
+     */
+    public EventHandle newEventHandle(Simulator.Event e) {
+        throw Avrora.unimplemented();
+    }
+
     /**
      * The <code>getFirstEventDelta()</code> method returns the number of clock cycles until
      * the first event in the event queue will fire. This method will return -1 if there are no
@@ -0,0 +1,685 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.clock;
+
+import avrora.Avrora;
+import avrora.sim.Simulator;
+
+/**
+ * The <code>TimingWheel</code> class implements the event queue of a clock as a hierarchical timing wheel.
+ * Unlike the <code>DeltaQueue</code>, which must walk its list of links to insert an event, the timing wheel
+ * inserts an event in constant time, regardless of the number of events that are pending.
+ * <p/>
+ * The wheel consists of a number of levels of 64 slots each. The lowest level has one slot for each of the
+ * 64 clock cycles around the current time of the wheel, the next level has one slot for each 64 cycles, and
+ * so on. An event is stored in the lowest level in which its time and the time of the wheel differ only in
+ * the bits that select the slot of that level. When the wheel moves forward to the time of the next event,
+ * the slots of the higher levels that have become current are cascaded down to the lower levels. A mask of
+ * the slots in use at each level allows the next event to be found without visiting empty slots.
+ * <p/>
+ * The events are fired in exactly the same order as by the <code>DeltaQueue</code>. Events that fire at the
+ * same cycle are fired the last inserted first, and an event that is inserted for the current cycle while
+ * events are being fired is fired after them. The higher levels keep their events in the order of insertion
+ * so that this order is preserved when they are cascaded into the lowest level.
+ * <p/>
+ * The entries of each slot are doubly linked, so that an event scheduled through a handle obtained from
+ * <code>newEventHandle()</code> can be cancelled or rescheduled in constant time, without the scan of the
+ * whole wheel that <code>removeEvent()</code> requires. Unlike <code>removeEvent()</code>, cancelling a handle
+ * also stops an occurrence that is due at the current cycle but has not been fired yet, so that an event
+ * never fires twice when its handle is rescheduled by another event at the same cycle.
+ * <p/>
+ * A periodic event is stored in a single entry that is moved forward by its period and placed back into the
+ * wheel after the event fires, which is equivalent to the event inserting itself again at the end of its
+ * <code>fire()</code> method, but allocates nothing and does not search for the event.
+ * <p/>
+ * Like the <code>DeltaQueue</code>, this class maintains an internal cache of entries so that it does not
+ * create garbage over its execution.
+ * <p/>
+ * The traffic through the wheel can be observed by attaching a <code>TimingWheel.Probe</code>. When no probe
+ * is attached, the cost of this is a single test of a field on each operation.
+ * <p/>
+ * An event can suspend the wheel while it is being fired, e.g. when the node must wait for other nodes at a
+ * synchronization point without blocking its thread. The rest of the events at the current time are then
+ * not fired, and the wheel stays at the current time, deferring any advance, until <code>resume()</code> is
+ * called.
+ *
+ * @author Ben L. Titzer
+ */
+public class TimingWheel {
+
+    protected static final int SLOT_BITS = 6;
+    protected static final int SLOTS = 1 << SLOT_BITS;
+    protected static final int SLOT_MASK = SLOTS - 1;
+    public static final int LEVELS = (64 + SLOT_BITS - 1) / SLOT_BITS;
+    protected static final int FIRING = -1;
+
+    /**
+     * The <code>TimingWheel.Probe</code> interface represents a probe that observes the events that pass
+     * through a timing wheel. Because the wheel places an event in constant time, the work of an insertion
+     * is described by the level of the wheel at which the event is placed; an event placed at level
+     * <code>n</code> is cascaded down at most <code>n</code> times before it fires.
+     */
+    public interface Probe {
+        /**
+         * The <code>fireWhenInserted()</code> method is called after an event has been inserted into the
+         * wheel, either directly or through a handle.
+         * @param e      the event inserted
+         * @param cycles the number of cycles in the future at which the event fires
+         * @param level  the level of the wheel at which the event was placed
+         */
+        public void fireWhenInserted(Simulator.Event e, long cycles, int level);
+
+        /**
+         * The <code>fireWhenRemoved()</code> method is called when a pending occurrence of an event is
+         * removed from the wheel before it fires, or when a periodic event is stopped.
+         * @param e the event removed
+         */
+        public void fireWhenRemoved(Simulator.Event e);
+
+        /**
+         * The <code>fireBeforeFire()</code> method is called just before an event is fired.
+         * @param e the event about to be fired
+         */
+        public void fireBeforeFire(Simulator.Event e);
+
+        /**
+         * The <code>fireWhenCascaded()</code> method is called when the entries of a slot of a higher level
+         * of the wheel are cascaded down to the lower levels.
+         * @param level   the level of the slot that was cascaded
+         * @param entries the number of entries that were moved
+         */
+        public void fireWhenCascaded(int level, int entries);
+    }
+
+    /**
+     * The <code>Entry</code> class represents an event stored in a slot of the wheel, along with the time at
+     * which it fires and the position of the slot, so that it can be unlinked without searching for it. The
+     * period of a one-shot event is zero.
+     */
+    private static class Entry {
+        Simulator.Event event;
+        long time;
+        long period;
+        int level;
+        int slot;
+        Entry prev;
+        Entry next;
+        Handle handle;
+    }
+
+    /**
+     * The <code>slots</code> field stores the lists of entries of each slot of each level.
+     */
+    private final Entry[][] slots;
+
+    /**
+     * The <code>tails</code> field stores the last entry of each slot of the higher levels, where events are
+     * appended in order of insertion.
+     */
+    private final Entry[][] tails;
+
+    /**
+     * The <code>occupied</code> field stores a mask for each level of the slots that contain entries.
+     */
+    private final long[] occupied;
+
+    /**
+     * The <code>freeEntries</code> field stores a reference to any entries that have become unused during the
+     * processing of events. A free list is used to prevent garbage from accumulating.
+     */
+    private Entry freeEntries;
+
+    /**
+     * The <code>firing</code> field stores the entry of the event that is currently being fired, followed by
+     * the rest of the entries that fire at the same time. Periodic events in this list can still be stopped.
+     */
+    private Entry firing;
+
+    /**
+     * The <code>suspended</code> field is set while the wheel is suspended. The <code>rest</code> field then
+     * stores the entries that remain to be fired at the current time, and the <code>target</code> field the
+     * time to which the wheel will be advanced when it is resumed.
+     */
+    private boolean suspended;
+    private Entry rest;
+    private long target;
+
+    /**
+     * The <code>probe</code> field stores the probe attached to this wheel, if any.
+     */
+    private Probe probe;
+
+    /**
+     * The <code>size</code> field stores the number of events pending in the wheel.
+     */
+    protected int size;
+
+    /**
+     * The <code>wheelTime</code> field stores the time relative to which the entries are placed in the
+     * levels of the wheel. It is the time of the last event fired and never exceeds <code>count</code>.
+     */
+    protected long wheelTime;
+
+    /**
+     * The <code>nextTime</code> field caches the time of the first event in the wheel, or
+     * <code>Long.MAX_VALUE</code> if the wheel is empty.
+     */
+    protected long nextTime = Long.MAX_VALUE;
+
+    /**
+     * The <code>count</code> field stores the total number of cycles that this queue has been advanced, i.e.
+     * the sum of all <code>advance()</code> calls.
+     */
+    protected long count;
+
+    /**
+     * The default constructor for the <code>TimingWheel</code> class creates a new, empty wheel.
+     */
+    public TimingWheel() {
+        slots = new Entry[LEVELS][SLOTS];
+        tails = new Entry[LEVELS][SLOTS];
+        occupied = new long[LEVELS];
+    }
+
+    /**
+     * The <code>insertEvent()</code> method adds an event to be executed in the future.
+     *
+     * @param e      the event to add
+     * @param cycles the number of clock cycles in the future
+     */
+    public void insertEvent(Simulator.Event e, long cycles) {
+        long time = count + (cycles < 0 ? 0 : cycles);
+        Entry n = newEntry(e, time);
+        insert(n);
+        if (time < nextTime) nextTime = time;
+        if (probe != null) probe.fireWhenInserted(e, time - count, n.level);
+    }
+
+    /**
+     * The <code>insertPeriodicEvent()</code> method adds an event that fires repeatedly with the specified
+     * period. The event remains in the wheel until it is removed with <code>removeEvent()</code>.
+     *
+     * @param e      the event to add
+     * @param period the number of clock cycles between successive firings of the event
+     * @param phase  the number of clock cycles in the future at which the event fires first
+     */
+    public void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+        if (period <= 0)
+            throw Avrora.failure("period of periodic event must be positive: " + period);
+        long time = count + (phase < 0 ? 0 : phase);
+        Entry n = newEntry(e, time);
+        n.period = period;
+        insert(n);
+        if (time < nextTime) nextTime = time;
+        if (probe != null) probe.fireWhenInserted(e, time - count, n.level);
+    }
+
+    private void insert(Entry n) {
+        long diff = n.time ^ wheelTime;
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        int slot = (int)(n.time >>> (level * SLOT_BITS)) & SLOT_MASK;
+        Entry[] s = slots[level];
+        n.level = level;
+        n.slot = slot;
+        if (level == 0) {
+            // all entries of a slot in the lowest level fire at the same time, the last inserted first
+            Entry head = s[slot];
+            n.prev = null;
+            n.next = head;
+            if (head != null) head.prev = n;
+            s[slot] = n;
+        } else {
+            // the higher levels keep the order of insertion for cascading
+            n.next = null;
+            if (s[slot] == null) {
+                n.prev = null;
+                s[slot] = n;
+            } else {
+                n.prev = tails[level][slot];
+                n.prev.next = n;
+            }
+            tails[level][slot] = n;
+        }
+        occupied[level] |= 1L << slot;
+    }
+
+    /**
+     * The <code>unlink()</code> method removes the specified entry from the slot that contains it and
+     * returns it to the free list.
+     *
+     * @param n the entry to remove
+     */
+    private void unlink(Entry n) {
+        int level = n.level;
+        int slot = n.slot;
+        Entry prev = n.prev;
+        Entry next = n.next;
+        if (prev == null) slots[level][slot] = next;
+        else prev.next = next;
+        if (next != null) next.prev = prev;
+        else if (level > 0) tails[level][slot] = prev;
+        if (slots[level][slot] == null) occupied[level] &= ~(1L << slot);
+
+        long time = n.time;
+        n.next = null;
+        n.handle = null;
+        free(n);
+        if (time == nextTime) nextTime = computeNextTime();
+    }
+
+    /**
+     * The <code>newEventHandle()</code> method creates a new handle through which the specified event can be
+     * scheduled, rescheduled and cancelled in constant time.
+     *
+     * @param e the event for which to create a handle
+     * @return a new handle for the event
+     */
+    public Clock.EventHandle newEventHandle(Simulator.Event e) {
+        return new Handle(e);
+    }
+
+    /**
+     * The <code>Handle</code> class implements an event handle that remembers the entry of its pending
+     * event, if any. The entry in turn refers back to the handle, so that the link can be broken when the
+     * entry is removed or fired.
+     */
+    private class Handle extends Clock.EventHandle {
+        Entry entry;
+
+        Handle(Simulator.Event e) {
+            super(e);
+        }
+
+        public void schedule(long cycles) {
+            arm(cycles, 0);
+        }
+
+        public void schedulePeriodic(long period, long phase) {
+            if (period <= 0)
+                throw Avrora.failure("period of periodic event must be positive: " + period);
+            arm(phase, period);
+        }
+
+        private void arm(long cycles, long period) {
+            cancel();
+            long time = count + (cycles < 0 ? 0 : cycles);
+            Entry n = newEntry(event, time);
+            n.period = period;
+            n.handle = this;
+            entry = n;
+            insert(n);
+            if (time < nextTime) nextTime = time;
+            if (probe != null) probe.fireWhenInserted(event, time - count, n.level);
+        }
+
+        public void cancel() {
+            Entry n = entry;
+            if (n == null) return;
+            entry = null;
+            if (probe != null) probe.fireWhenRemoved(event);
+            if (n.level == FIRING) {
+                // an event that is being fired is not placed back into the wheel, and one that is still
+                // waiting to be fired at the current time is skipped
+                n.period = 0;
+                n.handle = null;
+                if (n != firing) n.event = null;
+            } else {
+                unlink(n);
+            }
+        }
+
+        public boolean isScheduled() {
+            return entry != null;
+        }
+    }
+
+    /**
+     * The <code>removeEvent()</code> method removes all occurrences of the specified event from the wheel.
+     *
+     * @param e the event to remove
+     */
+    public void removeEvent(Simulator.Event e) {
+        boolean removed = false;
+        for (int level = 0; level < LEVELS; level++) {
+            long mask = occupied[level];
+            while (mask != 0) {
+                int slot = Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                removed |= remove(level, slot, e);
+            }
+        }
+        if (removed) nextTime = computeNextTime();
+
+        // stop any periodic occurrences that are being fired
+        stopPeriodic(firing, e);
+        stopPeriodic(rest, e);
+    }
+
+    private void stopPeriodic(Entry list, Simulator.Event e) {
+        for (Entry pos = list; pos != null; pos = pos.next) {
+            if (pos.event == e && pos.period != 0) {
+                if (probe != null) probe.fireWhenRemoved(e);
+                if (pos.handle != null) pos.handle.entry = null;
+                pos.period = 0;
+                pos.handle = null;
+            }
+        }
+    }
+
+    private boolean remove(int level, int slot, Simulator.Event e) {
+        boolean removed = false;
+        Entry prev = null;
+        Entry pos = slots[level][slot];
+        while (pos != null) {
+            Entry next = pos.next;
+            if (pos.event == e) {
+                if (probe != null) probe.fireWhenRemoved(e);
+                if (prev == null) slots[level][slot] = next;
+                else prev.next = next;
+                if (next != null) next.prev = prev;
+                if (pos.handle != null) pos.handle.entry = null;
+                pos.next = null;
+                pos.handle = null;
+                free(pos);
+                removed = true;
+            } else {
+                prev = pos;
+            }
+            pos = next;
+        }
+        tails[level][slot] = prev;
+        if (prev == null) occupied[level] &= ~(1L << slot);
+        return removed;
+    }
+
+    /**
+     * The <code>advance()</code> method advances timesteps through the queue by the specified number of clock
+     * cycles, processing any events.
+     *
+     * @param cycles the number of clock cycles to advance
+     */
+    public void advance(long cycles) {
+        long target = count + cycles;
+        if (nextTime > target) {
+            // fast path: no event fires
+            count = target;
+            return;
+        }
+
+        // slow path: fire events until the target is reached
+        if (suspended) {
+            // the advance is deferred until the wheel is resumed
+            this.target += cycles;
+            return;
+        }
+        while (count < target && nextTime <= target) {
+            fireNext();
+            if (suspended) {
+                this.target = target;
+                return;
+            }
+        }
+        count = target;
+    }
+
+    /**
+     * The <code>skipAhead()</code> method skips ahead to the next event in the queue and fires it.
+     */
+    public void skipAhead() {
+        if (nextTime == Long.MAX_VALUE) {
+            // nothing in the queue
+            count++;
+            return;
+        }
+        fireNext();
+        if (suspended) target = count;
+    }
+
+    /**
+     * The <code>suspend()</code> method suspends this wheel. It may only be called by an event while it is
+     * being fired. The events that remain to be fired at the current time are not fired, and the time of
+     * the wheel does not change, until the wheel is resumed.
+     */
+    public void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * The <code>resume()</code> method resumes this wheel after it has been suspended. The events that
+     * remain to be fired at the current time are fired, and the wheel is advanced by the cycles that were
+     * deferred while it was suspended. The wheel may be suspended again by one of these events.
+     */
+    public void resume() {
+        if (!suspended) return;
+        suspended = false;
+        nextTime = computeNextTime();
+        Entry list = rest;
+        rest = null;
+        fireList(list);
+        if (!suspended) advance(target - count);
+    }
+
+    /**
+     * The <code>isSuspended()</code> method checks whether this wheel is suspended.
+     * @return true if the wheel has been suspended by an event and not yet resumed
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    private void fireNext() {
+        long time = nextTime;
+        moveTo(time);
+
+        // chop off the events at the time and fire them
+        int slot = (int)time & SLOT_MASK;
+        Entry list = slots[0][slot];
+        slots[0][slot] = null;
+        occupied[0] &= ~(1L << slot);
+        count = time;
+        nextTime = computeNextTime();
+
+        for (Entry pos = list; pos != null; pos = pos.next) pos.level = FIRING;
+
+        fireList(list);
+    }
+
+    private void fireList(Entry pos) {
+        while (pos != null) {
+            firing = pos;
+            Simulator.Event e = pos.event;
+            if (e != null) {
+                // a one-shot event is no longer pending through its handle and may reschedule itself
+                if (pos.period == 0 && pos.handle != null) {
+                    pos.handle.entry = null;
+                    pos.handle = null;
+                }
+                if (probe != null) probe.fireBeforeFire(e);
+                e.fire();
+            }
+            Entry next = pos.next;
+            if (pos.period != 0) {
+                // place the periodic event back into the wheel at its next time
+                pos.time += pos.period;
+                insert(pos);
+                if (pos.time < nextTime) nextTime = pos.time;
+            } else {
+                pos.next = null;
+                free(pos);
+            }
+            pos = next;
+            if (suspended) {
+                // keep the rest of the entries, and keep advance() off its fast path until resumed
+                rest = pos;
+                nextTime = Long.MIN_VALUE;
+                break;
+            }
+        }
+        firing = null;
+    }
+
+    /**
+     * The <code>moveTo()</code> method moves the wheel forward to the specified time, which must not be later
+     * than the time of any event in the wheel. The slots of the higher levels that contain the time are
+     * cascaded down to the lower levels.
+     *
+     * @param time the new time of the wheel
+     */
+    private void moveTo(long time) {
+        long diff = time ^ wheelTime;
+        wheelTime = time;
+        if (diff >>> SLOT_BITS == 0) return;
+
+        // only the levels up to the highest bit that changed can contain the time
+        for (int level = (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS; level > 0; level--) {
+            int slot = (int)(time >>> (level * SLOT_BITS)) & SLOT_MASK;
+            long bit = 1L << slot;
+            if ((occupied[level] & bit) == 0) continue;
+
+            Entry pos = slots[level][slot];
+            slots[level][slot] = null;
+            tails[level][slot] = null;
+            occupied[level] &= ~bit;
+            int entries = 0;
+            while (pos != null) {
+                Entry next = pos.next;
+                insert(pos);
+                pos = next;
+                entries++;
+            }
+            if (probe != null) probe.fireWhenCascaded(level, entries);
+        }
+    }
+
+    private long computeNextTime() {
+        if (occupied[0] != 0)
+            return (wheelTime & ~SLOT_MASK) | Long.numberOfTrailingZeros(occupied[0]);
+
+        // the first occupied slot of the lowest occupied level contains the next event
+        for (int level = 1; level < LEVELS; level++) {
+            long mask = occupied[level];
+            if (mask == 0) continue;
+            Entry pos = slots[level][Long.numberOfTrailingZeros(mask)];
+            long min = pos.time;
+            for (pos = pos.next; pos != null; pos = pos.next) {
+                if (pos.time < min) min = pos.time;
+            }
+            return min;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * The <code>getFirstEventTime()</code> method gets the number of clock cycles until the first event will
+     * fire. As with the <code>DeltaQueue</code>, the events that are being fired at the current time have
+     * already been removed from the queue and are not counted.
+     *
+     * @return the number of clock cycles until the first event will fire; -1 if there are no events
+     */
+    public long getFirstEventTime() {
+        long time = suspended ? computeNextTime() : nextTime;
+        if (time == Long.MAX_VALUE) return -1;
+        return time - count;
+    }
+
+    /**
+     * The <code>hasPendingAtCurrentTime()</code> method checks whether some of the events that are being
+     * fired at the current time have not been fired yet, either because an earlier one is still firing or
+     * because the wheel was suspended before they were reached.
+     *
+     * @return true if events remain to be fired at the current time
+     */
+    public boolean hasPendingAtCurrentTime() {
+        return firing != null && firing.next != null || rest != null;
+    }
+
+    /**
+     * The <code>getCount()</code> gets the total cumulative count of all the <code>advance()</code> calls on
+     * this queue.
+     *
+     * @return the total number of cycles this queue has been advanced
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The <code>getSize()</code> method gets the number of events that are pending in the wheel. A periodic
+     * event counts as a single pending event.
+     *
+     * @return the number of events in the wheel
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The <code>setProbe()</code> method attaches a probe to this wheel that observes the events that are
+     * inserted, removed, and fired. Only one probe can be attached at a time.
+     *
+     * @param p the probe to attach; null to detach the current probe
+     */
+    public void setProbe(Probe p) {
+        probe = p;
+    }
+
+    private void free(Entry list) {
+        if (list == null) return;
+        Entry last = list;
+        while (true) {
+            size--;
+            last.event = null;
+            if (last.next == null) break;
+            last = last.next;
+        }
+        last.next = freeEntries;
+        freeEntries = list;
+    }
+
+    private Entry newEntry(Simulator.Event e, long time) {
+        Entry n = freeEntries;
+        if (n == null) {
+            // if none in the free list, allocate one
+            n = new Entry();
+        } else {
+            // grab one from the free list
+            freeEntries = n.next;
+        }
+        n.event = e;
+        n.time = time;
+        n.period = 0;
+        size++;
+        return n;
+    }
+}
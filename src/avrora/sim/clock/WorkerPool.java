@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.clock;
+
+import avrora.sim.SimulatorThread;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The <code>WorkerPool</code> class runs the nodes of a multi-node simulation on a fixed number of worker
+ * threads, instead of giving each node a thread of its own. A node runs on a worker until it must wait for
+ * other nodes, at which point it is suspended and the worker picks up another node that is ready to run.
+ * Each worker keeps the nodes that it makes ready in a queue of its own, and a worker that runs out of nodes
+ * steals them from the queues of the others.
+ * <p/>
+ * A worker that must block in the middle of running a node, e.g. while it waits for its neighbors, should
+ * do so through <code>ForkJoinPool.managedBlock()</code>, so that the pool can start another worker in its
+ * place while it is blocked. Code that runs as part of a node can find out which node it is with
+ * <code>SimulatorThread.current()</code>.
+ * <p/>
+ * An exception that escapes from a node is recorded by the pool and terminates the simulation, as it
+ * would terminate the thread of the node, so that the caller waiting for the simulation can report it.
+ *
+ * @author Ben L. Titzer
+ */
+public class WorkerPool {
+
+    /**
+     * The <code>Slice</code> class represents a task that runs a node on a worker until it is suspended
+     * or terminates.
+     */
+    protected class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        protected final SimulatorThread node;
+        protected final Runnable body;
+
+        protected Slice(SimulatorThread n, Runnable b) {
+            node = n;
+            body = b;
+        }
+
+        protected void compute() {
+            try {
+                body.run();
+            } catch (Throwable t) {
+                fail(node, t);
+            }
+        }
+    }
+
+    protected final ForkJoinPool pool;
+
+    /**
+     * The <code>failure</code> field stores the first exception that escaped from a node run by this pool;
+     * null if no node has failed.
+     */
+    protected Throwable failure;
+
+    /**
+     * The constructor for the <code>WorkerPool</code> class creates a new pool with the specified number
+     * of workers.
+     * @param workers the number of worker threads; zero for one worker for each processor
+     */
+    public WorkerPool(int workers) {
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * The <code>execute()</code> method runs some code of a node on one of the workers. When it is called
+     * from a worker of this pool, the node is placed in the queue of that worker.
+     * @param node the thread of the node
+     * @param body the code to run
+     */
+    public void execute(SimulatorThread node, Runnable body) {
+        Slice s = new Slice(node, body);
+        if (ForkJoinTask.getPool() == pool) s.fork();
+        else pool.execute(s);
+    }
+
+    /**
+     * The <code>fail()</code> method records an exception that escaped from a node and terminates the
+     * simulation that the node belongs to. Only the first failure is recorded.
+     * @param node the thread of the node that failed
+     * @param t the exception that escaped from the node
+     */
+    protected void fail(SimulatorThread node, Throwable t) {
+        synchronized ( this ) {
+            if ( failure == null ) failure = t;
+        }
+        Synchronizer s = node.getSynchronizer();
+        if ( s != null ) s.stop();
+    }
+
+    /**
+     * The <code>getFailure()</code> method gets the first exception that escaped from a node run by this
+     * pool.
+     * @return the exception that terminated the simulation; null if no node has failed
+     */
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * The <code>shutdown()</code> method lets the workers terminate once they have run all of the nodes.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
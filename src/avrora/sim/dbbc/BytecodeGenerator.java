@@ -0,0 +1,755 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.dbbc;
+
+import avrora.Avrora;
+import avrora.core.isdl.ast.*;
+import avrora.core.isdl.parser.Token;
+import avrora.sim.PredecodedInterpreter;
+import avrora.util.Arithmetic;
+import avrora.util.StringUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The <code>BytecodeGenerator</code> class is a visitor over the code of a basic block that emits Java
+ * bytecode directly into the <code>execute()</code> method of a compiled block. It performs the same
+ * translation as the <code>InterpreterGenerator</code> does to Java source code: variables that are not
+ * declared within the block refer to fields of the interpreter, calls refer to methods of the interpreter,
+ * and accesses to maps refer to the register file, memory, and IO registers. The types of fields and the
+ * signatures of methods are found by reflection over the interpreter class.
+ *
+ * @author Ben L. Titzer
+ */
+public class BytecodeGenerator implements StmtVisitor, CodeVisitor {
+
+    protected static final Class INTERPRETER = PredecodedInterpreter.class;
+    protected static final String ARITHMETIC = "avrora/util/Arithmetic";
+    protected static final String ACTIVE_REGISTER = "avrora/sim/ActiveRegister";
+
+    /**
+     * The <code>INTERPRETER_LOCAL</code> field stores the index of the local variable that holds the
+     * reference to the interpreter, which is the first parameter of the <code>execute()</code> method.
+     */
+    protected static final int INTERPRETER_LOCAL = 1;
+
+    protected static final HashMap methodCache = new HashMap();
+    protected static final HashMap fieldCache = new HashMap();
+
+    protected final ClassFile.Code code;
+    protected final HashMap variableMap;
+    protected final HashMap mapMap;
+
+    /**
+     * The <code>type</code> field stores the type of the value produced by the last expression that
+     * was emitted.
+     */
+    protected Class type;
+
+    protected static class Local {
+        final int index;
+        final Class type;
+
+        Local(int i, Class t) {
+            index = i;
+            type = t;
+        }
+    }
+
+    protected abstract class MapRep {
+        public abstract void generateRead(Expr ind);
+
+        public abstract void generateWrite(Expr ind, Expr val);
+
+        public void generateBitRead(Expr ind, Expr b) {
+            generateRead(ind);
+            emitBitExtract(b);
+        }
+
+        public abstract void generateBitWrite(Expr ind, Expr b, Expr val);
+
+        public abstract void generateBitRangeWrite(Expr ind, int l, int h, Expr val);
+    }
+
+    protected class ArrayMap extends MapRep {
+        protected final Field field;
+
+        ArrayMap(String v) {
+            field = getField(v);
+        }
+
+        protected void loadArray(Expr ind) {
+            code.aload(INTERPRETER_LOCAL);
+            emitField(ClassFile.GETFIELD, field);
+            emitExpr(ind, Integer.TYPE);
+        }
+
+        public void generateRead(Expr ind) {
+            loadArray(ind);
+            code.op(ClassFile.BALOAD, -1);
+            type = Byte.TYPE;
+        }
+
+        public void generateWrite(Expr ind, Expr val) {
+            loadArray(ind);
+            emitExpr(val, Byte.TYPE);
+            code.op(ClassFile.BASTORE, -3);
+        }
+
+        public void generateBitWrite(Expr ind, Expr b, Expr val) {
+            loadArray(ind);
+            code.op(ClassFile.DUP2, 2);
+            code.op(ClassFile.BALOAD, -1);
+            emitSetBit(Byte.TYPE, b, val);
+            code.op(ClassFile.BASTORE, -3);
+        }
+
+        public void generateBitRangeWrite(Expr ind, int l, int h, Expr val) {
+            loadArray(ind);
+            code.op(ClassFile.DUP2, 2);
+            code.op(ClassFile.BALOAD, -1);
+            emitBitRangeInsert(l, h, val);
+            coerce(Integer.TYPE, Byte.TYPE);
+            code.op(ClassFile.BASTORE, -3);
+        }
+    }
+
+    protected class GetterSetterMap extends MapRep {
+        public final String readMeth;
+        public final String writeMeth;
+
+        GetterSetterMap(String r, String w) {
+            readMeth = r;
+            writeMeth = w;
+        }
+
+        public void generateRead(Expr ind) {
+            Method m = getMethod(readMeth, 1);
+            code.aload(INTERPRETER_LOCAL);
+            emitExpr(ind, Integer.TYPE);
+            emitInvoke(m);
+        }
+
+        public void generateWrite(Expr ind, Expr val) {
+            Method m = getMethod(writeMeth, 2);
+            Class[] ptypes = m.getParameterTypes();
+            code.aload(INTERPRETER_LOCAL);
+            emitExpr(ind, ptypes[0]);
+            emitExpr(val, ptypes[1]);
+            emitInvoke(m);
+        }
+
+        public void generateBitWrite(Expr ind, Expr b, Expr val) {
+            Method m = getMethod(writeMeth, 2);
+            Class[] ptypes = m.getParameterTypes();
+            code.aload(INTERPRETER_LOCAL);
+            emitExpr(ind, ptypes[0]);
+            generateRead(ind);
+            emitSetBit(type, b, val);
+            coerce(type, ptypes[1]);
+            emitInvoke(m);
+        }
+
+        public void generateBitRangeWrite(Expr ind, int l, int h, Expr val) {
+            Method m = getMethod(writeMeth, 2);
+            Class[] ptypes = m.getParameterTypes();
+            code.aload(INTERPRETER_LOCAL);
+            emitExpr(ind, ptypes[0]);
+            generateRead(ind);
+            emitBitRangeInsert(l, h, val);
+            coerce(type, ptypes[1]);
+            emitInvoke(m);
+        }
+    }
+
+    protected class IORegMap extends GetterSetterMap {
+        IORegMap() {
+            super("getIORegisterByte", "writeIORegisterByte");
+        }
+
+        protected void loadRegister(Expr ind) {
+            code.aload(INTERPRETER_LOCAL);
+            emitExpr(ind, Integer.TYPE);
+            emitInvoke(getMethod("getIOReg", 1));
+        }
+
+        public void generateBitRead(Expr ind, Expr b) {
+            loadRegister(ind);
+            emitExpr(b, Integer.TYPE);
+            code.invoke(ClassFile.INVOKEINTERFACE, ACTIVE_REGISTER, "readBit", "(I)Z");
+            type = Boolean.TYPE;
+        }
+
+        public void generateBitWrite(Expr ind, Expr b, Expr val) {
+            loadRegister(ind);
+            emitExpr(b, Integer.TYPE);
+            emitExpr(val, Boolean.TYPE);
+            code.invoke(ClassFile.INVOKEINTERFACE, ACTIVE_REGISTER, "writeBit", "(IZ)V");
+        }
+    }
+
+    /**
+     * The constructor for the <code>BytecodeGenerator</code> class creates a new generator that emits
+     * code into the specified method.
+     *
+     * @param c the code of the <code>execute()</code> method of the compiled block
+     */
+    public BytecodeGenerator(ClassFile.Code c) {
+        code = c;
+        variableMap = new HashMap();
+        mapMap = new HashMap();
+        mapMap.put("regs", new ArrayMap("sram"));
+        mapMap.put("uregs", new GetterSetterMap("getRegisterUnsigned", "writeRegisterByte"));
+        mapMap.put("wregs", new GetterSetterMap("getRegisterWord", "writeRegisterWord"));
+        mapMap.put("sram", new GetterSetterMap("getDataByte", "writeDataByte"));
+        mapMap.put("ioregs", new IORegMap());
+        mapMap.put("program", new GetterSetterMap("getProgramByte", "setProgramByte"));
+        mapMap.put("isize", new GetterSetterMap("getInstrSize", "---"));
+    }
+
+    public void visitStmtList(List l) {
+        Iterator i = l.iterator();
+        while (i.hasNext()) {
+            Stmt t = (Stmt)i.next();
+            t.accept(this);
+        }
+    }
+
+    //=========================================================================================
+    // S T A T E M E N T S
+    //=========================================================================================
+
+    public void visit(CallStmt s) {
+        emitCall(s.method.image, s.args);
+        if (type != Void.TYPE)
+            code.op(type == Long.TYPE || type == Double.TYPE ? ClassFile.POP2 : ClassFile.POP, -slots(type));
+    }
+
+    public void visit(CommentStmt s) {
+        // comments produce no code
+    }
+
+    public void visit(DeclStmt s) {
+        Local l = new Local(code.newLocal(), getType(s.type.image));
+        emitExpr(s.init, l.type);
+        code.istore(l.index);
+        variableMap.put(s.name.image, l);
+    }
+
+    public void visit(IfStmt s) {
+        ClassFile.Label elseLabel = new ClassFile.Label();
+        ClassFile.Label endLabel = new ClassFile.Label();
+        emitExpr(s.cond, Boolean.TYPE);
+        code.branch(ClassFile.IFEQ, elseLabel, -1);
+        visitStmtList(s.trueBranch);
+        code.branch(ClassFile.GOTO, endLabel, 0);
+        code.bind(elseLabel);
+        visitStmtList(s.falseBranch);
+        code.bind(endLabel);
+    }
+
+    public void visit(MapAssignStmt s) {
+        getMapRep(s.mapname.image).generateWrite(s.index, s.expr);
+    }
+
+    public void visit(MapBitAssignStmt s) {
+        getMapRep(s.mapname.image).generateBitWrite(s.index, s.bit, s.expr);
+    }
+
+    public void visit(MapBitRangeAssignStmt s) {
+        getMapRep(s.mapname.image).generateBitRangeWrite(s.index, s.low_bit, s.high_bit, s.expr);
+    }
+
+    public void visit(ReturnStmt s) {
+        throw Avrora.failure("return statement not supported in compiled block");
+    }
+
+    public void visit(VarAssignStmt s) {
+        Object var = beginStore(s.variable);
+        emitExpr(s.expr);
+        endStore(var);
+    }
+
+    public void visit(VarBitAssignStmt s) {
+        Object var = beginStore(s.variable);
+        emitLoad(s.variable);
+        emitSetBit(type, s.bit, s.expr);
+        endStore(var);
+    }
+
+    public void visit(VarBitRangeAssignStmt s) {
+        Object var = beginStore(s.variable);
+        emitLoad(s.variable);
+        emitBitRangeInsert(s.low_bit, s.high_bit, s.expr);
+        endStore(var);
+    }
+
+    //=========================================================================================
+    // E X P R E S S I O N S
+    //=========================================================================================
+
+    public void visit(Arith.AddExpr e) {
+        binop(ClassFile.IADD, e.left, e.right);
+    }
+
+    public void visit(Arith.AndExpr e) {
+        binop(ClassFile.IAND, e.left, e.right);
+    }
+
+    public void visit(Arith.CompExpr e) {
+        emitExpr(e.operand, Integer.TYPE);
+        code.iconst(-1);
+        code.op(ClassFile.IXOR, -1);
+        type = Integer.TYPE;
+    }
+
+    public void visit(Arith.DivExpr e) {
+        binop(ClassFile.IDIV, e.left, e.right);
+    }
+
+    public void visit(Arith.MulExpr e) {
+        binop(ClassFile.IMUL, e.left, e.right);
+    }
+
+    public void visit(Arith.NegExpr e) {
+        emitExpr(e.operand, Integer.TYPE);
+        code.op(ClassFile.INEG, 0);
+        type = Integer.TYPE;
+    }
+
+    public void visit(Arith.OrExpr e) {
+        binop(ClassFile.IOR, e.left, e.right);
+    }
+
+    public void visit(Arith.ShiftLeftExpr e) {
+        binop(ClassFile.ISHL, e.left, e.right);
+    }
+
+    public void visit(Arith.ShiftRightExpr e) {
+        binop(ClassFile.ISHR, e.left, e.right);
+    }
+
+    public void visit(Arith.SubExpr e) {
+        binop(ClassFile.ISUB, e.left, e.right);
+    }
+
+    public void visit(Arith.XorExpr e) {
+        binop(ClassFile.IXOR, e.left, e.right);
+    }
+
+    public void visit(BitExpr e) {
+        if (e.expr.isMap()) {
+            MapExpr me = (MapExpr)e.expr;
+            getMapRep(me.mapname.image).generateBitRead(me.index, e.bit);
+        } else {
+            emitExpr(e.expr, Integer.TYPE);
+            emitBitExtract(e.bit);
+        }
+    }
+
+    public void visit(BitRangeExpr e) {
+        emitExpr(e.operand, Integer.TYPE);
+        if (e.low_bit != 0) {
+            code.iconst(e.low_bit);
+            code.op(ClassFile.ISHR, -1);
+        }
+        code.iconst(Arithmetic.getBitRangeMask(e.low_bit, e.high_bit));
+        code.op(ClassFile.IAND, -1);
+        type = Integer.TYPE;
+    }
+
+    public void visit(CallExpr e) {
+        emitCall(e.method.image, e.args);
+    }
+
+    public void visit(ConversionExpr e) {
+        Class t = getType(e.typename.image);
+        emitExpr(e.expr, t);
+        type = t;
+    }
+
+    public void visit(Literal.BoolExpr e) {
+        code.iconst(e.value ? 1 : 0);
+        type = Boolean.TYPE;
+    }
+
+    public void visit(Literal.IntExpr e) {
+        code.iconst(e.value);
+        type = Integer.TYPE;
+    }
+
+    public void visit(Logical.AndExpr e) {
+        ClassFile.Label falseLabel = new ClassFile.Label();
+        ClassFile.Label endLabel = new ClassFile.Label();
+        emitExpr(e.left, Boolean.TYPE);
+        code.branch(ClassFile.IFEQ, falseLabel, -1);
+        emitExpr(e.right, Boolean.TYPE);
+        code.branch(ClassFile.GOTO, endLabel, 0);
+        code.bind(falseLabel);
+        code.iconst(0);
+        code.bind(endLabel);
+        type = Boolean.TYPE;
+    }
+
+    public void visit(Logical.EquExpr e) {
+        compare(ClassFile.IF_ICMPEQ, e.left, e.right);
+    }
+
+    public void visit(Logical.GreaterEquExpr e) {
+        compare(ClassFile.IF_ICMPGE, e.left, e.right);
+    }
+
+    public void visit(Logical.GreaterExpr e) {
+        compare(ClassFile.IF_ICMPGT, e.left, e.right);
+    }
+
+    public void visit(Logical.LessEquExpr e) {
+        compare(ClassFile.IF_ICMPLE, e.left, e.right);
+    }
+
+    public void visit(Logical.LessExpr e) {
+        compare(ClassFile.IF_ICMPLT, e.left, e.right);
+    }
+
+    public void visit(Logical.NequExpr e) {
+        compare(ClassFile.IF_ICMPNE, e.left, e.right);
+    }
+
+    public void visit(Logical.NotExpr e) {
+        emitExpr(e.operand, Boolean.TYPE);
+        code.iconst(1);
+        code.op(ClassFile.IXOR, -1);
+        type = Boolean.TYPE;
+    }
+
+    public void visit(Logical.OrExpr e) {
+        ClassFile.Label trueLabel = new ClassFile.Label();
+        ClassFile.Label endLabel = new ClassFile.Label();
+        emitExpr(e.left, Boolean.TYPE);
+        code.branch(ClassFile.IFNE, trueLabel, -1);
+        emitExpr(e.right, Boolean.TYPE);
+        code.branch(ClassFile.GOTO, endLabel, 0);
+        code.bind(trueLabel);
+        code.iconst(1);
+        code.bind(endLabel);
+        type = Boolean.TYPE;
+    }
+
+    public void visit(Logical.XorExpr e) {
+        emitExpr(e.left, Boolean.TYPE);
+        emitExpr(e.right, Boolean.TYPE);
+        code.op(ClassFile.IXOR, -1);
+        type = Boolean.TYPE;
+    }
+
+    public void visit(MapExpr e) {
+        getMapRep(e.mapname.image).generateRead(e.index);
+    }
+
+    public void visit(VarExpr e) {
+        emitLoad(e.variable);
+    }
+
+    //=========================================================================================
+    // U T I L I T I E S
+    //=========================================================================================
+
+    protected Class emitExpr(Expr e) {
+        e.accept(this);
+        return type;
+    }
+
+    protected void emitExpr(Expr e, Class t) {
+        e.accept(this);
+        coerce(type, t);
+        type = t;
+    }
+
+    protected void binop(int opcode, Expr left, Expr right) {
+        emitExpr(left, Integer.TYPE);
+        emitExpr(right, Integer.TYPE);
+        code.op(opcode, -1);
+        type = Integer.TYPE;
+    }
+
+    protected void compare(int opcode, Expr left, Expr right) {
+        ClassFile.Label trueLabel = new ClassFile.Label();
+        ClassFile.Label endLabel = new ClassFile.Label();
+        // booleans and integers are both compared as integers
+        Class lt = emitExpr(left);
+        emitExpr(right, lt == Boolean.TYPE ? Boolean.TYPE : Integer.TYPE);
+        code.branch(opcode, trueLabel, -2);
+        code.iconst(0);
+        code.branch(ClassFile.GOTO, endLabel, 0);
+        code.bind(trueLabel);
+        code.iconst(1);
+        code.bind(endLabel);
+        type = Boolean.TYPE;
+    }
+
+    /**
+     * The <code>emitBitExtract()</code> method emits code that extracts a single bit from the integer
+     * value on the top of the stack, producing a boolean.
+     * @param b the expression that computes the bit number
+     */
+    protected void emitBitExtract(Expr b) {
+        emitExpr(b, Integer.TYPE);
+        code.op(ClassFile.ISHR, -1);
+        code.iconst(1);
+        code.op(ClassFile.IAND, -1);
+        type = Boolean.TYPE;
+    }
+
+    /**
+     * The <code>emitSetBit()</code> method emits code that sets a single bit of the value on the top of
+     * the stack by calling <code>Arithmetic.setBit()</code>.
+     * @param t the type of the value on the top of the stack
+     * @param b the expression that computes the bit number
+     * @param val the expression that computes the new value of the bit
+     */
+    protected void emitSetBit(Class t, Expr b, Expr val) {
+        emitExpr(b, Integer.TYPE);
+        emitExpr(val, Boolean.TYPE);
+        if (t == Byte.TYPE) {
+            code.invoke(ClassFile.INVOKESTATIC, ARITHMETIC, "setBit", "(BIZ)B");
+        } else {
+            code.invoke(ClassFile.INVOKESTATIC, ARITHMETIC, "setBit", "(IIZ)I");
+            t = Integer.TYPE;
+        }
+        type = t;
+    }
+
+    /**
+     * The <code>emitBitRangeInsert()</code> method emits code that replaces a range of bits in the
+     * integer value on the top of the stack with the value of an expression.
+     * @param l the low bit of the range
+     * @param h the high bit of the range
+     * @param val the expression that computes the new value of the bit range
+     */
+    protected void emitBitRangeInsert(int l, int h, Expr val) {
+        int mask = Arithmetic.getBitRangeMask(l, h);
+        code.iconst(~(mask << l));
+        code.op(ClassFile.IAND, -1);
+        emitExpr(val, Integer.TYPE);
+        code.iconst(mask);
+        code.op(ClassFile.IAND, -1);
+        if (l != 0) {
+            code.iconst(l);
+            code.op(ClassFile.ISHL, -1);
+        }
+        code.op(ClassFile.IOR, -1);
+        type = Integer.TYPE;
+    }
+
+    protected void emitCall(String name, List args) {
+        Method m = getMethod(name, args.size());
+        Class[] ptypes = m.getParameterTypes();
+        if (!Modifier.isStatic(m.getModifiers())) code.aload(INTERPRETER_LOCAL);
+        Iterator i = args.iterator();
+        for (int cntr = 0; i.hasNext(); cntr++)
+            emitExpr((Expr)i.next(), ptypes[cntr]);
+        emitInvoke(m);
+    }
+
+    protected void emitInvoke(Method m) {
+        int opcode = Modifier.isStatic(m.getModifiers()) ? ClassFile.INVOKESTATIC : ClassFile.INVOKEVIRTUAL;
+        code.invoke(opcode, internalName(m.getDeclaringClass()), m.getName(), descriptor(m));
+        type = m.getReturnType();
+    }
+
+    protected void emitField(int opcode, Field f) {
+        code.field(opcode, internalName(f.getDeclaringClass()), f.getName(), descriptor(f.getType()));
+        type = f.getType();
+    }
+
+    protected void emitLoad(Token var) {
+        Local l = (Local)variableMap.get(var.image);
+        if (l != null) {
+            code.iload(l.index);
+            type = l.type;
+        } else {
+            code.aload(INTERPRETER_LOCAL);
+            emitField(ClassFile.GETFIELD, getField(var.image));
+        }
+    }
+
+    /**
+     * The <code>beginStore()</code> method begins a store into a variable. A store into a field of the
+     * interpreter requires that the reference to the interpreter is pushed before the value.
+     * @param var the name of the variable
+     * @return an object representing the variable that must be passed to <code>endStore()</code>
+     */
+    protected Object beginStore(Token var) {
+        Local l = (Local)variableMap.get(var.image);
+        if (l != null) return l;
+        code.aload(INTERPRETER_LOCAL);
+        return getField(var.image);
+    }
+
+    protected void endStore(Object var) {
+        if (var instanceof Local) {
+            Local l = (Local)var;
+            coerce(type, l.type);
+            code.istore(l.index);
+        } else {
+            Field f = (Field)var;
+            coerce(type, f.getType());
+            emitField(ClassFile.PUTFIELD, f);
+        }
+    }
+
+    /**
+     * The <code>coerce()</code> method emits the conversion of a value of one type to another type. Values
+     * of type <code>byte</code>, <code>char</code>, <code>short</code>, <code>int</code> and
+     * <code>boolean</code> are all represented as integers on the operand stack, so only narrowing
+     * conversions require code.
+     * @param from the type of the value on the top of the stack
+     * @param to the type required
+     */
+    protected void coerce(Class from, Class to) {
+        if (from == to) return;
+        if (from == Boolean.TYPE || to == Boolean.TYPE || !from.isPrimitive() || !to.isPrimitive())
+            throw Avrora.failure("cannot convert " + from + " to " + to + " in compiled block");
+        if (to == Byte.TYPE) code.op(ClassFile.I2B, 0);
+        else if (to == Character.TYPE) code.op(146, 0); // i2c
+        else if (to == Short.TYPE) code.op(147, 0); // i2s
+        else if (to != Integer.TYPE) throw Avrora.failure("cannot convert " + from + " to " + to + " in compiled block");
+    }
+
+    protected MapRep getMapRep(String n) {
+        MapRep mr = (MapRep)mapMap.get(n);
+        if (mr == null)
+            throw Avrora.failure("unknown map " + StringUtil.quote(n));
+        return mr;
+    }
+
+    protected static Class getType(String name) {
+        if ("int".equals(name)) return Integer.TYPE;
+        if ("byte".equals(name)) return Byte.TYPE;
+        if ("boolean".equals(name)) return Boolean.TYPE;
+        if ("char".equals(name)) return Character.TYPE;
+        if ("short".equals(name)) return Short.TYPE;
+        throw Avrora.failure("unknown type " + StringUtil.quote(name) + " in compiled block");
+    }
+
+    protected static synchronized Field getField(String name) {
+        Field result = (Field)fieldCache.get(name);
+        if (result == null) {
+            try {
+                result = INTERPRETER.getField(name);
+            } catch (NoSuchFieldException e) {
+                throw Avrora.failure("unknown interpreter field " + StringUtil.quote(name));
+            }
+            fieldCache.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * The <code>getMethod()</code> method finds the public method of the interpreter with the specified name
+     * and number of parameters. The code of instructions only passes primitive values, so methods with
+     * reference parameters are ignored.
+     * @param name the name of the method
+     * @param args the number of arguments
+     * @return a reference to the method
+     */
+    protected static synchronized Method getMethod(String name, int args) {
+        String key = name + '/' + args;
+        Method result = (Method)methodCache.get(key);
+        if (result == null) {
+            result = findMethod(name, args);
+            methodCache.put(key, result);
+        }
+        return result;
+    }
+
+    protected static Method findMethod(String name, int args) {
+        Method[] methods = INTERPRETER.getMethods();
+        Method result = null;
+        for (int cntr = 0; cntr < methods.length; cntr++) {
+            Method m = methods[cntr];
+            if (!m.getName().equals(name)) continue;
+            Class[] ptypes = m.getParameterTypes();
+            if (ptypes.length != args || !allPrimitive(ptypes)) continue;
+            if (result == null || result.getDeclaringClass().isAssignableFrom(m.getDeclaringClass())) result = m;
+        }
+        if (result == null)
+            throw Avrora.failure("unknown interpreter method " + StringUtil.quote(name));
+        return result;
+    }
+
+    protected static boolean allPrimitive(Class[] types) {
+        for (int cntr = 0; cntr < types.length; cntr++)
+            if (!types[cntr].isPrimitive()) return false;
+        return true;
+    }
+
+    protected static int slots(Class t) {
+        if (t == Void.TYPE) return 0;
+        if (t == Long.TYPE || t == Double.TYPE) return 2;
+        return 1;
+    }
+
+    protected static String internalName(Class c) {
+        return c.getName().replace('.', '/');
+    }
+
+    protected static String descriptor(Method m) {
+        StringBuffer buf = new StringBuffer("(");
+        Class[] ptypes = m.getParameterTypes();
+        for (int cntr = 0; cntr < ptypes.length; cntr++) buf.append(descriptor(ptypes[cntr]));
+        buf.append(')');
+        buf.append(descriptor(m.getReturnType()));
+        return buf.toString();
+    }
+
+    protected static String descriptor(Class c) {
+        if (c.isArray()) return internalName(c);
+        if (c == Void.TYPE) return "V";
+        if (c == Integer.TYPE) return "I";
+        if (c == Byte.TYPE) return "B";
+        if (c == Boolean.TYPE) return "Z";
+        if (c == Character.TYPE) return "C";
+        if (c == Short.TYPE) return "S";
+        if (c == Long.TYPE) return "J";
+        if (c == Double.TYPE) return "D";
+        if (c == Float.TYPE) return "F";
+        return 'L' + internalName(c) + ';';
+    }
+}
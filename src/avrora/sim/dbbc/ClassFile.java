@@ -0,0 +1,484 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.dbbc;
+
+import avrora.Avrora;
+
+import java.util.HashMap;
+
+/**
+ * The <code>ClassFile</code> class is a minimal writer for Java class files. It maintains a constant
+ * pool and a list of methods and produces the bytes of a class file that can be defined directly by
+ * a class loader, without going through Java source code and a compiler. The class files have version
+ * 49.0, so that the virtual machine verifies them by type inference and no stack map frames need to be
+ * computed.
+ *
+ * @author Ben L. Titzer
+ */
+public class ClassFile {
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    public static final int ICONST_M1 = 2;
+    public static final int ICONST_0 = 3;
+    public static final int BIPUSH = 16;
+    public static final int SIPUSH = 17;
+    public static final int LDC = 18;
+    public static final int LDC_W = 19;
+    public static final int ILOAD = 21;
+    public static final int ALOAD = 25;
+    public static final int BALOAD = 51;
+    public static final int ISTORE = 54;
+    public static final int BASTORE = 84;
+    public static final int POP = 87;
+    public static final int POP2 = 88;
+    public static final int DUP = 89;
+    public static final int DUP2 = 92;
+    public static final int IADD = 96;
+    public static final int ISUB = 100;
+    public static final int IMUL = 104;
+    public static final int IDIV = 108;
+    public static final int INEG = 116;
+    public static final int ISHL = 120;
+    public static final int ISHR = 122;
+    public static final int IAND = 126;
+    public static final int IOR = 128;
+    public static final int IXOR = 130;
+    public static final int I2B = 145;
+    public static final int IFEQ = 153;
+    public static final int IFNE = 154;
+    public static final int IF_ICMPEQ = 159;
+    public static final int IF_ICMPNE = 160;
+    public static final int IF_ICMPLT = 161;
+    public static final int IF_ICMPGE = 162;
+    public static final int IF_ICMPGT = 163;
+    public static final int IF_ICMPLE = 164;
+    public static final int GOTO = 167;
+    public static final int RETURN = 177;
+    public static final int GETFIELD = 180;
+    public static final int PUTFIELD = 181;
+    public static final int INVOKEVIRTUAL = 182;
+    public static final int INVOKESPECIAL = 183;
+    public static final int INVOKESTATIC = 184;
+    public static final int INVOKEINTERFACE = 185;
+
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Integer = 3;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_Fieldref = 9;
+    private static final int CONSTANT_Methodref = 10;
+    private static final int CONSTANT_InterfaceMethodref = 11;
+    private static final int CONSTANT_NameAndType = 12;
+
+    /**
+     * The <code>Buffer</code> class is a simple growable array of bytes that writes values in the
+     * big-endian format used by class files.
+     */
+    protected static class Buffer {
+        byte[] data = new byte[64];
+        int length;
+
+        void u1(int v) {
+            if (length == data.length) {
+                byte[] ndata = new byte[data.length * 2];
+                System.arraycopy(data, 0, ndata, 0, length);
+                data = ndata;
+            }
+            data[length++] = (byte)v;
+        }
+
+        void u2(int v) {
+            u1(v >> 8);
+            u1(v);
+        }
+
+        void u4(int v) {
+            u2(v >> 16);
+            u2(v);
+        }
+
+        void bytes(Buffer b) {
+            for (int cntr = 0; cntr < b.length; cntr++) u1(b.data[cntr]);
+        }
+
+        void utf(String s) {
+            // the constant pool only contains names and descriptors, which are plain ASCII
+            u2(s.length());
+            for (int cntr = 0; cntr < s.length(); cntr++) u1(s.charAt(cntr));
+        }
+    }
+
+    /**
+     * The <code>Label</code> class represents a position in the code of a method that is the target of
+     * one or more branches. Branches to a label that is not yet bound are patched when the label is bound.
+     */
+    public static class Label {
+        int position = -1;
+        int stack = -1;
+        int[] patches = new int[4];
+        int numPatches;
+
+        void addPatch(int pos) {
+            if (numPatches == patches.length) {
+                int[] npatches = new int[patches.length * 2];
+                System.arraycopy(patches, 0, npatches, 0, numPatches);
+                patches = npatches;
+            }
+            patches[numPatches++] = pos;
+        }
+    }
+
+    /**
+     * The <code>Code</code> class accumulates the bytecode of a single method. It tracks the depth of the
+     * operand stack and the number of local variables so that the maximum values can be recorded in the
+     * class file.
+     */
+    public class Code {
+        protected final Buffer code = new Buffer();
+        protected int stack;
+        protected int maxStack;
+        protected int maxLocals;
+
+        public Code(int locals) {
+            maxLocals = locals;
+        }
+
+        /**
+         * The <code>newLocal()</code> method allocates a new local variable slot in this method.
+         * @return the index of the new local variable
+         */
+        public int newLocal() {
+            return maxLocals++;
+        }
+
+        protected void adjust(int delta) {
+            stack += delta;
+            if (stack > maxStack) maxStack = stack;
+            if (stack < 0) throw Avrora.failure("operand stack underflow in generated code");
+        }
+
+        public void op(int opcode, int delta) {
+            code.u1(opcode);
+            adjust(delta);
+        }
+
+        public void iconst(int val) {
+            if (val >= -1 && val <= 5) code.u1(ICONST_0 + val);
+            else if (val >= -128 && val <= 127) {
+                code.u1(BIPUSH);
+                code.u1(val);
+            } else if (val >= -32768 && val <= 32767) {
+                code.u1(SIPUSH);
+                code.u2(val);
+            } else {
+                int index = integer(val);
+                if (index < 256) {
+                    code.u1(LDC);
+                    code.u1(index);
+                } else {
+                    code.u1(LDC_W);
+                    code.u2(index);
+                }
+            }
+            adjust(1);
+        }
+
+        public void iload(int local) {
+            localOp(ILOAD, 26, local);
+            adjust(1);
+        }
+
+        public void istore(int local) {
+            localOp(ISTORE, 59, local);
+            adjust(-1);
+        }
+
+        public void aload(int local) {
+            localOp(ALOAD, 42, local);
+            adjust(1);
+        }
+
+        protected void localOp(int opcode, int shortOpcode, int local) {
+            if (local < 4) code.u1(shortOpcode + local); // e.g. iload_0 .. iload_3
+            else if (local < 256) {
+                code.u1(opcode);
+                code.u1(local);
+            } else {
+                throw Avrora.failure("too many local variables in generated code");
+            }
+        }
+
+        public void field(int opcode, String owner, String name, String desc) {
+            code.u1(opcode);
+            code.u2(fieldRef(owner, name, desc));
+            int size = slots(desc.charAt(0));
+            if (opcode == GETFIELD) adjust(size - 1);
+            else adjust(-size - 1);
+        }
+
+        public void invoke(int opcode, String owner, String name, String desc) {
+            int args = argumentSlots(desc);
+            int ret = slots(desc.charAt(desc.indexOf(')') + 1));
+            if (opcode != INVOKESTATIC) args++;
+            code.u1(opcode);
+            if (opcode == INVOKEINTERFACE) {
+                code.u2(methodRef(owner, name, desc, true));
+                code.u1(args);
+                code.u1(0);
+            } else {
+                code.u2(methodRef(owner, name, desc, false));
+            }
+            adjust(ret - args);
+        }
+
+        /**
+         * The <code>branch()</code> method emits a branch instruction to the specified label.
+         * @param opcode the opcode of the branch instruction
+         * @param l the label that is the target of the branch
+         * @param delta the change in the depth of the operand stack caused by the branch instruction
+         */
+        public void branch(int opcode, Label l, int delta) {
+            int pos = code.length;
+            code.u1(opcode);
+            code.u2(0);
+            adjust(delta);
+            l.stack = stack;
+            if (l.position >= 0) patch(pos, l.position);
+            else l.addPatch(pos);
+        }
+
+        /**
+         * The <code>bind()</code> method binds the label to the current position in the code. If a branch
+         * to this label has already been emitted, the depth of the operand stack is restored to the depth at
+         * that branch, since the code before the label may end with an unconditional branch.
+         * @param l the label to bind
+         */
+        public void bind(Label l) {
+            l.position = code.length;
+            if (l.stack >= 0) stack = l.stack;
+            for (int cntr = 0; cntr < l.numPatches; cntr++) patch(l.patches[cntr], l.position);
+            l.numPatches = 0;
+        }
+
+        protected void patch(int pos, int target) {
+            int offset = target - pos;
+            if (offset < -32768 || offset > 32767) throw Avrora.failure("branch offset too large in generated code");
+            code.data[pos + 1] = (byte)(offset >> 8);
+            code.data[pos + 2] = (byte)offset;
+        }
+    }
+
+    protected final String className;
+    protected final String superName;
+
+    protected final Buffer pool;
+    protected final HashMap poolMap;
+    protected int poolCount;
+
+    protected final Buffer methods;
+    protected int methodCount;
+
+    /**
+     * The constructor for the <code>ClassFile</code> class creates a new, empty class with the specified
+     * name and super class.
+     *
+     * @param name the internal name of the class (e.g. <code>avrora/sim/dbbc/Block_0x0000</code>)
+     * @param sup the internal name of the super class
+     */
+    public ClassFile(String name, String sup) {
+        className = name;
+        superName = sup;
+        pool = new Buffer();
+        poolMap = new HashMap();
+        poolCount = 1;
+        methods = new Buffer();
+    }
+
+    protected int constant(String key) {
+        Integer i = (Integer)poolMap.get(key);
+        return i == null ? 0 : i.intValue();
+    }
+
+    protected int newConstant(String key) {
+        int index = poolCount++;
+        poolMap.put(key, new Integer(index));
+        return index;
+    }
+
+    public int utf8(String s) {
+        String key = "U" + s;
+        int index = constant(key);
+        if (index > 0) return index;
+        pool.u1(CONSTANT_Utf8);
+        pool.utf(s);
+        return newConstant(key);
+    }
+
+    public int integer(int val) {
+        String key = "I" + val;
+        int index = constant(key);
+        if (index > 0) return index;
+        pool.u1(CONSTANT_Integer);
+        pool.u4(val);
+        return newConstant(key);
+    }
+
+    public int classRef(String name) {
+        String key = "C" + name;
+        int index = constant(key);
+        if (index > 0) return index;
+        int n = utf8(name);
+        pool.u1(CONSTANT_Class);
+        pool.u2(n);
+        return newConstant(key);
+    }
+
+    protected int nameAndType(String name, String desc) {
+        String key = "N" + name + ' ' + desc;
+        int index = constant(key);
+        if (index > 0) return index;
+        int n = utf8(name);
+        int d = utf8(desc);
+        pool.u1(CONSTANT_NameAndType);
+        pool.u2(n);
+        pool.u2(d);
+        return newConstant(key);
+    }
+
+    public int fieldRef(String owner, String name, String desc) {
+        return memberRef(CONSTANT_Fieldref, "F", owner, name, desc);
+    }
+
+    public int methodRef(String owner, String name, String desc, boolean iface) {
+        if (iface) return memberRef(CONSTANT_InterfaceMethodref, "J", owner, name, desc);
+        return memberRef(CONSTANT_Methodref, "M", owner, name, desc);
+    }
+
+    protected int memberRef(int tag, String prefix, String owner, String name, String desc) {
+        String key = prefix + owner + '.' + name + ' ' + desc;
+        int index = constant(key);
+        if (index > 0) return index;
+        int c = classRef(owner);
+        int nt = nameAndType(name, desc);
+        pool.u1(tag);
+        pool.u2(c);
+        pool.u2(nt);
+        return newConstant(key);
+    }
+
+    /**
+     * The <code>addMethod()</code> method adds a method with the specified code to this class.
+     *
+     * @param access the access flags of the method
+     * @param name the name of the method
+     * @param desc the descriptor of the method
+     * @param c the code of the method
+     */
+    public void addMethod(int access, String name, String desc, Code c) {
+        methods.u2(access);
+        methods.u2(utf8(name));
+        methods.u2(utf8(desc));
+        methods.u2(1); // one attribute: the code
+        methods.u2(utf8("Code"));
+        methods.u4(12 + c.code.length);
+        methods.u2(c.maxStack);
+        methods.u2(c.maxLocals);
+        methods.u4(c.code.length);
+        methods.bytes(c.code);
+        methods.u2(0); // no exception handlers
+        methods.u2(0); // no attributes
+        methodCount++;
+    }
+
+    /**
+     * The <code>toByteArray()</code> method produces the bytes of the class file.
+     *
+     * @return an array of bytes that contains the complete class file
+     */
+    public byte[] toByteArray() {
+        int thisIndex = classRef(className);
+        int superIndex = classRef(superName);
+
+        Buffer out = new Buffer();
+        out.u4(0xCAFEBABE);
+        out.u2(0); // minor version
+        out.u2(49); // major version
+        out.u2(poolCount);
+        out.bytes(pool);
+        out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.u2(thisIndex);
+        out.u2(superIndex);
+        out.u2(0); // no interfaces
+        out.u2(0); // no fields
+        out.u2(methodCount);
+        out.bytes(methods);
+        out.u2(0); // no attributes
+
+        byte[] result = new byte[out.length];
+        System.arraycopy(out.data, 0, result, 0, out.length);
+        return result;
+    }
+
+    protected static int slots(char type) {
+        switch (type) {
+            case 'V':
+                return 0;
+            case 'J':
+            case 'D':
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    protected static int argumentSlots(String desc) {
+        int size = 0;
+        int cntr = 1;
+        while (desc.charAt(cntr) != ')') {
+            char c = desc.charAt(cntr);
+            if (c == '[') {
+                size++; // arrays are references
+                while (c == '[') c = desc.charAt(++cntr);
+            } else {
+                size += slots(c);
+            }
+            if (c == 'L') cntr = desc.indexOf(';', cntr);
+            cntr++;
+        }
+        return size;
+    }
+}
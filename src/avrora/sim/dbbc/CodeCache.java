@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.sim.dbbc;
+
+import avrora.Avrora;
+import avrora.util.StringUtil;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * The <code>CodeCache</code> class implements a persistent cache of compiled blocks that is stored in a
+ * single archive file. Entries are keyed by a hash of the contents of the block, so an entry can only be
+ * reused for exactly the same code. The archive begins with an index of all entries, followed by the class
+ * file bytes of each entry, so that it can be loaded with a single read and entries can be found without
+ * scanning the data.
+ *
+ * @author Ben L. Titzer
+ */
+public class CodeCache {
+
+    protected static final int MAGIC = 0x44424243; // "DBBC"
+    // the version changes whenever the compiler generates different code for the same block
+    protected static final int VERSION = 2;
+
+    protected final File file;
+
+    /**
+     * The <code>data</code> field stores the contents of the archive file as it was loaded. The entries of
+     * the index refer to ranges within this array.
+     */
+    protected byte[] data;
+    protected final HashMap index;
+    protected final HashMap added;
+
+    protected static class Entry {
+        final int offset;
+        final int length;
+
+        Entry(int o, int l) {
+            offset = o;
+            length = l;
+        }
+    }
+
+    /**
+     * The constructor for the <code>CodeCache</code> class creates a cache that is stored in the specified
+     * file, optionally loading the entries already present in the file.
+     *
+     * @param f the archive file
+     * @param load true if existing entries in the file should be loaded
+     * @throws IOException if the file exists but cannot be read or is not a valid archive
+     */
+    public CodeCache(File f, boolean load) throws IOException {
+        file = f;
+        index = new HashMap();
+        added = new HashMap();
+        if (load && file.exists()) load();
+    }
+
+    protected void load() throws IOException {
+        DataInputStream dis = new DataInputStream(new FileInputStream(file));
+        try {
+            data = new byte[(int)file.length()];
+            dis.readFully(data);
+        } finally {
+            dis.close();
+        }
+        parse();
+    }
+
+    protected void parse() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC)
+            throw new IOException("invalid code cache " + file);
+        // the blocks of an older version of the compiler are not reused, and are replaced when saved
+        if (in.readInt() != VERSION) return;
+        int count = in.readInt();
+        for (int cntr = 0; cntr < count; cntr++) {
+            String key = in.readUTF();
+            int offset = in.readInt();
+            int length = in.readInt();
+            if (offset < 0 || length < 0 || offset + length > data.length)
+                throw new IOException("corrupt code cache " + file);
+            index.put(key, new Entry(offset, length));
+        }
+    }
+
+    /**
+     * The <code>get()</code> method looks up the class file bytes for a block.
+     *
+     * @param key the hash of the block
+     * @return the bytes of the class file for the block if it is in the cache; null otherwise
+     */
+    public synchronized byte[] get(String key) {
+        byte[] buf = (byte[])added.get(key);
+        if (buf != null) return buf;
+        Entry e = (Entry)index.get(key);
+        if (e == null) return null;
+        buf = new byte[e.length];
+        System.arraycopy(data, e.offset, buf, 0, e.length);
+        return buf;
+    }
+
+    /**
+     * The <code>put()</code> method adds the class file bytes for a newly compiled block to the cache. The
+     * new entries are written to the archive when <code>save()</code> is called.
+     *
+     * @param key the hash of the block
+     * @param buf the bytes of the class file for the block
+     */
+    public synchronized void put(String key, byte[] buf) {
+        if (!index.containsKey(key)) added.put(key, buf);
+    }
+
+    /**
+     * The <code>save()</code> method writes the archive file if any entries have been added since it was
+     * loaded. The archive is written to a temporary file first and then renamed, so that simulations running
+     * concurrently never see a partially written archive.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (added.isEmpty()) return;
+
+        HashMap all = new HashMap();
+        Iterator i = index.keySet().iterator();
+        while (i.hasNext()) {
+            Object key = i.next();
+            all.put(key, get((String)key));
+        }
+        all.putAll(added);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(all.size());
+
+        // compute the size of the index
+        int indexSize = bytes.size();
+        i = all.keySet().iterator();
+        while (i.hasNext()) {
+            String key = (String)i.next();
+            indexSize += 2 + key.length() + 8;
+        }
+
+        // write the index and then the data
+        int offset = indexSize;
+        i = all.keySet().iterator();
+        while (i.hasNext()) {
+            String key = (String)i.next();
+            byte[] buf = (byte[])all.get(key);
+            header.writeUTF(key);
+            header.writeInt(offset);
+            header.writeInt(buf.length);
+            offset += buf.length;
+        }
+        i = all.keySet().iterator();
+        while (i.hasNext()) header.write((byte[])all.get(i.next()));
+        header.close();
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        File tmp = File.createTempFile("dbbc", ".tmp", dir);
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            bytes.writeTo(fos);
+        } finally {
+            fos.close();
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("cannot write code cache " + file);
+            }
+        }
+
+        // the written entries are now part of the archive
+        data = bytes.toByteArray();
+        index.clear();
+        parse();
+        added.clear();
+    }
+
+    /**
+     * The <code>hash()</code> method computes the hash of a string that is used as the key of an entry or
+     * the name of an archive.
+     *
+     * @param s the string to hash
+     * @return a string of hexadecimal digits representing the hash
+     */
+    public static String hash(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(s.getBytes("UTF-8"));
+            StringBuffer buf = new StringBuffer(digest.length * 2);
+            for (int cntr = 0; cntr < digest.length; cntr++)
+                buf.append(StringUtil.toHex(digest[cntr] & 0xff, 2));
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw Avrora.failure("cannot compute hash: " + e);
+        } catch (UnsupportedEncodingException e) {
+            throw Avrora.failure("cannot compute hash: " + e);
+        }
+    }
+}
@@ -40,16 +40,11 @@ import avrora.core.isdl.CodeRegion;
 import avrora.core.isdl.ast.*;
 import avrora.core.isdl.gen.ConstantPropagator;
 import avrora.core.isdl.gen.DeadCodeEliminator;
-import avrora.core.isdl.gen.InterpreterGenerator;
-import avrora.core.isdl.parser.Token;
-import avrora.sim.GenInterpreter;
+import avrora.sim.PredecodedInterpreter;
 import avrora.util.*;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -68,7 +63,7 @@ public class DBBC {
 
     public final Option.Long MINIMUM_BLOCK_SIZE = options.newOption("minimum-block-size", 3,
             "This option specifies the minimum size of basic blocks that will be compiled " +
-            "to Java source code. It is a compiler heuristic to tune performance; small " +
+            "to Java bytecode. It is a compiler heuristic to tune performance; small " +
             "basic blocks may give no (or negative) performance benefit, while large blocks " +
             "might give high benefit.");
     public final Option.Bool USE_REGISTER_ARRAY = options.newOption("use-register-array", true,
@@ -96,30 +91,130 @@ public class DBBC {
             "This option specifies the to dynamic compiler to allow probes to be inserted inside " +
             "basic blocks and to generate the necessary defensive code to allow probes to run inside " +
             "of basic blocks.");
-    public final Option.Bool REUSE_CACHE = options.newOption("reuse-cache", false,
-            "This option specifies that the contents of the compiler cache directory should not be " +
-            "overwritten, and any dynamically generated code already present in that directory should " +
-            "be reused as is.");
+    public final Option.Bool REUSE_CACHE = options.newOption("reuse-cache", true,
+            "This option specifies that compiled code already present in the compiler cache should " +
+            "be reused. When this option is disabled, the cache for the program is rebuilt from scratch. " +
+            "Cached code is only reused for blocks with exactly the same instructions and compiler options.");
     public final Option.Str CACHE_DIRECTORY = options.newOption("cache-directory", "",
-            "This option specifies the directory to which to output the Java source code generated " +
-            "by the dynamic compiler.");
+            "This option specifies the directory in which the dynamic compiler stores compiled code " +
+            "between runs. Each program has its own archive in this directory. When this option is not " +
+            "set, compiled code is not saved.");
+    public final Option.Long COMPILE_THRESHOLD = options.newOption("compile-threshold", 1000,
+            "This option specifies the number of times a basic block must be executed by the " +
+            "interpreter before it is compiled. Blocks that are executed less often are never compiled, " +
+            "which keeps startup fast. A threshold of zero compiles every block before the simulation " +
+            "begins.");
+    public final Option.Bool BACKGROUND_COMPILE = options.newOption("background-compile", true,
+            "This option specifies whether blocks that reach the compile threshold are compiled by a " +
+            "separate compiler thread. When this option is enabled, the simulation continues to interpret " +
+            "a block until its compiled code is ready; otherwise, the simulation waits for the block " +
+            "to be compiled.");
+    public final Option.Long MAXIMUM_TRACE_LENGTH = options.newOption("maximum-trace-length", 8,
+            "This option specifies the maximum number of basic blocks that are compiled together as " +
+            "a single trace. When a block becomes hot, the compiler follows the most frequently executed " +
+            "successor of each block and compiles the sequence of blocks as one unit, with side exits " +
+            "back to the interpreter where execution leaves the trace. A length of one compiles each " +
+            "basic block separately.");
 
     protected final Program program;
     protected final ControlFlowGraph cfg;
     protected final DBBCClassLoader loader;
-    protected final String tmpDir;
 
     protected final HashMap codeBlockMap;
     protected final HashMap compiledCodeMap;
-    private static final Class STRING_ARRAY_CLASS = new String[0].getClass();
+    protected final CodeCache cache;
+
+    /**
+     * The <code>GENERATOR_VERSION</code> field identifies the version of the code generator. It is part of
+     * the key of each block in the persistent cache, and must be changed whenever a change to the compiler
+     * changes the code generated for a block.
+     */
+    protected static final int GENERATOR_VERSION = 2;
+
+    protected final LinkedList compileQueue;
+    protected CompilerThread compilerThread;
+
+    /**
+     * The <code>CompileListener</code> interface is implemented by clients that request a block to be
+     * compiled in the background. When the compiler thread finishes compiling the block, it notifies the
+     * listener.
+     */
+    public interface CompileListener {
+        /**
+         * The <code>blockCompiled()</code> method is called by the compiler thread when the compilation of
+         * a requested block is complete. It should not modify the state of the simulation directly, since
+         * it runs concurrently with the simulation.
+         *
+         * @param addr the byte address of the beginning of the block
+         * @param b the compiled block, or null if the block could not be compiled
+         */
+        public void blockCompiled(int addr, CompiledBlock b);
+    }
+
+    /**
+     * The <code>Profile</code> interface is implemented by clients that record how often each basic block
+     * of the program has been executed. The compiler uses the profile to select the hot successor of each
+     * block when it forms a trace.
+     */
+    public interface Profile {
+        /**
+         * The <code>getCount()</code> method returns the number of times the basic block that begins at the
+         * specified address has been executed.
+         *
+         * @param addr the byte address of the beginning of the basic block
+         * @return the number of executions of the block, or -1 if the block is not profiled and should
+         * not be included in a trace
+         */
+        public long getCount(int addr);
+    }
+
+    protected static class CompileRequest {
+        protected final int[] trace;
+        protected final CompileListener listener;
+
+        CompileRequest(int[] t, CompileListener l) {
+            trace = t;
+            listener = l;
+        }
+    }
+
+    /**
+     * The <code>CompilerThread</code> class implements a thread that compiles blocks requested with
+     * <code>compileLater()</code> in the order they were requested.
+     */
+    protected class CompilerThread extends Thread {
+        CompilerThread() {
+            super("dbbc-compiler");
+            setDaemon(true);
+        }
+
+        public void run() {
+            while (true) {
+                CompileRequest r;
+                synchronized (compileQueue) {
+                    while (compileQueue.isEmpty()) {
+                        try {
+                            compileQueue.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    r = (CompileRequest)compileQueue.removeFirst();
+                }
+                r.listener.blockCompiled(r.trace[0], compileBlock(r.trace));
+            }
+        }
+    }
 
     public static class CodeBlock {
         public final int beginAddr;
+        public final int[] trace;
         public final LinkedList stmts;
         public final int wcet; // worse case execution time
 
-        protected CodeBlock(int a, LinkedList l, int wc) {
-            beginAddr = a;
+        protected CodeBlock(int[] t, LinkedList l, int wc) {
+            beginAddr = t[0];
+            trace = t;
             stmts = l;
             wcet = wc;
         }
@@ -134,7 +229,7 @@ public class DBBC {
             wcet = wc;
         }
 
-        public void execute(GenInterpreter interp) {
+        public void execute(PredecodedInterpreter interp) {
             throw Avrora.failure("cannot execute abstract basic block");
         }
     }
@@ -144,12 +239,99 @@ public class DBBC {
         cfg = p.getCFG();
         loader = new DBBCClassLoader();
         options.process(o);
-        String cd;
-        if ("".equals(cd = CACHE_DIRECTORY.get())) cd = "/tmp";
-        tmpDir = cd;
         codeBlockMap = new HashMap();
         compiledCodeMap = new HashMap();
-        printer.println("Created new compiler for " + program + " to " + tmpDir);
+        compileQueue = new LinkedList();
+        cache = openCache();
+        printer.println("Created new compiler for " + program);
+    }
+
+    /**
+     * The <code>openCache()</code> method opens the persistent cache for this program, if a cache directory
+     * has been specified. The cache is saved when the virtual machine exits.
+     *
+     * @return the cache for this program, or null if there is no persistent cache
+     */
+    protected CodeCache openCache() {
+        String dir = CACHE_DIRECTORY.get();
+        if ("".equals(dir)) return null;
+        File f = new File(dir, "program-" + getProgramHash() + ".dbbc");
+        final CodeCache c;
+        try {
+            c = new CodeCache(f, REUSE_CACHE.get());
+        } catch (IOException e) {
+            printer.println("Cannot load code cache: " + e);
+            return null;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                try {
+                    c.save();
+                } catch (IOException e) {
+                    printer.println("Cannot save code cache: " + e);
+                }
+            }
+        });
+        return c;
+    }
+
+    /**
+     * The <code>saveCache()</code> method writes the blocks that have been compiled since the persistent
+     * cache was opened to its archive. The cache is also saved when the virtual machine exits.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    public void saveCache() throws IOException {
+        if (cache != null) cache.save();
+    }
+
+    /**
+     * The <code>getProgramHash()</code> method computes a hash over all the instructions of the program,
+     * which identifies the archive of the program in the cache directory.
+     *
+     * @return a string that contains the hash of the program
+     */
+    protected String getProgramHash() {
+        StringBuffer buf = new StringBuffer();
+        for (int addr = program.program_start; addr < program.program_end; addr++) {
+            Instr i = program.readInstr(addr);
+            if (i != null) buf.append(addr).append(':').append(i).append('\n');
+        }
+        return CodeCache.hash(buf.toString());
+    }
+
+    /**
+     * The <code>getTraceHash()</code> method computes the key of a trace in the persistent cache. The key
+     * covers the addresses and the instructions of the blocks in the trace, the compiler options that affect
+     * the generated code, and the version of the code generator. The instructions are described by their
+     * canonical textual form, because the program does not retain the encoded bytes of assembled instructions.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @return a string that contains the hash of the trace
+     */
+    protected String getTraceHash(int[] trace) {
+        StringBuffer buf = new StringBuffer();
+        buf.append("v").append(GENERATOR_VERSION);
+        buf.append(" cp=").append(CONSTANT_PROPAGATION.get());
+        buf.append(" dce=").append(DEAD_CODE_ELIMINATION.get());
+        buf.append(" ra=").append(USE_REGISTER_ARRAY.get());
+        buf.append(" cr=").append(CACHE_REGISTERS.get());
+        buf.append(" aru=").append(ALLOW_REGISTER_UPDATES.get());
+        buf.append(" tc=").append(TEMP_COALLESCING.get());
+        buf.append(" ibp=").append(INTRA_BLOCK_PROBING.get());
+        buf.append('\n');
+        for (int cntr = 0; cntr < trace.length; cntr++) {
+            ControlFlowGraph.Block b = cfg.getBlockStartingAt(trace[cntr]);
+            int addr = b.getAddress();
+            buf.append("block ").append(addr).append('\n');
+            Iterator i = b.getInstrIterator();
+            while (i.hasNext()) {
+                Instr instr = (Instr)i.next();
+                buf.append(addr).append(':').append(instr).append('\n');
+                addr += instr.getSize();
+            }
+        }
+        return CodeCache.hash(buf.toString());
     }
 
     public Program getProgram() {
@@ -157,11 +339,8 @@ public class DBBC {
     }
 
     protected class DBBCClassLoader extends ClassLoader {
-        public Class defineClass(File c) throws Exception {
-            FileInputStream fis = new FileInputStream(c);
-            byte[] buf = new byte[fis.available()];
-            fis.read(buf);
-            return super.defineClass(null, buf, 0, buf.length);
+        public Class defineClass(String name, byte[] buf) {
+            return super.defineClass(name, buf, 0, buf.length);
         }
     }
 
@@ -181,50 +360,242 @@ public class DBBC {
      * the specified byte address.
      *
      * @param addr the byte address of the beginning of the basic block to compile
-     * @return a reference to the compiled block of code when complete
+     * @return a reference to the compiled block of code when complete, or null if the block cannot be compiled
      */
     public CompiledBlock getCompiledBlock(int addr) throws Exception {
-        printer.println("Getting CompiledBlock for " + StringUtil.addrToString(addr));
-        CodeBlock block = getCodeBlock(addr);
-        if (block == null) return null;
-        return getCompiledBlock(block);
+        int[] trace = formTrace(addr, null);
+        if (trace == null) return null;
+        return getCompiledBlock(trace);
     }
 
-    public CodeBlock getCodeBlock(int addr) {
-        printer.println("Getting CodeBlock for " + StringUtil.addrToString(addr));
-        int wcet = 0;
+    /**
+     * The <code>getCompiledBlock()</code> method instructs the DBBC to compile a trace of basic blocks. The
+     * compiled code executes the blocks in sequence, leaving the trace early when the program does not
+     * continue with the next block of the trace, or when the interpreter must regain control, e.g. because
+     * an interrupt has been posted.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace, as returned by <code>formTrace()</code>
+     * @return a reference to the compiled trace of code when complete
+     */
+    public synchronized CompiledBlock getCompiledBlock(int[] trace) throws Exception {
+        printer.println("Getting CompiledBlock for " + getTraceName(trace));
+        CompiledBlock cb = (CompiledBlock)compiledCodeMap.get(getTraceName(trace));
+        if (cb != null) return cb;
+        if (cache != null) {
+            String key = getTraceHash(trace);
+            byte[] buf = cache.get(key);
+            if (buf == null) {
+                CodeBlock block = getCodeBlock(trace);
+                buf = generateClassForCode(getClassName(trace), trace[0], block.stmts, block.wcet);
+                cache.put(key, buf);
+            } else {
+                printer.println("Cache hit for " + key);
+            }
+            return defineBlock(trace, buf);
+        }
+        return getCompiledBlock(getCodeBlock(trace));
+    }
+
+    /**
+     * The <code>compileLater()</code> method requests a trace of blocks to be compiled by the background
+     * compiler thread. The listener is notified when the compiled trace is ready.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @param l the listener to notify when the trace has been compiled
+     */
+    public void compileLater(int[] trace, CompileListener l) {
+        synchronized (compileQueue) {
+            if (compilerThread == null) {
+                compilerThread = new CompilerThread();
+                compilerThread.start();
+            }
+            compileQueue.addLast(new CompileRequest(trace, l));
+            compileQueue.notify();
+        }
+    }
+
+    /**
+     * The <code>compileBlock()</code> method compiles a trace of blocks. Unlike <code>getCompiledBlock()</code>,
+     * a failure to compile the trace is reported to the verbose printer rather than thrown, so that the
+     * blocks simply continue to be interpreted.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @return a reference to the compiled trace, or null if it could not be compiled
+     */
+    public CompiledBlock compileBlock(int[] trace) {
+        try {
+            return getCompiledBlock(trace);
+        } catch (Exception e) {
+            printer.println("Compilation of " + getTraceName(trace) + " failed: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * The <code>canCompile()</code> method checks whether the block that begins at the specified address
+     * can be part of compiled code, without generating any code for it. Blocks that are too small to be
+     * compiled on their own may still be compiled as part of a longer trace.
+     *
+     * @param addr the byte address of the beginning of the basic block
+     * @return true if the block can be compiled; false otherwise
+     */
+    public boolean canCompile(int addr) {
         ControlFlowGraph.Block b = cfg.getBlockStartingAt(addr);
+        return b != null && isCompilable(b);
+    }
 
-        CodeBlock nblock = (CodeBlock)codeBlockMap.get(b);
-        if (nblock != null) {
-            printer.println("Cache hit.");
-            return nblock;
+    /**
+     * The <code>formTrace()</code> method selects the sequence of basic blocks that is compiled together,
+     * beginning with the block at the specified address. From each block, the trace follows the successor
+     * that has been executed most often according to the profile, as long as that successor accounts for at
+     * least half of the executions of the block. The trace ends at a block whose successor is not known
+     * statically (e.g. a return), at a block that contains a skip, or when the trace would repeat a block or
+     * exceed the maximum trace length.
+     *
+     * @param addr the byte address of the first basic block of the trace
+     * @param p the execution profile of the blocks, or null to form a trace of a single block
+     * @return the byte addresses of the blocks in the trace, or null if the trace is too small to be compiled
+     */
+    public int[] formTrace(int addr, Profile p) {
+        ControlFlowGraph.Block b = cfg.getBlockStartingAt(addr);
+        if (b == null || !isCompilable(b)) return null;
+
+        LinkedList blocks = new LinkedList();
+        long size = 0;
+        long count = p == null ? 0 : p.getCount(addr);
+        while (true) {
+            blocks.add(b);
+            size += b.getSize();
+            if (p == null || blocks.size() >= MAXIMUM_TRACE_LENGTH.get() || containsSkip(b)) break;
+
+            ControlFlowGraph.Block next = getHotSuccessor(b, p);
+            if (next == null || blocks.contains(next) || !isCompilable(next)) break;
+            long ncount = p.getCount(next.getAddress());
+            if (ncount < 0 || 2 * ncount < count) break;
+            b = next;
+            count = ncount;
         }
 
-        if (b.getSize() < MINIMUM_BLOCK_SIZE.get()) {
-            printer.println("Block " + StringUtil.addrToString(addr) + " is too small: " + b.getSize());
+        if (size < MINIMUM_BLOCK_SIZE.get()) {
+            printer.println("Block " + StringUtil.addrToString(addr) + " is too small: " + size);
             return null;
         }
 
-        LinkedList stmts = new LinkedList();
-        Iterator i = b.getInstrIterator();
-        int curPC = addr;
+        int[] trace = new int[blocks.size()];
+        Iterator i = blocks.iterator();
+        for (int cntr = 0; i.hasNext(); cntr++)
+            trace[cntr] = ((ControlFlowGraph.Block)i.next()).getAddress();
+        return trace;
+    }
+
+    /**
+     * The <code>getHotSuccessor()</code> method selects the successor of a basic block that has been executed
+     * most often. A block that ends with a call always continues with the called procedure, so only the call
+     * edge is considered for such blocks.
+     *
+     * @param b the basic block
+     * @param p the execution profile of the blocks
+     * @return the most frequently executed successor, or null if the block has no statically known successor
+     */
+    protected ControlFlowGraph.Block getHotSuccessor(ControlFlowGraph.Block b, Profile p) {
+        ControlFlowGraph.Block hot = null;
+        long hotCount = -1;
+        boolean call = false;
+        Iterator i = b.getEdgeIterator();
         while (i.hasNext()) {
-            Instr instr = (Instr)i.next();
-            wcet += instr.getCycles();
-            CodeRegion r = CodeMap.getCodeForInstr(curPC, instr);
-            curPC += instr.getSize();
-            if (!i.hasNext()) { // is this the last instruction?
-                // inject an assignment to nextPC
-                stmts.add(new VarAssignStmt("nextPC", new Literal.IntExpr(curPC)));
-                stmts.addAll(r.getCode());
-                stmts.add(new VarAssignStmt("cyclesConsumed",
-                        new Arith.BinOp.AddExpr(new VarExpr("cyclesConsumed"),
-                                new Literal.IntExpr(wcet))));
-            } else {
-                stmts.addAll(r.getCode());
+            ControlFlowGraph.Edge e = (ControlFlowGraph.Edge)i.next();
+            ControlFlowGraph.Block t = e.getTarget();
+            if (t == null) return null;
+            boolean isCall = "CALL".equals(e.getType());
+            if (call && !isCall) continue;
+            long c = p.getCount(t.getAddress());
+            if (isCall && !call || c > hotCount) {
+                hot = t;
+                hotCount = c;
             }
+            call |= isCall;
+        }
+        return hot;
+    }
+
+    public CodeBlock getCodeBlock(int addr) {
+        int[] trace = formTrace(addr, null);
+        if (trace == null) return null;
+        return getCodeBlock(trace);
+    }
 
+    /**
+     * The <code>getCodeBlock()</code> method builds the code for a trace of basic blocks. The code for
+     * each block after the first is nested within a check that the previous block continues with it and
+     * that the interpreter loop has not been interrupted, so that the compiled code returns to the
+     * interpreter as soon as execution leaves the trace. Within a block, the code also returns to the
+     * interpreter after an instruction that accesses a device or enables interrupts, and after bringing
+     * the clock up to date, if the interpreter loop has been interrupted. The optimizations work on the
+     * code of the whole trace.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @return the code for the trace
+     */
+    public synchronized CodeBlock getCodeBlock(int[] trace) {
+        String name = getTraceName(trace);
+        printer.println("Getting CodeBlock for " + name);
+
+        CodeBlock nblock = (CodeBlock)codeBlockMap.get(name);
+        if (nblock != null) {
+            printer.println("Cache hit.");
+            return nblock;
+        }
+
+        LinkedList stmts = new LinkedList();
+        LinkedList cur = stmts;
+        int cycles = 0;
+        int committed = 0;
+        boolean uncommitted = false;
+        for (int cntr = 0; cntr < trace.length; cntr++) {
+            if (cntr > 0) {
+                // continue with the next block only if execution stays on the trace
+                LinkedList next = new LinkedList();
+                Expr cond = new Logical.AndExpr(
+                        new Logical.EquExpr(new VarExpr("nextPC"), new Literal.IntExpr(trace[cntr])),
+                        new VarExpr("innerLoop"));
+                cur.add(new IfStmt(cond, next, new LinkedList()));
+                cur = next;
+            }
+            Iterator i = cfg.getBlockStartingAt(trace[cntr]).getInstrIterator();
+            int curPC = trace[cntr];
+            while (i.hasNext()) {
+                Instr instr = (Instr)i.next();
+                if (uncommitted && accessesMemory(instr)) {
+                    // bring the clock up to date before a device can observe the access
+                    if (cycles > committed) addCycles(cur, cycles - committed);
+                    cur.add(new CallStmt("commitCycles", new LinkedList()));
+                    committed = cycles;
+                    uncommitted = false;
+                    // an event that fired while committing may have posted an interrupt
+                    cur = addExit(cur, curPC);
+                }
+                cycles += instr.getCycles();
+                uncommitted = true;
+                CodeRegion r = CodeMap.getCodeForInstr(curPC, instr);
+                curPC += instr.getSize();
+                if (!i.hasNext() || isSkip(instr)) { // is this the last instruction?
+                    // inject an assignment to nextPC
+                    cur.add(new VarAssignStmt("nextPC", new Literal.IntExpr(curPC)));
+                    cur.addAll(r.getCode());
+                    addCycles(cur, cycles - committed);
+                    committed = cycles;
+                    // a skip ends the compiled block; the interpreter continues at nextPC
+                    break;
+                } else {
+                    cur.addAll(r.getCode());
+                    if (accessesMemory(instr) || enablesInterrupts(instr)) {
+                        // a device may have delayed execution or posted an interrupt
+                        addCycles(cur, cycles - committed);
+                        committed = cycles;
+                        cur = addExit(cur, curPC);
+                    }
+                }
+            }
         }
 
         // canonicalize the statement lists
@@ -238,71 +609,173 @@ public class DBBC {
             stmts = new DeadCodeEliminator(globalMap.keySet()).process(stmts);
         }
 
-        nblock = new CodeBlock(addr, stmts, wcet);
-        codeBlockMap.put(b, nblock);
+        // a conditional branch that continues the trace may take an extra cycle
+        nblock = new CodeBlock(trace, stmts, cycles + trace.length - 1);
+        codeBlockMap.put(name, nblock);
         return nblock;
     }
 
-    protected File generateClassForCode(int addr, List stmts, int wcet) throws Exception {
-        String classname = "Block_" + StringUtil.addrToString(addr);
-        String fname = javaName(classname);
-        File f = new File(fname);
-        FileOutputStream fos = new FileOutputStream(f);
-        Printer p = new Printer(new PrintStream(fos));
-        // neat trick: use the same package as BaseInterpreter to access state fields
-        p.println("package avrora.sim;");
-        p.println("import avrora.util.Arithmetic;");
+    /**
+     * The <code>addExit()</code> method adds a point at which the compiled code returns to the interpreter
+     * if the interpreter loop has been interrupted, e.g. because a device delayed execution or an interrupt
+     * was posted or enabled. The rest of the code is nested within a check of the <code>innerLoop</code>
+     * field, and the interpreter continues at the specified address otherwise.
+     *
+     * @param stmts the list of statements to add the exit to
+     * @param pc the byte address of the next instruction to execute
+     * @return the list of statements to which the rest of the code is added
+     */
+    private LinkedList addExit(LinkedList stmts, int pc) {
+        LinkedList next = new LinkedList();
+        stmts.add(new VarAssignStmt("nextPC", new Literal.IntExpr(pc)));
+        stmts.add(new IfStmt(new VarExpr("innerLoop"), next, new LinkedList()));
+        return next;
+    }
 
-        // generate the class
-        p.startblock("public class " + classname + " extends avrora.sim.dbbc.DBBC.CompiledBlock");
+    private void addCycles(LinkedList stmts, int cycles) {
+        stmts.add(new VarAssignStmt("cyclesConsumed",
+                new Arith.BinOp.AddExpr(new VarExpr("cyclesConsumed"), new Literal.IntExpr(cycles))));
+    }
 
-        // generate constructor
-        p.println("public " + classname + "() { super(" + addr + ", " + wcet + "); }");
+    /**
+     * The <code>isCompilable()</code> method checks whether a basic block can be executed as a whole.
+     * Instructions that stop or suspend the interpreter (e.g. the sleep instruction) must be followed
+     * by a return to the interpreter loop, so blocks that contain them are never compiled.
+     *
+     * @param b the basic block to check
+     * @return true if the block can be compiled; false otherwise
+     */
+    protected boolean isCompilable(ControlFlowGraph.Block b) {
+        Iterator i = b.getInstrIterator();
+        while (i.hasNext()) {
+            Instr instr = (Instr)i.next();
+            if (instr instanceof Instr.SLEEP || instr instanceof Instr.BREAK || instr instanceof Instr.SPM)
+                return false;
+        }
+        return true;
+    }
 
-        // generate the execute method
-        p.startblock("public void execute(avrora.sim.GenInterpreter interpreter)");
+    /**
+     * The <code>accessesMemory()</code> method checks whether an instruction reads or writes data memory
+     * or an IO register other than the status register. The code for such instructions must run with the
+     * clock at the correct time, since devices may observe the access.
+     *
+     * @param instr the instruction to check
+     * @return true if the instruction may access a device; false otherwise
+     */
+    protected boolean accessesMemory(Instr instr) {
+        return instr instanceof Instr.IN || instr instanceof Instr.OUT
+                || instr instanceof Instr.SBI || instr instanceof Instr.CBI
+                || instr instanceof Instr.SBIC || instr instanceof Instr.SBIS
+                || instr instanceof Instr.LD || instr instanceof Instr.LDD || instr instanceof Instr.LDS
+                || instr instanceof Instr.LDPD || instr instanceof Instr.LDPI
+                || instr instanceof Instr.ST || instr instanceof Instr.STD || instr instanceof Instr.STS
+                || instr instanceof Instr.STPD || instr instanceof Instr.STPI;
+    }
+
+    /**
+     * The <code>enablesInterrupts()</code> method checks whether an instruction sets the interrupt flag of
+     * the status register. The interpreter decides when a pending interrupt is taken, so the compiled code
+     * returns to it after such an instruction.
+     *
+     * @param instr the instruction to check
+     * @return true if the instruction enables interrupts; false otherwise
+     */
+    protected boolean enablesInterrupts(Instr instr) {
+        return instr instanceof Instr.SEI || instr instanceof Instr.BSET && ((Instr.BSET)instr).imm1 == 7;
+    }
 
-        CodeGenerator gen = new CodeGenerator(p);
-        gen.visitStmtList(stmts);
+    /**
+     * The <code>isSkip()</code> method checks whether an instruction conditionally skips the next
+     * instruction. The control flow graph does not end basic blocks at skips, so the compiled code
+     * for a block must end after the skip instruction.
+     *
+     * @param instr the instruction to check
+     * @return true if the instruction is a skip instruction; false otherwise
+     */
+    protected boolean isSkip(Instr instr) {
+        return instr instanceof Instr.CPSE || instr instanceof Instr.SBRC || instr instanceof Instr.SBRS
+                || instr instanceof Instr.SBIC || instr instanceof Instr.SBIS;
+    }
 
-        // end execute method
-        p.endblock();
+    /**
+     * The <code>containsSkip()</code> method checks whether a basic block contains a skip instruction. The
+     * compiled code ends after a skip, so a trace cannot continue beyond such a block.
+     *
+     * @param b the basic block to check
+     * @return true if the block contains a skip instruction; false otherwise
+     */
+    protected boolean containsSkip(ControlFlowGraph.Block b) {
+        Iterator i = b.getInstrIterator();
+        while (i.hasNext()) {
+            if (isSkip((Instr)i.next())) return true;
+        }
+        return false;
+    }
 
-        // end class
-        p.endblock();
-        fos.close();
-        return f;
+    /**
+     * The <code>generateClassForCode()</code> method generates the bytes of a class file that implements
+     * the specified code block. The class extends <code>CompiledBlock</code> and its <code>execute()</code>
+     * method contains the bytecode for the statements of the block.
+     *
+     * @param cname the name of the class to generate
+     * @param addr the address of the beginning of the block
+     * @param stmts the list of statements that comprise the code of the block
+     * @param wcet the worst case execution time of the block in cycles
+     * @return an array of bytes that contains the class file
+     */
+    protected byte[] generateClassForCode(String cname, int addr, List stmts, int wcet) {
+        String sup = "avrora/sim/dbbc/DBBC$CompiledBlock";
+        ClassFile cf = new ClassFile(cname.replace('.', '/'), sup);
+
+        // generate constructor
+        ClassFile.Code init = cf.new Code(1);
+        init.aload(0);
+        init.iconst(addr);
+        init.iconst(wcet);
+        init.invoke(ClassFile.INVOKESPECIAL, sup, "<init>", "(II)V");
+        init.op(ClassFile.RETURN, 0);
+        cf.addMethod(ClassFile.ACC_PUBLIC, "<init>", "()V", init);
+
+        // generate the execute method
+        ClassFile.Code exec = cf.new Code(2);
+        new BytecodeGenerator(exec).visitStmtList(stmts);
+        exec.op(ClassFile.RETURN, 0);
+        cf.addMethod(ClassFile.ACC_PUBLIC, "execute", "(Lavrora/sim/PredecodedInterpreter;)V", exec);
+
+        return cf.toByteArray();
     }
 
-    public CompiledBlock getCompiledBlock(CodeBlock b) throws Exception {
-        CompiledBlock cb = (CompiledBlock)compiledCodeMap.get(b);
+    public synchronized CompiledBlock getCompiledBlock(CodeBlock b) throws Exception {
+        CompiledBlock cb = (CompiledBlock)compiledCodeMap.get(getTraceName(b.trace));
         if (cb != null) return cb;
-        File f = generateClassForCode(b.beginAddr, b.stmts, b.wcet);
-        File c = compileGeneratedCode(f);
-        Class cf = loader.defineClass(c);
-        // TODO: investigate whether this makes much difference
-        Compiler.compileClass(cf);
-        cb = (CompiledBlock)cf.newInstance();
-        compiledCodeMap.put(b, cb);
-        return cb;
+        byte[] buf = generateClassForCode(getClassName(b.trace), b.beginAddr, b.stmts, b.wcet);
+        return defineBlock(b.trace, buf);
     }
 
-    protected File compileGeneratedCode(File f) throws Exception {
-        String name = f.toString();
-        String[] args = {name};
+    protected CompiledBlock defineBlock(int[] trace, byte[] buf) throws Exception {
+        Class cf = loader.defineClass(getClassName(trace), buf);
+        CompiledBlock cb = (CompiledBlock)cf.newInstance();
+        compiledCodeMap.put(getTraceName(trace), cb);
+        return cb;
+    }
 
-        // TODO: generate a nicer error message for failure to find Javac
-        Class javac = Class.forName("com.sun.tools.javac.Main");
-        Class sac = STRING_ARRAY_CLASS;
-        Method m = javac.getMethod("compile", new Class[]{sac});
-        Object r = m.invoke(null, new Object[]{args});
-        int result = ((Integer)r).intValue();
+    protected String getClassName(int[] trace) {
+        return "avrora.sim.dbbc.Block_" + getTraceName(trace);
+    }
 
-        if (result != 0)
-            throw Avrora.failure("DBBC failed to compile: " + f.toString());
-        String cname = name.replaceAll(".java", ".class");
-        File c = new File(cname);
-        return c;
+    /**
+     * The <code>getTraceName()</code> method returns a string that identifies a trace, consisting of the
+     * addresses of its blocks.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @return a string that identifies the trace
+     */
+    protected String getTraceName(int[] trace) {
+        StringBuffer buf = new StringBuffer(StringUtil.addrToString(trace[0]));
+        for (int cntr = 1; cntr < trace.length; cntr++)
+            buf.append('_').append(StringUtil.addrToString(trace[cntr]));
+        return buf.toString();
     }
 
     static {
@@ -324,41 +797,4 @@ public class DBBC {
     protected static void add(String s) {
         globalMap.put(s, "interpreter." + s);
     }
-
-
-    protected class CodeGenerator extends InterpreterGenerator {
-        int tmps;
-
-        CodeGenerator(Printer p) {
-            super(null, p);
-            variableMap = new HashMap();
-        }
-
-        public void visit(DeclStmt s) {
-            variableMap.put(s.name.toString(), newTemp());
-            super.visit(s);
-        }
-
-        protected String newTemp() {
-            return "temp_" + (tmps++);
-        }
-
-        protected String getMethod(String s) {
-            return "interpreter." + s;
-        }
-
-        protected String getVariable(Token t) {
-            String var = (String)variableMap.get(t.image);
-            if (var == null) var = "interpreter." + t.image;
-            return var;
-        }
-    }
-
-    protected String javaName(String cname) {
-        return tmpDir + File.separatorChar + cname + ".java";
-    }
-
-    protected String className(String cname) {
-        return tmpDir + File.separatorChar + cname + ".class";
-    }
 }
@@ -35,27 +35,60 @@ package avrora.sim.dbbc;
 import avrora.Avrora;
 import avrora.core.*;
 import avrora.sim.BaseInterpreter;
-import avrora.sim.GenInterpreter;
 import avrora.sim.InterpreterFactory;
+import avrora.sim.PredecodedInterpreter;
 import avrora.sim.Simulator;
 import avrora.sim.mcu.MicrocontrollerProperties;
+import avrora.util.Options;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 
 /**
+ * The <code>DBBCInterpreter</code> class is an interpreter that uses the dynamic basic block compiler
+ * (DBBC) to compile the frequently executed basic blocks of the program to Java bytecode. The interpreter
+ * counts the executions of each basic block. When a block reaches the compile threshold, the compiler forms
+ * a trace that begins with the block and follows the most frequently executed successors, and compiles the
+ * trace, normally in a background thread. Each compiled trace is installed into the shared instruction array
+ * of the flash, replacing the first instruction of its first block. When the trace is reached and no event
+ * can fire before the trace completes, the whole trace is executed at once; otherwise the interpreter falls
+ * back to executing the block one instruction at a time.
+ *
  * @author Ben L. Titzer
  */
-public class DBBCInterpreter extends GenInterpreter {
+public class DBBCInterpreter extends PredecodedInterpreter implements DBBC.Profile {
 
+    /**
+     * The <code>Factory</code> class implements an interpreter factory that creates a new
+     * <code>DBBCInterpreter</code> for each node. One compiler is shared between all the nodes that
+     * run the same program, so each block of a program is compiled only once.
+     */
     public static final class Factory extends InterpreterFactory {
 
-        protected final DBBC compiler;
+        protected final Options options;
+        protected final HashMap compilers;
+
+        public Factory() {
+            options = new Options();
+            compilers = new HashMap();
+        }
 
         public Factory(DBBC comp) {
-            compiler = comp;
+            this();
+            compilers.put(comp.getProgram(), comp);
+        }
+
+        public void processOptions(Options o) {
+            options.process(o);
         }
 
         public BaseInterpreter newInterpreter(Simulator s, Program p, MicrocontrollerProperties pr) {
+            DBBC compiler = (DBBC)compilers.get(p);
+            if (compiler == null) {
+                compiler = new DBBC(p, options);
+                compilers.put(p, compiler);
+            }
             return new DBBCInterpreter(compiler, s, p, pr);
         }
     }
@@ -63,46 +96,131 @@ public class DBBCInterpreter extends GenInterpreter {
     DBBC compiler;
     Program program;
 
-    class CompiledBlockBeginInstr extends Instr {
+    /**
+     * The <code>blockMap</code> field stores, for each address in the flash, a reference to the profiled
+     * or compiled block that covers the address, if there is one.
+     */
+    BlockInstr[] blockMap;
+
+    /**
+     * The <code>traces</code> field stores a list of the installed block instructions whose compiled code
+     * covers more than one basic block. A probe inserted into any of the blocks of such a trace removes
+     * the trace.
+     */
+    LinkedList traces;
+
+    /**
+     * The <code>watched</code> field records whether any memory or IO register watch has been inserted.
+     * Compiled blocks only commit their cycles at the end of the block, so watches would observe the
+     * wrong time; when there are watches, all blocks are interpreted one instruction at a time.
+     */
+    boolean watched;
+
+    /**
+     * The <code>threshold</code> field stores the number of executions of a block after which the block
+     * is compiled.
+     */
+    final long threshold;
+
+    /**
+     * The <code>BlockInstr</code> class is the base class of the instructions that are installed at the
+     * beginning of a basic block in place of the original instruction. Such an instruction covers the
+     * whole basic block, so that it can be removed when a probe is inserted anywhere in the block. The
+     * instruction also records the number of executions of the block, which the compiler uses to form
+     * traces, and the trace of blocks that is compiled starting at this block.
+     */
+    abstract class BlockInstr extends Instr {
         protected final int address;
+        protected final int lastAddress;
         protected final Instr instr;
-        protected final InstrVisitor interpreter;
-        protected final DBBC.CompiledBlock block;
+        protected long count;
+        protected int[] trace;
 
-
-        protected CompiledBlockBeginInstr(Instr i, int a, DBBC.CompiledBlock b, InstrVisitor interp) {
+        protected BlockInstr(Instr i, int a, int l) {
             super(new InstrProperties(i.properties.name, i.properties.variant, i.properties.size, 0));
             instr = i;
             address = a;
+            lastAddress = l;
+        }
+
+        public Instr build(int address, Operand[] ops) {
+            return instr.build(address, ops);
+        }
+
+        public String getOperands() {
+            return instr.getOperands();
+        }
+
+        public Instr asInstr() {
+            return instr;
+        }
+    }
+
+    /**
+     * The <code>ProfiledBlockInstr</code> class counts the executions of a basic block that has not yet been
+     * compiled. When the count reaches the compile threshold, the block is submitted to the compiler. The
+     * compiled block is installed by the simulation thread the next time the block is executed, so that
+     * the shared instruction array is only ever updated by the thread that executes it.
+     */
+    class ProfiledBlockInstr extends BlockInstr implements DBBC.CompileListener {
+        protected volatile DBBC.CompiledBlock compiled;
+
+        protected ProfiledBlockInstr(Instr i, int a, int l) {
+            super(i, a, l);
+        }
+
+        public void accept(InstrVisitor v) {
+            if (v == DBBCInterpreter.this) {
+                DBBC.CompiledBlock cb = compiled;
+                if (cb != null) {
+                    compiled = null;
+                    if (isInstalled(trace)) {
+                        // the compiler has finished; install and execute the compiled block
+                        replaceBlock(this, new CompiledBlockBeginInstr(this, cb)).accept(v);
+                        return;
+                    }
+                    // a block of the trace has been probed in the meantime; profile the block again
+                    count = 0;
+                }
+                if (++count == threshold) compile(this);
+            }
+            instr.accept(v);
+        }
+
+        public void blockCompiled(int addr, DBBC.CompiledBlock b) {
+            compiled = b;
+        }
+    }
+
+    class CompiledBlockBeginInstr extends BlockInstr {
+        protected final DBBC.CompiledBlock block;
+
+        protected CompiledBlockBeginInstr(Instr i, int a, int l, int[] t, DBBC.CompiledBlock b) {
+            super(i, a, l);
+            trace = t;
             block = b;
-            interpreter = interp;
+        }
+
+        protected CompiledBlockBeginInstr(ProfiledBlockInstr pi, DBBC.CompiledBlock b) {
+            this(pi.instr, pi.address, pi.lastAddress, pi.trace, b);
+            count = pi.count;
         }
 
         public void accept(InstrVisitor v) {
 
-            if (v == interpreter) {
+            if (v == DBBCInterpreter.this && !watched && globalProbe.isEmpty()) {
                 long headDelta = clock.getFirstEventDelta();
 
                 if (headDelta < 0 || block.wcet < headDelta) {
                     // there is no event that could happen in the middle of this block
                     block.execute(DBBCInterpreter.this);
-                } else {
-                    // an event will happen during this block's execution--simply execute one instruction
-                    instr.accept(interpreter);
+                    return;
                 }
-            } else {
-                instr.accept(v);
             }
-        }
-
-        public Instr build(int address, Operand[] ops) {
-            return instr.build(address, ops);
-        }
 
-        public String getOperands() {
-            return instr.getOperands();
+            // an event will happen during this block's execution--simply execute one instruction
+            instr.accept(v);
         }
-
     }
 
 
@@ -111,6 +229,9 @@ public class DBBCInterpreter extends GenInterpreter {
 
         compiler = comp;
         program = p;
+        threshold = comp.COMPILE_THRESHOLD.get();
+        blockMap = new BlockInstr[shared_instr.length];
+        traces = new LinkedList();
 
         try {
             compileProgram();
@@ -120,18 +241,212 @@ public class DBBCInterpreter extends GenInterpreter {
         }
     }
 
+    /**
+     * The <code>compileProgram()</code> method prepares the basic blocks of the program for compilation.
+     * If the compile threshold is zero, every block is compiled immediately by itself; otherwise, each block
+     * that can be compiled is instrumented to count its executions.
+     */
     protected void compileProgram() throws Exception {
         ControlFlowGraph cfg = program.getCFG();
         Iterator i = cfg.getSortedBlockIterator();
         while (i.hasNext()) {
             ControlFlowGraph.Block b = (ControlFlowGraph.Block)i.next();
             int addr = b.getAddress();
-            DBBC.CompiledBlock cb = compiler.getCompiledBlock(addr);
-            if (cb != null) {
-                throw Avrora.unimplemented();
-                //flash_instr[addr] = new CompiledBlockBeginInstr(flash_instr[addr], addr, cb, this);
+            if (!compiler.canCompile(addr) || !isUnmodified(b)) continue;
+            if (threshold <= 0) {
+                int[] trace = compiler.formTrace(addr, null);
+                if (trace == null) continue;
+                DBBC.CompiledBlock cb = compiler.getCompiledBlock(trace);
+                installBlock(new CompiledBlockBeginInstr(shared_instr[addr], addr, b.getLastAddress(), trace, cb));
+            } else {
+                installBlock(new ProfiledBlockInstr(shared_instr[addr], addr, b.getLastAddress()));
             }
         }
     }
 
+    /**
+     * The <code>compile()</code> method forms a trace beginning with a block that has reached the compile
+     * threshold and submits it to the compiler, either in the background or immediately, depending on the
+     * compiler's options.
+     *
+     * @param pi the profiled block to compile
+     */
+    protected void compile(ProfiledBlockInstr pi) {
+        int[] trace = compiler.formTrace(pi.address, this);
+        if (trace == null) return;
+        pi.trace = trace;
+        if (compiler.BACKGROUND_COMPILE.get()) compiler.compileLater(trace, pi);
+        else pi.blockCompiled(pi.address, compiler.compileBlock(trace));
+    }
+
+    /**
+     * The <code>getCount()</code> method returns the number of times the basic block that begins at the
+     * specified address has been executed by the interpreter. Blocks that are not profiled, e.g. because
+     * they contain a probe, are reported with a count of -1 so that they are never included in a trace.
+     *
+     * @param addr the byte address of the beginning of the basic block
+     * @return the number of executions of the block, or -1 if the block is not profiled
+     */
+    public long getCount(int addr) {
+        BlockInstr bi = blockMap[addr];
+        if (bi == null || bi.address != addr) return -1;
+        return bi.count;
+    }
+
+    /**
+     * The <code>isInstalled()</code> method checks whether every block of a trace still has a block
+     * instruction installed, i.e. no probe has been inserted into any of the blocks since the trace was
+     * formed.
+     *
+     * @param trace the byte addresses of the basic blocks in the trace
+     * @return true if all the blocks of the trace are installed; false otherwise
+     */
+    protected boolean isInstalled(int[] trace) {
+        for (int cntr = 0; cntr < trace.length; cntr++) {
+            if (getCount(trace[cntr]) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The <code>isUnmodified()</code> method checks whether every instruction of a basic block is a plain
+     * instruction in the shared instruction array, i.e. none of them is probed or has been updated since
+     * the program was loaded.
+     *
+     * @param b the basic block in the control flow graph
+     * @return true if the block is unmodified; false otherwise
+     */
+    protected boolean isUnmodified(ControlFlowGraph.Block b) {
+        Iterator i = b.getInstrIterator();
+        int pos = b.getAddress();
+        while (i.hasNext()) {
+            Instr instr = (Instr)i.next();
+            if (shared_instr[pos] != instr) return false;
+            pos += instr.getSize();
+        }
+        return true;
+    }
+
+    /**
+     * The <code>installBlock()</code> method installs a block instruction into the shared instruction array
+     * of the flash at the beginning of its basic block.
+     *
+     * @param bi the block instruction to install
+     * @return true if the block was installed; false if the block overlaps another block
+     */
+    protected boolean installBlock(BlockInstr bi) {
+        for (int cntr = bi.address; cntr <= bi.lastAddress; cntr++) {
+            if (blockMap[cntr] != null) return false;
+        }
+        for (int cntr = bi.address; cntr <= bi.lastAddress; cntr++)
+            blockMap[cntr] = bi;
+        shared_instr[bi.address] = bi;
+        return true;
+    }
+
+    /**
+     * The <code>replaceBlock()</code> method replaces an installed block instruction with a new one that
+     * covers the same basic block.
+     *
+     * @param old the block instruction currently installed
+     * @param bi the new block instruction
+     * @return the new block instruction
+     */
+    protected BlockInstr replaceBlock(BlockInstr old, BlockInstr bi) {
+        for (int cntr = bi.address; cntr <= bi.lastAddress; cntr++)
+            blockMap[cntr] = bi;
+        if (shared_instr[bi.address] == old)
+            shared_instr[bi.address] = bi;
+        traces.remove(old);
+        if (bi.trace != null && bi.trace.length > 1) traces.add(bi);
+        return bi;
+    }
+
+    /**
+     * The <code>removeBlock()</code> method removes the block instruction that covers the specified address
+     * from the flash, restoring the original instruction at the beginning of the block.
+     *
+     * @param addr the address for which the enclosing block should be removed
+     */
+    protected void removeBlock(int addr) {
+        BlockInstr bi = blockMap[addr];
+        if (bi != null) uninstallBlock(bi);
+    }
+
+    /**
+     * The <code>removeTraces()</code> method removes the compiled traces whose code covers the specified
+     * address in one of the blocks after their first block.
+     *
+     * @param addr the address for which the enclosing traces should be removed
+     */
+    protected void removeTraces(int addr) {
+        ControlFlowGraph cfg = program.getCFG();
+        Iterator i = new LinkedList(traces).iterator();
+        while (i.hasNext()) {
+            BlockInstr bi = (BlockInstr)i.next();
+            for (int cntr = 1; cntr < bi.trace.length; cntr++) {
+                ControlFlowGraph.Block b = cfg.getBlockStartingAt(bi.trace[cntr]);
+                if (addr >= b.getAddress() && addr <= b.getLastAddress()) {
+                    uninstallBlock(bi);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * The <code>uninstallBlock()</code> method removes an installed block instruction from the flash,
+     * restoring the original instruction at the beginning of its block.
+     *
+     * @param bi the block instruction to remove
+     */
+    protected void uninstallBlock(BlockInstr bi) {
+        for (int cntr = bi.address; cntr <= bi.lastAddress; cntr++)
+            blockMap[cntr] = null;
+        if (shared_instr[bi.address] == bi)
+            shared_instr[bi.address] = bi.instr;
+        traces.remove(bi);
+    }
+
+    /**
+     * The <code>insertProbe()</code> method inserts a probe on an instruction. Compiled blocks do not
+     * support probes on the instructions they contain, so the block containing the instruction and any
+     * trace that contains the block are removed, and the instructions of the block are interpreted
+     * individually.
+     *
+     * @param p the probe to insert on an instruction
+     * @param addr the address of the instruction on which to insert the probe
+     */
+    protected void insertProbe(Simulator.Probe p, int addr) {
+        removeBlock(addr);
+        removeTraces(addr);
+        super.insertProbe(p, addr);
+    }
+
+    /**
+     * The <code>replacedInstr()</code> method is called when the instruction at the specified address in
+     * the flash is replaced, e.g. when the program reprograms the flash. The compiled code of the block
+     * containing the instruction and of any trace that contains the block no longer matches the flash, so
+     * they are removed, and the instructions of the block are interpreted individually.
+     *
+     * @param address the address of the instruction that was replaced
+     */
+    protected void replacedInstr(int address) {
+        if (blockMap != null) {
+            removeBlock(address);
+            removeTraces(address);
+        }
+        super.replacedInstr(address);
+    }
+
+    protected void insertWatch(Simulator.Watch p, int data_addr) {
+        watched = true;
+        super.insertWatch(p, data_addr);
+    }
+
+    protected void insertIORWatch(Simulator.IORWatch p, int ioreg_num) {
+        watched = true;
+        super.insertIORWatch(p, ioreg_num);
+    }
+
 }
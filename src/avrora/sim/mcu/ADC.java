@@ -253,12 +253,12 @@ public class ADC extends AtmelInternalDevice {
 
         int prescalerDivider = 2;
 
-        final ControlRegister.Conversion conversion;
+        final Deadline conversion;
 
         byte oldVal;
 
         ControlRegister() {
-            conversion = new ControlRegister.Conversion();
+            conversion = new Deadline(new ControlRegister.Conversion());
         }
 
         public void write(byte nval) {
@@ -270,9 +270,9 @@ public class ADC extends AtmelInternalDevice {
             prescalerDivider = PRESCALER[(nval & 0x7)];
 
             if (aden && adsc && !Arithmetic.getBit(oldVal, ADSC) && !firing) {
-                // queue event for converting
+                // schedule the completion of the conversion
                 firing = true;
-                mainClock.insertEvent(conversion, prescalerDivider * 13);
+                conversion.start(prescalerDivider * 13);
             }
 
             oldVal = nval;
@@ -94,4 +94,65 @@ public abstract class AtmelInternalDevice {
         return mainClock;
     }
 
+    /**
+     * The <code>Deadline</code> class represents a device operation, such as an EEPROM write, an ADC
+     * conversion, or an SPI transfer, that completes a fixed number of cycles after it is started. Only
+     * the completion instant is scheduled as an event on the main clock; whether the operation is still
+     * busy is computed from the clock when a status bit is read, so that a device never needs to tick
+     * cycle by cycle while an operation is in progress. A deadline without a completion event is simply
+     * a timeout that is only ever polled.
+     */
+    protected class Deadline {
+
+        protected final Clock.EventHandle completion;
+        protected long time = -1;
+
+        /**
+         * The constructor for the <code>Deadline</code> class creates a new deadline that fires the
+         * specified event when the operation completes.
+         * @param e the event to fire on completion; null if the deadline is only polled
+         */
+        protected Deadline(Simulator.Event e) {
+            completion = e == null ? null : mainClock.newEventHandle(e);
+        }
+
+        /**
+         * The <code>start()</code> method starts the operation, replacing any operation that is still
+         * in progress. The completion event, if any, fires the specified number of cycles from now.
+         * @param cycles the number of cycles until the operation completes
+         */
+        public void start(long cycles) {
+            time = mainClock.getCount() + cycles;
+            if (completion != null) completion.schedule(cycles);
+        }
+
+        /**
+         * The <code>cancel()</code> method aborts the operation in progress, if any, without firing
+         * its completion event.
+         */
+        public void cancel() {
+            time = -1;
+            if (completion != null) completion.cancel();
+        }
+
+        /**
+         * The <code>isBusy()</code> method checks whether the operation has been started and has not
+         * yet completed. During the firing of the completion event, the operation is no longer busy.
+         * @return true if the operation is still in progress at the current time
+         */
+        public boolean isBusy() {
+            return mainClock.getCount() < time;
+        }
+
+        /**
+         * The <code>getRemaining()</code> method computes the number of cycles until the operation
+         * completes.
+         * @return the number of cycles remaining until completion; zero if the operation is not busy
+         */
+        public long getRemaining() {
+            long remaining = time - mainClock.getCount();
+            return remaining > 0 ? remaining : 0;
+        }
+    }
+
 }
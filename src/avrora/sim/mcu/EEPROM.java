@@ -34,6 +34,7 @@ package avrora.sim.mcu;
 
 import avrora.sim.RWRegister;
 import avrora.sim.Simulator;
+import avrora.util.Arithmetic;
 
 /**
  * This is an implementation of the non-volatile EEPROM on the ATMega128 microcontroller.
@@ -64,16 +65,15 @@ public class EEPROM extends AtmelInternalDevice {
 
     static final int EEPROM_INTERRUPT = 23;
 
+    // the number of cycles after EEMWE is set during which setting EEWE writes the EEPROM
+    static final int MASTER_WRITE_CYCLES = 4;
+
     boolean interruptEnable;
     boolean masterWriteEnable;
     boolean writeEnable;
     boolean readEnable;
 
-    final EEPROMTicker ticker;
-
-    int writeCount = -1;
-    boolean writeEnableWritten;
-    boolean readEnableWritten;
+    final Deadline masterWrite;
 
     // at some point, we might want to add support for
     // initializing the EEPROM with a file or something
@@ -82,7 +82,7 @@ public class EEPROM extends AtmelInternalDevice {
     EEPROM(int size, AtmelMicrocontroller m) {
         super("eeprom", m);
 
-        ticker = new EEPROMTicker();
+        masterWrite = new Deadline(new WriteCompletion());
 
         EEDR_reg = new RWRegister();
         EECR_reg = new EECRReg();
@@ -100,112 +100,82 @@ public class EEPROM extends AtmelInternalDevice {
     }
 
     protected class EEARHReg extends RWRegister {
-        public void write(byte val) {
-            // TODO: this code has no effect!
-            value = (byte)(0xff & val);
-            mainClock.insertEvent(ticker, 1);
-        }
-
         public void writeBit(int bit, boolean val) {
             if (bit < 4) {
                 super.writeBit(bit, val);
             }
-            mainClock.insertEvent(ticker, 1);
         }
 
     }
 
+    /**
+     * The <code>EECRReg</code> class implements the EEPROM control register. Setting EEMWE opens a window of
+     * a few cycles in which setting EEWE writes the EEPROM; EEWE is cleared when the window closes, which
+     * is the only event that the EEPROM schedules.
+     */
     protected class EECRReg extends RWRegister {
 
-        public void decode(byte val) {
-            boolean readEnableOld = readEnable;
-            readEnable = readBit(EERE);
-            if (!readEnableOld && readEnable) {
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: EERE flagged");
-                readEnableWritten = true;
-            }
-            boolean writeEnableOld = writeEnable;
-            writeEnable = readBit(EEWE);
-            if (!writeEnableOld && writeEnable) {
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: EEWE flagged");
-                writeEnableWritten = true;
-            }
-            masterWriteEnable = readBit(EEMWE);
-            interruptEnable = readBit(EERIE);
-            interpreter.setEnabled(EEPROM_INTERRUPT, interruptEnable);
-            interpreter.setPosted(EEPROM_INTERRUPT, !writeEnable);
-            mainClock.insertEvent(ticker, 1);
-        }
-
         public void write(byte val) {
-
-            boolean masterWriteEnableOld = masterWriteEnable;
+            byte oldVal = value;
             value = (byte)(0xff & val);
             if (devicePrinter.enabled) devicePrinter.println("EEPROM: EECR written to, val = " + value);
-            decode(value);
-            if (!masterWriteEnableOld && masterWriteEnable) {
-                // EEWE has been written to. reset write count
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: reset write count to 4");
-                writeCount = 4;
-            }
+            decode(oldVal);
         }
 
         public void writeBit(int bit, boolean val) {
-            boolean masterWriteEnableOld = masterWriteEnable;
+            byte oldVal = value;
             if (bit < 4) {
-                super.writeBit(bit, val);
+                value = Arithmetic.setBit(value, bit, val);
             }
             if (devicePrinter.enabled) devicePrinter.println("EEPROM: EECR written to, val = " + value);
-            decode(value);
-            if (!masterWriteEnableOld && masterWriteEnable) {
-                // EEWE has been written to. reset write count
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: reset write count to 4");
-                writeCount = 4;
-            }
+            decode(oldVal);
         }
-    }
 
-    protected class EEPROMTicker implements Simulator.Event {
-        public void fire() {
-
-            if (devicePrinter.enabled) {
-                devicePrinter.println("Tick : " + writeCount);
+        protected void decode(byte oldVal) {
+            masterWriteEnable = Arithmetic.getBit(value, EEMWE);
+            if (!Arithmetic.getBit(oldVal, EEMWE) && masterWriteEnable) {
+                if (devicePrinter.enabled) devicePrinter.println("EEPROM: EEMWE flagged");
+                masterWrite.start(MASTER_WRITE_CYCLES);
             }
 
-            int address = read16(EEARH_reg, EEARL_reg);
-            if (writeCount > 0) {
-                // if EEMWE has been written to 1 within
-                // 4 clock cycles, write data
+            writeEnable = Arithmetic.getBit(value, EEWE);
+            if (!Arithmetic.getBit(oldVal, EEWE) && writeEnable) {
+                if (devicePrinter.enabled) devicePrinter.println("EEPROM: EEWE flagged");
+                if (masterWrite.isBusy()) doWrite();
+            }
 
-                // after 4 cycles, clear this bit
-                // implement blocking CPU
+            readEnable = Arithmetic.getBit(value, EERE);
+            if (!Arithmetic.getBit(oldVal, EERE) && readEnable) {
+                if (devicePrinter.enabled) devicePrinter.println("EEPROM: EERE flagged");
+                doRead();
+            }
 
-                if (writeEnableWritten) {
-                    if (devicePrinter.enabled) devicePrinter.println("EEPROM: " + EEDR_reg.read() + " written to " + address);
-                    EEPROM_data[address] = EEDR_reg.read();
-                }
+            interruptEnable = Arithmetic.getBit(value, EERIE);
+            interpreter.setEnabled(EEPROM_INTERRUPT, interruptEnable);
+            interpreter.setPosted(EEPROM_INTERRUPT, !writeEnable);
+        }
 
-            }
-            if (readEnableWritten) {
-                // read
-                // implement blocking CPU
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: " + EEPROM_data[address] + " read from " + address);
-                EEDR_reg.write(EEPROM_data[address]);
+        private void doWrite() {
+            int address = read16(EEARH_reg, EEARL_reg);
+            if (devicePrinter.enabled) devicePrinter.println("EEPROM: " + EEDR_reg.read() + " written to " + address);
+            EEPROM_data[address] = EEDR_reg.read();
+        }
 
-            }
-            if (writeCount > 0) {
-                writeCount--;
-                mainClock.insertEvent(ticker, 1);
-            }
+        private void doRead() {
+            int address = read16(EEARH_reg, EEARL_reg);
+            if (devicePrinter.enabled) devicePrinter.println("EEPROM: " + EEPROM_data[address] + " read from " + address);
+            EEDR_reg.write(EEPROM_data[address]);
+        }
+    }
 
-            if (writeCount == 0) {
-                // clear EEWE
-                if (devicePrinter.enabled) devicePrinter.println("EEPROM: write count hit 0, clearing EEWE");
-                writeCount--;
-                EECR_reg.writeBit(1, false);
-            }
-            writeEnableWritten = false;
-            readEnableWritten = false;
+    /**
+     * The <code>WriteCompletion</code> class is the event that fires when the window opened by EEMWE closes.
+     * It clears EEWE, which posts the EEPROM ready interrupt.
+     */
+    protected class WriteCompletion implements Simulator.Event {
+        public void fire() {
+            if (devicePrinter.enabled) devicePrinter.println("EEPROM: write window closed, clearing EEWE");
+            EECR_reg.writeBit(EEWE, false);
         }
     }
 }
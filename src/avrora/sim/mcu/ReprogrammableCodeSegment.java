@@ -38,6 +38,7 @@ import avrora.sim.BaseInterpreter;
 import avrora.sim.CodeSegment;
 import avrora.sim.RWRegister;
 import avrora.sim.Simulator;
+import avrora.sim.clock.Clock;
 import avrora.sim.clock.MainClock;
 import avrora.util.Arithmetic;
 import avrora.util.StringUtil;
@@ -103,7 +104,7 @@ public class ReprogrammableCodeSegment extends CodeSegment {
      * is used in reprogramming the flash memory from within the program.
      */
     private class SPMCSR_reg extends RWRegister {
-        ResetEvent reset = new ResetEvent();
+        final Clock.EventHandle reset = mainClock.newEventHandle(new ResetEvent());
 
         public void write(byte val) {
 
@@ -114,8 +115,7 @@ public class ReprogrammableCodeSegment extends CodeSegment {
                 case STATE_BLBSET:
                 case STATE_FILL:
                 case STATE_PGWRITE:
-                    mainClock.removeEvent(reset);
-                    mainClock.insertEvent(reset, SPM_TIMEOUT+2);
+                    reset.schedule(SPM_TIMEOUT+2);
                     break;
                 default:
                     lower = STATE_NONE;
@@ -217,8 +217,8 @@ public class ReprogrammableCodeSegment extends CodeSegment {
      */
     public ReprogrammableCodeSegment(String name, int size, BaseInterpreter bi, ErrorReporter er, int pagesize) {
         super(name, size, bi, er);
-        SPMCSR = new SPMCSR_reg();
         mainClock = bi.getMainClock();
+        SPMCSR = new SPMCSR_reg();
         this.pagesize = pagesize;
         this.addressMask = Arithmetic.getBitRangeMask(0, pagesize) << 1;
         resetBuffer();
@@ -257,7 +257,7 @@ public class ReprogrammableCodeSegment extends CodeSegment {
             case STATE_BLBSET:
                 if ( flashPrinter.enabled )
                     flashPrinter.println("FLASH: boot lock bits set");
-                mainClock.removeEvent(SPMCSR.reset);
+                SPMCSR.reset.cancel();
                 break;
             case STATE_FILL:
                 if ( flashPrinter.enabled )
@@ -274,21 +274,21 @@ public class ReprogrammableCodeSegment extends CodeSegment {
     }
 
     private void pageErase(int pagenum, int pageoffset) {
-        mainClock.removeEvent(SPMCSR.reset);
+        SPMCSR.reset.cancel();
         SPMCSR.setBusy();
         mainClock.insertEvent(new EraseEvent(pagenum), ERASE_CYCLES);
         resetBuffer();
     }
 
     private void pageWrite(int pagenum, int pageoffset) {
-        mainClock.removeEvent(SPMCSR.reset);
+        SPMCSR.reset.cancel();
         SPMCSR.setBusy();
         mainClock.insertEvent(new WriteEvent(pagenum, buffer), WRITE_CYCLES);
         resetBuffer();
     }
 
     private void resetRWW() {
-        mainClock.removeEvent(SPMCSR.reset);
+        SPMCSR.reset.cancel();
         if ( !SPMCSR.isBusy() ) {
             SPMCSR.clearBusy();
             SPMCSR.reset();
@@ -302,7 +302,7 @@ public class ReprogrammableCodeSegment extends CodeSegment {
         SPMCSR.reset();
         buffer[pageoffset] = r0;
         buffer[pageoffset+1] = r1;
-        mainClock.removeEvent(SPMCSR.reset);
+        SPMCSR.reset.cancel();
     }
 
     /**
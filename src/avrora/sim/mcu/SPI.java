@@ -97,7 +97,7 @@ public class SPI extends AtmelInternalDevice implements SPIDevice, InterruptTabl
 
     public void receiveFrame(Frame frame) {
         SPDR_reg.receiveReg.write(frame.data);
-        if (!master && !transmitReceive.transmitting) SPSR_reg.writeBit(7, true); // flag interrupt
+        if (!master && !transmitReceive.transfer.isBusy()) SPSR_reg.writeBit(7, true); // flag interrupt
 
     }
 
@@ -156,24 +156,24 @@ public class SPI extends AtmelInternalDevice implements SPIDevice, InterruptTabl
 
 
     /**
-     * The SPI transfer event.
+     * The SPI transfer event. Only the completion of a transfer is scheduled; the transfer is in
+     * progress for as long as its deadline has not passed.
      */
     protected class TransmitReceive implements Simulator.Event {
 
         Frame myFrame;
         Frame connectedFrame;
-        boolean transmitting;
+        final Deadline transfer = new Deadline(this);
 
         protected void enableTransfer() {
 
-            if (master && SPIenabled && !transmitting) {
+            if (master && SPIenabled && !transfer.isBusy()) {
                 if (devicePrinter.enabled) {
                     devicePrinter.println("SPI: Master mode. Enabling transfer. ");
                 }
-                transmitting = true;
                 myFrame = transmitFrame();
                 connectedFrame = connectedDevice.transmitFrame();
-                mainClock.insertEvent(this, period);
+                transfer.start(period);
             }
         }
 
@@ -188,7 +188,6 @@ public class SPI extends AtmelInternalDevice implements SPIDevice, InterruptTabl
             if (SPIenabled) {
                 connectedDevice.receiveFrame(myFrame);
                 receiveFrame(connectedFrame);
-                transmitting = false;
                 postSPIInterrupt();
             }
         }
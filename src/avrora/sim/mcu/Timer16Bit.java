@@ -42,6 +42,12 @@ import avrora.util.Arithmetic;
  * Atmega128. It has several control and data registers and can fire up to six different interrupts
  * depending on the mode that it has been put into. It has three output compare units and one input
  * capture unit. UNIMPLEMENTED: input capture unit.
+ * <p/>
+ * Like the 8-bit timers, the timer only inserts an event for the ticks at which it does more than count,
+ * and brings the count up to date when it is read or when the registers of the timer are written. What
+ * happens at a tick depends on the count before the tick: the compare flags are set at the tick after the
+ * count matched, the overflow flag is set when the count goes from TOP to BOTTOM, or, in the phase correct
+ * modes, from BOTTOM to BOTTOM+1, and the TOP events happen when the count leaves TOP.
  *
  * @author Daniel Lee
  */
@@ -102,6 +108,7 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
         class FOC_Field extends RegisterSet.Field {
             public void update() {
                 if ( value == 1 ) {
+                    sync();
                     if ( read16(TCNTnH_reg, TCNTnL_reg) == read() ) {
                         output();
                     }
@@ -163,6 +170,11 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
     final PairedRegister ICRn_reg;
 
     final Ticker ticker;
+    Clock.EventHandle tickerHandle;
+    Clock tickerClock;
+    boolean ticking;
+    long epoch;
+    long ticks;
 
     final RegisterSet.Field WGMn;
     final RegisterSet.Field CSn;
@@ -208,14 +220,19 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
 
         initValues();
 
-        WGMn = rset.getField("WGM"+n);
-        CSn = rset.installField("CS"+n, new RegisterSet.Field() {
+        WGMn = rset.installField("WGM"+n, new TimerField() {
+            public void update() {
+                scheduleTicker();
+            }
+        });
+        CSn = rset.installField("CS"+n, new TimerField() {
             public void update() {
                 resetPeriod(periods[value]);
             }
         });
 
         ticker = new Ticker();
+        countUp = true;
 
         highTempReg = new RWRegister();
 
@@ -230,7 +247,7 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
 
         ICRnH_reg = new RWRegister();
         ICRnL_reg = new RWRegister();
-        ICRn_reg = new PairedRegister(ICRnL_reg, ICRnH_reg);
+        ICRn_reg = new PairedRegister(ICRnH_reg, ICRnL_reg);
 
         externalClock = m.getClock("external");
         timerClock = mainClock;
@@ -261,6 +278,22 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
         xTIFR_reg.flagBit(TOVn);
     }
 
+    /**
+     * The <code>TimerField</code> class represents a field of the control registers that changes the
+     * behavior of the timer. The timer is brought up to date before the field is written.
+     */
+    class TimerField extends RegisterSet.Field {
+        public void write(int nval, int wmask) {
+            sync();
+            super.write(nval, wmask);
+        }
+
+        public void write(int nval) {
+            sync();
+            super.write(nval);
+        }
+    }
+
     /**
      * The <code>PairedRegister</code> class exists to implement the shared temporary register for the
      * high byte of the 16-bit registers corresponding to a 16-bit timer. Accesses to the high byte of
@@ -281,16 +314,21 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
         }
 
         public void write(byte val) {
+            sync();
             low.write(val);
             high.write(highTempReg.read());
+            scheduleTicker();
         }
 
         public void writeBit(int bit, boolean val) {
+            sync();
             low.writeBit(bit, val);
             high.write(highTempReg.read());
+            scheduleTicker();
         }
 
         public byte read() {
+            sync();
             highTempReg.write(high.read());
             return low.read();
         }
@@ -368,19 +406,155 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
         if (nPeriod == 0) {
             if (timerEnabled) {
                 if (devicePrinter.enabled) devicePrinter.println("Timer" + n + " disabled");
-                timerClock.removeEvent(ticker);
+                stopTicks();
                 timerEnabled = false;
             }
             return;
         }
-        if (timerEnabled) {
-            timerClock.removeEvent(ticker);
-        }
         if (devicePrinter.enabled) devicePrinter.println("Timer" + n + " enabled: period = " + nPeriod + " mode = " + WGMn.value);
         period = nPeriod;
         timerEnabled = true;
-        timerClock.insertEvent(ticker, period);
+        startTicks();
+    }
+
+    /**
+     * The <code>startTicks()</code> method starts the ticks of the timer with the current period. The first
+     * tick happens one period from now.
+     */
+    void startTicks() {
+        if (tickerClock != timerClock) {
+            if (tickerHandle != null) tickerHandle.cancel();
+            tickerClock = timerClock;
+            tickerHandle = timerClock.newEventHandle(ticker);
+        }
+        epoch = tickerClock.getCount();
+        ticks = 0;
+        ticking = true;
+        scheduleTicker();
+    }
 
+    /**
+     * The <code>stopTicks()</code> method stops the ticks of the timer.
+     */
+    void stopTicks() {
+        ticking = false;
+        if (tickerHandle != null) tickerHandle.cancel();
+    }
+
+    /**
+     * The <code>sync()</code> method brings the state of the timer up to date by performing all of the
+     * ticks that have elapsed since the last time the timer was brought up to date. Only the ticks at which
+     * the timer does more than count are performed one at a time.
+     */
+    void sync() {
+        if (!ticking) return;
+        long now = (tickerClock.getCount() - epoch) / period;
+        while (ticks < now) {
+            long next = getTicksToEvent();
+            long elapsed = now - ticks;
+            if (next > elapsed) {
+                count(elapsed);
+                ticks = now;
+            } else {
+                count(next - 1);
+                ticker.tick();
+                ticks += next;
+            }
+        }
+    }
+
+    /**
+     * The <code>scheduleTicker()</code> method inserts the ticker into the queue of the timer clock at the
+     * next tick at which the timer does more than count. It must be called after the timer is brought up
+     * to date with <code>sync()</code> whenever its state is changed.
+     */
+    void scheduleTicker() {
+        if (!ticking) return;
+        long next = getTicksToEvent();
+        if (next == Long.MAX_VALUE) tickerHandle.cancel();
+        else tickerHandle.schedule(epoch + (ticks + next) * period - tickerClock.getCount());
+    }
+
+    /**
+     * The <code>count()</code> method advances the count of the timer by the specified number of ticks,
+     * none of which do more than count.
+     *
+     * @param elapsed the number of ticks to count
+     */
+    private void count(long elapsed) {
+        if (elapsed == 0) return;
+        int dir = getDirection();
+        write16((int)(read16(TCNTnH_reg, TCNTnL_reg) + dir * elapsed), TCNTnH_reg, TCNTnL_reg);
+        blockCompareMatch = false;
+    }
+
+    private int getDirection() {
+        switch (WGMn.value) {
+            case MODE_PWM_PHASE_CORRECT_8_BIT:
+            case MODE_PWM_PHASE_CORRECT_9_BIT:
+            case MODE_PWM_PHASE_CORRECT_10_BIT:
+            case MODE_PWM_PNF_ICRn:
+            case MODE_PWM_PNF_OCRnA:
+            case MODE_PWN_PHASE_CORRECT_ICRn:
+            case MODE_PWN_PHASE_CORRECT_OCRnA:
+                return countUp ? 1 : -1;
+            case 13:
+                // the reserved mode does not count
+                return 0;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * The <code>getTicksToEvent()</code> method computes the number of ticks from the last tick performed
+     * until the next tick at which the timer overflows, matches one of the compare units, reaches its top
+     * value, changes direction or wraps around. Since <code>Ticker.tick()</code> only does more than count
+     * when the count before the tick is the value of a compare unit, TOP, MAX or BOTTOM, this is the next
+     * tick that starts from one of these values in the direction of counting.
+     *
+     * @return the number of ticks until the next tick that must be performed on its own
+     */
+    private long getTicksToEvent() {
+        if (devicePrinter.enabled) return 1;
+        int dir = getDirection();
+        if (dir == 0) return Long.MAX_VALUE;
+        int count = read16(TCNTnH_reg, TCNTnL_reg);
+        long next = Math.min(Math.min(distance(dir, count, getTop()), distance(dir, count, MAX)),
+                distance(dir, count, BOTTOM));
+        for ( int cntr = 0; cntr < compareUnits.length; cntr++ )
+            next = Math.min(next, distance(dir, count, compareUnits[cntr].read()));
+        return next;
+    }
+
+    private static long distance(int dir, int count, int target) {
+        if (dir > 0) return target >= count ? target - count + 1 : Long.MAX_VALUE;
+        else return target <= count ? count - target + 1 : Long.MAX_VALUE;
+    }
+
+    private static final int[] FIXED_TOP = {MAX, 0x00ff, 0x01ff, 0x03ff, 0, 0x0ff, 0x01ff, 0x03ff};
+
+    /**
+     * The <code>getTop()</code> method gets the TOP value of the timer in its current mode, which is either
+     * fixed or the value of <code>OCRnA</code> or <code>ICRn</code>.
+     *
+     * @return the value at which the timer is cleared or changes direction
+     */
+    private int getTop() {
+        switch (WGMn.value) {
+            case MODE_CTC_OCRnA:
+            case MODE_PWM_PNF_OCRnA:
+            case MODE_PWN_PHASE_CORRECT_OCRnA:
+            case MODE_FASTPWM_OCRnA:
+                return compareUnits[0].read();
+            case MODE_PWM_PNF_ICRn:
+            case MODE_PWN_PHASE_CORRECT_ICRn:
+            case MODE_CTC_ICRn:
+            case MODE_FASTPWM_ICRn:
+                return read16(ICRnH_reg, ICRnL_reg);
+            default:
+                return WGMn.value < FIXED_TOP.length ? FIXED_TOP[WGMn.value] : MAX;
+        }
     }
 
     /**
@@ -434,8 +608,8 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
 
     /**
      * The <code>Ticker</class> implements the periodic behavior of the timer. It emulates the
-     * operation of the timer at each clock cycle and uses the global timed event queue to achieve the
-     * correct periodic behavior.
+     * operation of the timer at each clock cycle. It is inserted into the global timed event queue
+     * only for the ticks at which the timer does more than count.
      */
     protected class Ticker implements Simulator.Event {
 
@@ -444,200 +618,86 @@ public abstract class Timer16Bit extends AtmelInternalDevice {
                 compareUnits[cntr].flush();
         }
 
-        private final int[] TOP = {0xffff, 0x00ff, 0x01ff, 0x03ff, 0, 0x0ff, 0x01ff, 0x03ff};
-
-
         public void fire() {
+            sync();
+            scheduleTicker();
+        }
+
+        void tick() {
 
             int count = read16(TCNTnH_reg, TCNTnL_reg);
-            int countSave = count;
-            int compareA = compareUnits[0].read();
-            /*
-            int compareB = read16(OCRnBH_reg, OCRnBL_reg);
-            int compareC = read16(OCRnCH_reg, OCRnCL_reg);
-            */
-            int compareI = read16(ICRnH_reg, ICRnL_reg);
+            int mode = WGMn.value;
+            // the reserved mode does not count
+            if (mode == 13) return;
+            int top = getTop();
 
             if (devicePrinter.enabled) {
-                devicePrinter.println("Timer" + n + " [TCNT" + n + " = " + count + ", OCR" + n + "A = " + compareA + "]");
+                devicePrinter.println("Timer" + n + " [TCNT" + n + " = " + count + ", OCR" + n + "A = " + compareUnits[0].read() + "]");
+            }
+
+            // the compare match of the count before the tick is flagged at this tick
+            if (!blockCompareMatch) {
+                for ( int cntr = 0; cntr < compareUnits.length; cntr++ )
+                    compareUnits[cntr].compare(count);
             }
 
-            // What exactly should I do when I phase/frequency current?
-            // registers.
-            // Make sure these cases are doing what they are supposed to
-            // do.
-            int mode = WGMn.value;
             switch (mode) {
                 case MODE_NORMAL:
-                    count++;
-                    countSave = count;
-                    if (count == MAX) {
-                        overflow();
-                        count = 0;
-                    }
+                    if (count == MAX) overflow();
+                    count = (count + 1) & MAX;
                     break;
-                case MODE_PWM_PHASE_CORRECT_8_BIT:
-                case MODE_PWM_PHASE_CORRECT_9_BIT:
-                case MODE_PWM_PHASE_CORRECT_10_BIT:
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= TOP[mode]) {
-                        countUp = false;
-                        count = TOP[mode];
-                        flushOCRnx();
-                    }
-                    if (count <= 0) {
-                        overflow();
-                        countUp = true;
-                        count = 0;
-                    }
-                    break;
-
                 case MODE_CTC_OCRnA:
-                    count++;
-
-                    countSave = count;
-                    if (count == compareA) {
-                        count = 0;
-                    }
-                    if (count == MAX) {
-                        overflow();
+                case MODE_CTC_ICRn:
+                    if (count == MAX) overflow();
+                    if (count == top) {
+                        if (mode == MODE_CTC_ICRn) captureFlag();
+                        count = BOTTOM;
+                    } else {
+                        count = (count + 1) & MAX;
                     }
                     break;
                 case MODE_FASTPWM_8_BIT:
                 case MODE_FASTPWM_9_BIT:
                 case MODE_FASTPWM_10_BIT:
-                    count++;
-
-                    countSave = count;
-                    if (count == TOP[mode]) {
-                        count = 0;
-                        overflow();
-                        flushOCRnx();
-                    }
-
-                    break;
-                case MODE_PWM_PNF_ICRn:
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= compareI) {
-                        countUp = false;
-                        count = compareI;
-                    }
-                    if (count <= 0) {
-                        overflow();
-                        flushOCRnx();
-                        countUp = true;
-                        count = 0;
-                    }
-                    break;
-                case MODE_PWM_PNF_OCRnA:
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= compareA) {
-                        countUp = false;
-                        count = compareA;
-                    }
-                    if (count <= 0) {
+                case MODE_FASTPWM_ICRn:
+                case MODE_FASTPWM_OCRnA:
+                    if (count == top) {
                         overflow();
+                        if (mode == MODE_FASTPWM_ICRn) captureFlag();
                         flushOCRnx();
-                        countUp = true;
-                        count = 0;
+                        count = BOTTOM;
+                    } else {
+                        // a count above TOP goes on to MAX and wraps around
+                        count = (count + 1) & MAX;
                     }
                     break;
-                case MODE_PWN_PHASE_CORRECT_ICRn:
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= compareI) {
-                        flushOCRnx();
-                        countUp = false;
-                        count = compareI;
-                    }
-                    if (count <= 0) {
+                default:
+                    // the phase correct and the phase and frequency correct modes
+                    boolean pnf = mode == MODE_PWM_PNF_ICRn || mode == MODE_PWM_PNF_OCRnA;
+                    if (count == BOTTOM) {
                         overflow();
+                        if (pnf) flushOCRnx();
                         countUp = true;
-                        count = 0;
-                    }
-                    break;
-                case MODE_PWN_PHASE_CORRECT_OCRnA:
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= compareA) {
-                        flushOCRnx();
+                    } else if (count == top && countUp) {
+                        if (!pnf) flushOCRnx();
+                        if (mode == MODE_PWM_PNF_ICRn || mode == MODE_PWN_PHASE_CORRECT_ICRn) captureFlag();
                         countUp = false;
-                        count = compareA;
-                    }
-                    if (count <= 0) {
-                        overflow();
-                        countUp = true;
-                        count = 0;
-                    }
-                    break;
-                case MODE_CTC_ICRn:
-                    count++;
-
-                    countSave = count;
-                    if (count == compareI) {
-                        count = 0;
-                    }
-                    if (count == MAX) {
-                        overflow();
-                    }
-                    break;
-                case MODE_FASTPWM_ICRn:
-                    count++;
-
-                    countSave = count;
-                    if (count == compareI) {
-                        count = 0;
-                        overflow();
-                        flushOCRnx();
-                    }
-                    break;
-                case MODE_FASTPWM_OCRnA:
-                    count++;
-
-                    countSave = count;
-                    if (count == compareA) {
-                        count = 0;
-                        overflow();
-                        flushOCRnx();
                     }
+                    count = countUp ? (count + 1) & MAX : count - 1;
                     break;
             }
 
-            // the compare match should be performed in any case.
-            if (!blockCompareMatch) {
-                for ( int cntr = 0; cntr < compareUnits.length; cntr++ )
-                    compareUnits[cntr].compare(countSave);
-            }
             write16(count, TCNTnH_reg, TCNTnL_reg);
-            // make sure timings on this are correct
             blockCompareMatch = false;
-
-
-            if (period != 0) timerClock.insertEvent(this, period);
         }
     }
 
+    /**
+     * Flags the input capture interrupt for this timer, which is used to signal TOP in the modes in which
+     * <code>ICRn</code> defines TOP.
+     */
+    protected void captureFlag() {
+        xTIFR_reg.flagBit(ICFn);
+    }
+
 }
@@ -39,6 +39,17 @@ import avrora.util.Arithmetic;
 
 /**
  * Base class of 8-bit timers. Timer0 and Timer2 are subclasses of this.
+ * <p/>
+ * The timer does not insert an event for every tick of its clock. Instead, the count is brought up to date
+ * from the number of ticks that have elapsed when the count is read or a register of the timer is written,
+ * and an event is inserted only for the next tick at which the timer does more than count: an overflow, a
+ * compare match, a change of direction or a wrap around. That tick is performed exactly as before, so the
+ * behavior of the timer is the same as if it were ticked on every cycle of its clock.
+ * <p/>
+ * As in the timing diagrams of the manual, what happens at a tick depends on the count before the tick. The
+ * compare flag is set at the tick after the count matched <code>OCRn</code>, the overflow flag is set when
+ * the count goes from MAX to BOTTOM, or, in phase correct PWM mode, from BOTTOM to BOTTOM+1, and the
+ * compare register is updated from its buffer when the count leaves TOP.
  *
  * @author Daniel Lee
  */
@@ -57,6 +68,11 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
     final int n; // number of timer. 0 for Timer0, 2 for Timer2
 
     final Ticker ticker;
+    Clock.EventHandle tickerHandle;
+    Clock tickerClock;
+    boolean ticking;
+    long epoch;
+    long ticks;
 
     protected final Clock externalClock;
     protected Clock timerClock;
@@ -82,6 +98,119 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
 
     final int[] periods;
 
+    /**
+     * The <code>startTicks()</code> method starts the ticks of the timer on the current timer clock with the
+     * current period. The first tick happens one period from now.
+     */
+    void startTicks() {
+        if (tickerClock != timerClock) {
+            if (tickerHandle != null) tickerHandle.cancel();
+            tickerClock = timerClock;
+            tickerHandle = timerClock.newEventHandle(ticker);
+        }
+        epoch = tickerClock.getCount();
+        ticks = 0;
+        ticking = true;
+        scheduleTicker();
+    }
+
+    /**
+     * The <code>stopTicks()</code> method stops the ticks of the timer.
+     */
+    void stopTicks() {
+        ticking = false;
+        if (tickerHandle != null) tickerHandle.cancel();
+    }
+
+    /**
+     * The <code>sync()</code> method brings the state of the timer up to date by performing all of the
+     * ticks that have elapsed since the last time the timer was brought up to date. Only the ticks at which
+     * the timer does more than count are performed one at a time.
+     */
+    void sync() {
+        if (!ticking) return;
+        long now = (tickerClock.getCount() - epoch) / period;
+        while (ticks < now) {
+            long next = getTicksToEvent();
+            long elapsed = now - ticks;
+            if (next > elapsed) {
+                count(elapsed);
+                ticks = now;
+            } else {
+                count(next - 1);
+                ticker.tick();
+                ticks += next;
+            }
+        }
+    }
+
+    /**
+     * The <code>scheduleTicker()</code> method inserts the ticker into the queue of the timer clock at the
+     * next tick at which the timer does more than count. It must be called after the timer is brought up
+     * to date with <code>sync()</code> whenever its state is changed.
+     */
+    void scheduleTicker() {
+        if (!ticking) return;
+        long next = getTicksToEvent();
+        if (next == Long.MAX_VALUE) tickerHandle.cancel();
+        else tickerHandle.schedule(epoch + (ticks + next) * period - tickerClock.getCount());
+    }
+
+    /**
+     * The <code>count()</code> method advances the count of the timer by the specified number of ticks,
+     * none of which do more than count.
+     *
+     * @param elapsed the number of ticks to count
+     */
+    private void count(long elapsed) {
+        if (elapsed == 0) return;
+        int count = TCNTn_reg.getCount();
+        if (timerMode == MODE_PWM && !countUp) count -= elapsed;
+        else count += elapsed;
+        TCNTn_reg.setCount(count);
+        blockCompareMatch = false;
+    }
+
+    /**
+     * The <code>getTicksToEvent()</code> method computes the number of ticks from the last tick performed
+     * until the next tick at which the timer overflows, matches the compare register, changes direction
+     * or wraps around. Since <code>Ticker.tick()</code> only does more than count when the count before
+     * the tick is the value of the compare register, MAX or, in phase correct PWM mode, BOTTOM, this is
+     * the next tick that starts from one of these values.
+     *
+     * @return the number of ticks until the next tick that must be performed on its own
+     */
+    private long getTicksToEvent() {
+        if (devicePrinter.enabled || tickerClock != timerClock) return 1;
+        int count = TCNTn_reg.getCount();
+        int compare = OCRn_reg.read() & 0xff;
+        if (timerMode == MODE_PWM && !countUp)
+            return Math.min(down(count, compare), down(count, BOTTOM));
+        if (timerMode == MODE_PWM && count == BOTTOM) return 1;
+        return Math.min(up(count, compare), up(count, MAX));
+    }
+
+    private static long up(int count, int target) {
+        return target >= count ? target - count + 1 : Long.MAX_VALUE;
+    }
+
+    private static long down(int count, int target) {
+        return target <= count ? count - target + 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * The <code>setTimerClock()</code> method switches the timer to the specified clock. The next tick of
+     * the timer still happens on the old clock, after which the ticks continue on the new clock.
+     *
+     * @param c the new clock of the timer
+     */
+    protected void setTimerClock(Clock c) {
+        if (c == timerClock) return;
+        sync();
+        timerClock = c;
+        scheduleTicker();
+    }
+
     protected Timer8Bit(AtmelMicrocontroller m, int n, int OCIEn, int TOIEn, int OCFn, int TOVn, int[] periods) {
         super("timer"+n, m);
         ticker = new Ticker();
@@ -103,6 +232,7 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
         this.TOVn = TOVn;
         this.n = n;
         this.periods = periods;
+        countUp = true;
 
         installIOReg("TCCR"+n, TCCRn_reg);
         installIOReg("TCNT"+n, TCNTn_reg);
@@ -137,14 +267,36 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
      */
     protected class TCNTnRegister extends RWRegister {
 
+        public byte read() {
+            sync();
+            return value;
+        }
+
+        public boolean readBit(int bit) {
+            sync();
+            return Arithmetic.getBit(value, bit);
+        }
+
         public void write(byte val) {
+            sync();
             value = val;
             blockCompareMatch = true;
+            scheduleTicker();
         }
 
         public void writeBit(int bit, boolean val) {
+            sync();
             value = Arithmetic.setBit(value, bit, val);
             blockCompareMatch = true;
+            scheduleTicker();
+        }
+
+        int getCount() {
+            return value & 0xff;
+        }
+
+        void setCount(int count) {
+            value = (byte)count;
         }
     }
 
@@ -161,17 +313,21 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
         }
 
         public void write(byte val) {
+            sync();
             super.write(val);
             if (timerMode == MODE_NORMAL || timerMode == MODE_CTC) {
                 flush();
             }
+            scheduleTicker();
         }
 
         public void writeBit(int bit, boolean val) {
+            sync();
             super.writeBit(bit, val);
             if (timerMode == MODE_NORMAL || timerMode == MODE_CTC) {
                 flush();
             }
+            scheduleTicker();
         }
 
         // TODO: this method may be completely unnecessary
@@ -203,6 +359,7 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
         public static final int CSn0 = 0;
 
         public void write(byte val) {
+            sync();
             // hardware manual states that high order bit is always read as zero
             value = (byte)(val & 0x7f);
 
@@ -215,6 +372,7 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
         }
 
         public void writeBit(int bit, boolean val) {
+            sync();
             if (bit == 7 && val) {
 
                 forcedOutputCompare(value);
@@ -226,7 +384,7 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
 
         private void forcedOutputCompare(byte val) {
 
-            int count = TCNTn_reg.read() & 0xff;
+            int count = TCNTn_reg.getCount();
             int compare = OCRn_reg.read() & 0xff;
             int compareMode = Arithmetic.getBit(val, COMn1) ? 2 : 0;
             compareMode |= Arithmetic.getBit(val, COMn0) ? 1 : 0;
@@ -261,96 +419,84 @@ public abstract class Timer8Bit extends AtmelInternalDevice {
 
             if (prescaler < periods.length)
                 resetPeriod(periods[prescaler]);
+            else
+                scheduleTicker();
         }
 
         private void resetPeriod(int m) {
             if (m == 0) {
                 if (timerEnabled) {
                     if (devicePrinter.enabled) devicePrinter.println("Timer" + n + " disabled");
-                    timerClock.removeEvent(ticker);
+                    stopTicks();
                 }
                 return;
             }
-            if (timerEnabled) {
-                timerClock.removeEvent(ticker);
-            }
             if (devicePrinter.enabled) devicePrinter.println("Timer" + n + " enabled: period = " + m + " mode = " + timerMode);
             period = m;
             timerEnabled = true;
-            timerClock.insertEvent(ticker, period);
+            startTicks();
         }
     }
 
     /**
      * The <code>Ticker</class> implements the periodic behavior of the timer. It emulates the
-     * operation of the timer at each clock cycle and uses the global timed event queue to achieve the
-     * correct periodic behavior.
+     * operation of the timer at each clock cycle. It is inserted into the global timed event queue
+     * only for the ticks at which the timer does more than count.
      */
     protected class Ticker implements Simulator.Event {
 
         public void fire() {
+            sync();
+            if (tickerClock != timerClock) {
+                // the timer has been switched to another clock
+                startTicks();
+            } else {
+                scheduleTicker();
+            }
+        }
+
+        void tick() {
             // perform one clock tick worth of work on the timer
-            int count = TCNTn_reg.read() & 0xff;
+            int count = TCNTn_reg.getCount();
             int compare = OCRn_reg.read() & 0xff;
-            int countSave = count;
             if (devicePrinter.enabled)
                 devicePrinter.println("Timer" + n + " [TCNT" + n + " = " + count + ", OCR" + n + "(actual) = " + compare + ", OCR" + n + "(buffer) = " + (0xff & OCRn_reg.readBuffer()) + ']');
 
-            // TODO: this code has one off counting bugs!!!
+            // the compare match of the count before the tick is flagged at this tick
+            if (count == compare && !blockCompareMatch) {
+                compareMatch();
+            }
+
             switch (timerMode) {
                 case MODE_NORMAL: // NORMAL MODE
-                    count++;
-                    countSave = count;
-                    if (count == MAX) {
-                        overflow();
-                        count = 0;
-                    }
-
+                    if (count == MAX) overflow();
+                    count = (count + 1) & MAX;
                     break;
                 case MODE_PWM: // PULSE WIDTH MODULATION MODE
-                    if (countUp)
-                        count++;
-                    else
-                        count--;
-
-                    countSave = count;
-                    if (count >= MAX) {
-                        countUp = false;
-                        count = MAX;
-                        OCRn_reg.flush(); // pg. 102. update OCRn at TOP
-                    }
-                    if (count <= 0) {
+                    if (count == BOTTOM) {
                         overflow();
                         countUp = true;
-                        count = 0;
+                    } else if (count == MAX && countUp) {
+                        countUp = false;
+                        OCRn_reg.flush(); // pg. 102. update OCRn at TOP
                     }
+                    count = countUp ? count + 1 : count - 1;
                     break;
                 case MODE_CTC: // CLEAR TIMER ON COMPARE MODE
-                    countSave = count;
-                    count++;
-                    if (countSave == compare) {
-                        count = 0;
-                    }
+                    if (count == MAX) overflow();
+                    count = count == compare ? BOTTOM : (count + 1) & MAX;
                     break;
                 case MODE_FASTPWM: // FAST PULSE WIDTH MODULATION MODE
-                    count++;
-                    countSave = count;
                     if (count == MAX) {
-                        count = 0;
                         overflow();
                         OCRn_reg.flush(); // pg. 102. update OCRn at TOP
                     }
+                    count = (count + 1) & MAX;
                     break;
             }
 
-            if (countSave == compare && !blockCompareMatch) {
-                compareMatch();
-            }
-            TCNTn_reg.write((byte)count);
-            // I probably want to verify the timing on this.
+            TCNTn_reg.setCount(count);
             blockCompareMatch = false;
-
-            if (period != 0) timerClock.insertEvent(this, period);
         }
     }
 }
@@ -120,11 +120,10 @@ public class SerialForwarder implements USART.USARTDevice {
             } catch( IOException e){
                 throw Avrora.unexpected(e);
             }
-            clock.insertEvent(this, delta);
         }
 
         void start() {
-            clock.insertEvent(this, delta);
+            clock.insertPeriodicEvent(this, delta, delta);
         }
     }
 }
@@ -82,6 +82,15 @@ public class CC1000Radio implements Radio {
     public static final int TEST1 = 0x45;
     public static final int TEST0 = 0x46;
 
+    /**
+     * The framing of a packet: a preamble of bytes with alternating bits, followed by a start of frame
+     * delimiter of two bytes.
+     */
+    public static final byte PREAMBLE_1 = (byte)0xAA;
+    public static final byte PREAMBLE_2 = (byte)0x55;
+    public static final byte SFD_1 = (byte)0x33;
+    public static final byte SFD_2 = (byte)0xCC;
+
     protected static final String[] allModeNames = RadioEnergy.allModeNames();
     protected static final int[][] ttm = FiniteStateMachine.buildSparseTTM(allModeNames.length, 0);
 
@@ -132,6 +141,12 @@ public class CC1000Radio implements Radio {
      */
     protected RadioAir air;
 
+    /**
+     * The <code>packetMode</code> field records whether this radio transmits the packets it recognizes as
+     * a whole, rather than byte by byte.
+     */
+    protected boolean packetMode;
+
     /**
      * The <code>ProbeList</code> class just keeps track of a list of probes.
      */
@@ -369,6 +384,9 @@ public class CC1000Radio implements Radio {
 
         MainRegister() {
             super("MAIN", (byte)0x3e);
+            // the fields are only decoded when the register is written; until then, they must agree with
+            // the default value, in which all parts of the radio are powered down
+            rxPd = txPd = fsPd = corePd = biasPd = true;
         }
 
         protected void decode(byte val) {
@@ -1004,6 +1022,17 @@ public class CC1000Radio implements Radio {
         private final TransferTicker ticker;
         private final Simulator.Printer printer;
 
+        /**
+         * The <code>packet</code> field stores the packet being transmitted in packet mode; null if none.
+         * The <code>framing</code> field stores how far the framing of the packet has been recognized.
+         */
+        private Radio.Packet packet;
+        private int framing;
+
+        private static final int IN_PREAMBLE = 0;
+        private static final int IN_SFD = 1;
+        private static final int IN_DATA = 2;
+
         ATMegaController() {
             ticker = new TransferTicker();
             printer = sim.getPrinter("radio.cc1000.data");
@@ -1036,13 +1065,14 @@ public class CC1000Radio implements Radio {
                     //as TinyOS itself waits 250us via TOSH_uwait(250) before it
                     //sends or reads data
                     //Based on this, probably Radio.TRANSFER_TIME fits best
-                    sim.insertEvent(ticker, Radio.TRANSFER_TIME);
+                    sim.insertPeriodicEvent(ticker, Radio.TRANSFER_TIME, Radio.TRANSFER_TIME);
                 }
             }
 
             public void deactivateTicker() {
                 tickerOn = false;
                 sim.removeEvent(this);
+                endPacket();
             }
 
             public void fire() {
@@ -1051,14 +1081,12 @@ public class CC1000Radio implements Radio {
 
                 if (MAIN_reg.rxtx && !MAIN_reg.txPd) {
                     receiveFrame(frame);
+                } else {
+                    // a packet ends when the radio stops transmitting
+                    endPacket();
                 }
 
                 spiDevice.receiveFrame(transmitFrame());
-
-                if (tickerOn) {
-                    sim.insertEvent(this, Radio.TRANSFER_TIME);
-
-                }
             }
         }
 
@@ -1071,7 +1099,8 @@ public class CC1000Radio implements Radio {
             // data, frequency, origination
             if (!MAIN_reg.txPd && MAIN_reg.rxtx) {
                 long currentTime = sim.getState().getCycles();
-                new Transmit(new Transmission(frame.data, 0, currentTime));
+                if (packetMode) transmitPacketByte(frame.data, currentTime);
+                else new Transmit(new Transmission(frame.data, 0, currentTime));
             } else {
                 if (printer.enabled) {
                     printer.println("CC1000: discarding "+StringUtil.toMultirepString(frame.data, 8)+" from SPI");
@@ -1080,14 +1109,60 @@ public class CC1000Radio implements Radio {
 
         }
 
+        /**
+         * The <code>transmitPacketByte()</code> method transmits a byte in packet mode. A preamble byte
+         * begins a new packet, which is transmitted into the air as a whole, and the bytes that follow
+         * are added to it as long as they match its framing. Any other byte is transmitted on its own.
+         */
+        private void transmitPacketByte(byte data, long time) {
+            if (packet != null && framing != IN_DATA) {
+                if (framing == IN_PREAMBLE && data == SFD_1) framing = IN_SFD;
+                else if (framing == IN_SFD && data == SFD_2) framing = IN_DATA;
+                else if (framing == IN_SFD || (data != PREAMBLE_1 && data != PREAMBLE_2)) endPacket();
+            }
+            if (packet == null && (data == PREAMBLE_1 || data == PREAMBLE_2)) {
+                packet = new Radio.Packet(0, time);
+                framing = IN_PREAMBLE;
+                if (air != null) air.transmitPacket(CC1000Radio.this, packet);
+            }
+
+            if (packet != null) {
+                packet.add(data);
+                // the probes still see each byte, if there are any
+                if (!probes.isEmpty() || printer.enabled) new Transmit(new Transmission(data, 0, time), false);
+            } else {
+                // the byte is transmitted without delay, so that it can be read without waiting
+                Transmission t = new Transmission(data, 0, time);
+                if (air != null) air.transmit(CC1000Radio.this, t);
+                if (!probes.isEmpty() || printer.enabled) new Transmit(t, false);
+            }
+        }
+
+        private void endPacket() {
+            if (packet != null) {
+                packet.end();
+                packet = null;
+            }
+        }
+
         /**
          * <code>Transmit</code> is an event that transmits a packet of data after a one bit period delay.
          */
         protected class Transmit implements Simulator.Event {
             final Radio.Transmission packet;
+            final boolean toAir;
 
             Transmit(Radio.Transmission packet) {
+                this(packet, true);
+            }
+
+            /**
+             * @param toAir false if the data has already been transmitted into the air, and only the
+             * probes should be notified
+             */
+            Transmit(Radio.Transmission packet, boolean toAir) {
                 this.packet = packet;
+                this.toAir = toAir;
                 sim.insertEvent(this, Radio.TRANSFER_TIME / 8);
             }
 
@@ -1096,7 +1171,7 @@ public class CC1000Radio implements Radio {
                     printer.println("CC1000: transmitting "+StringUtil.toMultirepString(packet.data, 8));
                 }
                 // send packet into air...
-                if ( air != null )
+                if ( toAir && air != null )
                     air.transmit(CC1000Radio.this, packet);
                 probes.fireAtTransmit(CC1000Radio.this, packet);
             }
@@ -1112,7 +1187,9 @@ public class CC1000Radio implements Radio {
             if (MAIN_reg.rxtx && MAIN_reg.txPd) {
                 frame = SPI.ZERO_FRAME;
             } else {
-                byte data = air != null ? air.readChannel(CC1000Radio.this) : 0;
+                byte data = 0;
+                if (air != null)
+                    data = packetMode ? air.readPacketChannel(CC1000Radio.this) : air.readChannel(CC1000Radio.this);
                 frame = SPI.newFrame(data);
                 if (printer.enabled) {
                     printer.println("CC1000: received " + StringUtil.toMultirepString(frame.data, 8));
@@ -1225,6 +1302,10 @@ public class CC1000Radio implements Radio {
         return receiver.isListening();
     }
 
+    public boolean isPoweredDown() {
+        return MAIN_reg.rxPd && MAIN_reg.txPd;
+    }
+
     /**
      * This class is a state machine similar to <code>Receiver</code>, but for the transmitter on the radio.
      * So it is "activated" when the transmitter is powered up and "transmitting" when the radio is in
@@ -1435,4 +1516,16 @@ public class CC1000Radio implements Radio {
         air = nair;
     }
 
+    /**
+     * The <code>setPacketMode()</code> method sets whether this radio runs in packet mode. In packet mode,
+     * when the radio recognizes the preamble of a packet in the bytes it transmits, it transmits the packet
+     * into the air as a whole, adding each byte to it as it goes, instead of transmitting each byte on its
+     * own. The radio then also reads the channel without waiting for the other nodes. The bytes received
+     * are the same in either mode.
+     * @param on true if the radio should run in packet mode; false if it should transmit byte by byte
+     */
+    public void setPacketMode(boolean on) {
+        packetMode = on;
+    }
+
 }
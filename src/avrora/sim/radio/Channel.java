@@ -32,18 +32,30 @@
 
 package avrora.sim.radio;
 
-import avrora.util.Arithmetic;
+import avrora.Avrora;
 
 /**
  * The <code>Channel</code> class implements a serial channel that represents a communication
  * channel where bits are sent one by one. The channel allows bits to be written into the channel
- * at a particular time and represents their serial transmission over time by an array.
+ * at a particular time and represents their serial transmission over time by a window of bits.
  *
  * <p>
  * The channel is used in simulating radio transmissions; all transmissions write into the channel,
  * and all samples read from the channel.
  *
- * 
+ * <p>
+ * The window covers the previous, the current, and the next period, and is packed into the bits of a
+ * <code>long</code>. It is advanced lazily, when the channel is accessed at a time beyond the current
+ * period, so that a channel that is not accessed costs nothing as time passes. A write may be up to one
+ * period ahead of the reads, e.g. when the nodes are only synchronized with their neighbors, and only
+ * advances the window as far as it can without discarding the period before that of the reads. The
+ * channel is not synchronized; its user must prevent concurrent accesses.
+ *
+ * <p>
+ * A packet transmitted as a whole by a radio in packet mode is added to the channel once, rather than
+ * written into it byte by byte. Its bytes are read from the packet itself, one byte per period, so a
+ * channel that packets are added to must have 8 bits per period.
+ *
  * @author Ben L. Titzer
  */
 public class Channel {
@@ -51,20 +63,49 @@ public class Channel {
     protected final int bits;
     protected final long period;
     protected final long bitPeriod;
-    protected long globalTime;
     protected final boolean invert;
 
-    protected final boolean[] channelValues;
-    protected final boolean[] channelWritten;
+    /**
+     * The <code>current</code> field stores the number of the period that the window is centered on.
+     */
+    protected long current;
+
+    /**
+     * The <code>channelValues</code> and <code>channelWritten</code> fields store the bits of the window,
+     * from the first bit of the previous period in the lowest bit to the last bit of the next period.
+     */
+    protected long channelValues;
+    protected long channelWritten;
+
+    /**
+     * The <code>packets</code> field stores the packets that have been added to the channel and may still
+     * be read from it.
+     */
+    protected Radio.Packet[] packets;
+    protected int numPackets;
 
     public Channel(int bits, long period, boolean invert) {
+        if ( bits * 3 > 64 )
+            throw Avrora.failure("Channel window of " + bits + " bits per period does not fit in 64 bits");
         this.bits = bits;
         this.period = period;
         this.bitPeriod = period / bits;
         this.invert = invert;
+        packets = new Radio.Packet[4];
+    }
 
-        channelValues = new boolean[bits * 3];
-        channelWritten = new boolean[bits * 3];
+    /**
+     * The <code>addPacket()</code> method adds a packet that is transmitted into the channel as a whole. The
+     * bytes of the packet are read from the channel in the periods after those in which they are added to it.
+     * @param p the packet to add
+     */
+    public void addPacket(Radio.Packet p) {
+        if ( numPackets == packets.length ) {
+            Radio.Packet[] np = new Radio.Packet[numPackets * 2];
+            System.arraycopy(packets, 0, np, 0, numPackets);
+            packets = np;
+        }
+        packets[numPackets++] = p;
     }
 
     /**
@@ -75,32 +116,53 @@ public class Channel {
      * @param time the global time at which the write takes place
      */
     public void write(int value, int bits, long time) {
-        int off = channelOffset(time);
+        long p = time / period;
+        // the reads of the channel may still be in the previous period
+        advance(p - 1);
+        int off = channelOffset(p);
+        // a write that is too old to be read any more is dropped
+        if ( off < 0 ) return;
         if ( invert ) value = ~value;
-        for ( int cntr = 0; cntr < 8; cntr++ ) {
-            int ind = cntr+off;
-            boolean bit = Arithmetic.getBit(value, (bits-1)-cntr);
-            channelValues[ind] |= bit;
-            channelWritten[ind] = true;
-        }
+        // the first bit transmitted is stored in the lowest bit
+        long mask = -1L >>> (64 - bits);
+        long window = -1L >>> (64 - this.bits * 3);
+        channelValues |= ((reverse(value, bits) & mask) << off) & window;
+        channelWritten |= (mask << off) & window;
     }
 
     /**
-     * The <code>advance()</code> method advances the channel to the next period.
+     * The <code>advance()</code> method advances the window of the channel so that it is centered on the
+     * specified period, unless it is already centered on the same or a later period.
+     * @param p the number of the period to advance to
      */
-    public void advance() {
-        globalTime += period;
-
-        // copy the values written into the channel
-        for ( int cntr = 0; cntr < bits * 2; cntr++ ) {
-            channelValues[cntr] = channelValues[cntr+8];
-            channelWritten[cntr] = channelWritten[cntr+8];
+    protected void advance(long p) {
+        if ( p <= current ) return;
+        long shift = (p - current) * bits;
+        if ( shift >= 64 ) {
+            channelValues = 0;
+            channelWritten = 0;
+        } else {
+            channelValues >>>= shift;
+            channelWritten >>>= shift;
         }
-        // erase the values written for next interval
-        for ( int cntr = bits * 2; cntr < bits * 3; cntr++ ) {
-            channelValues[cntr] = false;
-            channelWritten[cntr] = false;
+        current = p;
+        removePackets();
+    }
+
+    /**
+     * The <code>removePackets()</code> method removes the packets that have ended before the window of the
+     * channel, and therefore cannot be read any more.
+     */
+    protected void removePackets() {
+        int pos = 0;
+        for ( int cntr = 0; cntr < numPackets; cntr++ ) {
+            Radio.Packet pk = packets[cntr];
+            // the end is checked before the length is read, so that the length is final
+            if ( pk.isEnded() && pk.originTime / period + pk.getLength() - 1 < current - 1 ) continue;
+            packets[pos++] = pk;
         }
+        for ( int cntr = pos; cntr < numPackets; cntr++ ) packets[cntr] = null;
+        numPackets = pos;
     }
 
     /**
@@ -110,11 +172,14 @@ public class Channel {
      * @return a value representing the channel contents at this global time
      */
     public int read(long time, int bits) {
-        int value = 0;
-        int off = channelOffset(time) - bits;
-
-        for ( int cntr = 0; cntr < bits; cntr++ ) {
-            value = Arithmetic.setBit(value << 1, 0, channelValues[off+cntr]);
+        long p = time / period;
+        advance(p);
+        int off = channelOffset(p) - bits;
+        if ( off < 0 ) return 0;
+        int value = reverse((int)(channelValues >>> off), bits);
+        for ( int cntr = 0; cntr < numPackets; cntr++ ) {
+            int b = readPacket(packets[cntr], p - 1);
+            if ( b >= 0 ) value |= (invert ? ~b : b) & 0xff;
         }
         return value;
     }
@@ -127,16 +192,38 @@ public class Channel {
      * @return true if the channel was written to during the specified time interval; false otherwise
      */
     public boolean occupied(long start, long end) {
-        int off = channelOffset(end);
+        long p = end / period;
+        advance(p);
+        int off = channelOffset(p);
         int diff = (int)((end - start + bitPeriod - 1) / bitPeriod);
-        for ( int cntr = off - diff - 1; cntr < off; cntr++) {
-            if ( channelWritten[cntr] ) return true;
-        }
+        int low = Math.max(off - diff - 1, 0);
+        if ( low >= off ) return false;
+        long range = (-1L << low) & (-1L >>> (64 - off));
+        if ( (channelWritten & range) != 0 ) return true;
+        // the range always covers the end of the previous period, where the last byte of a packet is read
+        for ( int cntr = 0; cntr < numPackets; cntr++ )
+            if ( readPacket(packets[cntr], p - 1) >= 0 ) return true;
         return false;
     }
 
-    protected int channelOffset(long gtime) {
-        long diff = gtime - globalTime;
-        return (int)(diff / period + bits);
+    /**
+     * The <code>readPacket()</code> method reads the byte of a packet that was added to it during the specified
+     * period.
+     * @param pk the packet to read from
+     * @param p the number of the period
+     * @return the byte of the packet; -1 if none of its bytes was added during the period
+     */
+    protected int readPacket(Radio.Packet pk, long p) {
+        long i = p - pk.originTime / period;
+        if ( i < 0 || i >= pk.getLength() ) return -1;
+        return pk.getByte((int)i) & 0xff;
+    }
+
+    protected int channelOffset(long p) {
+        return (int)(p - current + 1) * bits;
+    }
+
+    private static int reverse(int value, int bits) {
+        return (Integer.reverse(value) >>> (32 - bits)) & (int)(-1L >>> (64 - bits));
     }
 }
@@ -85,6 +85,60 @@ public interface Radio {
 
     }
 
+    /**
+     * A <code>Packet</code> is an object describing a packet transmitted over <code>RadioAir</code> as a
+     * whole by a radio in packet mode. The packet begins at its origin time, and the radio adds one byte to
+     * it every <code>TRANSFER_TIME</code> cycles as it transmits the packet, until the packet ends.
+     */
+    public class Packet {
+
+        public final long frequency;
+        public final long originTime;
+
+        protected byte[] data;
+        protected volatile int length;
+        protected volatile boolean ended;
+
+        public Packet(long frequency, long originTime) {
+            this.frequency = frequency;
+            this.originTime = originTime;
+            this.data = new byte[64];
+        }
+
+        /**
+         * The <code>add()</code> method adds the next byte transmitted to this packet.
+         * @param b the byte transmitted
+         */
+        public void add(byte b) {
+            if (length == data.length) {
+                byte[] nd = new byte[length * 2];
+                System.arraycopy(data, 0, nd, 0, length);
+                data = nd;
+            }
+            data[length] = b;
+            length++;
+        }
+
+        /**
+         * The <code>end()</code> method ends this packet; no more bytes will be added to it.
+         */
+        public void end() {
+            ended = true;
+        }
+
+        public boolean isEnded() {
+            return ended;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public byte getByte(int i) {
+            return data[i];
+        }
+    }
+
     /**
      * A <code>RadioController</code> is an object installed into a Microcontroller. The recommended
      * implementation is to implement specialized IO registers as inner classes and install them into the
@@ -132,6 +186,13 @@ public interface Radio {
 
     public boolean isListening();
 
+    /**
+     * The <code>isPoweredDown()</code> method checks whether both the receiver and the transmitter of this
+     * radio are powered down, so that the radio neither transmits into the air nor reads from it.
+     * @return true if the receiver and the transmitter are powered down; false otherwise
+     */
+    public boolean isPoweredDown();
+
     public RadioAir getAir();
 
     public void setAir(RadioAir air);
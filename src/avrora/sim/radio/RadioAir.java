@@ -66,6 +66,16 @@ public interface RadioAir {
      */
     public void transmit(Radio r, Radio.Transmission f);
 
+    /**
+     * The <code>transmitPacket()</code> method is called by a radio in packet mode when it begins to
+     * transmit a packet over the air as a whole. The radio adds the bytes of the packet as it transmits
+     * them, and the packet should be delivered once to those radios in range, which read its bytes as if
+     * each of them had been transmitted with <code>transmit()</code>.
+     * @param r the radio transmitting this packet
+     * @param p the packet transmitted into the air
+     */
+    public void transmitPacket(Radio r, Radio.Packet p);
+
     /**
      * The <code>sampleRSSI()</code> method is called by a radio when it wants to
      * sample the RSSI value of the air around it at the current time. The air may
@@ -86,6 +96,16 @@ public interface RadioAir {
      */
     public byte readChannel(Radio r);
 
+    /**
+     * The <code>readPacketChannel()</code> method reads the value of the channel like
+     * <code>readChannel()</code>, for a radio in packet mode. Since the last 8 bits were transmitted
+     * during an earlier byte period, which the other nodes have finished by the time this node has passed
+     * its last synchronization point, it does not need to wait for the neighbors of the node.
+     * @param r the radio sampling the channel
+     * @return the last 8 bits transmitted in the channel
+     */
+    public byte readPacketChannel(Radio r);
+
     /**
      * The <code>getSynchronizer()</code> method gets the synchronizer for this air
      * implementation.
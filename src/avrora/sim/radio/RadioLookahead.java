@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.sim.radio;
+
+import avrora.sim.Simulator;
+import avrora.sim.clock.IntervalSynchronizer;
+
+import java.util.HashMap;
+
+/**
+ * The <code>RadioLookahead</code> class reports a node as silent to an <code>IntervalSynchronizer</code>
+ * while both the receiver and the transmitter of its radio are powered down. Such a node can neither
+ * transmit into the air nor read from it, so it need not wait for the others at the meet points.
+ * <p/>
+ * A radio that is powered up only starts transferring bytes one transfer time later, which is no earlier
+ * than the next meet point of the node, where it rejoins the others. Sampling the RSSI value through the
+ * ADC, which is possible while the radio is powered down, waits for the neighbors and therefore rejoins
+ * them first.
+ *
+ * @author Ben L. Titzer
+ */
+public class RadioLookahead implements IntervalSynchronizer.Lookahead {
+
+    protected final HashMap radioMap;
+
+    public RadioLookahead() {
+        radioMap = new HashMap();
+    }
+
+    /**
+     * The <code>addRadio()</code> method adds a radio whose node is reported as silent while the radio is
+     * powered down. This method should only be called before the simulation is started.
+     * @param r the radio to add
+     */
+    public void addRadio(Radio r) {
+        radioMap.put(r.getSimulator(), r);
+    }
+
+    /**
+     * The <code>isSilent()</code> method checks whether the radio of a node is powered down.
+     * @param s the simulator of the node
+     * @return true if the node has a radio and it is powered down; false otherwise
+     */
+    public boolean isSilent(Simulator s) {
+        Radio r = (Radio)radioMap.get(s);
+        return r != null && r.isPoweredDown();
+    }
+}
@@ -38,6 +38,7 @@ import avrora.sim.clock.Synchronizer;
 import avrora.sim.mcu.ADC;
 
 import java.util.HashSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Very simple implementation of radio air. It assumes a lossless environment where all radios are able to
@@ -58,6 +59,8 @@ public class SimpleAir implements RadioAir {
 
     protected final IntervalSynchronizer synchronizer;
 
+    protected final ReentrantLock lock;
+
     private static final int INTERVALS = 1;
     private static final int sampleTime = 13 * 64;
     private static final int TRANSFER_TIME = Radio.TRANSFER_TIME;
@@ -65,27 +68,38 @@ public class SimpleAir implements RadioAir {
 
     public SimpleAir() {
         radios = new HashSet();
+        lock = new ReentrantLock();
         radioChannel = new Channel(8 * INTERVALS, INTERVAL_TIME, true);
-        synchronizer = new IntervalSynchronizer(INTERVAL_TIME, new MeetEvent());
+        synchronizer = new IntervalSynchronizer(INTERVAL_TIME, null);
     }
 
     /**
      * The <code>addRadio()</code> method adds a new radio to this radio model.
      * @param r the radio to add to this air implementation
      */
-    public synchronized void addRadio(Radio r) {
-        radios.add(r);
-        r.setAir(this);
+    public void addRadio(Radio r) {
+        lock.lock();
+        try {
+            radios.add(r);
+            r.setAir(this);
 //        synchronizer.addNode(r.getSimulatorThread().getNode());
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * The <code>removeRadio()</code> method removes a radio from this radio model.
      * @param r the radio to remove from this air implementation
      */
-    public synchronized void removeRadio(Radio r) {
-        radios.remove(r);
+    public void removeRadio(Radio r) {
+        lock.lock();
+        try {
+            radios.remove(r);
 //        synchronizer.removeNode(r.getSimulatorThread().getNode());
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -95,15 +109,32 @@ public class SimpleAir implements RadioAir {
      * @param r the radio transmitting this packet
      * @param f the radio packet transmitted into the air
      */
-    public synchronized void transmit(Radio r, Radio.Transmission f) {
-        radioChannel.write(f.data, 8, r.getSimulator().getClock().getCount());
+    public void transmit(Radio r, Radio.Transmission f) {
+        // a node that ran ahead while its radio was off must not transmit into the past of the others
+        synchronizer.rejoin();
+        lock.lock();
+        try {
+            radioChannel.write(f.data, 8, r.getSimulator().getClock().getCount());
+        } finally {
+            lock.unlock();
+        }
     }
 
-    protected class MeetEvent implements Simulator.Event {
-        long meets;
-
-        public void fire() {
-            radioChannel.advance();
+    /**
+     * The <code>transmitPacket()</code> method is called by a radio in packet mode when it begins to
+     * transmit a packet over the air as a whole. The packet is added to the channel once, rather than
+     * each of its bytes.
+     * @param r the radio transmitting this packet
+     * @param p the packet transmitted into the air
+     */
+    public void transmitPacket(Radio r, Radio.Packet p) {
+        // a node that ran ahead while its radio was off must not transmit into the past of the others
+        synchronizer.rejoin();
+        lock.lock();
+        try {
+            radioChannel.addPacket(p);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -119,7 +150,12 @@ public class SimpleAir implements RadioAir {
     public int sampleRSSI(Radio r) {
         long t = r.getSimulator().getClock().getCount();
         synchronizer.waitForNeighbors(t);
-        return radioChannel.occupied(t - sampleTime, t) ? 0x0 : ADC.VBG_LEVEL;
+        lock.lock();
+        try {
+            return radioChannel.occupied(t - sampleTime, t) ? 0x0 : ADC.VBG_LEVEL;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -133,7 +169,30 @@ public class SimpleAir implements RadioAir {
         Simulator sim = r.getSimulator();
         long time = sim.getClock().getCount();
         synchronizer.waitForNeighbors(time);
-        return (byte)radioChannel.read(time, 8);
+        lock.lock();
+        try {
+            return (byte)radioChannel.read(time, 8);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The <code>readPacketChannel()</code> method reads the value of the channel at the current
+     * time for a radio in packet mode, without waiting for the other nodes.
+     * @param r the radio sampling the channel
+     * @return the last 8 bits transmitted in the channel
+     */
+    public byte readPacketChannel(Radio r) {
+        // a node that ran ahead while its radio was off must let the others catch up
+        synchronizer.rejoin();
+        long time = r.getSimulator().getClock().getCount();
+        lock.lock();
+        try {
+            return (byte)radioChannel.read(time, 8);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
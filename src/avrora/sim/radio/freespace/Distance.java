@@ -1,64 +0,0 @@
-/**
- * Created on 29.10.2004
- * 
- * Copyright (c) 2004-2005, Olaf Landsiedel, Protocol Engineering and 
- * Distributed Systems, University of Tuebingen
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions
- * are met:
- *
- * Redistributions of source code must retain the above copyright notice,
- * this list of conditions and the following disclaimer.
- *
- * Redistributions in binary form must reproduce the above copyright
- * notice, this list of conditions and the following disclaimer in the
- * documentation and/or other materials provided with the distribution.
- *
- * Neither the name of the Protocol Engineering and Distributed Systems
- * Group, the name of the University of Tuebingen nor the names of its 
- * contributors may be used to endorse or promote products derived from
- * this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
- * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
- * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
- * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
- * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
- * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
- * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
- * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
- * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-
-package avrora.sim.radio.freespace;
-
-
-/**
- * stores the between a node and the node who own radio
- *
- * @author Olaf Landsiedel
- */
-public class Distance {
-
-    //distance between a node and the node who owns radio
-    public final double distance;
-
-    //the other radio
-    public final LocalAirImpl radio;
-
-    /**
-     * new Disance
-     *
-     * @param r   local radio
-     * @param dis distance
-     */
-    public Distance(LocalAirImpl r, double dis) {
-        radio = r;
-        distance = dis;
-    }
-
-}
@@ -38,14 +38,16 @@ package avrora.sim.radio.freespace;
 
 import avrora.sim.Simulator;
 import avrora.sim.clock.IntervalSynchronizer;
+import avrora.sim.clock.NeighborSynchronizer;
 import avrora.sim.clock.Synchronizer;
 import avrora.sim.radio.Radio;
 import avrora.sim.radio.RadioAir;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation of the free space radio propagation model
@@ -56,6 +58,16 @@ import java.util.TreeSet;
  *         implementation. It shall model the characteristics of radio propagation and so enable multihop
  *         scenarios. This implementation bases heavily on the SimpleAir class by Daniel Lee. However, the
  *         changes needed, where to heavy to allow for standard class extension
+ *         <p/>
+ *         Only the radios within the range of the strongest transmission are neighbors of each other.
+ *         They are found through a <code>Grid</code> over the positions of the nodes, so that building
+ *         a large network that is spread over a wide area takes time and memory in proportion to the
+ *         number of pairs of nodes within range, rather than the square of the number of nodes.
+ *         <p/>
+ *         The air is either synchronized globally, where all of the nodes meet at the end of each byte
+ *         period, or locally, where each node only meets its neighbors. In either case, the channel of
+ *         each radio advances itself when it is accessed, so that nothing has to be done for the radios
+ *         while the nodes meet.
  */
 public class FreeSpaceAir implements RadioAir {
 
@@ -64,10 +76,20 @@ public class FreeSpaceAir implements RadioAir {
     // all radios
     protected final HashSet radios;
 
-    final IntervalSynchronizer synchronizer;
+    final Synchronizer synchronizer;
+
+    /**
+     * The synchronizer through which each node only meets its neighbors; null if the air is
+     * synchronized globally.
+     */
+    final NeighborSynchronizer localSynchronizer;
+
+    final ReentrantLock lock;
 
     final Topology topology;
 
+    final Grid grid;
+
     /**
      * State for maintaining RSSI wait for neighbors
      */
@@ -88,51 +110,103 @@ public class FreeSpaceAir implements RadioAir {
     private static final double noiseCutOff = 0.000009;
 
     /**
-     * new free space air
+     * The transmission power in Watt for each setting of the power register.
+     */
+    private static final double[] powerTable = new double[256];
+
+    /**
+     * The lowest frequency that the CC1000 can be tuned to; radios tuned below it transmit as if they were
+     * tuned to it, so that the range of a transmission is bounded.
+     */
+    private static final double minFrequency = 300000000;
+
+    /**
+     * The distance beyond which no transmission can be received, which is reached at the maximum power
+     * and the lowest frequency.
+     */
+    static final double range;
+
+    static {
+        double max = 0;
+        for (int cntr = 0; cntr < powerTable.length; cntr++) {
+            double powerSet = (double)cntr;
+            //convert to dB (by linearization) and than to Watts
+            //for linearization, we distinguish values less than 16
+            //and higher ones. Probably a lookup table and Spline
+            //interpolation would be nice here
+            if (powerSet < 16)
+                powerTable[cntr] = Math.pow(10, (0.12 * powerSet - 1.8));
+            else
+                powerTable[cntr] = Math.pow(10, (0.00431 * powerSet - 0.06459));
+            if (powerTable[cntr] > max) max = powerTable[cntr];
+        }
+        range = Math.sqrt(max * lightConst / (minFrequency * minFrequency * noiseCutOff));
+    }
+
+    /**
+     * new free space air, synchronized globally
      */
     public FreeSpaceAir(Topology top) {
+        this(top, false);
+    }
+
+    /**
+     * new free space air
+     *
+     * @param local true if each node should only be synchronized with the nodes in its range; false if
+     *              all nodes should be synchronized with each other
+     */
+    public FreeSpaceAir(Topology top, boolean local) {
         topology = top;
         radios = new HashSet();
-        synchronizer = new IntervalSynchronizer(bytePeriod, new MeetEvent());
+        lock = new ReentrantLock();
+        grid = new Grid(range);
+        if (local) {
+            localSynchronizer = new NeighborSynchronizer(bytePeriod);
+            synchronizer = localSynchronizer;
+        } else {
+            localSynchronizer = null;
+            synchronizer = new IntervalSynchronizer(bytePeriod, null);
+        }
         rssi_waiters = new TreeSet();
         airMap = new HashMap();
     }
 
-    protected class MeetEvent implements Simulator.Event {
-        int meets;
-
-        public void fire() {
-            meets++;
-            long globalTime = meets * bytePeriod;
-            Iterator it = radios.iterator();
-            while (it.hasNext()) {
-                Radio r = (Radio)it.next();
-                LocalAirImpl pr = getLocalAir(r);
-                pr.advanceChannel();
-            }
-        }
-    }
+    public void addRadio(Radio r) {
+        lock.lock();
+        try {
+            Position p = topology.getPosition(r.getSimulator().getID());
+            LocalAirImpl la = new LocalAirImpl(r, p, synchronizer);
+            airMap.put(r, la);
+            r.setAir(this);
 
-    public synchronized void addRadio(Radio r) {
-        Position p = topology.getPosition(r.getSimulator().getID());
-        LocalAirImpl la = new LocalAirImpl(r, p, synchronizer);
-        airMap.put(r, la);
-        r.setAir(this);
-
-        //add this radio to the other radio's neighbor list
-        Iterator it = radios.iterator();
-        while (it.hasNext()) {
-            LocalAirImpl localAir = getLocalAir(((Radio)it.next()));
-            //add the new radio to the other radio's neighbor list
-            localAir.addNeighbor(getLocalAir(r));
-            //add the other radios to this radio's neighbor list
-            getLocalAir(r).addNeighbor(localAir);
-        }
-        radios.add(r);
+            //add this radio to the neighbor lists of the radios in range
+            List nearby = grid.getNearby(p);
+            for (int cntr = 0; cntr < nearby.size(); cntr++) {
+                LocalAirImpl localAir = (LocalAirImpl)nearby.get(cntr);
+                if (la.getDistance(localAir) > range) continue;
+                //add the new radio to the other radio's neighbor list
+                localAir.addNeighbor(la);
+                //add the other radios to this radio's neighbor list
+                la.addNeighbor(localAir);
+                if (localSynchronizer != null)
+                    localSynchronizer.addNeighbor(r.getSimulator(), localAir.getRadio().getSimulator());
+            }
+            grid.add(la);
+            radios.add(r);
 //        synchronizer.addNode(r.getSimulatorThread().getNode());
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private LocalAirImpl getLocalAir(Radio r) {
+    /**
+     * The <code>getLocalAir()</code> method gets the local air of a radio in this air, which holds the
+     * neighbors of the radio in the order of their distance.
+     * @param r the radio
+     * @return the local air of the radio; null if the radio is not in this air
+     */
+    public LocalAirImpl getLocalAir(Radio r) {
         return (LocalAirImpl)airMap.get(r);
     }
 
@@ -141,13 +215,18 @@ public class FreeSpaceAir implements RadioAir {
      *
      * @see avrora.sim.radio.RadioAir#removeRadio(avrora.sim.radio.Radio)
      */
-    public synchronized void removeRadio(Radio r) {
-        radios.remove(r);
-        Iterator it = radios.iterator();
-        while (it.hasNext()) {
-            LocalAirImpl localAir = getLocalAir(((Radio)it.next()));
-            //remove the radio from the other radio's neighbor list
-            localAir.removeNeighbor(getLocalAir(r));
+    public void removeRadio(Radio r) {
+        lock.lock();
+        try {
+            if (!radios.remove(r)) return;
+            LocalAirImpl la = getLocalAir(r);
+            for (int cntr = la.getNeighborCount() - 1; cntr >= 0; cntr--) {
+                //remove the radio from the other radio's neighbor list
+                la.getNeighbor(cntr).removeNeighbor(la);
+            }
+            grid.remove(la);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -156,36 +235,66 @@ public class FreeSpaceAir implements RadioAir {
      *
      * @see avrora.sim.radio.RadioAir#transmit(avrora.sim.radio.Radio, avrora.sim.radio.Radio.Transmission)
      */
-    public synchronized void transmit(Radio r, Radio.Transmission f) {
+    public void transmit(Radio r, Radio.Transmission f) {
+        rejoin();
+        lock.lock();
+        try {
+            double temp = getSignal(r);
+            // send packet to devices in ranges, nearest first
+            LocalAirImpl la = getLocalAir(r);
+            int count = la.getNeighborCount();
+            for (int cntr = 0; cntr < count; cntr++) {
+                double powerRec = temp / la.getNeighborDistance2(cntr);
+                //check if device is in range; the others are even farther away
+                if (!(powerRec > noiseCutOff)) break;
+                la.getNeighbor(cntr).addPacket(f, powerRec, r);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * transmit a packet as a whole, which is delivered once to the devices in range at its start
+     *
+     * @see avrora.sim.radio.RadioAir#transmitPacket(avrora.sim.radio.Radio, avrora.sim.radio.Radio.Packet)
+     */
+    public void transmitPacket(Radio r, Radio.Packet p) {
+        rejoin();
+        lock.lock();
+        try {
+            double temp = getSignal(r);
+            LocalAirImpl la = getLocalAir(r);
+            int count = la.getNeighborCount();
+            for (int cntr = 0; cntr < count; cntr++) {
+                if (!(temp / la.getNeighborDistance2(cntr) > noiseCutOff)) break;
+                la.getNeighbor(cntr).addPacket(p);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * compute the received signal strength of a transmission, multiplied by the square of the distance
+     *
+     */
+    private double getSignal(Radio r) {
         //compute transmission range, incl. noise
-        //first compute tranmission power in Watt
-        double powerSet = (double)r.getPower();
-        double power;
-        //convert to dB (by linearization) and than to Watts
-        //for linearization, we distinguish values less than 16
-        //and higher ones. Probably a lookup table and Spline
-        //interpolation would be nice here
-        if (powerSet < 16)
-            power = Math.pow(10, (0.12 * powerSet - 1.8));
-        else
-            power = Math.pow(10, (0.00431 * powerSet - 0.06459));
-        
+        //first look up tranmission power in Watt
+        double power = powerTable[r.getPower()];
+
         //second compute free space formula (without distance)
         //SignalRec = SignalSend * lightTerm * (1 / ( distance * freq))^2;
         // where lightTerm is ( c / ( 4Pi ))^2
-        double freq = r.getFrequency();
-        double temp = power * lightConst * (1 / (freq * freq));
-        // send packet to devices in ranges
-        Iterator it = getLocalAir(r).getNeighbors();
-        while (it.hasNext()) {
-            Distance dis = (Distance)it.next();
-            double powerRec = temp / (dis.distance * dis.distance);
-            //check if device is in range
-            if (powerRec > noiseCutOff) {
-                dis.radio.addPacket(f, powerRec, r);
-            }
-        }
+        double freq = Math.max(r.getFrequency(), minFrequency);
+        return power * lightConst * (1 / (freq * freq));
+    }
 
+    private void rejoin() {
+        // a node that ran ahead while its radio was off must let the others catch up before it interacts with them
+        if (synchronizer instanceof IntervalSynchronizer)
+            ((IntervalSynchronizer)synchronizer).rejoin();
     }
 
     /**
@@ -207,6 +316,12 @@ public class FreeSpaceAir implements RadioAir {
         return lair.readChannel();
     }
 
+    public byte readPacketChannel(Radio r) {
+        rejoin();
+        LocalAirImpl lair = getLocalAir(r);
+        return lair.readPacketChannel();
+    }
+
     public Synchronizer getSynchronizer() {
         return synchronizer;
     }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.sim.radio.freespace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The <code>Grid</code> class implements a spatial index over the positions of the nodes. The space is
+ * divided into cubic cells as large as the range of the radios, so that all of the nodes within range of
+ * a position lie in the cell of the position and the cells adjacent to it.
+ *
+ * @author Ben L. Titzer
+ */
+public class Grid {
+
+    protected final double cellSize;
+    protected final HashMap cells;
+
+    /**
+     * The constructor for the <code>Grid</code> class creates a new, empty grid.
+     * @param size the length of the edges of the cells of the grid
+     */
+    public Grid(double size) {
+        cellSize = size;
+        cells = new HashMap();
+    }
+
+    /**
+     * The <code>add()</code> method adds the local air of a node to the cell of its position.
+     * @param a the local air to add
+     */
+    public void add(LocalAirImpl a) {
+        Position p = a.getPosition();
+        Long key = new Long(getKey(getCell(p.x), getCell(p.y), getCell(p.z)));
+        List l = (List)cells.get(key);
+        if (l == null) {
+            l = new ArrayList();
+            cells.put(key, l);
+        }
+        l.add(a);
+    }
+
+    /**
+     * The <code>remove()</code> method removes the local air of a node from this grid.
+     * @param a the local air to remove
+     */
+    public void remove(LocalAirImpl a) {
+        Position p = a.getPosition();
+        Long key = new Long(getKey(getCell(p.x), getCell(p.y), getCell(p.z)));
+        List l = (List)cells.get(key);
+        if (l == null) return;
+        l.remove(a);
+        if (l.isEmpty()) cells.remove(key);
+    }
+
+    /**
+     * The <code>getNearby()</code> method gets the local airs of the nodes in the cell of a position
+     * and the cells adjacent to it, which include all of the nodes within one cell size of the position.
+     * @param p the position
+     * @return a list of the local airs of the nodes near the position
+     */
+    public List getNearby(Position p) {
+        List result = new ArrayList();
+        int cx = getCell(p.x);
+        int cy = getCell(p.y);
+        int cz = getCell(p.z);
+        for (int x = cx - 1; x <= cx + 1; x++)
+            for (int y = cy - 1; y <= cy + 1; y++)
+                for (int z = cz - 1; z <= cz + 1; z++) {
+                    List l = (List)cells.get(new Long(getKey(x, y, z)));
+                    if (l != null) result.addAll(l);
+                }
+        return result;
+    }
+
+    private int getCell(int coord) {
+        return (int)Math.floor(coord / cellSize);
+    }
+
+    private static long getKey(int x, int y, int z) {
+        return ((long)(x & 0x1fffff) << 42) | ((long)(y & 0x1fffff) << 21) | (long)(z & 0x1fffff);
+    }
+}
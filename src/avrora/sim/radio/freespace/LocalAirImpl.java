@@ -41,19 +41,23 @@ import avrora.sim.mcu.ADC;
 import avrora.sim.radio.Channel;
 import avrora.sim.radio.Radio;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation of Local Air
+ * <p/>
+ * The neighbors are stored in arrays sorted by distance, together with the square of their distance, so
+ * that a transmission can stop at the first neighbor that is out of range.
  *
  * @author Olaf Landsiedel
  */
 public class LocalAirImpl {
 
     //neighbor list, sorted by distance
-    private final LinkedList neighbors;
+    private LocalAirImpl[] neighbors;
+    //squares of the distances of the neighbors
+    private double[] distances2;
+    private int numNeighbors;
     //position of this node
     private final Position position;
     //the radio sending and receiving from this air
@@ -67,6 +71,8 @@ public class LocalAirImpl {
 
     final Synchronizer synchronizer;
 
+    final ReentrantLock lock;
+
     /**
      * new local air
      *
@@ -75,7 +81,9 @@ public class LocalAirImpl {
      */
     public LocalAirImpl(Radio r, Position pos, Synchronizer synch) {
         position = pos;
-        neighbors = new LinkedList();
+        neighbors = new LocalAirImpl[4];
+        distances2 = new double[4];
+        lock = new ReentrantLock();
         radio = r;
         radioChannel = new Channel(8, bytePeriod, true);
         synchronizer = synch;
@@ -97,7 +105,21 @@ public class LocalAirImpl {
      * add neighbor
      *
      */
-    public synchronized void addNeighbor(LocalAirImpl r) {
+    public void addNeighbor(LocalAirImpl r) {
+        lock.lock();
+        try {
+            double distance = getDistance(r);
+            addNeighbor(r, distance * distance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * get the distance to another node
+     *
+     */
+    public double getDistance(LocalAirImpl r) {
         Position position = r.getPosition();
         double x = position.x - this.position.x;
         double y = position.y - this.position.y;
@@ -105,81 +127,151 @@ public class LocalAirImpl {
         double distance = Math.sqrt(x * x + y * y + z * z);
         if (distance == 0)
             distance = 0.000001;
-        addNeighbor(r, distance);
+        return distance;
     }
 
     /**
      * local helper for adding a neighbor
      *
-     * @param r        radio
-     * @param distance distance
+     * @param r         radio
+     * @param distance2 square of the distance
      */
-    private void addNeighbor(LocalAirImpl r, double distance) {
-        ListIterator it = neighbors.listIterator();
-        boolean done = false;
-        while (!done && it.hasNext()) {
-            Distance dis = (Distance)it.next();
-            if (distance < dis.distance) {
-                it.previous();
-                it.add(new Distance(r, distance));
-                done = true;
-            }
+    private void addNeighbor(LocalAirImpl r, double distance2) {
+        if (numNeighbors == neighbors.length) {
+            LocalAirImpl[] nn = new LocalAirImpl[numNeighbors * 2];
+            double[] nd = new double[numNeighbors * 2];
+            System.arraycopy(neighbors, 0, nn, 0, numNeighbors);
+            System.arraycopy(distances2, 0, nd, 0, numNeighbors);
+            neighbors = nn;
+            distances2 = nd;
         }
-        //either the list is empty
-        //or this new radio shall go to the end of the list
-        //as it has the greatest distance
-        if (!done) {
-            it.add(new Distance(r, distance));
+        //the new radio goes after all neighbors that are not farther away
+        int low = 0;
+        int high = numNeighbors;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distance2 < distances2[mid]) high = mid;
+            else low = mid + 1;
         }
+        System.arraycopy(neighbors, low, neighbors, low + 1, numNeighbors - low);
+        System.arraycopy(distances2, low, distances2, low + 1, numNeighbors - low);
+        neighbors[low] = r;
+        distances2[low] = distance2;
+        numNeighbors++;
     }
 
     /**
      * remove a node
      *
      */
-    public synchronized void removeNeighbor(LocalAirImpl r) {
-        ListIterator it = neighbors.listIterator();
-        while (it.hasNext()) {
-            Distance dis = (Distance)it.next();
-            if (dis.radio == r) {
-                it.remove();
+    public void removeNeighbor(LocalAirImpl r) {
+        lock.lock();
+        try {
+            int pos = 0;
+            for (int cntr = 0; cntr < numNeighbors; cntr++) {
+                if (neighbors[cntr] == r) continue;
+                neighbors[pos] = neighbors[cntr];
+                distances2[pos] = distances2[cntr];
+                pos++;
             }
+            for (int cntr = pos; cntr < numNeighbors; cntr++) neighbors[cntr] = null;
+            numNeighbors = pos;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * tell me, who is around
+     * tell me, how many are around
+     *
+     */
+    public int getNeighborCount() {
+        return numNeighbors;
+    }
+
+    /**
+     * get a neighbor, in the order of distance
+     *
+     */
+    public LocalAirImpl getNeighbor(int i) {
+        return neighbors[i];
+    }
+
+    /**
+     * get the square of the distance of a neighbor
      *
      */
-    public synchronized Iterator getNeighbors() {
-        return neighbors.iterator();
+    public double getNeighborDistance2(int i) {
+        return distances2[i];
     }
 
     /**
      * receive a packet
      *
      */
-    public synchronized void addPacket(Radio.Transmission p, double pow, Radio sender) {
-        radioChannel.write(p.data, 8, p.originTime);
+    public void addPacket(Radio.Transmission p, double pow, Radio sender) {
+        lock.lock();
+        try {
+            radioChannel.write(p.data, 8, p.originTime);
+        } finally {
+            lock.unlock();
+        }
     }
 
 
+    /**
+     * receive a packet that is transmitted as a whole
+     *
+     */
+    public void addPacket(Radio.Packet p) {
+        lock.lock();
+        try {
+            radioChannel.addPacket(p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * compute signal strength bases on @see avrora.sim.radio.SimpleAir#sampleRSSI(long) by Daniel Lee
      *
      */
     public int sampleRSSI(long gtime) {
         synchronizer.waitForNeighbors(gtime);
-        return radioChannel.occupied(gtime - sampleTime, gtime) ? 0x0 : ADC.VBG_LEVEL;
-    }
-
-    public void advanceChannel() {
-        radioChannel.advance();
+        lock.lock();
+        try {
+            return radioChannel.occupied(gtime - sampleTime, gtime) ? 0x0 : ADC.VBG_LEVEL;
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * read the channel; the channel advances itself as time passes
+     *
+     */
     public byte readChannel() {
         long ltime = radio.getSimulator().getClock().getCount();
         synchronizer.waitForNeighbors(ltime);
-        return (byte)radioChannel.read(ltime, 8);
+        lock.lock();
+        try {
+            return (byte)radioChannel.read(ltime, 8);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * read the channel in packet mode, without waiting for the neighbors
+     *
+     */
+    public byte readPacketChannel() {
+        long ltime = radio.getSimulator().getClock().getCount();
+        lock.lock();
+        try {
+            return (byte)radioChannel.read(ltime, 8);
+        } finally {
+            lock.unlock();
+        }
     }
 }
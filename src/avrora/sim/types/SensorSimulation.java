@@ -40,13 +40,17 @@ import avrora.core.SourceMapping;
 import avrora.sim.BaseInterpreter;
 import avrora.sim.Simulation;
 import avrora.sim.SimulatorThread;
+import avrora.sim.clock.IntervalSynchronizer;
+import avrora.sim.clock.WorkerPool;
 import avrora.sim.platform.Platform;
 import avrora.sim.platform.PlatformFactory;
 import avrora.sim.platform.sensors.RandomSensorData;
 import avrora.sim.platform.sensors.ReplaySensorData;
 import avrora.sim.platform.sensors.Sensor;
+import avrora.sim.radio.CC1000Radio;
 import avrora.sim.radio.Radio;
 import avrora.sim.radio.RadioAir;
+import avrora.sim.radio.RadioLookahead;
 import avrora.sim.radio.SimpleAir;
 import avrora.sim.radio.freespace.FreeSpaceAir;
 import avrora.sim.radio.freespace.Topology;
@@ -60,6 +64,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The <code>SensorSimulation</code> class represents a simulaion type where multiple sensor nodes,
@@ -117,6 +122,37 @@ public class SensorSimulation extends Simulation {
             "called \"node_address\". When loading a program onto " +
             "a node, the simulator will search for these labels, and if found, will update the word " +
             "in flash with the node's ID number.");
+    public final Option.Str SCHEDULER = options.newOption("scheduler", "threads",
+            "This option selects how the nodes are run by the threads of the simulator. The \"threads\" " +
+            "scheduler runs each node in a thread of its own. The \"pool\" scheduler runs the nodes on a " +
+            "pool of worker threads: a node that reaches a synchronization point before the others is " +
+            "suspended, and its worker picks up another node that is ready to run, stealing from the other " +
+            "workers when it has none of its own. This avoids creating a thread for each node in large networks. " +
+            "The \"virtual\" scheduler runs each node in a virtual thread of its own, which requires " +
+            "a Java runtime that supports virtual threads.");
+    public final Option.Long WORKERS = options.newOption("workers", 0,
+            "This option specifies the number of worker threads used by the \"pool\" scheduler. " +
+            "When it is zero, one worker is used for each processor.");
+    public final Option.Bool LOOKAHEAD = options.newOption("lookahead", false,
+            "When this option is set, a node whose radio is powered down does not wait for the other " +
+            "nodes at synchronization points, since it can neither transmit nor receive. Such a node " +
+            "may run ahead of the others and waits for them to catch up only when it powers up its " +
+            "radio or samples the RSSI value. Networks running duty-cycled MAC protocols spend most of " +
+            "their time in this state. This option cannot be combined with the \"pool\" scheduler.");
+    public final Option.Str SYNCHRONIZATION = options.newOption("synchronization", "global",
+            "This option selects how the nodes are synchronized when the free space radio model is used. " +
+            "With \"global\" synchronization, all of the nodes meet at each synchronization point. With " +
+            "\"local\" synchronization, each node only waits for the nodes within the range of its radio, so " +
+            "that a slow node only delays the nodes around it, and nodes that are far apart may be at different " +
+            "times. Spatially large networks then run with more parallelism. The \"pool\" scheduler and the " +
+            "\"workers\" and \"lookahead\" options only apply to global synchronization and cannot be " +
+            "combined with local synchronization.");
+    public final Option.Bool PACKET_RADIO = options.newOption("packet-radio", false,
+            "When this option is set, the radios transmit packets as a whole rather than byte by byte. " +
+            "A radio recognizes the preamble and start of frame delimiter of a packet in the bytes sent by " +
+            "the program, and delivers the packet once to the radios in range, which read its bytes from " +
+            "it as their programs receive them, without waiting for the other nodes. The bytes received " +
+            "are the same as without this option, but networks that exchange many packets run faster.");
     
     class SensorDataInput {
         String sensor;
@@ -174,10 +210,13 @@ public class SensorSimulation extends Simulation {
         }
 
         private void createNode() {
-            thread = new SimulatorThread(this);
+            thread = threadFactory != null ? new SimulatorThread(this, threadFactory) : new SimulatorThread(this);
             super.instantiate();
             radio = (Radio)platform.getDevice("radio");
+            if ( PACKET_RADIO.get() && radio instanceof CC1000Radio )
+                ((CC1000Radio)radio).setPacketMode(true);
             air.addRadio(radio);
+            if ( lookahead != null ) lookahead.addRadio(radio);
             simulator.delay(startup);
         }
 
@@ -206,6 +245,8 @@ public class SensorSimulation extends Simulation {
 
     RadioAir air;
     long stagger;
+    ThreadFactory threadFactory;
+    RadioLookahead lookahead;
 
     public SensorSimulation() {
         super("sensor-network", HELP, null);
@@ -244,6 +285,8 @@ public class SensorSimulation extends Simulation {
      */
     public void process(Options o, String[] args) throws Exception {
         options.process(o);
+        processSynchronization();
+        processScheduler();
         processMonitorList();
 
         if ( args.length == 0 )
@@ -274,9 +317,53 @@ public class SensorSimulation extends Simulation {
         } catch ( IOException e ) {
             throw Avrora.unexpected(e);
         }
+        processWorkerPool();
+        processLookahead();
         super.instantiateNodes();
     }
 
+    private void processSynchronization() {
+        String synch = SYNCHRONIZATION.get();
+        if ( !"global".equals(synch) && !"local".equals(synch) )
+            Avrora.userError("Unknown synchronization", StringUtil.quote(synch));
+        if ( !"local".equals(synch) ) return;
+        // the neighbor synchronizer has neither a worker pool nor a lookahead
+        if ( "pool".equals(SCHEDULER.get()) )
+            Avrora.userError("The \"pool\" scheduler is not supported with local synchronization");
+        if ( WORKERS.get() != 0 )
+            Avrora.userError("The \"workers\" option is not supported with local synchronization");
+        if ( LOOKAHEAD.get() )
+            Avrora.userError("The \"lookahead\" option is not supported with local synchronization");
+    }
+
+    private void processScheduler() {
+        String sched = SCHEDULER.get();
+        threadFactory = null;
+        if ( "virtual".equals(sched) ) {
+            // fail before any node is created if the runtime has no virtual threads
+            threadFactory = SimulatorThread.newVirtualThreadFactory();
+        } else if ( "pool".equals(sched) ) {
+            // a node catching up with the others would block the worker that the others need to run
+            if ( LOOKAHEAD.get() )
+                Avrora.userError("The \"lookahead\" option is not supported by the \"pool\" scheduler");
+        } else if ( !"threads".equals(sched) ) {
+            Avrora.userError("Unknown scheduler", StringUtil.quote(sched));
+        }
+    }
+
+    private void processWorkerPool() {
+        if ( "pool".equals(SCHEDULER.get()) && synchronizer instanceof IntervalSynchronizer )
+            ((IntervalSynchronizer)synchronizer).setWorkerPool(new WorkerPool((int)WORKERS.get()));
+    }
+
+    private void processLookahead() {
+        lookahead = null;
+        if ( LOOKAHEAD.get() && synchronizer instanceof IntervalSynchronizer ) {
+            lookahead = new RadioLookahead();
+            ((IntervalSynchronizer)synchronizer).setLookahead(lookahead);
+        }
+    }
+
     private void createNodes(String[] args, PlatformFactory pf) throws Exception {
         int cntr = 0;
         Iterator i = NODECOUNT.get().iterator();
@@ -335,7 +422,7 @@ public class SensorSimulation extends Simulation {
         if ( "".equals(TOPOLOGY.get()) ) {
             return new SimpleAir();
         } else {
-            return new FreeSpaceAir(new Topology(TOPOLOGY.get()));
+            return new FreeSpaceAir(new Topology(TOPOLOGY.get()), "local".equals(SYNCHRONIZATION.get()));
         }
     }
 
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.test;
+
+import avrora.monitors.Monitor;
+import avrora.monitors.MonitorFactory;
+import avrora.sim.Simulator;
+import avrora.sim.radio.Radio;
+import avrora.sim.radio.RadioAir;
+import avrora.sim.radio.freespace.FreeSpaceAir;
+import avrora.sim.radio.freespace.LocalAirImpl;
+import avrora.util.TermUtil;
+
+import java.util.Arrays;
+
+/**
+ * The <code>AirNeighborMonitor</code> class implements a monitor that is used by the tests of complete
+ * simulations to check the neighbors that the free space radio model finds through its grid. It reports the
+ * IDs of the neighbors of each node in increasing order, so that a test can compare them against the nodes
+ * of the topology that are within range, and whether the neighbors are sorted by their distance. It is not
+ * registered as one of the monitors of the frontend; a test loads it by giving its class name to the
+ * monitors option.
+ *
+ * @author Ben L. Titzer
+ */
+public class AirNeighborMonitor extends MonitorFactory {
+
+    public AirNeighborMonitor() {
+        super("The \"air-neighbor\" monitor reports the neighbors of each node in the free space radio model.");
+    }
+
+    public Monitor newMonitor(Simulator s) {
+        final Radio radio = (Radio)s.getMicrocontroller().getPlatform().getDevice("radio");
+        return new Monitor() {
+            public void report() {
+                RadioAir air = radio.getAir();
+                if (!(air instanceof FreeSpaceAir)) return;
+                LocalAirImpl la = ((FreeSpaceAir)air).getLocalAir(radio);
+                int count = la.getNeighborCount();
+                int[] ids = new int[count];
+                boolean sorted = true;
+                double last = 0;
+                for (int cntr = 0; cntr < count; cntr++) {
+                    LocalAirImpl n = la.getNeighbor(cntr);
+                    ids[cntr] = n.getRadio().getSimulator().getID();
+                    double distance = la.getDistance(n);
+                    double distance2 = la.getNeighborDistance2(cntr);
+                    if (distance2 < last || distance2 != distance * distance) sorted = false;
+                    last = distance2;
+                }
+                Arrays.sort(ids);
+                StringBuffer buf = new StringBuffer();
+                for (int cntr = 0; cntr < count; cntr++) {
+                    if (cntr > 0) buf.append(' ');
+                    buf.append(ids[cntr]);
+                }
+                if (count == 0) buf.append("none");
+                TermUtil.reportQuantity("Neighbors", buf.toString(), "");
+                TermUtil.reportQuantity("Neighbors sorted by distance", String.valueOf(sorted), "");
+            }
+        };
+    }
+}
@@ -60,6 +60,7 @@ import java.util.Properties;
 public class AutomatedTester {
 
     public static boolean LONG_REPORT;
+    public static String INTERPRETER;
 
     private final Verbose.Printer printer = Verbose.getVerbosePrinter("test");
 
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.sim.clock.SpinBarrier;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>BarrierTestHarness</code> implements a test harness for the <code>SpinBarrier</code> that the
+ * threads of a multi-node simulation meet at. A test case starts a number of threads that meet at the
+ * barrier for a number of phases. The test passes if every phase is completed exactly once, only after all
+ * of the parties of the phase have arrived, and no thread is released from a phase before it has been
+ * completed. When the <code>Remove</code> property is set, some of the threads leave the barrier after
+ * fewer phases than the others; when the <code>Pass</code> property is set, the threads pass some of the
+ * phases without waiting and catch up with the others later. The <code>Fanout</code> and
+ * <code>Tree-threshold</code> properties select how the waiting threads are released. The test fails if
+ * the threads have not finished after the number of seconds given by the <code>Timeout</code> property.
+ *
+ * @author Ben L. Titzer
+ */
+public class BarrierTestHarness implements TestHarness {
+
+    class BarrierTest extends TestCase {
+        final int threads;
+        final int phases;
+        final int fanout;
+        final int treeThreshold;
+        final boolean remove;
+        final boolean pass;
+        final long timeout;
+
+        int[] expected;
+        AtomicInteger[] arrived;
+        AtomicInteger completed;
+        TestBarrier barrier;
+        volatile String failure;
+
+        BarrierTest(String fname, Properties props) {
+            super(fname, props);
+            threads = Integer.parseInt(props.getProperty("Threads", "8").trim());
+            phases = Integer.parseInt(props.getProperty("Phases", "1000").trim());
+            fanout = Integer.parseInt(props.getProperty("Fanout", "4").trim());
+            treeThreshold = Integer.parseInt(props.getProperty("Tree-threshold", "16").trim());
+            remove = Boolean.valueOf(props.getProperty("Remove", "false").trim()).booleanValue();
+            pass = Boolean.valueOf(props.getProperty("Pass", "false").trim()).booleanValue();
+            timeout = Long.parseLong(props.getProperty("Timeout", "60").trim()) * 1000;
+        }
+
+        /**
+         * The <code>TestBarrier</code> class checks, each time a phase is completed, that all of the parties
+         * of the phase have arrived.
+         */
+        class TestBarrier extends SpinBarrier {
+            TestBarrier(int f, int t) {
+                super(new ReentrantLock(), f, t);
+            }
+
+            protected void complete() {
+                int phase = completed.get();
+                if (phase >= phases)
+                    fail("phase " + phase + " completed, but there are only " + phases);
+                else if (arrived[phase].get() != expected[phase])
+                    fail("phase " + phase + " completed after " + arrived[phase].get() + " of "
+                            + expected[phase] + " arrivals");
+                completed.incrementAndGet();
+            }
+        }
+
+        void fail(String msg) {
+            synchronized (this) {
+                if (failure == null) failure = msg;
+            }
+        }
+
+        int getPhases(int thread) {
+            // thread 0 meets the others for every phase, while some of the others leave early
+            if (!remove || thread % 2 == 0) return phases;
+            return 1 + (int)((long)phases * thread / (threads + 1));
+        }
+
+        boolean passes(int thread, int phase) {
+            return pass && (thread * 7 + phase) % 5 < 2;
+        }
+
+        public void run() throws Exception {
+            expected = new int[phases];
+            arrived = new AtomicInteger[phases];
+            for (int phase = 0; phase < phases; phase++) arrived[phase] = new AtomicInteger();
+            for (int cntr = 0; cntr < threads; cntr++) {
+                int last = getPhases(cntr);
+                for (int phase = 0; phase < last; phase++) expected[phase]++;
+            }
+            completed = new AtomicInteger();
+            barrier = new TestBarrier(fanout, treeThreshold);
+
+            Thread[] ts = new Thread[threads];
+            for (int cntr = 0; cntr < threads; cntr++) {
+                ts[cntr] = new PartyThread(cntr);
+                ts[cntr].setDaemon(true);
+                ((PartyThread)ts[cntr]).party = barrier.addParty(ts[cntr]);
+            }
+            for (int cntr = 0; cntr < threads; cntr++) ts[cntr].start();
+
+            long deadline = System.currentTimeMillis() + timeout;
+            for (int cntr = 0; cntr < threads; cntr++) {
+                ts[cntr].join(Math.max(1, deadline - System.currentTimeMillis()));
+                if (ts[cntr].isAlive()) {
+                    fail("thread " + cntr + " did not finish after " + completed.get() + " phases");
+                    return;
+                }
+            }
+            if (completed.get() != phases)
+                fail(completed.get() + " phases completed, but there are " + phases);
+        }
+
+        class PartyThread extends Thread {
+            final int id;
+            SpinBarrier.Party party;
+
+            PartyThread(int i) {
+                id = i;
+            }
+
+            public void run() {
+                int last = getPhases(id);
+                for (int phase = 0; phase < last && failure == null; phase++) {
+                    arrived[phase].incrementAndGet();
+                    if (phase < last - 1 && passes(id, phase)) {
+                        if (!barrier.pass(party)) fail("thread " + id + " was removed in phase " + phase);
+                        continue;
+                    }
+                    if (barrier.hasArrived(party)) barrier.catchUp(party);
+                    if (!barrier.await(party)) fail("thread " + id + " was removed in phase " + phase);
+                    else if (completed.get() <= phase)
+                        fail("thread " + id + " was released from phase " + phase + " before it was completed");
+                }
+                if (last < phases) barrier.removeParty(party);
+            }
+        }
+
+        public TestResult match(Throwable t) {
+            if (t == null && failure != null)
+                return new TestResult.TestFailure(failure);
+            return super.match(t);
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new BarrierTest(fname, props);
+    }
+}
@@ -0,0 +1,395 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.test;
+
+import avrora.Avrora;
+import avrora.actions.Action;
+import avrora.sim.Simulator;
+import avrora.sim.clock.Clock;
+import avrora.sim.clock.DeltaQueue;
+import avrora.sim.clock.SpinBarrier;
+import avrora.sim.clock.TimingWheel;
+import avrora.util.Option;
+import avrora.util.StringUtil;
+import avrora.util.TermUtil;
+import avrora.util.Terminal;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>BenchmarkAction</code> class implements an action that runs microbenchmarks of the data
+ * structures that are central to the performance of the simulator, such as the event queue of a clock.
+ * It is a development tool that lives with the test harnesses and is not registered as one of the actions
+ * of the frontend; run it by giving its class name to the action option, as in
+ * <code>-action=avrora.test.BenchmarkAction</code>.
+ *
+ * @author Ben L. Titzer
+ */
+public class BenchmarkAction extends Action {
+
+    public static final String HELP = "This action runs a microbenchmark of one of the internal " +
+            "data structures of the simulator and reports its performance. The \"event-queue\" benchmark " +
+            "compares the delta queue with the timing wheel that implements the event queue of each clock, " +
+            "for a number of simultaneously pending events. The \"reschedule\" benchmark compares removing " +
+            "and reinserting an event with rescheduling it through an event handle. The \"barrier\" " +
+            "benchmark compares barriers at which the threads of a multi-node simulation meet.";
+
+    public final Option.Str BENCHMARK = newOption("benchmark", "event-queue",
+            "This option selects the microbenchmark to run. The \"event-queue\" benchmark repeatedly fires " +
+            "the first event in the queue, which reinserts itself at a random delay, so that the number " +
+            "of pending events stays constant. The \"reschedule\" benchmark additionally reschedules a " +
+            "timeout event before each event fires, as a monitor or device does each time it is active. " +
+            "The \"barrier\" benchmark lets a number of threads meet repeatedly at a barrier built on a " +
+            "monitor, at a spin barrier that releases the threads one by one, and at a spin barrier that " +
+            "releases them along a tree.");
+    public final Option.List EVENTS = newOptionList("events", "10,100,1000,10000",
+            "This option specifies the numbers of pending events for which to run the event queue benchmark.");
+    public final Option.Long OPERATIONS = newOption("operations", 200000,
+            "This option specifies the number of events fired in each run of the event queue benchmark.");
+    public final Option.Long MAX_DELAY = newOption("max-delay", 100000,
+            "This option specifies the maximum delay in clock cycles at which an event is inserted in the " +
+            "event queue benchmark. The delays are chosen uniformly between 1 and this value.");
+    public final Option.List NODES = newOptionList("nodes", "2,4,8,16,32,64,128,256,512",
+            "This option specifies the numbers of threads for which to run the barrier benchmark.");
+    public final Option.Long PHASES = newOption("phases", 2000,
+            "This option specifies the number of times the threads meet in each run of the barrier benchmark.");
+    public final Option.Long REPEAT = newOption("repeat", 3,
+            "This option specifies the number of times each run is repeated. The fastest run is reported.");
+    public final Option.Long SEED = newOption("seed", 0,
+            "This option specifies the seed of the random delays.");
+
+    /**
+     * The default constructor of the <code>BenchmarkAction</code> class simply creates an empty instance with
+     * the appropriate name and help string.
+     */
+    public BenchmarkAction() {
+        super(HELP);
+    }
+
+    /**
+     * The <code>run()</code> method runs the selected microbenchmark and reports the results.
+     *
+     * @param args the command line arguments, which are not used
+     * @throws Exception
+     */
+    public void run(String[] args) throws Exception {
+        String name = BENCHMARK.get();
+        if ("event-queue".equals(name))
+            benchmarkEventQueue();
+        else if ("reschedule".equals(name))
+            benchmarkReschedule();
+        else if ("barrier".equals(name))
+            benchmarkBarrier();
+        else
+            Avrora.userError("Unknown benchmark", name);
+    }
+
+    /**
+     * The <code>Queue</code> class adapts an event queue implementation to the benchmark.
+     */
+    abstract static class Queue {
+        abstract void insertEvent(Simulator.Event e, long cycles);
+        abstract void skipAhead();
+    }
+
+    static class DeltaQueueAdapter extends Queue {
+        final DeltaQueue queue = new DeltaQueue();
+
+        void insertEvent(Simulator.Event e, long cycles) {
+            queue.insertEvent(e, cycles);
+        }
+
+        void skipAhead() {
+            queue.skipAhead();
+        }
+    }
+
+    static class TimingWheelAdapter extends Queue {
+        final TimingWheel queue = new TimingWheel();
+
+        void insertEvent(Simulator.Event e, long cycles) {
+            queue.insertEvent(e, cycles);
+        }
+
+        void skipAhead() {
+            queue.skipAhead();
+        }
+    }
+
+    /**
+     * The <code>HoldEvent</code> class implements an event that reinserts itself into the queue at the next
+     * delay from a table of random delays when it fires.
+     */
+    static class HoldEvent implements Simulator.Event {
+        final Queue queue;
+        final long[] delays;
+        int next;
+
+        HoldEvent(Queue q, long[] d, int n) {
+            queue = q;
+            delays = d;
+            next = n;
+        }
+
+        public void fire() {
+            queue.insertEvent(this, delays[next]);
+            next = (next + 1) % delays.length;
+        }
+    }
+
+    private long[] newDelays() {
+        long[] delays = new long[4096];
+        Random random = new Random(SEED.get());
+        for (int cntr = 0; cntr < delays.length; cntr++)
+            delays[cntr] = 1 + (long)(random.nextDouble() * MAX_DELAY.get());
+        return delays;
+    }
+
+    private void benchmarkEventQueue() {
+        long[] delays = newDelays();
+
+        TermUtil.printSeparator(Terminal.MAXLINE, "Event queue benchmark");
+        Terminal.printGreen("    Events   DeltaQueue (ns/event)   TimingWheel (ns/event)   Speedup");
+        Terminal.nextln();
+        TermUtil.printThinSeparator(Terminal.MAXLINE);
+
+        Iterator i = EVENTS.get().iterator();
+        while (i.hasNext()) {
+            int events = Integer.parseInt((String)i.next());
+            long delta = Long.MAX_VALUE;
+            long wheel = Long.MAX_VALUE;
+            for (int cntr = 0; cntr < REPEAT.get(); cntr++) {
+                delta = Math.min(delta, runEventQueue(new DeltaQueueAdapter(), events, delays));
+                wheel = Math.min(wheel, runEventQueue(new TimingWheelAdapter(), events, delays));
+            }
+            double dns = delta * 1000000.0 / OPERATIONS.get();
+            double wns = wheel * 1000000.0 / OPERATIONS.get();
+            Terminal.print("  " + StringUtil.rightJustify(events, 8));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)dns, 1), 24));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)wns, 1), 25));
+            Terminal.print(StringUtil.rightJustify(StringUtil.toFixedFloat((float)(dns / wns), 2), 10));
+            Terminal.nextln();
+        }
+    }
+
+    private long runEventQueue(Queue queue, int events, long[] delays) {
+        for (int cntr = 0; cntr < events; cntr++) {
+            HoldEvent e = new HoldEvent(queue, delays, cntr % delays.length);
+            e.fire();
+        }
+
+        long operations = OPERATIONS.get();
+        long start = System.currentTimeMillis();
+        for (long cntr = 0; cntr < operations; cntr++)
+            queue.skipAhead();
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * The <code>Timeout</code> class implements an event that is continually pushed into the future and
+     * therefore never fires during the benchmark.
+     */
+    static class Timeout implements Simulator.Event {
+        public void fire() {
+            // do nothing.
+        }
+    }
+
+    private void benchmarkReschedule() {
+        long[] delays = newDelays();
+
+        TermUtil.printSeparator(Terminal.MAXLINE, "Reschedule benchmark");
+        Terminal.printGreen("    Events   remove/insert (ns/event)   EventHandle (ns/event)   Speedup");
+        Terminal.nextln();
+        TermUtil.printThinSeparator(Terminal.MAXLINE);
+
+        Iterator i = EVENTS.get().iterator();
+        while (i.hasNext()) {
+            int events = Integer.parseInt((String)i.next());
+            long scan = Long.MAX_VALUE;
+            long handle = Long.MAX_VALUE;
+            for (int cntr = 0; cntr < REPEAT.get(); cntr++) {
+                scan = Math.min(scan, runReschedule(false, events, delays));
+                handle = Math.min(handle, runReschedule(true, events, delays));
+            }
+            double sns = scan * 1000000.0 / OPERATIONS.get();
+            double hns = handle * 1000000.0 / OPERATIONS.get();
+            Terminal.print("  " + StringUtil.rightJustify(events, 8));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)sns, 1), 27));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)hns, 1), 25));
+            Terminal.print(StringUtil.rightJustify(StringUtil.toFixedFloat((float)(sns / hns), 2), 10));
+            Terminal.nextln();
+        }
+    }
+
+    private long runReschedule(boolean useHandle, int events, long[] delays) {
+        TimingWheelAdapter queue = new TimingWheelAdapter();
+        for (int cntr = 0; cntr < events; cntr++) {
+            HoldEvent e = new HoldEvent(queue, delays, cntr % delays.length);
+            e.fire();
+        }
+
+        TimingWheel wheel = queue.queue;
+        Timeout timeout = new Timeout();
+        Clock.EventHandle handle = wheel.newEventHandle(timeout);
+        long delay = 2 * MAX_DELAY.get();
+        long operations = OPERATIONS.get();
+        long start = System.currentTimeMillis();
+        for (long cntr = 0; cntr < operations; cntr++) {
+            if (useHandle) {
+                handle.schedule(delay);
+            } else {
+                wheel.removeEvent(timeout);
+                wheel.insertEvent(timeout, delay);
+            }
+            queue.skipAhead();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * The <code>Barrier</code> class adapts a barrier implementation to the benchmark.
+     */
+    abstract static class Barrier {
+        abstract Object addParty(Thread t);
+        abstract void await(Object party) throws InterruptedException;
+    }
+
+    /**
+     * The <code>MonitorBarrier</code> class implements a barrier in the way that the threads used to meet
+     * in the <code>IntervalSynchronizer</code>: each thread enters a monitor, and the last one to arrive
+     * wakes all of the others through the monitor.
+     */
+    static class MonitorBarrier extends Barrier {
+        final Object condition = new Object();
+        int goal;
+        int meet_count;
+        long generation;
+
+        Object addParty(Thread t) {
+            goal++;
+            return t;
+        }
+
+        void await(Object party) throws InterruptedException {
+            synchronized (condition) {
+                long gen = generation;
+                meet_count++;
+                if (meet_count < goal) {
+                    while (gen == generation) condition.wait();
+                } else {
+                    meet_count = 0;
+                    generation++;
+                    condition.notifyAll();
+                }
+            }
+        }
+    }
+
+    static class SpinBarrierAdapter extends Barrier {
+        final SpinBarrier barrier;
+
+        SpinBarrierAdapter(boolean tree) {
+            barrier = tree ? new SpinBarrier(new ReentrantLock(), 4, 1) : new SpinBarrier(new ReentrantLock(), 0, 0);
+        }
+
+        Object addParty(Thread t) {
+            return barrier.addParty(t);
+        }
+
+        void await(Object party) {
+            barrier.await((SpinBarrier.Party)party);
+        }
+    }
+
+    private void benchmarkBarrier() throws InterruptedException {
+        TermUtil.printSeparator(Terminal.MAXLINE, "Barrier benchmark");
+        Terminal.printGreen("   Threads   monitor (us/phase)   spin (us/phase)   spin tree (us/phase)");
+        Terminal.nextln();
+        TermUtil.printThinSeparator(Terminal.MAXLINE);
+
+        Iterator i = NODES.get().iterator();
+        while (i.hasNext()) {
+            int nodes = Integer.parseInt((String)i.next());
+            long monitor = Long.MAX_VALUE;
+            long flat = Long.MAX_VALUE;
+            long tree = Long.MAX_VALUE;
+            for (int cntr = 0; cntr < REPEAT.get(); cntr++) {
+                monitor = Math.min(monitor, runBarrier(new MonitorBarrier(), nodes));
+                flat = Math.min(flat, runBarrier(new SpinBarrierAdapter(false), nodes));
+                tree = Math.min(tree, runBarrier(new SpinBarrierAdapter(true), nodes));
+            }
+            double phases = PHASES.get();
+            Terminal.print("  " + StringUtil.rightJustify(nodes, 8));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)(monitor / phases / 1000), 2), 21));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)(flat / phases / 1000), 2), 18));
+            Terminal.printBrightCyan(StringUtil.rightJustify(StringUtil.toFixedFloat((float)(tree / phases / 1000), 2), 23));
+            Terminal.nextln();
+        }
+    }
+
+    /**
+     * The <code>runBarrier()</code> method lets the specified number of threads meet repeatedly at the
+     * barrier and measures the time from the first to the last meeting.
+     * @return the elapsed time in nanoseconds
+     */
+    private long runBarrier(final Barrier barrier, int nodes) throws InterruptedException {
+        final long phases = PHASES.get();
+        final long[] time = new long[2];
+        Thread[] threads = new Thread[nodes];
+        for (int cntr = 0; cntr < nodes; cntr++) {
+            final boolean timer = cntr == 0;
+            final Object[] party = new Object[1];
+            threads[cntr] = new Thread() {
+                public void run() {
+                    try {
+                        barrier.await(party[0]);
+                        if (timer) time[0] = System.nanoTime();
+                        for (long phase = 0; phase < phases; phase++)
+                            barrier.await(party[0]);
+                        if (timer) time[1] = System.nanoTime();
+                    } catch (InterruptedException e) {
+                        throw Avrora.unexpected(e);
+                    }
+                }
+            };
+            party[0] = barrier.addParty(threads[cntr]);
+        }
+        for (int cntr = 0; cntr < nodes; cntr++) threads[cntr].start();
+        for (int cntr = 0; cntr < nodes; cntr++) threads[cntr].join();
+        return time[1] - time[0];
+    }
+}
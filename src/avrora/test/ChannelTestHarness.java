@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package avrora.test;
+
+import avrora.sim.radio.Channel;
+import avrora.sim.radio.Radio;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The <code>ChannelTestHarness</code> implements a test harness that compares the <code>Channel</code> used by
+ * the radio models, which packs its window into <code>long</code> words and advances it lazily, against a
+ * reference that stores every bit ever written at its absolute position. A test case runs the same random
+ * sequences of writes, reads and checks for occupancy at increasing times on both, for a number of random
+ * seeds; the times sometimes skip many periods at once. Writes may be up to one period ahead of the reads,
+ * as with synchronization among neighbors only, or late. When the <code>Packets</code> property is set, some
+ * packets are also added to the channel as a whole and transmitted byte by byte while the channel is read.
+ * The test passes if every read and every check for occupancy returns the same value on both.
+ *
+ * @author Ben L. Titzer
+ */
+public class ChannelTestHarness implements TestHarness {
+
+    /**
+     * The <code>Window</code> class adapts the channel and the reference to a common interface.
+     */
+    abstract static class Window {
+        abstract void write(int value, int bits, long time);
+        abstract void addPacket(Radio.Packet p);
+        abstract int read(long time, int bits);
+        abstract boolean occupied(long start, long end);
+    }
+
+    static class ChannelAdapter extends Window {
+        final Channel channel;
+
+        ChannelAdapter(int bits, long period, boolean invert) {
+            channel = new Channel(bits, period, invert);
+        }
+
+        void write(int value, int bits, long time) {
+            channel.write(value, bits, time);
+        }
+
+        void addPacket(Radio.Packet p) {
+            channel.addPacket(p);
+        }
+
+        int read(long time, int bits) {
+            return channel.read(time, bits);
+        }
+
+        boolean occupied(long start, long end) {
+            return channel.occupied(start, end);
+        }
+    }
+
+    /**
+     * The <code>ReferenceWindow</code> class stores each bit written at its absolute position, i.e. the number
+     * of its period times the bits per period plus its position within the period. Only the periods from the
+     * one before the latest period accessed can be read; a write may access the period before its own.
+     */
+    static class ReferenceWindow extends Window {
+        final int bits;
+        final long period;
+        final long bitPeriod;
+        final boolean invert;
+        final BitSet values = new BitSet();
+        final BitSet written = new BitSet();
+        final List packets = new ArrayList();
+        long current;
+
+        ReferenceWindow(int bits, long period, boolean invert) {
+            this.bits = bits;
+            this.period = period;
+            this.bitPeriod = period / bits;
+            this.invert = invert;
+        }
+
+        void advance(long p) {
+            if (p <= current) return;
+            current = p;
+            for (int cntr = packets.size() - 1; cntr >= 0; cntr--) {
+                Radio.Packet pk = (Radio.Packet)packets.get(cntr);
+                if (pk.isEnded() && pk.originTime / period + pk.getLength() - 1 < current - 1) packets.remove(cntr);
+            }
+        }
+
+        long first() {
+            return (current - 1) * bits;
+        }
+
+        void write(int value, int n, long time) {
+            long p = time / period;
+            advance(p - 1);
+            if (p < current - 1) return;
+            if (invert) value = ~value;
+            for (int cntr = 0; cntr < n; cntr++) {
+                int pos = (int)(p * bits) + cntr;
+                if (((value >> (n - 1 - cntr)) & 1) != 0) values.set(pos);
+                written.set(pos);
+            }
+        }
+
+        void addPacket(Radio.Packet p) {
+            packets.add(p);
+        }
+
+        int read(long time, int n) {
+            long p = time / period;
+            advance(p);
+            long start = p * bits - n;
+            if (start < first()) return 0;
+            int value = 0;
+            for (int cntr = 0; cntr < n; cntr++)
+                value = (value << 1) | (get(values, start + cntr) ? 1 : 0);
+            for (int cntr = 0; cntr < packets.size(); cntr++) {
+                int b = readPacket((Radio.Packet)packets.get(cntr), p - 1);
+                if (b >= 0) value |= (invert ? ~b : b) & 0xff;
+            }
+            return value;
+        }
+
+        boolean occupied(long start, long end) {
+            long p = end / period;
+            advance(p);
+            long diff = (end - start + bitPeriod - 1) / bitPeriod;
+            long low = Math.max(p * bits - diff - 1, first());
+            long high = p * bits;
+            if (low >= high) return false;
+            for (long pos = low; pos < high; pos++)
+                if (get(written, pos)) return true;
+            for (int cntr = 0; cntr < packets.size(); cntr++)
+                if (readPacket((Radio.Packet)packets.get(cntr), p - 1) >= 0) return true;
+            return false;
+        }
+
+        boolean get(BitSet set, long pos) {
+            // the periods before the first one are never written
+            return pos >= 0 && set.get((int)pos);
+        }
+
+        int readPacket(Radio.Packet pk, long p) {
+            long i = p - pk.originTime / period;
+            if (i < 0 || i >= pk.getLength()) return -1;
+            return pk.getByte((int)i) & 0xff;
+        }
+    }
+
+    /**
+     * The <code>RandomRun</code> class runs one random sequence of operations on a window and records a log
+     * of the values returned by the reads and the checks for occupancy.
+     */
+    static class RandomRun {
+        final Window window;
+        final int seed;
+        final int bits;
+        final long period;
+        final boolean packets;
+        final List log = new ArrayList();
+
+        // the packets that are still being transmitted, with the number of bytes each will have
+        final List sending = new ArrayList();
+        final List lengths = new ArrayList();
+        long time;
+
+        RandomRun(Window w, int seed, int bits, long period, boolean packets) {
+            window = w;
+            this.seed = seed;
+            this.bits = bits;
+            this.period = period;
+            this.packets = packets;
+        }
+
+        List run(int operations) {
+            Random r = new Random(seed);
+            for (int cntr = 0; cntr < operations; cntr++) {
+                int op = r.nextInt(packets ? 10 : 9);
+                if (op < 3) advanceTime(r);
+                else if (op < 5) window.write(r.nextInt(), 1 + r.nextInt(bits), writeTime(r));
+                else if (op < 7) read(1 + r.nextInt(bits));
+                else if (op < 9) occupied(time - r.nextInt((int)period * 3));
+                else startPacket(r);
+            }
+            return log;
+        }
+
+        void advanceTime(Random r) {
+            // mostly within the same or the next period, with some skips over many periods
+            switch (r.nextInt(4)) {
+                case 0: time += (12 + r.nextInt(20)) * period + r.nextInt((int)period); break;
+                case 1: time += r.nextInt((int)period * 3); break;
+                default: time += r.nextInt((int)period / 4);
+            }
+            sendPackets();
+        }
+
+        long writeTime(Random r) {
+            // from two periods before the current time up to, but not including, one period after it
+            return Math.max(0, time - 2 * period + (r.nextLong() & Long.MAX_VALUE) % (3 * period));
+        }
+
+        void read(int n) {
+            log.add("read " + time + ' ' + n + " = " + window.read(time, n));
+        }
+
+        void occupied(long start) {
+            log.add("occupied " + start + ' ' + time + " = " + window.occupied(start, time));
+        }
+
+        void startPacket(Random r) {
+            Radio.Packet p = new Radio.Packet(0, Math.max(0, time - r.nextInt((int)period)));
+            window.addPacket(p);
+            sending.add(p);
+            lengths.add(new Integer(1 + r.nextInt(40)));
+            sendPackets();
+        }
+
+        void sendPackets() {
+            // each packet has its bytes up to the current period, i.e. one ahead of the byte that is read
+            for (int cntr = sending.size() - 1; cntr >= 0; cntr--) {
+                Radio.Packet p = (Radio.Packet)sending.get(cntr);
+                int length = ((Integer)lengths.get(cntr)).intValue();
+                long p0 = p.originTime / period;
+                while (p.getLength() < length && p0 + p.getLength() <= time / period)
+                    p.add((byte)(p0 * 31 + p.getLength() * 7 + seed));
+                if (p.getLength() == length) {
+                    p.end();
+                    sending.remove(cntr);
+                    lengths.remove(cntr);
+                }
+            }
+        }
+    }
+
+    class RandomTest extends TestCase {
+        final int seeds;
+        final int operations;
+        final int bits;
+        final long period;
+        final boolean invert;
+        final boolean packets;
+        String failure;
+
+        RandomTest(String fname, Properties props) {
+            super(fname, props);
+            seeds = Integer.parseInt(props.getProperty("Seeds", "100").trim());
+            operations = Integer.parseInt(props.getProperty("Operations", "1000").trim());
+            bits = Integer.parseInt(props.getProperty("Bits", "8").trim());
+            period = Long.parseLong(props.getProperty("Period", String.valueOf(Radio.TRANSFER_TIME)).trim());
+            invert = Boolean.valueOf(props.getProperty("Invert", "false").trim()).booleanValue();
+            packets = Boolean.valueOf(props.getProperty("Packets", "false").trim()).booleanValue();
+        }
+
+        public void run() {
+            for (int seed = 0; seed < seeds; seed++) {
+                List expect = new RandomRun(new ReferenceWindow(bits, period, invert), seed, bits, period, packets).run(operations);
+                List result = new RandomRun(new ChannelAdapter(bits, period, invert), seed, bits, period, packets).run(operations);
+                if (!expect.equals(result)) {
+                    failure = "seed " + seed + ": " + firstDifference(expect, result);
+                    return;
+                }
+            }
+        }
+
+        private String firstDifference(List expect, List result) {
+            int cntr = 0;
+            while (cntr < expect.size() && cntr < result.size() && expect.get(cntr).equals(result.get(cntr)))
+                cntr++;
+            String e = cntr < expect.size() ? (String)expect.get(cntr) : "end";
+            String r = cntr < result.size() ? (String)result.get(cntr) : "end";
+            return "entry #" + cntr + " is \"" + r + "\" but should be \"" + e + '"';
+        }
+
+        public TestResult match(Throwable t) {
+            if (t == null && failure != null)
+                return new TestResult.TestFailure(failure);
+            return super.match(t);
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new RandomTest(fname, props);
+    }
+}
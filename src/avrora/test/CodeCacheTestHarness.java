@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.Defaults;
+import avrora.core.Program;
+import avrora.core.ProgramReader;
+import avrora.core.Register;
+import avrora.sim.Simulator;
+import avrora.sim.State;
+import avrora.sim.dbbc.DBBC;
+import avrora.sim.dbbc.DBBCInterpreter;
+import avrora.util.Options;
+import avrora.util.StringUtil;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The <code>CodeCacheTestHarness</code> implements a test harness for the persistent cache of the dynamic
+ * basic block compiler. A test case runs the program three times with a new compiler that uses the same
+ * empty cache directory: first with the options given by the <code>Options</code> property, then again
+ * with the same options, and finally with the options given by the <code>Changed-options</code> property
+ * added. Each run must end in the same state as the program run by the predecoded interpreter. The test
+ * passes if the first run writes an archive, the second run reuses every block in it and therefore leaves
+ * the archive unchanged, and the third run adds new entries to it.
+ *
+ * @author Ben L. Titzer
+ */
+public class CodeCacheTestHarness implements TestHarness {
+
+    class CacheTest extends TestCase {
+        final String options;
+        final String changed;
+        Program program;
+        File directory;
+        String failure;
+
+        CacheTest(String fname, Properties props) {
+            super(fname, props);
+            options = StringUtil.trimquotes(props.getProperty("Options", "").trim());
+            changed = StringUtil.trimquotes(props.getProperty("Changed-options", "").trim());
+        }
+
+        public void run() throws Exception {
+            ProgramReader r = Defaults.getProgramReader("atmel");
+            String[] args = {filename};
+            program = r.read(args);
+            String expect = getState(Defaults.newSimulator(0, "atmega128", 8000000, 8000000,
+                    Defaults.getInterpreterFactory("predecoded"), program));
+
+            directory = File.createTempFile("cache", "");
+            directory.delete();
+            directory.mkdir();
+            try {
+                check(expect, options, "first run");
+                if (failure != null) return;
+                byte[] first = readArchive();
+                if (first == null) {
+                    failure = "first run did not write the code cache";
+                    return;
+                }
+                check(expect, options, "second run");
+                if (failure != null) return;
+                byte[] second = readArchive();
+                if (!Arrays.equals(first, second)) {
+                    failure = "second run did not reuse the code cache: " + countEntries(first)
+                            + " entries became " + countEntries(second);
+                    return;
+                }
+                check(expect, options + ' ' + changed, "run with changed options");
+                if (failure != null) return;
+                byte[] third = readArchive();
+                if (countEntries(third) <= countEntries(second))
+                    failure = "run with changed options did not add entries to the code cache";
+            } finally {
+                File[] files = directory.listFiles();
+                for (int cntr = 0; cntr < files.length; cntr++) files[cntr].delete();
+                directory.delete();
+            }
+        }
+
+        private void check(String expect, String opts, String run) throws IOException {
+            Options o = new Options();
+            o.parseCommandLine((opts + " -cache-directory=" + directory).trim().split("\\s+"));
+            DBBC comp = new DBBC(program, o);
+            String result = getState(Defaults.newSimulator(0, "atmega128", 8000000, 8000000,
+                    new DBBCInterpreter.Factory(comp), program));
+            comp.saveCache();
+            if (!expect.equals(result))
+                failure = run + " ended with \"" + result + "\" but should be \"" + expect + '"';
+        }
+
+        private String getState(Simulator s) {
+            s.start();
+            State state = s.getState();
+            StringBuffer buf = new StringBuffer();
+            for (int cntr = 0; cntr < 32; cntr++) {
+                int value = state.getRegisterByte(Register.getRegisterByName("r" + cntr));
+                buf.append('r').append(cntr).append(" = ").append(value).append(", ");
+            }
+            buf.append("sreg = ").append(state.getSREG());
+            buf.append(", cc = ").append(state.getCycles());
+            return buf.toString();
+        }
+
+        private byte[] readArchive() throws IOException {
+            File[] files = directory.listFiles();
+            if (files.length != 1) return null;
+            byte[] buf = new byte[(int)files[0].length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(files[0]));
+            try {
+                in.readFully(buf);
+            } finally {
+                in.close();
+            }
+            return buf;
+        }
+
+        private int countEntries(byte[] archive) throws IOException {
+            // the archive begins with a magic number and a version, followed by the number of entries
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(archive));
+            in.readInt();
+            in.readInt();
+            return in.readInt();
+        }
+
+        public TestResult match(Throwable t) {
+            if (t == null && failure != null)
+                return new TestResult.TestFailure(failure);
+            return super.match(t);
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new CacheTest(fname, props);
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.sim.Simulator;
+import avrora.sim.clock.Clock;
+import avrora.sim.clock.DeltaQueue;
+import avrora.sim.clock.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The <code>EventQueueTestHarness</code> implements a test harness that compares the <code>TimingWheel</code>
+ * used by the main clock against the <code>DeltaQueue</code>. A test case runs the same random sequences of
+ * insertions, removals and advances on both queues, for a number of random seeds. The events themselves
+ * insert and remove events when they fire. The test passes if the events fire in the same order at the same
+ * times, and the queues report the same time for their first event after every operation and from within
+ * every event that fires. Periodic events are inserted into the wheel with <code>insertPeriodicEvent()</code>
+ * and emulated on the delta queue by reinserting them each time they fire. When the <code>Suspend</code>
+ * property is set, some of the events suspend the wheel, which is resumed after each operation; the delta
+ * queue cannot be suspended, so the events must still fire in the same order at the same times. When the
+ * <code>Handles</code> property is set, some of the events are scheduled, rescheduled and cancelled through
+ * the event handles of the wheel. Each scheduling of such an event is emulated on the delta queue by a new
+ * event that only fires the test event if it has not been cancelled since, and the handles must report the
+ * same events as scheduled.
+ *
+ * @author Ben L. Titzer
+ */
+public class EventQueueTestHarness implements TestHarness {
+
+    /**
+     * The <code>Queue</code> class adapts the two event queue implementations to a common interface.
+     */
+    abstract static class Queue {
+        abstract void insertEvent(Simulator.Event e, long cycles);
+        abstract void insertPeriodicEvent(Simulator.Event e, long period, long phase);
+        abstract void removeEvent(Simulator.Event e);
+        abstract void advance(long cycles);
+        abstract void skipAhead();
+        abstract long getCount();
+        abstract long getFirstEventTime();
+        abstract void schedule(Simulator.Event e, long cycles);
+        abstract void schedulePeriodic(Simulator.Event e, long period, long phase);
+        abstract void cancel(Simulator.Event e);
+        abstract boolean isScheduled(Simulator.Event e);
+
+        void suspend() {
+            // do nothing by default.
+        }
+
+        void resume() {
+            // do nothing by default.
+        }
+
+        void fired(Simulator.Event e) {
+            // do nothing by default.
+        }
+    }
+
+    static class DeltaQueueAdapter extends Queue {
+        final DeltaQueue queue = new DeltaQueue();
+        final HashMap periods = new HashMap();
+        final HashMap occurrences = new HashMap();
+
+        /**
+         * The <code>Occurrence</code> class emulates a single scheduling of an event through a handle. An
+         * occurrence that has been cancelled does nothing when it fires, because the delta queue cannot
+         * remove the events that are due at the current time once it has begun to fire them.
+         */
+        class Occurrence implements Simulator.Event {
+            final Simulator.Event event;
+            final long period;
+
+            Occurrence(Simulator.Event e, long p) {
+                event = e;
+                period = p;
+            }
+
+            public void fire() {
+                if (occurrences.get(event) != this) return;
+                if (period == 0) occurrences.remove(event);
+                event.fire();
+                if (period != 0 && occurrences.get(event) == this) queue.insertEvent(this, period);
+            }
+        }
+
+        void insertEvent(Simulator.Event e, long cycles) {
+            queue.insertEvent(e, cycles);
+        }
+
+        void schedule(Simulator.Event e, long cycles) {
+            cancel(e);
+            Occurrence o = new Occurrence(e, 0);
+            occurrences.put(e, o);
+            queue.insertEvent(o, cycles);
+        }
+
+        void schedulePeriodic(Simulator.Event e, long period, long phase) {
+            cancel(e);
+            Occurrence o = new Occurrence(e, period);
+            occurrences.put(e, o);
+            queue.insertEvent(o, phase);
+        }
+
+        void cancel(Simulator.Event e) {
+            Occurrence o = (Occurrence)occurrences.remove(e);
+            if (o != null) queue.removeEvent(o);
+        }
+
+        boolean isScheduled(Simulator.Event e) {
+            return occurrences.containsKey(e);
+        }
+
+        void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+            periods.put(e, new Long(period));
+            queue.insertEvent(e, phase);
+        }
+
+        void removeEvent(Simulator.Event e) {
+            periods.remove(e);
+            queue.removeEvent(e);
+        }
+
+        void fired(Simulator.Event e) {
+            // a periodic event reinserts itself after it has fired
+            Long period = (Long)periods.get(e);
+            if (period != null) queue.insertEvent(e, period.longValue());
+        }
+
+        void advance(long cycles) {
+            queue.advance(cycles);
+        }
+
+        void skipAhead() {
+            queue.skipAhead();
+        }
+
+        long getCount() {
+            return queue.getCount();
+        }
+
+        long getFirstEventTime() {
+            return queue.getFirstEventTime();
+        }
+    }
+
+    static class TimingWheelAdapter extends Queue {
+        final TimingWheel queue = new TimingWheel();
+        final HashMap handles = new HashMap();
+
+        void insertEvent(Simulator.Event e, long cycles) {
+            queue.insertEvent(e, cycles);
+        }
+
+        Clock.EventHandle getHandle(Simulator.Event e) {
+            Clock.EventHandle h = (Clock.EventHandle)handles.get(e);
+            if (h == null) {
+                h = queue.newEventHandle(e);
+                handles.put(e, h);
+            }
+            return h;
+        }
+
+        void schedule(Simulator.Event e, long cycles) {
+            getHandle(e).schedule(cycles);
+        }
+
+        void schedulePeriodic(Simulator.Event e, long period, long phase) {
+            getHandle(e).schedulePeriodic(period, phase);
+        }
+
+        void cancel(Simulator.Event e) {
+            getHandle(e).cancel();
+        }
+
+        boolean isScheduled(Simulator.Event e) {
+            return getHandle(e).isScheduled();
+        }
+
+        void insertPeriodicEvent(Simulator.Event e, long period, long phase) {
+            queue.insertPeriodicEvent(e, period, phase);
+        }
+
+        void removeEvent(Simulator.Event e) {
+            queue.removeEvent(e);
+        }
+
+        void advance(long cycles) {
+            queue.advance(cycles);
+        }
+
+        void skipAhead() {
+            queue.skipAhead();
+        }
+
+        long getCount() {
+            return queue.getCount();
+        }
+
+        long getFirstEventTime() {
+            return queue.getFirstEventTime();
+        }
+
+        void suspend() {
+            queue.suspend();
+        }
+
+        void resume() {
+            // the events fired when the wheel is resumed may suspend it again
+            while (queue.isSuspended()) queue.resume();
+        }
+    }
+
+    /**
+     * The <code>RandomRun</code> class runs one random sequence of operations on a queue and records a log
+     * of the events that fired and the state of the queue after each operation.
+     */
+    static class RandomRun {
+        final Queue queue;
+        final long seed;
+        final long maxDelay;
+        final boolean suspend;
+        final TestEvent[] events;
+        final TestEvent[] periodic;
+        final TestEvent[] handles;
+        final List log;
+
+        RandomRun(Queue q, long s, int numEvents, int numPeriodic, int numHandles, long d, boolean sus) {
+            queue = q;
+            seed = s;
+            maxDelay = d;
+            suspend = sus;
+            log = new ArrayList();
+            events = new TestEvent[numEvents];
+            for (int cntr = 0; cntr < numEvents; cntr++)
+                events[cntr] = new TestEvent(cntr);
+            periodic = new TestEvent[numPeriodic];
+            for (int cntr = 0; cntr < numPeriodic; cntr++)
+                periodic[cntr] = new TestEvent(numEvents + cntr);
+            handles = new TestEvent[numHandles];
+            for (int cntr = 0; cntr < numHandles; cntr++)
+                handles[cntr] = new TestEvent(numEvents + numPeriodic + cntr);
+        }
+
+        class TestEvent implements Simulator.Event {
+            final int id;
+            int fired;
+            boolean active;
+
+            TestEvent(int i) {
+                id = i;
+            }
+
+            boolean isHandle() {
+                return id >= events.length + periodic.length;
+            }
+
+            public void fire() {
+                fired++;
+                String state = isHandle() ? " scheduled " + queue.isScheduled(this) : "";
+                log.add("fire " + id + " @ " + queue.getCount() + " first " + queue.getFirstEventTime() + state);
+                // the nested operations depend only on the event and the seed
+                long h = (id * 31L + fired * 7919L + seed) & 0xffff;
+                if (h % 3 == 0) queue.insertEvent(events[(int)(h % events.length)], (h >> 3) % 5 == 0 ? 0 : (h >> 4) % 200);
+                if (h % 5 == 1) queue.removeEvent(events[(int)((h >> 2) % events.length)]);
+                if (periodic.length > 0 && h % 7 == 2) removePeriodic(periodic[(int)((h >> 2) % periodic.length)]);
+                if (handles.length > 0 && h % 13 == 4) queue.schedule(handles[(int)((h >> 2) % handles.length)], (h >> 5) % 150);
+                if (handles.length > 0 && h % 17 == 5) queue.cancel(handles[(int)((h >> 3) % handles.length)]);
+                if (suspend && h % 11 == 3) queue.suspend();
+                queue.fired(this);
+            }
+        }
+
+        void insertPeriodic(TestEvent e, long period, long phase) {
+            // a periodic event is only inserted once until it is removed again
+            if (e.active) return;
+            e.active = true;
+            queue.insertPeriodicEvent(e, period, phase);
+        }
+
+        void removePeriodic(TestEvent e) {
+            e.active = false;
+            queue.removeEvent(e);
+        }
+
+        List run(int operations) {
+            Random r = new Random(seed);
+            for (int cntr = 0; cntr < operations; cntr++) {
+                int op = r.nextInt(10 + (periodic.length > 0 ? 2 : 0) + (handles.length > 0 ? 3 : 0));
+                if (op >= 10 && periodic.length == 0) op += 2;
+                if (op >= 12) operateHandle(op, handles[r.nextInt(handles.length)], r);
+                else if (op == 10) insertPeriodic(periodic[r.nextInt(periodic.length)], randomPeriod(r), randomDelay(r));
+                else if (op == 11) removePeriodic(periodic[r.nextInt(periodic.length)]);
+                else if (op < 4) queue.insertEvent(events[r.nextInt(events.length)], randomDelay(r));
+                else if (op < 5) queue.removeEvent(events[r.nextInt(events.length)]);
+                else if (op < 9) queue.advance(r.nextInt(4) == 0 ? r.nextInt(3) : r.nextInt(500));
+                else queue.skipAhead();
+                queue.resume();
+                log.add("count " + queue.getCount() + " first " + queue.getFirstEventTime());
+            }
+            return log;
+        }
+
+        void operateHandle(int op, TestEvent e, Random r) {
+            if (op == 12) queue.schedule(e, randomDelay(r));
+            else if (op == 13) queue.schedulePeriodic(e, randomPeriod(r), randomDelay(r));
+            else queue.cancel(e);
+            log.add("handle " + e.id + " scheduled " + queue.isScheduled(e));
+        }
+
+        long randomDelay(Random r) {
+            // mostly short delays, with some events at the same time and some far in the future
+            switch (r.nextInt(4)) {
+                case 0: return r.nextInt(5);
+                case 1: return (r.nextLong() & Long.MAX_VALUE) % maxDelay;
+                default: return r.nextInt(300);
+            }
+        }
+
+        long randomPeriod(Random r) {
+            // mostly short periods, with some periods of a single cycle and some long ones
+            switch (r.nextInt(4)) {
+                case 0: return 1 + r.nextInt(3);
+                case 1: return 1 + (r.nextLong() & Long.MAX_VALUE) % maxDelay;
+                default: return 1 + r.nextInt(300);
+            }
+        }
+    }
+
+    class RandomTest extends TestCase {
+        final int seeds;
+        final int operations;
+        final int events;
+        final int periodic;
+        final int handles;
+        final long maxDelay;
+        final boolean suspend;
+        String failure;
+
+        RandomTest(String fname, Properties props) {
+            super(fname, props);
+            seeds = Integer.parseInt(props.getProperty("Seeds", "100").trim());
+            operations = Integer.parseInt(props.getProperty("Operations", "1000").trim());
+            events = Integer.parseInt(props.getProperty("Events", "20").trim());
+            periodic = Integer.parseInt(props.getProperty("Periodic", "0").trim());
+            handles = Integer.parseInt(props.getProperty("Handles", "0").trim());
+            maxDelay = Long.parseLong(props.getProperty("Max-delay", "1000").trim());
+            suspend = Boolean.valueOf(props.getProperty("Suspend", "false").trim()).booleanValue();
+        }
+
+        public void run() {
+            for (int seed = 0; seed < seeds; seed++) {
+                // vary the number of events from run to run
+                int num = 1 + seed % events;
+                List expect = new RandomRun(new DeltaQueueAdapter(), seed, num, periodic, handles, maxDelay, suspend).run(operations);
+                List result = new RandomRun(new TimingWheelAdapter(), seed, num, periodic, handles, maxDelay, suspend).run(operations);
+                if (!expect.equals(result)) {
+                    failure = "seed " + seed + ": " + firstDifference(expect, result);
+                    return;
+                }
+            }
+        }
+
+        private String firstDifference(List expect, List result) {
+            int cntr = 0;
+            while (cntr < expect.size() && cntr < result.size() && expect.get(cntr).equals(result.get(cntr)))
+                cntr++;
+            String e = cntr < expect.size() ? (String)expect.get(cntr) : "end";
+            String r = cntr < result.size() ? (String)result.get(cntr) : "end";
+            return "entry #" + cntr + " is \"" + r + "\" but should be \"" + e + '"';
+        }
+
+        public TestResult match(Throwable t) {
+            if (t == null && failure != null)
+                return new TestResult.TestFailure(failure);
+            return super.match(t);
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new RandomTest(fname, props);
+    }
+}
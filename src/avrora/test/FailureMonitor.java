@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.monitors.Monitor;
+import avrora.monitors.MonitorFactory;
+import avrora.sim.Simulator;
+import avrora.util.Option;
+
+/**
+ * The <code>FailureMonitor</code> class implements a monitor that is used by the tests of complete
+ * simulations to check how the failure of a node is reported. It throws an unexpected exception out of
+ * the simulation of the first node at the specified cycle. It is not registered as one of the monitors
+ * of the frontend; a test loads it by giving its class name to the monitors option.
+ *
+ * @author Ben L. Titzer
+ */
+public class FailureMonitor extends MonitorFactory {
+
+    public final Option.Long FAIL_AT = options.newOption("fail-at", 1000,
+            "This option specifies the cycle at which the first node of the simulation fails.");
+
+    public FailureMonitor() {
+        super("The \"failure\" monitor throws an unexpected exception out of the first node of the " +
+                "simulation at the specified cycle.");
+    }
+
+    public Monitor newMonitor(Simulator s) {
+        if ( s.getID() == 0 ) {
+            s.insertEvent(new Simulator.Event() {
+                public void fire() {
+                    throw new IllegalStateException("node 0 failed");
+                }
+            }, FAIL_AT.get());
+        }
+        return null;
+    }
+}
@@ -32,7 +32,6 @@
 
 package avrora.test;
 
-import avrora.Defaults;
 import avrora.Main;
 import avrora.core.Program;
 import avrora.sim.Simulator;
@@ -72,7 +71,7 @@ public class InterruptTestHarness implements TestHarness {
 
         public void run() throws Exception {
             Program p = Main.loadProgram(new String[] { progName });
-            Simulator s = Defaults.newSimulator(0, p);
+            Simulator s = newSimulator(p);
 			new InterruptScheduler(interruptSched, s);
             probeTest.run(s);
         }
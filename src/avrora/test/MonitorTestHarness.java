@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.Defaults;
+import avrora.core.Program;
+import avrora.core.ProgramReader;
+import avrora.monitors.Monitor;
+import avrora.monitors.MonitorFactory;
+import avrora.sim.Simulator;
+import avrora.util.StringUtil;
+import avrora.util.Terminal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.StringTokenizer;
+
+/**
+ * The <code>MonitorTestHarness</code> implements a test harness that checks the reports generated by the
+ * simulation monitors. A test case runs its program on one or more nodes with the monitor named by the
+ * <code>Monitor</code> property attached to each, and captures the reports of the monitors. The expected
+ * result is a list of lines separated by semicolons, which must appear in the reports in the same order.
+ * Consecutive whitespace is not significant when the lines are compared.
+ *
+ * @author Ben L. Titzer
+ */
+public class MonitorTestHarness implements TestHarness {
+
+    class MonitorTest extends TestCase {
+
+        final String monitorName;
+        final int nodes;
+        final List expect;
+        List report;
+
+        MonitorTest(String fname, Properties props) {
+            super(fname, props);
+            monitorName = props.getProperty("Monitor").trim();
+            nodes = Integer.parseInt(props.getProperty("Nodes", "1").trim());
+            expect = new ArrayList();
+            StringTokenizer st = new StringTokenizer(StringUtil.trimquotes(props.getProperty("Result").trim()), ";");
+            while (st.hasMoreTokens()) expect.add(normalize(st.nextToken()));
+        }
+
+        public void run() throws Exception {
+            String input = properties.getProperty("input");
+            if (input == null) input = "atmel";
+            ProgramReader r = Defaults.getProgramReader(input);
+            String[] args = {filename};
+            Program program = r.read(args);
+
+            MonitorFactory mf = Defaults.getMonitor(monitorName);
+            Monitor[] monitors = new Monitor[nodes];
+            for (int cntr = 0; cntr < nodes; cntr++) {
+                Simulator simulator = newSimulator(program);
+                monitors[cntr] = mf.newMonitor(simulator);
+                simulator.start();
+            }
+
+            // capture the reports without colors
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            boolean colors = Terminal.useColors;
+            Terminal.setOutput(new PrintStream(buffer, true));
+            Terminal.useColors = false;
+            try {
+                for (int cntr = 0; cntr < nodes; cntr++)
+                    monitors[cntr].report();
+            } finally {
+                Terminal.useColors = colors;
+                Terminal.setOutput(System.out);
+            }
+
+            report = new ArrayList();
+            StringTokenizer st = new StringTokenizer(buffer.toString(), "\n");
+            while (st.hasMoreTokens()) report.add(normalize(st.nextToken()));
+        }
+
+        private String normalize(String line) {
+            StringBuffer buf = new StringBuffer();
+            StringTokenizer st = new StringTokenizer(line);
+            while (st.hasMoreTokens()) {
+                if (buf.length() > 0) buf.append(' ');
+                buf.append(st.nextToken());
+            }
+            return buf.toString();
+        }
+
+        public TestResult match(Throwable t) {
+            if (t != null) return super.match(t);
+
+            // the expected lines must appear in order in the reports
+            int pos = 0;
+            for (int cntr = 0; cntr < expect.size(); cntr++) {
+                String line = (String)expect.get(cntr);
+                while (pos < report.size() && !line.equals(report.get(pos))) pos++;
+                if (pos == report.size())
+                    return new TestResult.TestFailure("report does not contain \"" + line + '"');
+                pos++;
+            }
+            return new TestResult.TestSuccess();
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new MonitorTest(fname, props);
+    }
+}
@@ -32,13 +32,13 @@
 
 package avrora.test;
 
-import avrora.Defaults;
 import avrora.Main;
 import avrora.core.Program;
 import avrora.sim.Simulator;
 import avrora.syntax.Module;
 import avrora.test.probes.ProbeParser;
 import avrora.test.probes.ProbeTest;
+import avrora.util.StringUtil;
 
 import java.io.FileInputStream;
 import java.util.Properties;
@@ -68,7 +68,16 @@ public class ProbeTestHarness implements TestHarness {
 
         public void run() throws Exception {
             Program p = Main.loadProgram(new String[] { progName });
-            Simulator s = Defaults.newSimulator(0, p);
+            final Simulator s = newSimulator(p);
+            String cycles = properties.getProperty("Cycles");
+            if ( cycles != null ) {
+                // programs that never halt are stopped after the specified number of cycles
+                s.insertEvent(new Simulator.Event() {
+                    public void fire() {
+                        s.stop();
+                    }
+                }, StringUtil.evaluateIntegerLiteral(cycles.trim()));
+            }
             probeTest.run(s);
         }
 
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.monitors.Monitor;
+import avrora.monitors.MonitorFactory;
+import avrora.sim.Simulator;
+import avrora.sim.radio.Radio;
+import avrora.util.TermUtil;
+
+/**
+ * The <code>RadioPowerMonitor</code> class implements a monitor that is used by the tests of complete
+ * simulations to check which nodes are silent, i.e. may pass the meet points of the synchronizer when the
+ * lookahead option is given. It reports whether the radio of each node is powered down at the end of the
+ * simulation. It is not registered as one of the monitors of the frontend; a test loads it by giving its
+ * class name to the monitors option.
+ *
+ * @author Ben L. Titzer
+ */
+public class RadioPowerMonitor extends MonitorFactory {
+
+    public RadioPowerMonitor() {
+        super("The \"radio-power\" monitor reports whether the radio of each node is powered down at the " +
+                "end of the simulation.");
+    }
+
+    public Monitor newMonitor(Simulator s) {
+        final Radio radio = (Radio)s.getMicrocontroller().getPlatform().getDevice("radio");
+        return new Monitor() {
+            public void report() {
+                TermUtil.reportQuantity("Radio powered down", String.valueOf(radio.isPoweredDown()), "");
+            }
+        };
+    }
+}
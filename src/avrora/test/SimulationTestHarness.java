@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2004-2005, Regents of the University of California
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * Neither the name of the University of California, Los Angeles nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package avrora.test;
+
+import avrora.Avrora;
+import avrora.Defaults;
+import avrora.monitors.Monitor;
+import avrora.sim.Simulation;
+import avrora.util.Options;
+import avrora.util.StringUtil;
+import avrora.util.Terminal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.StringTokenizer;
+
+/**
+ * The <code>SimulationTestHarness</code> implements a test harness that runs a complete simulation, such as
+ * a sensor network simulation, as the simulate action would. The <code>Options</code> property of a test
+ * case gives the command line of the simulation, including the programs to load, which are relative to
+ * the directory in which the tests are run. The output of the simulation, the reports of its monitors and
+ * the error or unexpected exception that stops the simulation, if any, are captured. The expected result
+ * is a list of lines separated by semicolons, which must appear in the output in the same order.
+ * Consecutive whitespace is not significant when the lines are compared.
+ *
+ * @author Ben L. Titzer
+ */
+public class SimulationTestHarness implements TestHarness {
+
+    class SimulationTest extends TestCase {
+
+        final String[] args;
+        final List expect;
+        List output;
+
+        SimulationTest(String fname, Properties props) {
+            super(fname, props);
+            StringTokenizer st = new StringTokenizer(props.getProperty("Options").trim());
+            args = new String[st.countTokens()];
+            for (int cntr = 0; st.hasMoreTokens(); cntr++) args[cntr] = st.nextToken();
+            expect = new ArrayList();
+            st = new StringTokenizer(StringUtil.trimquotes(props.getProperty("Result").trim()), ";");
+            while (st.hasMoreTokens()) expect.add(normalize(st.nextToken()));
+        }
+
+        public void run() throws Exception {
+            Options o = new Options();
+            String interp = properties.getProperty("Interpreter", AutomatedTester.INTERPRETER);
+            if (interp != null) o.parseCommandLine(new String[] { "-interpreter=" + interp.trim() });
+            o.parseCommandLine(args);
+            String type = o.getOptionValue("simulation");
+            Simulation sim = Defaults.getSimulation(type == null ? "single" : type);
+
+            // capture the output of the simulation without colors
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            boolean colors = Terminal.useColors;
+            Terminal.setOutput(new PrintStream(buffer, true));
+            Terminal.useColors = false;
+            try {
+                sim.process(o, o.getArguments());
+                sim.start();
+                sim.join();
+                reportMonitors(sim);
+            } catch (Avrora.Error e) {
+                e.report();
+            } catch (RuntimeException e) {
+                Terminal.println("Simulation terminated with unexpected exception: " + e);
+            } finally {
+                Terminal.useColors = colors;
+                Terminal.setOutput(System.out);
+            }
+
+            output = new ArrayList();
+            StringTokenizer st = new StringTokenizer(buffer.toString(), "\n");
+            while (st.hasMoreTokens()) output.add(normalize(st.nextToken()));
+        }
+
+        private void reportMonitors(Simulation sim) {
+            Iterator i = sim.getNodeIterator();
+            while (i.hasNext()) {
+                Simulation.Node n = (Simulation.Node)i.next();
+                Terminal.println("Monitors for node " + n.id);
+                Iterator im = n.getMonitors().iterator();
+                while (im.hasNext()) ((Monitor)im.next()).report();
+            }
+        }
+
+        private String normalize(String line) {
+            StringBuffer buf = new StringBuffer();
+            StringTokenizer st = new StringTokenizer(line);
+            while (st.hasMoreTokens()) {
+                if (buf.length() > 0) buf.append(' ');
+                buf.append(st.nextToken());
+            }
+            return buf.toString();
+        }
+
+        public TestResult match(Throwable t) {
+            if (t != null) return super.match(t);
+
+            // the expected lines must appear in order in the output
+            int pos = 0;
+            for (int cntr = 0; cntr < expect.size(); cntr++) {
+                String line = (String)expect.get(cntr);
+                while (pos < output.size() && !line.equals(output.get(pos))) pos++;
+                if (pos == output.size())
+                    return new TestResult.TestFailure("output does not contain \"" + line + '"');
+                pos++;
+            }
+            return new TestResult.TestSuccess();
+        }
+    }
+
+    public TestCase newTestCase(String fname, Properties props) throws Exception {
+        return new SimulationTest(fname, props);
+    }
+}
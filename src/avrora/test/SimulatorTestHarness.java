@@ -302,7 +302,7 @@ public class SimulatorTestHarness implements TestHarness {
             ProgramReader r = Defaults.getProgramReader(input);
             String[] args = {filename};
             program = r.read(args);
-            simulator = Defaults.newSimulator(0, program);
+            simulator = newSimulator(program);
             simulator.start();
         }
 
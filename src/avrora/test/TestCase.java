@@ -33,7 +33,12 @@
 package avrora.test;
 
 import avrora.Avrora;
+import avrora.Defaults;
+import avrora.core.Program;
+import avrora.sim.InterpreterFactory;
+import avrora.sim.Simulator;
 import avrora.syntax.SimplifierError;
+import avrora.util.Options;
 import avrora.util.StringUtil;
 
 import java.util.Properties;
@@ -60,6 +65,35 @@ public abstract class TestCase {
 
     public abstract void run() throws Exception;
 
+    /**
+     * The <code>newSimulator()</code> method creates a simulator for the specified program. The interpreter
+     * is the one named by the <code>Interpreter</code> property of the test case, if any, then the one
+     * selected for the whole test run, and otherwise the default interpreter. The microcontroller and its
+     * clocks are given by the <code>MCU</code>, <code>Clockspeed</code> and <code>External-clockspeed</code>
+     * properties, like the corresponding options of a simulation; by default, the program runs on an
+     * ATMega128 at 8MHz whose external clock runs at the same speed. The <code>Options</code> property, if
+     * any, gives command line options for interpreters that have options of their own, such as the compile
+     * threshold of a dynamic compiler.
+     *
+     * @param p the program to simulate
+     * @return a new simulator instance for the program
+     */
+    protected Simulator newSimulator(Program p) {
+        InterpreterFactory f = Defaults.getInterpreterFactory();
+        String interp = properties.getProperty("Interpreter", AutomatedTester.INTERPRETER);
+        if (interp != null) f = Defaults.getInterpreterFactory(interp.trim());
+        String opts = properties.getProperty("Options");
+        if (opts != null) {
+            Options o = new Options();
+            o.parseCommandLine(opts.trim().split("\\s+"));
+            f.processOptions(o);
+        }
+        String mcu = properties.getProperty("MCU", "atmega128").trim();
+        long hz = Long.parseLong(properties.getProperty("Clockspeed", "8000000").trim());
+        long exthz = Long.parseLong(properties.getProperty("External-clockspeed", Long.toString(hz)).trim());
+        return Defaults.newSimulator(0, mcu, hz, exthz, f, p);
+    }
+
     public TestResult match(Throwable t) {
         // default behavior: no exception = pass
         if (t == null)
@@ -0,0 +1,67 @@
+; @Harness: simulator
+; @Purpose: "Test that the ADC starts a new conversion once the interrupt of the previous one has been taken"
+; @Result: "r16 = -56, r17 = -104, r20 = 2, r21 = 42"
+
+;  ADSC is set while a conversion is in progress and cleared when it completes; writing
+;  ADSC as one again after the conversion complete interrupt starts another conversion
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN             ; reset #1
+L004:	jmp    INT_FAILURE      ; interrupt #2
+L008:	jmp    INT_FAILURE      ; interrupt #3
+L00C:	jmp    INT_FAILURE      ; interrupt #4
+L010:	jmp    INT_FAILURE      ; interrupt #5
+L014:	jmp    INT_FAILURE      ; interrupt #6
+L018:	jmp    INT_FAILURE      ; interrupt #7
+L01C:	jmp    INT_FAILURE      ; interrupt #8
+L020:	jmp    INT_FAILURE      ; interrupt #9
+L024:	jmp    INT_FAILURE      ; interrupt #10
+L028:	jmp    INT_FAILURE      ; interrupt #11
+L02C:	jmp    INT_FAILURE      ; interrupt #12
+L030:	jmp    INT_FAILURE      ; interrupt #13
+L034:	jmp    INT_FAILURE      ; interrupt #14
+L038:	jmp    INT_FAILURE      ; interrupt #15
+L03C:	jmp    INT_FAILURE      ; interrupt #16
+L040:	jmp    INT_FAILURE      ; interrupt #17
+L044:	jmp    INT_FAILURE      ; interrupt #18
+L048:	jmp    INT_FAILURE      ; interrupt #19
+L04C:	jmp    INT_FAILURE      ; interrupt #20
+L050:	jmp    INT_FAILURE      ; interrupt #21
+L054:	jmp    ADC_DONE         ; ADC conversion complete
+
+INT_FAILURE:
+	ldi r21, FAILURE
+	break
+
+ADC_DONE:
+	inc r20
+	reti
+
+MAIN:
+	ldi r18, 255
+	out SPL, r18		; initialize stack pointer
+	ldi r18, 0b11001000	; set ADEN, ADSC and ADIE, prescaler of 2
+	out ADCSRA, r18
+	in r16, ADCSRA		; ADSC is set while the conversion is in progress
+	sei
+wait1:
+	cpi r20, 1		; wait for the interrupt
+	brne wait1
+	in r17, ADCSRA		; ADSC has been cleared and ADIF is set
+
+	out ADCSRA, r18		; start a second conversion
+	clr r19
+wait2:
+	inc r19
+	breq timeout		; the second conversion never completed
+	cpi r20, 2
+	brne wait2
+	ldi r21, SUCCESS
+	break
+
+timeout:
+	ldi r21, FAILURE
+	break
@@ -0,0 +1,6 @@
+; @Harness: barrier
+; @Purpose: "Test that threads released by the last thread to arrive meet at every phase of the spin barrier"
+; @Threads: 8
+; @Phases: 2000
+; @Fanout: 0
+; @Result: PASS
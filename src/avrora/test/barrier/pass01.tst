@@ -0,0 +1,8 @@
+; @Harness: barrier
+; @Purpose: "Test that threads can pass phases of the spin barrier ahead of the others and catch up with them later"
+; @Threads: 8
+; @Phases: 2000
+; @Fanout: 0
+; @Pass: true
+; @Remove: true
+; @Result: PASS
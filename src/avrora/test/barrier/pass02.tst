@@ -0,0 +1,9 @@
+; @Harness: barrier
+; @Purpose: "Test that threads can pass phases of the spin barrier and leave it while the others are released along a tree"
+; @Threads: 24
+; @Phases: 1000
+; @Fanout: 4
+; @Tree-threshold: 16
+; @Pass: true
+; @Remove: true
+; @Result: PASS
@@ -0,0 +1,8 @@
+; @Harness: barrier
+; @Purpose: "Test that the spin barrier stops waiting for threads that leave it, while the others are released along a tree"
+; @Threads: 24
+; @Phases: 1000
+; @Fanout: 4
+; @Tree-threshold: 16
+; @Remove: true
+; @Result: PASS
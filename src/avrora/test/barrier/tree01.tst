@@ -0,0 +1,7 @@
+; @Harness: barrier
+; @Purpose: "Test that threads released along a tree meet at every phase of the spin barrier"
+; @Threads: 24
+; @Phases: 1000
+; @Fanout: 4
+; @Tree-threshold: 16
+; @Result: PASS
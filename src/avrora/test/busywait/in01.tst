@@ -0,0 +1,21 @@
+; @Harness: simulator
+; @Interpreter: predecoded
+; @Purpose: "Test the cycle count of a busy wait on the overflow flag of timer0 with IN and SBRS, with the busy wait skipped"
+; @Result: "r16 = 42, cc = 2055"
+
+;  the program polls the overflow flag of timer0 with IN, SBRS and RJMP, a loop of 4 cycles. timer0
+;  is started at cycle 1 with a prescaler of 8 and overflows at cycle 1 + 8 * 256 = 2049. the loop
+;  begins at cycle 2, so the IN at cycle 2050 is the first to see the flag and the SBRS skips the
+;  RJMP, which leaves the LDI at cycle 2053 and the BREAK at cycle 2054.
+
+.equ SUCCESS = 42
+
+MAIN:
+	ldi r18, 0b00000010
+	out TCCR0, r18		;  start timer0 in normal mode, clk/8
+WAIT:
+	in r18, TIFR
+	sbrs r18, 0		;  TOV0
+	rjmp WAIT
+	ldi r16, SUCCESS
+	break
@@ -0,0 +1,55 @@
+; @Harness: simulator
+; @Interpreter: predecoded
+; @Purpose: "Test the interrupt timing of timer0 while the program waits in a busy loop, with the busy wait skipped"
+; @Result: "r16 = 42, r17 = 5, r20 = 7, r21 = 7, cc = 1310"
+
+;  the overflow handler of timer0 counts the overflows and reads the count, which tells the number of
+;  cycles between the overflow and the handler, while the program waits for the count in a loop of
+;  CPI and BRNE. the timer runs without prescaling, so the count shows every cycle of latency.
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN             ; reset #1
+L004:	jmp    INT_FAILURE      ; interrupt #2
+L008:	jmp    INT_FAILURE      ; interrupt #3
+L00C:	jmp    INT_FAILURE      ; interrupt #4
+L010:	jmp    INT_FAILURE      ; interrupt #5
+L014:	jmp    INT_FAILURE      ; interrupt #6
+L018:	jmp    INT_FAILURE      ; interrupt #7
+L01C:	jmp    INT_FAILURE      ; interrupt #8
+L020:	jmp    INT_FAILURE      ; interrupt #9
+L024:	jmp    INT_FAILURE      ; interrupt #10
+L028:	jmp    INT_FAILURE      ; interrupt #11
+L02C:	jmp    INT_FAILURE      ; interrupt #12
+L030:	jmp    INT_FAILURE      ; interrupt #13
+L034:	jmp    INT_FAILURE      ; interrupt #14
+L038:	jmp    INT_FAILURE      ; interrupt #15
+L03C:	jmp    INT_FAILURE      ; interrupt #16
+L040:	jmp    TIMER0_OVF       ; timer 0 overflow
+
+INT_FAILURE:
+	ldi r16, FAILURE
+	break
+
+TIMER0_OVF:
+	in r22, TCNT0
+	mov r21, r20
+	mov r20, r22
+	inc r17
+	reti
+
+MAIN:
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00000001
+	out TIMSK, r18		;  enable the overflow interrupt of timer0
+	sei
+	ldi r18, 0b00000001
+	out TCCR0, r18		;  start timer0 in normal mode without prescaling
+WAIT:
+	cpi r17, 5
+	brne WAIT
+	ldi r16, SUCCESS
+	break
@@ -0,0 +1,27 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the cycle count of a busy wait on the compare flag of timer0 with LDS, ANDI and BREQ, with every iteration interpreted"
+; @Result: "r16 = 42, r17 = 3, cc = 2418"
+
+;  the program polls the compare flag of timer0 in CTC mode three times, clearing it after each
+;  match, with a loop of LDS, ANDI and BREQ that takes 5 cycles. the flag is set every 100 ticks of
+;  the timer.
+
+.equ SUCCESS = 42
+
+MAIN:
+	ldi r18, 99
+	out OCR0, r18
+	ldi r19, 0b00000010
+	ldi r18, 0b00001010
+	out TCCR0, r18		;  start timer0 in CTC mode, clk/8
+WAIT:
+	lds r18, 0x56		;  TIFR
+	andi r18, 0b00000010	;  OCF0
+	breq WAIT
+	out TIFR, r19		;  clear OCF0
+	inc r17
+	cpi r17, 3
+	brne WAIT
+	ldi r16, SUCCESS
+	break
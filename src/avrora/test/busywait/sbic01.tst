@@ -0,0 +1,19 @@
+; @Harness: simulator
+; @Interpreter: predecoded
+; @Purpose: "Test the cycle count of a busy wait on the start conversion bit of the ADC with SBIC, with the busy wait skipped"
+; @Result: "r16 = 42, r17 = -105, cc = 1672"
+
+;  the program starts a conversion of the ADC and waits for its end by polling ADSC with SBIC and
+;  RJMP, a loop of 3 cycles.
+
+.equ SUCCESS = 42
+
+MAIN:
+	ldi r18, 0b11000111	;  set ADEN and ADSC, prescaler of 128
+	out ADCSRA, r18
+WAIT:
+	sbic ADCSRA, 6		;  ADSC
+	rjmp WAIT
+	in r17, ADCSRA		;  ADSC has been cleared and ADIF is set
+	ldi r16, SUCCESS
+	break
@@ -0,0 +1,8 @@
+; @Harness: channel
+; @Purpose: "Compare the channel against a reference with packets added as a whole and bytes written"
+; @Seeds: 200
+; @Operations: 2000
+; @Bits: 8
+; @Invert: true
+; @Packets: true
+; @Result: PASS
@@ -0,0 +1,7 @@
+; @Harness: channel
+; @Purpose: "Compare the channel against a reference with reads and writes in a channel of a byte per period"
+; @Seeds: 200
+; @Operations: 2000
+; @Bits: 8
+; @Invert: true
+; @Result: PASS
@@ -0,0 +1,38 @@
+; @Harness: simulator
+; @Interpreter: dbbc
+; @Options: -compile-threshold=100
+; @Purpose: "Test that traces compiled in the background are installed while the loop runs"
+; @Result: "r20 = 0, r21 = 16, r22 = -68, r23 = 8, r24 = 0, r25 = 0"
+
+;  the loop runs 3 * 65536 + 10000 times; the traces through the call to STEP
+;  are compiled by the background compiler and installed whenever they are
+;  ready, so the result must not depend on when that happens
+
+start:
+    ldi r16, 0x10
+    out SPH, r16
+    ldi r16, 0xff
+    out SPL, r16	;  initialize stack pointer
+    ldi r20, 4
+    ldi r24, low(-10000)
+    ldi r25, high(-10000)
+
+LOOP:
+    inc r21
+    mov r16, r21
+    andi r16, 3
+    brne COMMON
+    inc r22		;  every fourth iteration
+
+COMMON:
+    rcall STEP
+    adiw r24, 1
+    brne LOOP
+    dec r20
+    brne LOOP
+    break
+
+STEP:
+    add r23, r21
+    eor r22, r23
+    ret
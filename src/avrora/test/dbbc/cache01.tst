@@ -0,0 +1,31 @@
+; @Harness: code-cache
+; @Options: -compile-threshold=2 -background-compile=false
+; @Changed-options: -constant-propagation=true
+; @Purpose: "Test that compiled traces are saved to the code cache and reused by later runs"
+; @Result: PASS
+
+;  the traces through the call to STEP are compiled after two iterations;
+;  a second run must find them in the cache, and a run with a different
+;  compiler option must compile them again
+
+    ldi r16, 0xff
+    out SPL, r16	;  initialize stack pointer
+    ldi r20, 40
+
+LOOP:
+    inc r21
+    mov r16, r20
+    andi r16, 3
+    brne COMMON
+    inc r22		;  every fourth iteration
+
+COMMON:
+    rcall STEP
+    dec r20
+    brne LOOP
+    break
+
+STEP:
+    add r23, r21
+    inc r24
+    ret
@@ -0,0 +1,31 @@
+; @Harness: code-cache
+; @Options: -compile-threshold=0
+; @Changed-options: -use-register-array=false
+; @Purpose: "Test that blocks compiled before the program starts are saved to the code cache and reused"
+; @Result: PASS
+
+;  every block is compiled before the program starts; a second run must find
+;  them all in the cache, and a run with a different compiler option must
+;  compile them again
+
+    ldi r16, 0xff
+    out SPL, r16	;  initialize stack pointer
+    ldi r20, 40
+
+LOOP:
+    inc r21
+    mov r16, r20
+    andi r16, 3
+    brne COMMON
+    inc r22		;  every fourth iteration
+
+COMMON:
+    rcall STEP
+    dec r20
+    brne LOOP
+    break
+
+STEP:
+    add r23, r21
+    inc r24
+    ret
@@ -0,0 +1,91 @@
+; @Harness: simulator
+; @Interpreter: dbbc
+; @Purpose: "Test that compiled code returns to the interpreter when SEI enables a pending interrupt"
+; @Result: "r23 = 0, r26 = 0"
+
+;  the EEPROM ready interrupt is posted while interrupts are disabled; it
+;  must be taken as soon as the SEI enables it, before the instructions that
+;  follow
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN             ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    INT_FAILURE           ; interrupt #12
+L030:	jmp    INT_FAILURE           ; interrupt #13
+L034:	jmp    INT_FAILURE           ; interrupt #14
+L038:	jmp    INT_FAILURE           ; interrupt #15
+L03C:	jmp    INT_FAILURE           ; interrupt #16
+L040:	jmp    INT_FAILURE           ; interrupt #17
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+
+L058:	jmp    EE_READY         ; eeprom ready
+
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    INT_FAILURE           ; interrupt #28
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    INT_FAILURE           ; interrupt #30
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r23, FAILURE 		; indicate failure
+	break
+
+EE_READY:
+	or r23, r20		; record how many instructions ran before the interrupt
+	ldi r17, 0
+	out EECR, r17		; disable the interrupt again
+	reti
+
+MAIN:
+	ldi r18, 0x10
+	out SPH, r18
+	ldi r18, 0xff
+	out SPL, r18		;  initialize stack pointer
+	clr r23
+	clr r24
+	clr r25
+	ldi r26, 2		;  2 * 65536 iterations, enough for the loop to be compiled
+	ldi r16, 0b00001000	;  EERIE
+
+LOOP:
+	clr r20
+	cli
+	out EECR, r16		;  post the EEPROM ready interrupt
+	rjmp ENABLE
+
+ENABLE:
+	sei
+	inc r20
+	inc r20
+	inc r20
+	inc r20
+	inc r20
+	inc r20
+	adiw r24, 1
+	brne LOOP
+	dec r26
+	brne LOOP
+	break
@@ -0,0 +1,70 @@
+; @Harness: simulator
+; @Interpreter: dbbc
+; @Options: -compile-threshold=0
+; @Purpose: "Test that reprogramming the flash removes a compiled block that contains the new code"
+; @Result: "r20 = 1, r21 = 2, r23 = 0"
+
+;  every block is compiled before the program starts; the compiled block at
+;  TARGET begins in the page before the one that is written, so only its last
+;  two instructions are replaced, and it must be interpreted after the write
+
+.equ SPMCSR = 0x68
+.equ SPMEN = 0b00000001
+.equ PGWRT = 0b00000101
+
+start:
+    ldi r18, 0x10
+    out SPH, r18
+    ldi r18, 0xff
+    out SPL, r18	;  initialize stack pointer
+    clr r23
+    rcall TARGET
+    mov r20, r17
+
+    ldi r30, low(NEWCODE * 2)
+    ldi r31, high(NEWCODE * 2)
+    ldi r26, low(TAIL * 2)
+    ldi r27, high(TAIL * 2)
+    ldi r22, 2		;  the two words of the new code
+    ldi r19, SPMEN
+
+fill:
+    lpm r0, Z+
+    lpm r1, Z+
+    movw r24, r30
+    movw r30, r26
+    sts SPMCSR, r19
+    spm			;  fill the word of the page buffer
+    adiw r30, 2
+    movw r26, r30
+    movw r30, r24
+    dec r22
+    brne fill
+
+    ldi r30, low(TAIL * 2)
+    ldi r31, high(TAIL * 2)
+    ldi r19, PGWRT
+    sts SPMCSR, r19
+    spm			;  write the page that contains the end of TARGET
+
+busy:
+    lds r19, SPMCSR
+    sbrc r19, 0
+    rjmp busy
+
+    rcall TARGET
+    mov r21, r17
+    break
+
+NEWCODE:
+    .dw 0xe012		;  ldi r17, 2
+    .dw 0x9508		;  ret
+
+    .org 0x3fc
+TARGET:
+    ldi r16, 0
+    inc r16
+TAIL:
+    ldi r17, 1
+    ret
+    .byte 256		;  the rest of the page
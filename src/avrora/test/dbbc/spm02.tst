@@ -0,0 +1,82 @@
+; @Harness: simulator
+; @Interpreter: dbbc
+; @Options: -compile-threshold=2 -background-compile=false
+; @Purpose: "Test that reprogramming the flash removes a compiled trace that contains the new code"
+; @Result: "r18 = 4, r19 = 8, r23 = 0"
+
+;  the loop in RUN is compiled as a trace together with the subroutine TARGET
+;  that it calls; the page write replaces TARGET, so the trace that begins in
+;  RUN must be interpreted after the write
+
+.equ SPMCSR = 0x68
+.equ SPMEN = 0b00000001
+.equ PGWRT = 0b00000101
+
+start:
+    ldi r18, 0x10
+    out SPH, r18
+    ldi r18, 0xff
+    out SPL, r18	;  initialize stack pointer
+    clr r23
+    ldi r20, 4
+    rcall RUN
+    mov r18, r25
+
+    ldi r30, low(NEWCODE * 2)
+    ldi r31, high(NEWCODE * 2)
+    ldi r26, low(TARGET * 2)
+    ldi r27, high(TARGET * 2)
+    ldi r22, 3		;  the three words of the new code
+    ldi r19, SPMEN
+
+fill:
+    lpm r0, Z+
+    lpm r1, Z+
+    movw r24, r30
+    movw r30, r26
+    sts SPMCSR, r19
+    spm			;  fill the word of the page buffer
+    adiw r30, 2
+    movw r26, r30
+    movw r30, r24
+    dec r22
+    brne fill
+
+    ldi r30, low(TARGET * 2)
+    ldi r31, high(TARGET * 2)
+    ldi r19, PGWRT
+    sts SPMCSR, r19
+    spm			;  write the page that contains TARGET
+
+busy:
+    lds r19, SPMCSR
+    sbrc r19, 0
+    rjmp busy
+
+    ldi r20, 4
+    rcall RUN
+    mov r19, r25
+    break
+
+RUN:
+    clr r25
+again:
+    inc r24
+    inc r24
+    rcall TARGET
+    add r25, r17
+    dec r20
+    brne again
+    ret
+
+NEWCODE:
+    .dw 0xe012		;  ldi r17, 2
+    .dw 0x9503		;  inc r16
+    .dw 0x9508		;  ret
+
+    .org 0x400
+TARGET:
+    ldi r17, 1
+    inc r16
+    ret
+    .byte 256		;  the rest of the page
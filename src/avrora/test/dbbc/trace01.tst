@@ -0,0 +1,32 @@
+; @Harness: simulator
+; @Interpreter: dbbc
+; @Options: -compile-threshold=2 -background-compile=false
+; @Purpose: "Test that compiled traces return to the interpreter when execution leaves the trace"
+; @Result: "r20 = 0, r21 = 40, r22 = 10, r23 = 52, r24 = 40"
+
+;  the loop is compiled into traces through the call to STEP after two
+;  iterations; the branch to COMMON is taken three times out of four, so the
+;  iterations that take the other path leave the traces early
+
+start:
+    ldi r16, 0xff
+    out SPL, r16	;  initialize stack pointer
+    ldi r20, 40
+
+LOOP:
+    inc r21
+    mov r16, r20
+    andi r16, 3
+    brne COMMON
+    inc r22		;  every fourth iteration
+
+COMMON:
+    rcall STEP
+    dec r20
+    brne LOOP
+    break
+
+STEP:
+    add r23, r21
+    inc r24
+    ret
@@ -0,0 +1,53 @@
+; @Harness: simulator
+; @Purpose: "Test that EEWE only writes the EEPROM within four cycles of setting EEMWE, which stays set"
+; @Result: "r18 = 4, r20 = 6, r21 = 42, r22 = 0"
+
+;  the first write sets EEWE three cycles after EEMWE and writes 42 to address 0; the
+;  second sets EEWE four cycles after EEMWE, which leaves EEWE set and does not write
+;  43 to address 1
+
+start:
+	ldi r16, 0b00000100	; EEMWE
+	ldi r17, 0b00000110	; EEMWE and EEWE
+	ldi r20, 42
+	out EEDR, r20
+	clr r21
+	out EEARL, r21		; set EEPROM address to 0
+	out EECR, r16		; flag EEMWE
+	nop
+	nop
+	out EECR, r17		; flag EEWE three cycles later
+wait:
+	sbic EECR, 1		; wait for the write to complete
+	rjmp wait
+	in r18, EECR		; EEMWE is still set
+
+	ldi r20, 43
+	out EEDR, r20
+	ldi r21, 1
+	out EEARL, r21		; set EEPROM address to 1
+	clr r19
+	out EECR, r19		; clear EEMWE
+	out EECR, r16		; flag EEMWE again
+	nop
+	nop
+	nop
+	out EECR, r17		; flag EEWE four cycles later, which is too late
+	nop
+	nop
+	nop
+	nop
+	in r20, EECR		; EEWE is still set
+
+	clr r21
+	out EEARL, r21
+	sbi EECR, 0		; read address 0
+	in r21, EEDR		; this should be 42
+	ldi r22, 1
+	out EEARL, r22
+	cbi EECR, 0
+	sbi EECR, 0		; read address 1
+	in r22, EEDR		; this should be 0, since nothing was written
+
+end:
+	break
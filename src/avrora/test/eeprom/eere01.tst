@@ -0,0 +1,40 @@
+; @Harness: simulator
+; @Purpose: "Test that EERE reads the EEPROM when it is set and stays set until it is cleared"
+; @Result: "r16 = 5, r17 = 42, r18 = 42, r19 = 0, r22 = 42"
+
+;  this test writes 42 to address 5 of the eeprom and then reads addresses 5, 6
+;  and 5 again; a read only happens when EERE changes from zero to one
+
+start:
+	ldi r20, 42
+	out EEDR, r20
+	ldi r21, 5
+	out EEARL, r21		; set EEPROM address to 5
+	sbi EECR, 2		; flag EEMWE
+	sbi EECR, 1		; flag EEWE, initiate a write
+wait:
+	sbic EECR, 1		; wait for the write to complete
+	rjmp wait
+
+	clr r20
+	out EEDR, r20
+	sbi EECR, 0		; flag EERE, initiate a read
+	in r16, EECR		; EERE and EEMWE are still set
+	in r17, EEDR		; this should be 42
+
+	ldi r21, 6
+	out EEARL, r21
+	sbi EECR, 0		; EERE is already set, so this does not read
+	in r18, EEDR		; this should still be 42
+	cbi EECR, 0
+	sbi EECR, 0		; read the unwritten address 6
+	in r19, EEDR		; this should be 0
+
+	ldi r21, 5
+	out EEARL, r21
+	cbi EECR, 0
+	sbi EECR, 0		; read address 5 again
+	in r22, EEDR		; this should be 42
+
+end:
+	break
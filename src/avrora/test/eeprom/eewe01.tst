@@ -0,0 +1,26 @@
+; @Harness: simulator
+; @Purpose: "Test that setting EEWE without EEMWE does not write the EEPROM"
+; @Result: "r16 = 2, r17 = 0"
+
+;  without EEMWE, EEWE stays set and the EEPROM is not written
+
+start:
+	ldi r20, 42
+	out EEDR, r20
+	clr r21
+	out EEARL, r21		; set EEPROM address to 0
+	ldi r18, 0b00000010	; flag EEWE only
+	out EECR, r18
+	nop
+	nop
+	nop
+	nop
+	in r16, EECR		; EEWE is still set
+
+	clr r20
+	out EEDR, r20
+	sbi EECR, 0		; flag EERE, initiate a read
+	in r17, EEDR		; this should be 0, since nothing was written
+
+end:
+	break
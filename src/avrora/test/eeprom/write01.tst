@@ -0,0 +1,50 @@
+; @Harness: simulator
+; @Purpose: "Test that EEWE is cleared when the window opened by EEMWE closes, and that each write needs EEMWE to be set again"
+; @Result: "r16 = 6, r17 = 6, r18 = 4, r19 = 6, r22 = 42, r23 = 43"
+
+;  the write window closes four cycles after EEMWE is set, which clears EEWE; setting
+;  EEWE again without setting EEMWE again leaves EEWE set until software clears it
+
+start:
+	ldi r20, 42
+	out EEDR, r20
+	clr r21
+	out EEARL, r21		; set EEPROM address to 0
+	ldi r16, 0b00000100	; flag EEMWE
+	ldi r17, 0b00000110	; flag EEWE
+	out EECR, r16
+	out EECR, r17		; initiate a write
+	in r16, EECR		; two cycles after EEMWE, EEWE is still set
+	in r17, EECR		; three cycles after EEMWE, EEWE is still set
+	in r18, EECR		; four cycles after EEMWE, EEWE is clear
+
+	ldi r20, 43
+	out EEDR, r20
+	ldi r21, 1
+	out EEARL, r21		; set EEPROM address to 1
+	sbi EECR, 1		; flag EEWE without flagging EEMWE again
+	nop
+	nop
+	nop
+	nop
+	in r19, EECR		; EEWE is still set
+	cbi EECR, 1		; clear EEWE
+	cbi EECR, 2		; clear EEMWE
+	sbi EECR, 2		; flag EEMWE
+	sbi EECR, 1		; flag EEWE, initiate a second write
+wait:
+	sbic EECR, 1		; wait for the write to complete
+	rjmp wait
+
+	clr r21
+	out EEARL, r21
+	sbi EECR, 0		; read address 0
+	in r22, EEDR		; this should be 42
+	ldi r21, 1
+	out EEARL, r21
+	cbi EECR, 0
+	sbi EECR, 0		; read address 1
+	in r23, EEDR		; this should be 43
+
+end:
+	break
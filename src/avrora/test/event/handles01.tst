@@ -0,0 +1,8 @@
+; @Harness: event-queues
+; @Purpose: "Compare events scheduled and cancelled through handles of the timing wheel against removed and reinserted events in the delta queue"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Handles: 6
+; @Max-delay: 2000
+; @Result: PASS
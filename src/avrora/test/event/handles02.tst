@@ -0,0 +1,10 @@
+; @Harness: event-queues
+; @Purpose: "Compare events scheduled through handles against the delta queue, together with periodic events and with events that suspend the wheel"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Periodic: 4
+; @Handles: 6
+; @Max-delay: 2000
+; @Suspend: true
+; @Result: PASS
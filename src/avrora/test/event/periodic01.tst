@@ -0,0 +1,8 @@
+; @Harness: event-queues
+; @Purpose: "Compare periodic events in the timing wheel against reinserted events in the delta queue, with short delays"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Periodic: 4
+; @Max-delay: 2000
+; @Result: PASS
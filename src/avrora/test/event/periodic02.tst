@@ -0,0 +1,8 @@
+; @Harness: event-queues
+; @Purpose: "Compare periodic events in the timing wheel against reinserted events in the delta queue, with very long delays"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Periodic: 4
+; @Max-delay: 1099511627776
+; @Result: PASS
@@ -0,0 +1,7 @@
+; @Harness: event-queues
+; @Purpose: "Compare the timing wheel against the delta queue with random operations and short delays"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Max-delay: 2000
+; @Result: PASS
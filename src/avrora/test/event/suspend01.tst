@@ -0,0 +1,8 @@
+; @Harness: event-queues
+; @Purpose: "Compare the timing wheel against the delta queue when events suspend the wheel and it is resumed after each operation"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Max-delay: 2000
+; @Suspend: true
+; @Result: PASS
@@ -0,0 +1,9 @@
+; @Harness: event-queues
+; @Purpose: "Compare periodic events in the timing wheel against the delta queue when events suspend the wheel"
+; @Seeds: 200
+; @Operations: 2000
+; @Events: 30
+; @Periodic: 4
+; @Max-delay: 2000
+; @Suspend: true
+; @Result: PASS
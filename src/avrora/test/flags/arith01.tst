@@ -0,0 +1,32 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the flags of additions with and without carry with lazy flags"
+; @Result: "r0 = 1, r1 = 44, r2 = 32, r3 = 27, r4 = 0, r5 = 20, r16 = 16, r17 = -128, r22 = 1"
+
+;  sixteen bit additions whose flags are observed after each instruction: a carry out of
+;  the low byte, a signed overflow, a half carry, and a zero result with a carry
+
+start:
+	ldi r16, 0xF0
+	ldi r17, 0x7F
+	ldi r18, 0x20
+	ldi r19, 0x00
+	add r16, r18		; 0xF0 + 0x20 = 0x10, carry
+	in r0, SREG
+	adc r17, r19		; 0x7F + 0x00 + 1 = 0x80, overflow
+	in r1, SREG
+	ldi r20, 0x0F
+	ldi r21, 0x01
+	add r20, r21		; 0x0F + 0x01 = 0x10, half carry
+	in r2, SREG
+	ldi r22, 0x80
+	add r22, r22		; 0x80 + 0x80 = 0x00, carry, zero and overflow
+	in r3, SREG
+	adc r22, r19		; 0x00 + 0x00 + 1 = 0x01
+	in r4, SREG
+	ldi r23, 0xFF
+	adc r23, r19		; 0xFF + 0x00 + 0 = 0xFF, negative
+	in r5, SREG
+
+end:
+	break
@@ -0,0 +1,61 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the instructions that set and clear single flags, and the branches on single flags, with lazy flags"
+; @Result: "r0 = 3, r1 = 1, r2 = 22, r3 = 43, r4 = 50, r5 = 0, r24 = 15"
+
+;  instructions that set or clear single flags, and branches that test single bits of the status
+;  register, after arithmetic whose other flags are still pending
+
+start:
+	clr r24
+	ldi r16, 0x01
+	ldi r17, 0x01
+	cp r16, r17		; equal, no carry
+	sec			; only the carry changes
+	in r0, SREG
+	clr r18
+	adc r18, r18		; 0 + 0 + 1
+	mov r1, r18
+	ldi r16, 0xFF
+	subi r16, 0x01		; 0xFE, negative
+	clc
+	bset 1			; set Z
+	in r2, SREG
+	breq L1
+	rjmp L2
+L1:
+	ori r24, 0x01
+L2:
+	ldi r16, 0x00
+	cpi r16, 0x00		; zero
+	bclr 1			; clear Z
+	brbs 1, L3		; not taken
+	ori r24, 0x02
+L3:
+	ldi r16, 0x00
+	cpi r16, 0x01		; borrow and negative
+	brbc 2, L4		; N is set, not taken
+	ori r24, 0x04
+L4:
+	brbs 0, L5		; C is set, taken
+	rjmp L6
+L5:
+	ori r24, 0x08
+L6:
+	cln
+	sez
+	sev
+	in r3, SREG
+	ldi r16, 0x00
+	subi r16, 0x00		; all flags of the subtraction clear except Z
+	seh
+	ses
+	in r4, SREG
+	clz
+	clh
+	cls
+	clv
+	in r5, SREG
+
+end:
+	break
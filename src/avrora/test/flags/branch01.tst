@@ -0,0 +1,88 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the branches on the sign, overflow, negative and half carry flags with lazy flags"
+; @Result: "r0 = 20, r19 = 1, r20 = 1, r21 = 1, r22 = 1, r23 = 1, r24 = 1, r25 = 1, r26 = 1, r27 = 1, r28 = 1, r29 = 1, r30 = 1, r31 = 1"
+
+;  the signed and half carry branches after arithmetic, comparisons and logic; each taken
+;  branch loads one into a register, which leaves the flags as they are for the next branch
+
+start:
+	ldi r16, 0x7F
+	ldi r17, 0x01
+	add r16, r17		; 0x7F + 0x01 = 0x80: N and V are set, S is clear
+	brvs L1
+	rjmp L2
+L1:
+	ldi r20, 1
+L2:
+	brmi L3
+	rjmp L4
+L3:
+	ldi r21, 1
+L4:
+	brge L5
+	rjmp L6
+L5:
+	ldi r22, 1
+L6:
+	ldi r18, 0x80
+	cpi r18, 0x01		; -128 - 1 = 0x7F: V and S are set, N is clear
+	brlt L7
+	rjmp L8
+L7:
+	ldi r23, 1
+L8:
+	brvc L9
+	ldi r24, 1
+L9:
+	brpl L10
+	rjmp L11
+L10:
+	ldi r25, 1
+L11:
+	ldi r18, 0x08
+	ldi r19, 0x08
+	add r18, r19		; a half carry out of bit 3
+	brhs L12
+	rjmp L13
+L12:
+	ldi r26, 1
+L13:
+	ldi r18, 0x10
+	subi r18, 0x01		; a half borrow into bit 3
+	brhc L14
+	ldi r27, 1
+L14:
+	ldi r18, 0x11
+	subi r18, 0x01		; no half borrow
+	brhc L15
+	rjmp L16
+L15:
+	ldi r28, 1
+L16:
+	ldi r18, 0x80
+	andi r18, 0xFF		; a logical operation: N and S are set, V is clear
+	brlt L17
+	rjmp L18
+L17:
+	ldi r29, 1
+L18:
+	brvc L19
+	rjmp L20
+L19:
+	ldi r30, 1
+L20:
+	brge L21
+	ldi r31, 1
+L21:
+	in r0, SREG
+	ldi r18, 0x01
+	cpi r18, 0x01		; equal: S is clear again
+	brge L22
+	rjmp L23
+L22:
+	ldi r19, 1
+L23:
+
+end:
+	break
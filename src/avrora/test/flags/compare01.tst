@@ -0,0 +1,58 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test multi-byte comparisons with CP and CPC and the branches on their carry and zero flags with lazy flags"
+; @Result: "r0 = 0, r1 = 2, r2 = 53, r3 = 2, r24 = 7"
+
+;  twenty four bit comparisons with CP, CPC and CPC, where the zero flag of the result is
+;  the zero flag of the whole comparison; the outcome of each is recorded as a bit of r24
+
+start:
+	clr r24
+	ldi r16, 0x00		; a = 0x010000
+	ldi r17, 0x00
+	ldi r18, 0x01
+	ldi r19, 0x00		; b = 0x000000
+	ldi r20, 0x00
+	ldi r21, 0x00
+	cp r16, r19
+	cpc r17, r20
+	cpc r18, r21
+	in r0, SREG
+	breq L1			; not equal, although the last byte is the only one that differs
+	ori r24, 0x01
+L1:
+	ldi r18, 0x00		; a = 0x000000
+	cp r16, r19
+	cpc r17, r20
+	cpc r18, r21
+	in r1, SREG
+	brne L2			; equal
+	ori r24, 0x02
+L2:
+	ldi r16, 0x01		; a = 0x000001, b = 0x000100
+	ldi r20, 0x01
+	cp r16, r19
+	cpc r17, r20
+	cpc r18, r21
+	in r2, SREG
+	brsh L3			; a is lower
+	ori r24, 0x04
+L3:
+	cpi r16, 0x01
+	cpc r17, r19		; the low bytes are equal and the high bytes are zero
+	in r3, SREG
+	breq L4
+	ori r24, 0x08
+L4:
+	ldi r25, 0x00
+	cpi r25, 0x01
+	brlo L5			; 0 is lower than 1
+	ori r24, 0x10
+L5:
+	cpi r25, 0x00
+	brcc L6			; 0 is the same as 0
+	ori r24, 0x20
+L6:
+
+end:
+	break
@@ -0,0 +1,71 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test that an interrupt handler that saves and restores the status register preserves pending flags with lazy flags"
+; @Result: "r20 = 20, r24 = 42"
+
+;  the overflow interrupt of timer0 arrives at different points of a loop of comparisons and
+;  branches, and its handler does arithmetic of its own; it saves and restores the status
+;  register, so the branches of the loop must see the flags of their comparisons
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN             ; reset #1
+L004:	jmp    INT_FAILURE      ; interrupt #2
+L008:	jmp    INT_FAILURE      ; interrupt #3
+L00C:	jmp    INT_FAILURE      ; interrupt #4
+L010:	jmp    INT_FAILURE      ; interrupt #5
+L014:	jmp    INT_FAILURE      ; interrupt #6
+L018:	jmp    INT_FAILURE      ; interrupt #7
+L01C:	jmp    INT_FAILURE      ; interrupt #8
+L020:	jmp    INT_FAILURE      ; interrupt #9
+L024:	jmp    INT_FAILURE      ; interrupt #10
+L028:	jmp    INT_FAILURE      ; interrupt #11
+L02C:	jmp    INT_FAILURE      ; interrupt #12
+L030:	jmp    INT_FAILURE      ; interrupt #13
+L034:	jmp    INT_FAILURE      ; interrupt #14
+L038:	jmp    INT_FAILURE      ; interrupt #15
+L03C:	jmp    INT_FAILURE      ; interrupt #16
+L040:	jmp    TIMER0_OVF       ; timer 0 overflow
+
+INT_FAILURE:
+	ldi r24, FAILURE
+	break
+
+TIMER0_OVF:
+	in r2, SREG		; save the flags of the interrupted program
+	inc r20
+	ldi r17, 0x7F
+	add r17, r17		; overflow, half carry
+	subi r17, 0xFF		; borrow
+	out SREG, r2		; restore the flags
+	reti
+
+MAIN:
+	ldi r16, 255
+	out SPL, r16		; initialize stack pointer
+	ldi r16, 0b00000001
+	out TIMSK, r16		; enable the overflow interrupt of timer0
+	out TCCR0, r16		; start timer0 without prescaling
+	sei
+LOOP:
+	ldi r16, 0x01
+	cpi r16, 0x02		; borrow
+	nop
+	brcc FAIL
+	brpl FAIL
+	cpi r16, 0x01		; equal
+	nop
+	brne FAIL
+	ldi r18, 0x7F
+	add r18, r16		; overflow
+	brvc FAIL
+	cpi r20, 20
+	brne LOOP
+	ldi r24, SUCCESS
+	break
+
+FAIL:
+	ldi r24, FAILURE
+	break
@@ -0,0 +1,35 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test that logical operations keep the half carry and carry of the arithmetic before them with lazy flags"
+; @Result: "r0 = 35, r1 = 53, r2 = 35, r3 = 0, r4 = 21, r5 = 53, r6 = 1, r7 = -1"
+
+;  logical operations clear V and set N and Z, but leave H and C as they were computed
+;  by the arithmetic before them
+
+start:
+	ldi r16, 0xFF
+	ldi r17, 0x01
+	add r16, r17		; 0xFF + 0x01 = 0x00, carry, half carry and zero
+	ldi r18, 0x0F
+	andi r18, 0xF0		; zero
+	in r0, SREG
+	ldi r19, 0x80
+	or r19, r18		; negative
+	in r1, SREG
+	eor r19, r19		; zero
+	in r2, SREG
+	clr r20
+	adc r20, r20		; the carry survived the logic operations
+	in r3, SREG
+	ldi r21, 0x10
+	subi r21, 0x20		; borrow, no half borrow
+	ori r21, 0x01
+	in r4, SREG
+	ldi r22, 0x00
+	sbci r22, 0x00		; 0 - 0 - 1 = 0xFF, the borrow survived the logic operation
+	in r5, SREG
+	mov r6, r20
+	mov r7, r22
+
+end:
+	break
@@ -0,0 +1,63 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the instructions that read or keep some of the pending flags with lazy flags"
+; @Result: "r2 = -128, r3 = 44, r4 = 1, r5 = 33, r6 = 0, r7 = 0, r8 = 52, r9 = 53, r10 = 53, r11 = 53, r12 = 33"
+
+;  shifts, rotates and other instructions that read or keep some of the flags of a pending
+;  operation, such as the carry into ROR and ROL, or the carry kept by INC and DEC
+
+start:
+	ldi r16, 0xFF
+	ldi r17, 0x01
+	add r16, r17		; carry
+	ldi r18, 0x00
+	ror r18			; the carry rotates into bit 7
+	mov r2, r18
+	in r3, SREG
+	ldi r16, 0x01
+	cpi r16, 0x02		; borrow
+	ldi r19, 0x00
+	rol r19			; the borrow rotates into bit 0
+	mov r4, r19
+	ldi r16, 0x01
+	cpi r16, 0x02		; borrow
+	inc r19			; INC keeps the carry
+	in r5, SREG
+	ldi r16, 0x05
+	subi r16, 0x01		; no borrow
+	dec r19			; DEC keeps the carry too
+	in r6, SREG
+	ldi r26, 0xFF
+	ldi r27, 0x00
+	ldi r16, 0x80
+	add r16, r16		; carry and overflow
+	adiw r26, 1		; 0x00FF + 1 = 0x0100, no carry
+	in r7, SREG
+	ldi r16, 0x01
+	cpi r16, 0x02		; borrow
+	ldi r20, 0x03
+	ldi r21, 0x05
+	mul r20, r21		; 15, no carry or zero
+	in r8, SREG
+	ldi r16, 0x00
+	cpi r16, 0x00		; zero
+	ldi r22, 0x01
+	neg r22
+	in r9, SREG
+	ldi r16, 0x00
+	cpi r16, 0x01		; borrow
+	ldi r23, 0x0F
+	com r23			; COM sets the carry
+	in r10, SREG
+	ldi r16, 0x00
+	cpi r16, 0x01		; borrow
+	ldi r23, 0x81
+	asr r23
+	in r11, SREG
+	ldi r16, 0x00
+	cpi r16, 0x01		; borrow
+	tst r17			; TST keeps the carry
+	in r12, SREG
+
+end:
+	break
@@ -0,0 +1,45 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test that the flags of a comparison survive the instructions that do not change them with lazy flags"
+; @Result: "r0 = 2, r24 = 42"
+
+;  instructions between a comparison and the branch on its result that do not touch the flags:
+;  skips, moves, loads and stores, and the T flag
+
+start:
+	clr r24
+	ldi r16, 0x03
+	ldi r17, 0x05
+	cp r16, r17		; borrow, negative
+	sbic PINB, 0		; skips the next instruction
+	rjmp FAIL
+	sbrs r16, 0		; skips the next instruction
+	rjmp FAIL
+	mov r18, r17
+	movw r20, r16
+	ldi r19, 0x42
+	sts 0x0100, r19
+	lds r22, 0x0100
+	bst r19, 1		; the T flag is not one of the flags of the comparison
+	bld r23, 0
+	set
+	clt
+	swap r19
+	brlo L1			; the borrow of the comparison
+	rjmp FAIL
+L1:
+	brmi L2
+	rjmp FAIL
+L2:
+	ldi r16, 0x07
+	cpi r16, 0x07
+	sbrc r16, 3		; skips the next instruction
+	rjmp FAIL
+	brne FAIL
+	ldi r24, 42
+	in r0, SREG
+	break
+
+FAIL:
+	ldi r24, 1
+	break
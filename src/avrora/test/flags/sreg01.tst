@@ -0,0 +1,60 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test reads and writes of the status register while flags are pending with lazy flags"
+; @Result: "r0 = 20, r1 = 0, r2 = 56, r3 = 56, r4 = 56, r5 = 1, r6 = 53, r20 = 1, r21 = 1, r22 = 1, r23 = 1, r24 = 1"
+
+;  writes to the status register replace the flags of a pending operation, and reads of it, with
+;  IN or through the stack, see the flags of the last operation
+
+start:
+	ldi r16, 255
+	out SPL, r16		; initialize stack pointer
+	ldi r16, 0xFF
+	ldi r17, 0x01
+	add r16, r17		; carry, half carry and zero
+	ldi r18, 0b00010100	; S and N
+	out SREG, r18		; replaces all of the flags
+	breq L1			; Z is now clear
+	ldi r20, 1
+L1:
+	brcs L2			; C is now clear
+	ldi r21, 1
+L2:
+	brlt L3			; S is now set
+	rjmp L4
+L3:
+	ldi r22, 1
+L4:
+	in r0, SREG
+	clr r19
+	adc r19, r19		; no carry in
+	mov r1, r19
+	ldi r16, 0x80
+	subi r16, 0x01		; 0x7F: overflow, sign and half borrow
+	in r2, SREG
+	push r2			; save the flags
+	ldi r16, 0x00
+	cpi r16, 0x00		; zero
+	pop r3
+	out SREG, r3		; restore the flags of the subtraction
+	brne L5			; Z is clear again
+	rjmp L6
+L5:
+	ldi r23, 1
+L6:
+	brvs L7			; V is set again
+	rjmp L8
+L7:
+	ldi r24, 1
+L8:
+	in r4, SREG
+	ldi r16, 0x01
+	cpi r16, 0x02		; borrow
+	sts 0x005F, r16		; write the status register through its memory address
+	in r5, SREG
+	ldi r16, 0x00
+	cpi r16, 0x01		; borrow
+	lds r6, 0x005F		; read the status register through its memory address
+
+end:
+	break
@@ -0,0 +1,36 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the flags of subtractions with and without carry with lazy flags"
+; @Result: "r0 = 21, r1 = 56, r2 = 53, r3 = 0, r4 = 2, r5 = 2, r6 = 13, r16 = -16, r17 = 127, r20 = -1"
+
+;  sixteen bit subtractions with a borrow from the low byte, subtractions of immediates,
+;  a subtraction with carry whose zero flag depends on the previous result, and a
+;  subtraction of a negative number that overflows
+
+start:
+	ldi r16, 0x10
+	ldi r17, 0x80
+	ldi r18, 0x20
+	ldi r19, 0x00
+	sub r16, r18		; 0x10 - 0x20 = 0xF0, borrow
+	in r0, SREG
+	sbc r17, r19		; 0x80 - 0x00 - 1 = 0x7F, overflow
+	in r1, SREG
+	ldi r20, 0x00
+	subi r20, 0x01		; 0x00 - 0x01 = 0xFF, borrow and half borrow
+	in r2, SREG
+	ldi r21, 0x01
+	sbci r21, 0x00		; 0x01 - 0x00 - 1 = 0x00, Z stays clear from the last result
+	in r3, SREG
+	ldi r22, 0x05
+	subi r22, 0x05		; 0x05 - 0x05 = 0x00, zero
+	in r4, SREG
+	ldi r23, 0x00
+	sbci r23, 0x00		; 0x00 - 0x00 - 0 = 0x00, Z stays set
+	in r5, SREG
+	ldi r24, 0x7F
+	subi r24, 0xFF		; 127 - -1 = 0x80, overflow and borrow
+	in r6, SREG
+
+end:
+	break
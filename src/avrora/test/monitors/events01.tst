@@ -0,0 +1,68 @@
+; @Harness: monitor
+; @Monitor: events
+; @Interpreter: predecoded
+; @Nodes: 2
+; @Purpose: "Test the report of the events monitor for each node and aggregated over two nodes"
+; @Result: "Timer8Bit$Ticker 10 1 9; EEPROM$WriteCompletion 1 0 1; total 11 1 10; Mean queue depth at insertion: 1.8181819 events; Maximum queue depth: 2 events; Cascaded: 4 slots; Cascaded: 4 entries; 0 6 54.5454 %; 1 5 45.4545 %; Timer8Bit$Ticker 10 1 9; EEPROM$WriteCompletion 1 0 1; total 11 1 10; Timer8Bit$Ticker 20 2 18; EEPROM$WriteCompletion 2 0 2; total 22 2 20; Cascaded: 8 slots; 0 12 54.5454 %; 1 10 45.4545 %"
+
+;  the program waits for four overflows of timer0 and then writes a byte to the EEPROM. the report
+;  lists the overflows, the compare matches of OCR0 = 0 at the start and after each overflow, the next
+;  event of the timer that is removed when it is turned off, and the completion of the EEPROM write,
+;  for each node and then for both nodes together
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+L000:	jmp    MAIN             ; reset #1
+L004:	jmp    INT_FAILURE      ; interrupt #2
+L008:	jmp    INT_FAILURE      ; interrupt #3
+L00C:	jmp    INT_FAILURE      ; interrupt #4
+L010:	jmp    INT_FAILURE      ; interrupt #5
+L014:	jmp    INT_FAILURE      ; interrupt #6
+L018:	jmp    INT_FAILURE      ; interrupt #7
+L01C:	jmp    INT_FAILURE      ; interrupt #8
+L020:	jmp    INT_FAILURE      ; interrupt #9
+L024:	jmp    INT_FAILURE      ; interrupt #10
+L028:	jmp    INT_FAILURE      ; interrupt #11
+L02C:	jmp    INT_FAILURE      ; interrupt #12
+L030:	jmp    INT_FAILURE      ; interrupt #13
+L034:	jmp    INT_FAILURE      ; interrupt #14
+L038:	jmp    INT_FAILURE      ; interrupt #15
+L03C:	jmp    INT_FAILURE      ; interrupt #16
+L040:	jmp    TIMER_OVF        ; timer 0 overflow
+
+INT_FAILURE:
+	ldi r16, FAILURE
+	break
+
+TIMER_OVF:
+	inc r17
+	reti
+
+MAIN:
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00000001
+	out TIMSK, r18		;  enable the overflow interrupt of timer0
+	ldi r18, 0b00000001
+	out TCCR0, r18		;  turn on timer0 without prescaling
+	sei
+
+WAIT:
+	cpi r17, 4
+	brne WAIT
+	cli
+	out TCCR0, r1		;  turn off timer0
+
+	ldi r18, 1
+	out EEARL, r18
+	ldi r18, SUCCESS
+	out EEDR, r18
+	sbi EECR, 2		;  set EEMWE
+	sbi EECR, 1		;  set EEWE
+
+POLL:
+	sbic EECR, 1
+	rjmp POLL
+	ldi r16, SUCCESS
+	break
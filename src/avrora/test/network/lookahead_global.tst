@@ -0,0 +1,8 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test that a sensor network with global synchronization and lookahead receives the same packets"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -monitors=packet -topology=../topology/line.top -synchronization=global -lookahead -nodecount=2,4 ../tinyos/CntToRfm.od ../tinyos/RfmToLeds.od
+; @Result: "2 2870988 Red: on; 2 4327117 Red: off; 2 4327132 Green: on; 2 6308556 Red: on; Monitors for node 0; Bytes sent: 200; Packets sent: 4; Monitors for node 1; Bytes sent: 200; Packets sent: 4"
+;  the radios of all nodes are powered down when they start, so they pass the first meet
+;  points and must catch up with the others when they power their radios up. the third
+;  node must receive the same packets at the same times as without the lookahead
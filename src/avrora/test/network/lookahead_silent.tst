@@ -0,0 +1,8 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test that nodes whose radios are never powered up are silent and do not disturb the others"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=2 -monitors=packet,avrora.test.RadioPowerMonitor -topology=../topology/line.top -synchronization=global -lookahead -nodecount=2,2 ../tinyos/CntToRfm.od ../tinyos/Blink.od
+; @Result: "2 7208139 Red: on; 2 14408142 Red: off; Monitors for node 0; Bytes sent: 376; Packets sent: 8; Radio powered down: false; Monitors for node 1; Bytes sent: 376; Packets sent: 8; Radio powered down: false; Monitors for node 2; Bytes sent: 0; Radio powered down: true; Monitors for node 3; Bytes sent: 0; Radio powered down: true"
+;  two nodes send their counter while two nodes blink and never touch their radios, which
+;  stay powered down from reset. the blinking nodes pass every meet point while the others
+;  transmit, and all of the nodes must behave exactly as without the lookahead
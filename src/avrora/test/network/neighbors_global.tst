@@ -0,0 +1,10 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test the neighbors of the free space air with global synchronization"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=0.01 -monitors=avrora.test.AirNeighborMonitor -topology=../topology/cells.top -synchronization=global -nodecount=12 ../tinyos/CntToRfm.od
+; @Result: "Monitors for node 0; Neighbors: 1 3 4 6 7; Neighbors sorted by distance: true; Monitors for node 1; Neighbors: 0 2 7 8; Neighbors sorted by distance: true; Monitors for node 2; Neighbors: 1 5 7 8; Neighbors sorted by distance: true; Monitors for node 3; Neighbors: 0 4 6 7; Neighbors sorted by distance: true; Monitors for node 4; Neighbors: 0 3; Neighbors sorted by distance: true; Monitors for node 5; Neighbors: 2; Neighbors sorted by distance: true; Monitors for node 6; Neighbors: 0 3; Neighbors sorted by distance: true; Monitors for node 7; Neighbors: 0 1 2 3 8; Neighbors sorted by distance: true; Monitors for node 8; Neighbors: 1 2 7; Neighbors sorted by distance: true; Monitors for node 9; Neighbors: 10; Neighbors sorted by distance: true; Monitors for node 10; Neighbors: 9; Neighbors sorted by distance: true; Monitors for node 11; Neighbors: none; Neighbors sorted by distance: true"
+
+;  the nodes of the topology lie on both sides of the boundaries of the cells of the grid through which
+;  the free space air finds the neighbors of a node, at distances just below and just above its range.
+;  the neighbors of each node must be exactly the nodes within range, which the expected result lists
+;  as found by comparing the distances of all pairs of nodes
@@ -0,0 +1,8 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test a sensor network with packet radios and global synchronization"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -monitors=packet -topology=../topology/line.top -synchronization=global -packet-radio -nodecount=2,4 ../tinyos/CntToRfm.od ../tinyos/RfmToLeds.od
+; @Result: "2 2870988 Red: on; 2 4327117 Red: off; 2 4327132 Green: on; 2 6308556 Red: on; Monitors for node 0; Bytes sent: 200; Packets sent: 4; Monitors for node 1; Bytes sent: 200; Packets sent: 4"
+
+;  the same network as sync_global, with radios that transmit whole packets. the packets must be
+;  received at the same times as the bytes sent one by one, so the result is the same
@@ -0,0 +1,10 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test a sensor network with packet radios and the simple air"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -monitors=packet -packet-radio -nodecount=2,4 ../tinyos/CntToRfm.od ../tinyos/RfmToLeds.od
+; @Result: "2 2619084 Red: on; 2 4327117 Red: off; 2 4327132 Green: on; 2 6111948 Red: on; Monitors for node 0; Bytes sent: 200; Packets sent: 4; Monitors for node 1; Bytes sent: 200; Packets sent: 4; Monitors for node 2; Bytes sent: 67; Packets sent: 1"
+
+;  all of the nodes are in range of each other in the simple air. the first two nodes send their counter
+;  in packets that the radios transmit as a whole, and the other four show the counter they receive on
+;  their LEDs; the zeros that the others send when they start do not form a packet, so their radios send
+;  them byte by byte. the result is that of the same network with radios that send all bytes one by one
@@ -0,0 +1,5 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test that an exception that escapes from a node run on a pool of workers terminates the simulation"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=10 -monitors=avrora.test.FailureMonitor -fail-at=4000000 -topology=../topology/line.top -synchronization=global -scheduler=pool -workers=2 -nodecount=3 ../tinyos/Blink.od
+; @Result: "Simulation terminated with unexpected exception: java.lang.IllegalStateException: node 0 failed"
@@ -0,0 +1,4 @@
+; @Harness: simulation
+; @Purpose: "Test that an unknown scheduler is rejected before any node is created"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -topology=../topology/line.top -scheduler=fibers -nodecount=2 ../tinyos/CntToRfm.od
+; @Result: "Unknown scheduler: "fibers""
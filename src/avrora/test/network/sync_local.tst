@@ -0,0 +1,10 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test a sensor network with local synchronization"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -monitors=packet -topology=../topology/line.top -synchronization=local -nodecount=2,4 ../tinyos/CntToRfm.od ../tinyos/RfmToLeds.od
+; @Result: "2 2870988 Red: on; 2 4327117 Red: off; 2 4327132 Green: on; 2 6308556 Red: on; Monitors for node 0; Bytes sent: 200; Packets sent: 4; Monitors for node 1; Bytes sent: 200; Packets sent: 4"
+
+;  the first two nodes of a line send their counter and the other four show the counter
+;  they receive on their LEDs. only the third node is within the range of the second,
+;  and it must receive the same packets at the same times with global and with local
+;  synchronization
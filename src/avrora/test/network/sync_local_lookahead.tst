@@ -0,0 +1,4 @@
+; @Harness: simulation
+; @Purpose: "Test that the -lookahead option is rejected with local synchronization"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -topology=../topology/line.top -synchronization=local -lookahead -nodecount=2 ../tinyos/CntToRfm.od
+; @Result: "Avrora Error: The "lookahead" option is not supported with local synchronization"
@@ -0,0 +1,4 @@
+; @Harness: simulation
+; @Purpose: "Test that the -workers option is rejected with local synchronization"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=1 -topology=../topology/line.top -synchronization=local -workers=2 -nodecount=2 ../tinyos/CntToRfm.od
+; @Result: "Avrora Error: The "workers" option is not supported with local synchronization"
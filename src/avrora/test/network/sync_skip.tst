@@ -0,0 +1,10 @@
+; @Harness: simulation
+; @Interpreter: predecoded
+; @Purpose: "Test that global synchronization skips the intervals during which all of the nodes sleep"
+; @Options: -simulation=sensor-network -platform=mica2 -seconds=10 -monitors=events -topology=../topology/line.top -synchronization=global -nodecount=3 ../tinyos/Blink.od
+; @Result: "0 7208139 Red: on; 2 72008142 Red: off; Monitors for node 0; IntervalSynchronizer$SynchEvent 112 0 112; Monitors for node 1; IntervalSynchronizer$SynchEvent 112 0 112; Monitors for node 2; IntervalSynchronizer$SynchEvent 112 0 112"
+
+;  three nodes blink with their radios off and sleep between the timer interrupts, so the
+;  meet points are spread out to the next timer event of any node. without the skip, a meet
+;  point would be passed each interval; skipping one interval too many reaches only 60 of them.
+;  the LEDs must still change at the same cycles as on a single node
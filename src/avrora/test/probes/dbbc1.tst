@@ -0,0 +1,25 @@
+# @Harness: probes
+# @Result: 
+# @Program: trace.asm
+# @Interpreter: dbbc
+# @Options: -compile-threshold=0
+# @Purpose: this tests that a probe inserted into the middle of a compiled block removes the block
+
+probe P { | }
+event E { insert P 0x008; }
+
+main {
+  insert E 60;
+}
+
+result {
+  60 E;
+  60 P.before;
+  61 P.after;
+  74 P.before;
+  75 P.after;
+  88 P.before;
+  89 P.after;
+  102 P.before;
+  103 P.after;
+}
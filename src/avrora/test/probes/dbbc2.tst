@@ -0,0 +1,25 @@
+# @Harness: probes
+# @Result: 
+# @Program: trace.asm
+# @Interpreter: dbbc
+# @Options: -compile-threshold=2 -background-compile=false
+# @Purpose: this tests that a probe inserted into the second block of a compiled trace removes the trace
+
+probe P { | }
+event E { insert P 0x014; }
+
+main {
+  insert E 60;
+}
+
+result {
+  60 E;
+  65 P.before;
+  66 P.after;
+  79 P.before;
+  80 P.after;
+  93 P.before;
+  94 P.after;
+  107 P.before;
+  108 P.after;
+}
@@ -0,0 +1,28 @@
+; @Harness: simulator
+; @Purpose: "Test the instruction sequences that the predecoded interpreter fuses"
+; @Result: "r16 = 0, r17 = 2, r20 = 0"
+
+;  the loop runs twice through an LDI pair, a SUBI/SBCI pair, a CPI/CPC/BRNE
+;  sequence and a run of NOPs; the probe tests insert probes on the second
+;  instruction of each sequence
+
+start:
+    ldi r20, 2
+
+loop:
+    ldi r16, 1
+    ldi r17, 2
+    subi r16, 1
+    sbci r17, 0
+    cpi r16, 0
+    cpc r17, r1
+    brne skip
+
+skip:
+    nop
+    nop
+    dec r20
+    brne loop
+
+end:
+    break
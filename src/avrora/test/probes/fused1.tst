@@ -0,0 +1,36 @@
+# @Harness: probes
+# @Result: 
+# @Program: fused.asm
+# @Interpreter: predecoded
+# @Purpose: this tests that probes fire on the second instruction of the sequences that the interpreter fuses
+
+probe A { | }
+probe B { | }
+probe C { | }
+probe D { | }
+
+main {
+  insert A 0x004;
+  insert B 0x008;
+  insert C 0x00C;
+  insert D 0x012;
+}
+
+result {
+  2 A.before;
+  3 A.after;
+  4 B.before;
+  5 B.after;
+  6 C.before;
+  7 C.after;
+  10 D.before;
+  11 D.after;
+  15 A.before;
+  16 A.after;
+  17 B.before;
+  18 B.after;
+  19 C.before;
+  20 C.after;
+  23 D.before;
+  24 D.after;
+}
@@ -0,0 +1,24 @@
+# @Harness: probes
+# @Result: 
+# @Program: fused.asm
+# @Interpreter: predecoded
+# @Purpose: this tests that probes inserted while the program runs fire inside the sequences that the interpreter fuses
+
+probe A { | insert B 0x004; insert C 0x00C; }
+probe B { | }
+probe C { | }
+
+main {
+  insert A 0x014;
+}
+
+result {
+  11 A.before;
+  12 A.after;
+  15 B.before;
+  16 B.after;
+  19 C.before;
+  20 C.after;
+  24 A.before;
+  25 A.after;
+}
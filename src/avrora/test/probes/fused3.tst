@@ -0,0 +1,20 @@
+# @Harness: probes
+# @Result: 
+# @Program: fused.asm
+# @Interpreter: predecoded
+# @Purpose: this tests that the sequences that the interpreter fuses still run correctly after a probe inside them is removed
+
+probe A { remove A 0x004; | }
+probe B { | }
+
+main {
+  insert A 0x004;
+  insert B 0x018;
+}
+
+result {
+  2 A.before;
+  3 A.after;
+  26 B.before;
+  27 B.after;
+}
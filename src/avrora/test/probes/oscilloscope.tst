@@ -0,0 +1,12 @@
+# @Harness: probes
+# @Result: 
+# @Program: ../tinyos/Oscilloscope.od
+# @Interpreter: predecoded
+# @Cycles: 1000000
+# @Purpose: this tests that programs whose control flow graph cannot be built still load and run
+
+main {
+}
+
+result {
+}
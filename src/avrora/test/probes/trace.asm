@@ -0,0 +1,26 @@
+; @Harness: simulator
+; @Purpose: "Test a loop whose body calls a subroutine, which the dynamic compiler compiles as one trace"
+; @Result: "r20 = 0, r21 = 8, r22 = 8, r23 = 8, r24 = 8"
+
+;  the loop runs eight times; the probe tests insert probes into the compiled
+;  code of the loop while it runs
+
+setstack:
+    ldi r16, 255
+    out spl, r16
+    ldi r20, 8
+
+loop:
+    inc r21
+    inc r22
+    rcall step
+    dec r20
+    brne loop
+
+end:
+    break
+
+step:
+    inc r23
+    inc r24
+    ret
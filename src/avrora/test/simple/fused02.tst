@@ -0,0 +1,61 @@
+; @Harness: simulator
+; @Interpreter: lazy-flags
+; @Purpose: "Test the registers and flags after the instruction sequences that the lazy flags interpreter interprets one by one"
+; @Result: "r2 = 0, r3 = 2, r4 = 0, r5 = 2, r6 = 2, r22 = 1, r23 = 18, r25 = 52, r26 = -128, sreg = 53, cc = 89"
+
+;  each of the sequences that the predecoded interpreter fuses is followed by a read of
+;  SREG, and the last sequence leaves its flags for the result to check
+
+start:
+    ldi r21, 255
+    out spl, r21
+
+    ldi r16, 0x00       ; LDI pair
+    ldi r17, 0x01
+    subi r16, 0x01      ; SUBI/SBCI: 0x0100 - 1 borrows from the high byte
+    sbci r17, 0x00
+    in r2, SREG
+
+    subi r16, 0xff      ; SUBI/SBCI with a zero result: Z is kept from SUBI
+    sbci r17, 0x00
+    in r3, SREG
+
+    ldi r18, 0x34
+    ldi r19, 0x12
+    cpi r18, 0x35       ; CPI/CPC: 0x1234 < 0x1235
+    cpc r19, r17
+    in r4, SREG
+
+    ldi r20, 0x12
+    cp r18, r18         ; CP/CPC: equal
+    cpc r19, r20
+    in r5, SREG
+
+    ldi r24, 3
+loop:
+    push r18            ; PUSH and POP runs
+    push r19
+    push r24
+    pop r22
+    pop r23
+    pop r25
+    nop                 ; NOP run
+    nop
+    nop
+    subi r24, 1
+    cpi r24, 0          ; CPI/CPC/BRNE
+    cpc r24, r1
+    brne loop
+    in r6, SREG
+
+    ldi r26, 0x80
+    ldi r27, 0x00
+    cp r26, r27         ; CP/CPC/BRNE: 0x0080 - 0x0000 is not zero
+    cpc r27, r27
+    brne done
+    ldi r26, 1
+
+done:
+    cpi r26, 0x81       ; CPI/CPC: 0x0080 < 0x0081, negative and carry
+    cpc r27, r1
+    break
@@ -0,0 +1,15 @@
+; @Harness: simulator
+; @Purpose: "Test that a test case can run on a microcontroller other than the ATMega128"
+; @MCU: atmega32
+; @Result: "r17 = 0, r18 = 42"
+
+;  the ATMega32 has 2KB of SRAM ending at 0x085F, so a store past the end of it
+;  is lost, while it would be kept on the ATMega128
+
+start:
+	ldi r16, 42
+	sts 0x0900, r16
+	lds r17, 0x0900
+	sts 0x0800, r16
+	lds r18, 0x0800
+	break
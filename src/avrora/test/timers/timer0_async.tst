@@ -0,0 +1,22 @@
+; @Harness: simulator
+; @Purpose: "Test timer0 clocked asynchronously from an external clock that is slower than the main clock"
+; @External-clockspeed: 1000000
+; @Result: "r17 = 75, cc = 606"
+
+;  setting AS0 in ASSR clocks timer0 from the external clock, which runs at 1MHz
+;  while the cpu runs at 8MHz, so the timer ticks once every 8 cycles.
+;  the timer is started at cycle 4 and TCNT0 is read at cycle 604, after a loop of
+;  1 + 199 * 3 + 2 cycles, so the timer has ticked 600 / 8 = 75 times. with the
+;  external clock as fast as the main clock, the count would have wrapped around.
+
+start:
+	ldi r16, 0b00001000	; AS0
+	out ASSR, r16
+	ldi r16, 0b00000001	; no prescaling
+	out TCCR0, r16
+	ldi r18, 200
+loop:
+	dec r18
+	brne loop
+	in r17, TCNT0
+	break
@@ -0,0 +1,87 @@
+; @Harness: simulator
+; @Purpose: "Test a write of OCR0 while timer0 is running in normal mode"
+; @Result: "r16 = 42, cc = 272"
+
+;  this tests that a write of OCR0 takes effect at once in normal mode
+;  the timer is started at cycle 15 with a prescaler of 8, so tick k of the timer
+;  happens at cycle 15 + 8k.
+;  OCR0 is written with 30 at cycle 106, when the count is 11. OCR0 is not
+;  double buffered in normal mode, so the compare flag is set when the count
+;  leaves 30 at tick 31, which is cycle 263, and not when it leaves 200.
+;  the interrupt is taken at the cycle its flag is set, because the cpu sleeps, and
+;  the vector jump, the ldi and the break take 4 + 3 + 2 cycles; a handler that
+;  first counts the interrupt with inc, cpi and breq takes 4 more cycles.
+;
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN                  ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    INT_FAILURE           ; interrupt #12
+L030:	jmp    INT_FAILURE           ; interrupt #13
+L034:	jmp    INT_FAILURE           ; interrupt #14
+L038:	jmp    INT_FAILURE           ; interrupt #15
+L03C:	jmp    DONE               ; timer 0 compare
+L040:	jmp    INT_FAILURE        ; timer 0 overflow
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+L058:	jmp    INT_FAILURE           ; interrupt #23
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    INT_FAILURE           ; interrupt #28
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    INT_FAILURE           ; interrupt #30
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r16, FAILURE 		; indicate failure
+	break
+
+
+DONE:
+	ldi r16, SUCCESS
+	break
+
+MAIN:
+	ldi r16, FAILURE
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00100000
+	out MCUCR, r18		;  enable sleep in idle mode
+	ldi r18, 200
+	out OCR0, r18
+	ldi r18, 0b00000011
+	out TIMSK, r18	;  enable compare and overflow interrupts
+	sei
+	ldi r18, 0b00000010
+	ldi r19, 30
+	out TCCR0, r18	;  start the timer in normal mode, clk/8
+	ldi r24, 30		; wait 90 cycles
+DELAY:
+	dec r24
+	brne DELAY
+	out OCR0, r19	;  the count is 11 here
+
+LOOP:
+	sleep
+	rjmp LOOP
@@ -0,0 +1,90 @@
+; @Harness: simulator
+; @Purpose: "Test a change of the prescaler of timer1 while it is running"
+; @Result: "r16 = 42, cc = 14343"
+
+;  this tests the timing of the overflow of timer1 after a change of the prescaler
+;  the timer is started at cycle 17 with a prescaler of 8, so tick k of the timer
+;  happens at cycle 17 + 8k.
+;  the count starts at 0xFF00 and the clock select is changed to clk/64 at cycle
+;  318, when the count is 0xFF00 + 37. the simulator starts the prescaler again at
+;  each write of the clock select bits, so the remaining 219 ticks happen every 64
+;  cycles from cycle 318 and the overflow flag is set at cycle 14334.
+;  the interrupt is taken at the cycle its flag is set, because the cpu sleeps, and
+;  the vector jump, the ldi and the break take 4 + 3 + 2 cycles; a handler that
+;  first counts the interrupt with inc, cpi and breq takes 4 more cycles.
+;
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN                  ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    INT_FAILURE        ; timer 1 capture
+L030:	jmp    INT_FAILURE        ; timer 1 compare A
+L034:	jmp    INT_FAILURE        ; timer 1 compare B
+L038:	jmp    DONE               ; timer 1 overflow
+L03C:	jmp    INT_FAILURE           ; interrupt #16
+L040:	jmp    INT_FAILURE           ; interrupt #17
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+L058:	jmp    INT_FAILURE           ; interrupt #23
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    INT_FAILURE           ; interrupt #28
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    INT_FAILURE           ; interrupt #30
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r16, FAILURE 		; indicate failure
+	break
+
+
+DONE:
+	ldi r16, SUCCESS
+	break
+
+MAIN:
+	ldi r16, FAILURE
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00100000
+	out MCUCR, r18		;  enable sleep in idle mode
+	ldi r18, 255
+	out TCNT1H, r18
+	ldi r18, 0
+	out TCNT1L, r18
+	ldi r18, 0b00000100
+	out TIMSK, r18	;  enable the overflow interrupt
+	sei
+	ldi r18, 0b00000010
+	ldi r19, 0b00000011
+	out TCCR1B, r18	;  start the timer in normal mode, clk/8
+	ldi r24, 100		; wait 300 cycles
+DELAY:
+	dec r24
+	brne DELAY
+	out TCCR1B, r19	;  change to clk/64
+
+LOOP:
+	sleep
+	rjmp LOOP
@@ -0,0 +1,111 @@
+; @Harness: simulator
+; @Purpose: "Test the overflow, capture and compare match times of timer1 in phase correct PWM mode"
+; @Result: "r16 = 42, r17 = 3, r20 = 59, r21 = 61, r23 = 2, cc = 3244"
+
+;  this tests the timing of the interrupts of timer1 in phase correct PWM mode
+;  the timer is started at cycle 23 with a prescaler of 8, so tick k of the timer
+;  happens at cycle 23 + 8k.
+;  in mode 10 the overflow flag is set when the count leaves BOTTOM, at tick 1
+;  and then every 2 * ICR1 = 200 ticks, the third time at tick 401, which is cycle
+;  3231. the input capture flag is set when the count leaves TOP, at the ticks
+;  101 and 301. OCR1A is double buffered and the value 60 written after the start
+;  only takes effect at TOP, so the compare flag is set when the count leaves 30
+;  at tick 31 and then when it leaves 60, at the ticks 141, 261 and 341. the
+;  handler reads 61 and 59 the last two times.
+;  the interrupt is taken at the cycle its flag is set, because the cpu sleeps, and
+;  the vector jump, the ldi and the break take 4 + 3 + 2 cycles; a handler that
+;  first counts the interrupt with inc, cpi and breq takes 4 more cycles.
+;
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN                  ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    TIMER1_CAPT        ; timer 1 capture
+L030:	jmp    TIMER1_COMPA       ; timer 1 compare A
+L034:	jmp    INT_FAILURE        ; timer 1 compare B
+L038:	jmp    TIMER1_OVF         ; timer 1 overflow
+L03C:	jmp    INT_FAILURE           ; interrupt #16
+L040:	jmp    INT_FAILURE           ; interrupt #17
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+L058:	jmp    INT_FAILURE           ; interrupt #23
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    INT_FAILURE           ; interrupt #28
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    INT_FAILURE           ; interrupt #30
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r16, FAILURE 		; indicate failure
+	break
+
+TIMER1_CAPT:
+	inc r23
+	reti
+
+TIMER1_COMPA:
+	in r22, TCNT1L		;  read the count in the same prescaler period
+	mov r21, r20
+	mov r20, r22
+	reti
+
+TIMER1_OVF:
+	inc r17
+	cpi r17, 3
+	breq DONE
+	reti
+
+DONE:
+	ldi r16, SUCCESS
+	break
+
+MAIN:
+	ldi r16, FAILURE
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00100000
+	out MCUCR, r18		;  enable sleep in idle mode
+	ldi r18, 0
+	out ICR1H, r18
+	ldi r18, 100
+	out ICR1L, r18
+	ldi r18, 0
+	out OCR1AH, r18
+	ldi r18, 30
+	out OCR1AL, r18
+	ldi r18, 0b00110100
+	out TIMSK, r18	;  enable capture, compare A and overflow interrupts
+	ldi r18, 0b00000010
+	out TCCR1A, r18
+	sei
+	ldi r18, 0b00010010
+	ldi r19, 60
+	out TCCR1B, r18	;  start the timer in mode 10, clk/8
+	out OCR1AH, r0
+	out OCR1AL, r19	;  buffered until TOP
+
+LOOP:
+	sleep
+	rjmp LOOP
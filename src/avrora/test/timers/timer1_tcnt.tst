@@ -0,0 +1,95 @@
+; @Harness: simulator
+; @Purpose: "Test a write of TCNT1 above TOP while timer1 is running in CTC mode"
+; @Result: "r16 = 42, r17 = 1, cc = 1019"
+
+;  this tests a write of TCNT1 above TOP in CTC mode
+;  the timer is started at cycle 18 with a prescaler of 8, so tick k of the timer
+;  happens at cycle 18 + 8k.
+;  TCNT1 is written with 0xFFF0, above OCR1A = 100, at cycle 80, between the
+;  ticks 7 and 8. the counter misses the compare match and counts to MAX, so
+;  the overflow flag is set when it leaves MAX at tick 23, and the compare flag
+;  is set when the count leaves 100 at tick 124, which is cycle 1010.
+;  the interrupt is taken at the cycle its flag is set, because the cpu sleeps, and
+;  the vector jump, the ldi and the break take 4 + 3 + 2 cycles; a handler that
+;  first counts the interrupt with inc, cpi and breq takes 4 more cycles.
+;
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN                  ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    INT_FAILURE        ; timer 1 capture
+L030:	jmp    DONE               ; timer 1 compare A
+L034:	jmp    INT_FAILURE        ; timer 1 compare B
+L038:	jmp    TIMER1_OVF         ; timer 1 overflow
+L03C:	jmp    INT_FAILURE           ; interrupt #16
+L040:	jmp    INT_FAILURE           ; interrupt #17
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+L058:	jmp    INT_FAILURE           ; interrupt #23
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    INT_FAILURE           ; interrupt #28
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    INT_FAILURE           ; interrupt #30
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r16, FAILURE 		; indicate failure
+	break
+
+TIMER1_OVF:
+	inc r17
+	reti
+
+DONE:
+	ldi r16, SUCCESS
+	break
+
+MAIN:
+	ldi r16, FAILURE
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00100000
+	out MCUCR, r18		;  enable sleep in idle mode
+	ldi r18, 0
+	out OCR1AH, r18
+	ldi r18, 100
+	out OCR1AL, r18
+	ldi r18, 0b00010100
+	out TIMSK, r18	;  enable compare A and overflow interrupts
+	sei
+	ldi r18, 0b00001010
+	ldi r19, 0xff
+	ldi r20, 0xf0
+	out TCCR1B, r18	;  start the timer in mode 4, clk/8
+	ldi r24, 20		; wait 60 cycles
+DELAY:
+	dec r24
+	brne DELAY
+	out TCNT1H, r19
+	out TCNT1L, r20	;  the count is written with the low byte
+
+LOOP:
+	sleep
+	rjmp LOOP
@@ -0,0 +1,98 @@
+; @Harness: simulator
+; @Purpose: "Test the overflow and compare match times of timer3 in fast PWM mode"
+; @Result: "r16 = 42, r17 = 3, r23 = 3, cc = 2441"
+
+;  this tests the timing of the interrupts of timer3 in fast PWM mode
+;  the timer is started at cycle 28 with a prescaler of 8, so tick k of the timer
+;  happens at cycle 28 + 8k.
+;  in mode 15 the overflow flag is set when the count leaves OCR3A = 99, every
+;  100 ticks and the third time at tick 300, which is cycle 2428. the compare B
+;  flag is set when the count leaves OCR3B = 40, at the ticks 41, 141 and 241.
+;  the interrupt is taken at the cycle its flag is set, because the cpu sleeps, and
+;  the vector jump, the ldi and the break take 4 + 3 + 2 cycles; a handler that
+;  first counts the interrupt with inc, cpi and breq takes 4 more cycles.
+;
+
+.equ FAILURE = 1
+.equ SUCCESS = 42
+
+; Interrupt Jump Table
+L000:	jmp    MAIN                  ; reset #1
+L004:	jmp    INT_FAILURE           ; interrupt #2
+L008:	jmp    INT_FAILURE           ; interrupt #3
+L00C:	jmp    INT_FAILURE           ; interrupt #4
+L010:	jmp    INT_FAILURE           ; interrupt #5
+L014:	jmp    INT_FAILURE           ; interrupt #6
+L018:	jmp    INT_FAILURE           ; interrupt #7
+L01C:	jmp    INT_FAILURE           ; interrupt #8
+L020:	jmp    INT_FAILURE           ; interrupt #9
+L024:	jmp    INT_FAILURE           ; interrupt #10
+L028:	jmp    INT_FAILURE           ; interrupt #11
+L02C:	jmp    INT_FAILURE           ; interrupt #12
+L030:	jmp    INT_FAILURE           ; interrupt #13
+L034:	jmp    INT_FAILURE           ; interrupt #14
+L038:	jmp    INT_FAILURE           ; interrupt #15
+L03C:	jmp    INT_FAILURE           ; interrupt #16
+L040:	jmp    INT_FAILURE           ; interrupt #17
+L044:	jmp    INT_FAILURE           ; interrupt #18
+L048:	jmp    INT_FAILURE           ; interrupt #19
+L04C:	jmp    INT_FAILURE           ; interrupt #20
+L050:	jmp    INT_FAILURE           ; interrupt #21
+L054:	jmp    INT_FAILURE           ; interrupt #22
+L058:	jmp    INT_FAILURE           ; interrupt #23
+L05C:	jmp    INT_FAILURE           ; interrupt #24
+L060:	jmp    INT_FAILURE           ; interrupt #25
+L064:	jmp    INT_FAILURE           ; interrupt #26
+L068:	jmp    INT_FAILURE           ; interrupt #27
+L06C:	jmp    TIMER3_COMPB       ; timer 3 compare B
+L070:	jmp    INT_FAILURE           ; interrupt #29
+L074:	jmp    TIMER3_OVF         ; timer 3 overflow
+L078:	jmp    INT_FAILURE           ; interrupt #31
+L07C:	jmp    INT_FAILURE           ; interrupt #32
+L080:	jmp    INT_FAILURE           ; interrupt #33
+L084:	jmp    INT_FAILURE           ; interrupt #34
+L088:	jmp    INT_FAILURE           ; interrupt #35
+
+INT_FAILURE:
+	ldi r16, FAILURE 		; indicate failure
+	break
+
+TIMER3_COMPB:
+	inc r23
+	reti
+
+TIMER3_OVF:
+	inc r17
+	cpi r17, 3
+	breq DONE
+	reti
+
+DONE:
+	ldi r16, SUCCESS
+	break
+
+MAIN:
+	ldi r16, FAILURE
+	ldi r18, 255
+	out SPL, r18		;  initialize stack pointer
+	ldi r18, 0b00100000
+	out MCUCR, r18		;  enable sleep in idle mode
+	ldi r18, 0
+	sts 0x87, r18	;  OCR3AH
+	ldi r18, 99
+	sts 0x86, r18	;  OCR3AL
+	ldi r18, 0
+	sts 0x85, r18	;  OCR3BH
+	ldi r18, 40
+	sts 0x84, r18	;  OCR3BL
+	ldi r18, 0b00001100
+	sts 0x7d, r18	;  enable compare B and overflow interrupts in ETIMSK
+	ldi r18, 0b00000011
+	sts 0x8b, r18	;  TCCR3A
+	sei
+	ldi r18, 0b00011010
+	sts 0x8a, r18	;  start the timer in mode 15, clk/8
+
+LOOP:
+	sleep
+	rjmp LOOP